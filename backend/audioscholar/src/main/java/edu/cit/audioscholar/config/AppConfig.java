@@ -7,7 +7,6 @@ import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
@@ -16,11 +15,6 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 @EnableCaching
 public class AppConfig {
 
-	@Bean
-	RestTemplate restTemplate() {
-		return new RestTemplate();
-	}
-
 	@Bean
 	public WebClient webClient() {
 		return WebClient.create();
@@ -0,0 +1,87 @@
+package edu.cit.audioscholar.config;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import edu.cit.audioscholar.util.PerHostLimitingRequestFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Outbound HTTP client shared by the Nhost, Gemini, ConvertAPI and Google Files
+ * API services. All of them go through one JDK {@link HttpClient}, which keeps
+ * connections alive between calls and negotiates HTTP/2 with hosts that offer
+ * it (the Google APIs do), falling back to HTTP/1.1 otherwise.
+ * <p>
+ * The JDK client does not cap or expose its connection pool, so concurrency is
+ * limited per host by {@link PerHostLimitingRequestFactory}, which also
+ * publishes the {@code audioscholar.http.client.*} pool metrics. Gemini calls
+ * run for minutes and are already bounded by the per-model limiters, so the
+ * Gemini host gets a limit above their combined maximum and never becomes the
+ * real bound. Request
+ * timings come from Boot's {@code http.client.requests} observation because the
+ * template is built through {@link RestTemplateBuilder}.
+ * <p>
+ * How long idle connections are kept is a JVM-wide setting of the JDK client
+ * ({@code -Djdk.httpclient.keepalive.timeout}), so it is set on the command
+ * line rather than from here.
+ */
+@Configuration
+public class HttpClientConfig {
+
+	private static final Logger log = LoggerFactory.getLogger(HttpClientConfig.class);
+
+	private static final String KEEPALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+	@Bean
+	HttpClient outboundHttpClient(@Value("${app.http.client.connect-timeout:10s}") Duration connectTimeout,
+			@Value("${app.http.client.http2-enabled:true}") boolean http2Enabled) {
+		String keepAlive = System.getProperty(KEEPALIVE_PROPERTY);
+		log.info("Outbound HTTP client: {} preferred, connect timeout {}, keep-alive {}",
+				http2Enabled ? "HTTP/2" : "HTTP/1.1", connectTimeout,
+				keepAlive != null ? keepAlive + "s" : "JDK default");
+		return HttpClient.newBuilder().version(http2Enabled ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+				.connectTimeout(connectTimeout).followRedirects(HttpClient.Redirect.NORMAL).build();
+	}
+
+	@Bean
+	RestTemplate restTemplate(RestTemplateBuilder builder, HttpClient outboundHttpClient,
+			@Value("${app.http.client.read-timeout:10m}") Duration readTimeout,
+			@Value("${app.http.client.max-connections-per-host:64}") int maxConnectionsPerHost,
+			@Value("${app.http.client.host-limits:generativelanguage.googleapis.com:256}") String hostLimits,
+			@Value("${app.http.client.acquire-timeout:30s}") Duration acquireTimeout, MeterRegistry meterRegistry) {
+		JdkClientHttpRequestFactory jdkFactory = new JdkClientHttpRequestFactory(outboundHttpClient);
+		jdkFactory.setReadTimeout(readTimeout);
+		Map<String, Integer> limits = parseHostLimits(hostLimits);
+		log.info("Outbound HTTP client: read timeout {}, at most {} concurrent requests per host, overrides {}",
+				readTimeout, maxConnectionsPerHost, limits);
+		return builder.requestFactory(() -> new PerHostLimitingRequestFactory(jdkFactory, maxConnectionsPerHost,
+				limits, acquireTimeout, meterRegistry)).build();
+	}
+
+	/** Parses {@code host:limit,...}. */
+	static Map<String, Integer> parseHostLimits(String spec) {
+		Map<String, Integer> limits = new HashMap<>();
+		for (String entry : spec.split(",")) {
+			if (entry.isBlank()) {
+				continue;
+			}
+			String[] fields = entry.trim().split(":");
+			if (fields.length != 2) {
+				throw new IllegalArgumentException("Expected host:limit, got: " + entry);
+			}
+			limits.put(fields[0].trim(), Integer.parseInt(fields[1].trim()));
+		}
+		return Map.copyOf(limits);
+	}
+}
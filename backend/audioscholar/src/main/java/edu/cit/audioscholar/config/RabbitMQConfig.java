@@ -1,8 +1,16 @@
 package edu.cit.audioscholar.config;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.HeadersExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
@@ -13,6 +21,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -42,11 +51,47 @@ public class RabbitMQConfig {
 	public static final String RECOMMENDATIONS_QUEUE_NAME = "recommendations.queue";
 	public static final String RECOMMENDATIONS_ROUTING_KEY = "recommendations.process.key";
 
-	@Value("${spring.rabbitmq.listener.simple.concurrency:1}")
-	private int concurrency;
-
-	@Value("${spring.rabbitmq.listener.simple.max-concurrency:1}")
-	private int maxConcurrency;
+	/**
+	 * Jobs that are not ready yet are parked on a delay queue for the stage. The
+	 * queue has no consumers; once a message's TTL runs out the broker
+	 * dead-letters it back to the stage's queue through the processing exchange.
+	 * Every message on a delay queue waits the same time, so none of them can be
+	 * held up behind one with a longer TTL.
+	 */
+	public static final String DELAY_EXCHANGE_NAME = "audio.delay.exchange";
+	public static final String UPLOAD_DELAY_QUEUE_NAME = "nhost.upload.delay.queue";
+	public static final String PPTX_CONVERSION_DELAY_QUEUE_NAME = "pptx.conversion.delay.queue";
+	public static final String TRANSCRIPTION_DELAY_QUEUE_NAME = "audio.transcription.delay.queue";
+	public static final String SUMMARIZATION_DELAY_QUEUE_NAME = "summarization.delay.queue";
+
+	/**
+	 * Failed jobs wait out their retry delay on a retry queue. The delay is the
+	 * message's own expiration, and the queue dead-letters it back through the
+	 * processing exchange with the stage's routing key. A queue only expires
+	 * the message at its head, so retries are split into tiers by delay: a job
+	 * waits at most its tier's bound behind jobs with longer delays. The tier
+	 * is picked by the {@link #RETRY_TIER_HEADER} header on a headers exchange,
+	 * which leaves the routing key free to carry the stage.
+	 */
+	public static final String RETRY_EXCHANGE_NAME = "audio.retry.exchange";
+	public static final String RETRY_TIER_HEADER = "x-retry-tier";
+	private static final long[] RETRY_TIER_BOUNDS_MS = { 10_000, 60_000, 300_000 };
+
+	/** Jobs that failed for good wait here until an admin replays them. */
+	public static final String PARKING_LOT_QUEUE_NAME = "audio.parking-lot.queue";
+	public static final String PARKING_LOT_ROUTING_KEY = "audio.parking-lot.key";
+
+	@Value("${app.requeue.upload.delay-ms:10000}")
+	private int uploadDelayMs;
+
+	@Value("${app.requeue.pdf-conversion.delay-ms:10000}")
+	private int pdfConversionDelayMs;
+
+	@Value("${app.requeue.transcription.delay-ms:5000}")
+	private int transcriptionDelayMs;
+
+	@Value("${app.requeue.summarization.delay-ms:15000}")
+	private int summarizationDelayMs;
 
 	@Bean
 	TopicExchange exchange() {
@@ -58,6 +103,16 @@ public class RabbitMQConfig {
 		return new TopicExchange(UPLOAD_EXCHANGE_NAME, true, false);
 	}
 
+	@Bean
+	DirectExchange delayExchange() {
+		return new DirectExchange(DELAY_EXCHANGE_NAME, true, false);
+	}
+
+	@Bean
+	HeadersExchange retryExchange() {
+		return new HeadersExchange(RETRY_EXCHANGE_NAME, true, false);
+	}
+
 	@Bean("processingQueue")
 	Queue processingQueue() {
 		return new Queue(PROCESSING_QUEUE_NAME, true);
@@ -88,6 +143,71 @@ public class RabbitMQConfig {
 		return new Queue(RECOMMENDATIONS_QUEUE_NAME, true);
 	}
 
+	@Bean("parkingLotQueue")
+	Queue parkingLotQueue() {
+		return new Queue(PARKING_LOT_QUEUE_NAME, true);
+	}
+
+	/*
+	 * Both upload routing keys land on the same queue and the listener reads the
+	 * file type from the message, so parked uploads of either kind come back
+	 * through the audio key.
+	 */
+	@Bean("uploadDelayQueue")
+	Queue uploadDelayQueue() {
+		return delayQueue(UPLOAD_DELAY_QUEUE_NAME, UPLOAD_AUDIO_ROUTING_KEY, uploadDelayMs);
+	}
+
+	@Bean("pptxConversionDelayQueue")
+	Queue pptxConversionDelayQueue() {
+		return delayQueue(PPTX_CONVERSION_DELAY_QUEUE_NAME, PPTX_CONVERSION_ROUTING_KEY, pdfConversionDelayMs);
+	}
+
+	@Bean("transcriptionDelayQueue")
+	Queue transcriptionDelayQueue() {
+		return delayQueue(TRANSCRIPTION_DELAY_QUEUE_NAME, TRANSCRIPTION_ROUTING_KEY, transcriptionDelayMs);
+	}
+
+	@Bean("summarizationDelayQueue")
+	Queue summarizationDelayQueue() {
+		return delayQueue(SUMMARIZATION_DELAY_QUEUE_NAME, SUMMARIZATION_ROUTING_KEY, summarizationDelayMs);
+	}
+
+	@Bean
+	Declarables retryQueues(HeadersExchange retryExchange) {
+		List<Declarable> declarables = new ArrayList<>();
+		for (long bound : RETRY_TIER_BOUNDS_MS) {
+			String tier = retryTier(bound);
+			Queue queue = QueueBuilder.durable("audio.retry." + tier + ".queue")
+					.deadLetterExchange(PROCESSING_EXCHANGE_NAME).build();
+			declarables.add(queue);
+			declarables.add(BindingBuilder.bind(queue).to(retryExchange).where(RETRY_TIER_HEADER).matches(tier));
+		}
+		return new Declarables(declarables);
+	}
+
+	/**
+	 * The retry tier for a delay: the smallest tier bound that covers it, or
+	 * the largest tier for delays beyond every bound.
+	 */
+	public static String retryTierFor(long delayMs) {
+		for (long bound : RETRY_TIER_BOUNDS_MS) {
+			if (delayMs <= bound) {
+				return retryTier(bound);
+			}
+		}
+		return retryTier(RETRY_TIER_BOUNDS_MS[RETRY_TIER_BOUNDS_MS.length - 1]);
+	}
+
+	private static String retryTier(long boundMs) {
+		return boundMs / 1000 + "s";
+	}
+
+	private static Queue delayQueue(String name, String targetRoutingKey, int delayMs) {
+		return QueueBuilder.durable(name).ttl(delayMs).deadLetterExchange(PROCESSING_EXCHANGE_NAME)
+				.deadLetterRoutingKey(targetRoutingKey).build();
+	}
+
 	@Bean
 	Binding processingBinding(@Qualifier("processingQueue") Queue queue, TopicExchange exchange) {
 		return BindingBuilder.bind(queue).to(exchange).with(PROCESSING_ROUTING_KEY);
@@ -123,6 +243,34 @@ public class RabbitMQConfig {
 		return BindingBuilder.bind(queue).to(exchange).with(RECOMMENDATIONS_ROUTING_KEY);
 	}
 
+	@Bean
+	Binding parkingLotBinding(@Qualifier("parkingLotQueue") Queue queue, TopicExchange exchange) {
+		return BindingBuilder.bind(queue).to(exchange).with(PARKING_LOT_ROUTING_KEY);
+	}
+
+	@Bean
+	Binding uploadDelayBinding(@Qualifier("uploadDelayQueue") Queue queue, DirectExchange delayExchange) {
+		return BindingBuilder.bind(queue).to(delayExchange).with(UPLOAD_AUDIO_ROUTING_KEY);
+	}
+
+	@Bean
+	Binding pptxConversionDelayBinding(@Qualifier("pptxConversionDelayQueue") Queue queue,
+			DirectExchange delayExchange) {
+		return BindingBuilder.bind(queue).to(delayExchange).with(PPTX_CONVERSION_ROUTING_KEY);
+	}
+
+	@Bean
+	Binding transcriptionDelayBinding(@Qualifier("transcriptionDelayQueue") Queue queue,
+			DirectExchange delayExchange) {
+		return BindingBuilder.bind(queue).to(delayExchange).with(TRANSCRIPTION_ROUTING_KEY);
+	}
+
+	@Bean
+	Binding summarizationDelayBinding(@Qualifier("summarizationDelayQueue") Queue queue,
+			DirectExchange delayExchange) {
+		return BindingBuilder.bind(queue).to(delayExchange).with(SUMMARIZATION_ROUTING_KEY);
+	}
+
 	@Bean
 	public ObjectMapper rabbitObjectMapper() {
 		ObjectMapper objectMapper = new ObjectMapper();
@@ -143,17 +291,74 @@ public class RabbitMQConfig {
 		return rabbitTemplate;
 	}
 
+	/*
+	 * One container factory per stage, so each queue gets its own consumer count
+	 * and prefetch. The work is almost all waiting on Gemini, Nhost and
+	 * Firestore, so consumers run on virtual threads: a high max-concurrency
+	 * costs a few KB per idle consumer rather than a platform thread each.
+	 * What bounds the consumer counts is the outbound HTTP client's per-host cap
+	 * (see HttpClientConfig): uploads, transcription downloads (several ranges
+	 * each) and summarization PDF downloads all share the Nhost host's slots,
+	 * and a request that waits too long for one fails. The defaults add up to
+	 * just under that cap. Gemini calls queue in the per-model limiters instead,
+	 * whose combined maximum stays below the Gemini host's cap.
+	 */
+
+	@Bean("uploadContainerFactory")
+	public SimpleRabbitListenerContainerFactory uploadContainerFactory(ConnectionFactory connectionFactory,
+			MessageConverter messageConverter,
+			@Value("${app.rabbitmq.listener.upload.concurrency:2}") int concurrency,
+			@Value("${app.rabbitmq.listener.upload.max-concurrency:12}") int maxConcurrency,
+			@Value("${app.rabbitmq.listener.upload.prefetch:2}") int prefetch) {
+		return stageContainerFactory(connectionFactory, messageConverter, "UploadListener-", concurrency,
+				maxConcurrency, prefetch);
+	}
+
+	@Bean("transcriptionContainerFactory")
+	public SimpleRabbitListenerContainerFactory transcriptionContainerFactory(ConnectionFactory connectionFactory,
+			MessageConverter messageConverter,
+			@Value("${app.rabbitmq.listener.transcription.concurrency:2}") int concurrency,
+			@Value("${app.rabbitmq.listener.transcription.max-concurrency:8}") int maxConcurrency,
+			@Value("${app.rabbitmq.listener.transcription.prefetch:1}") int prefetch) {
+		return stageContainerFactory(connectionFactory, messageConverter, "TranscriptionListener-", concurrency,
+				maxConcurrency, prefetch);
+	}
+
+	@Bean("pptxConversionContainerFactory")
+	public SimpleRabbitListenerContainerFactory pptxConversionContainerFactory(ConnectionFactory connectionFactory,
+			MessageConverter messageConverter,
+			@Value("${app.rabbitmq.listener.pptx-conversion.concurrency:1}") int concurrency,
+			@Value("${app.rabbitmq.listener.pptx-conversion.max-concurrency:4}") int maxConcurrency,
+			@Value("${app.rabbitmq.listener.pptx-conversion.prefetch:1}") int prefetch) {
+		return stageContainerFactory(connectionFactory, messageConverter, "PptxListener-", concurrency,
+				maxConcurrency, prefetch);
+	}
+
 	@Bean("summarizationContainerFactory")
 	public SimpleRabbitListenerContainerFactory summarizationContainerFactory(ConnectionFactory connectionFactory,
-			MessageConverter messageConverter) {
+			MessageConverter messageConverter,
+			@Value("${app.rabbitmq.listener.summarization.concurrency:2}") int concurrency,
+			@Value("${app.rabbitmq.listener.summarization.max-concurrency:16}") int maxConcurrency,
+			@Value("${app.rabbitmq.listener.summarization.prefetch:1}") int prefetch) {
+		return stageContainerFactory(connectionFactory, messageConverter, "SummarizationListener-", concurrency,
+				maxConcurrency, prefetch);
+	}
+
+	private static SimpleRabbitListenerContainerFactory stageContainerFactory(ConnectionFactory connectionFactory,
+			MessageConverter messageConverter, String threadNamePrefix, int concurrency, int maxConcurrency,
+			int prefetch) {
 		SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
 		factory.setConnectionFactory(connectionFactory);
 		factory.setMessageConverter(messageConverter);
+		factory.setTaskExecutor(new VirtualThreadTaskExecutor(threadNamePrefix));
 
-		factory.setConcurrentConsumers(concurrency);
-		factory.setMaxConcurrentConsumers(maxConcurrency);
+		int consumers = Math.max(1, concurrency);
+		factory.setConcurrentConsumers(consumers);
+		factory.setMaxConcurrentConsumers(Math.max(consumers, maxConcurrency));
 
-		factory.setPrefetchCount(1);
+		// Jobs run for minutes; a consumer holding several unacked jobs would keep
+		// them from idle consumers on other instances.
+		factory.setPrefetchCount(Math.max(1, prefetch));
 		return factory;
 	}
 }
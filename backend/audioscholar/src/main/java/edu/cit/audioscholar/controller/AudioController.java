@@ -1,6 +1,8 @@
 package edu.cit.audioscholar.controller;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -9,6 +11,7 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -18,6 +21,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -26,11 +30,18 @@ import org.springframework.web.multipart.MultipartFile;
 
 import edu.cit.audioscholar.dto.UpdateRecordingRequest;
 import edu.cit.audioscholar.model.AudioMetadata;
+import edu.cit.audioscholar.model.DeletionJob;
+import edu.cit.audioscholar.model.ProcessingStatus;
 import edu.cit.audioscholar.model.Recording;
+import edu.cit.audioscholar.model.UploadSession;
 import edu.cit.audioscholar.service.AudioProcessingService;
+import edu.cit.audioscholar.service.ChunkedUploadService;
 import edu.cit.audioscholar.service.FirebaseService;
+import edu.cit.audioscholar.service.RecordingDeletionService;
 import edu.cit.audioscholar.service.RecordingService;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 @RestController
 @RequestMapping("/api/audio")
 public class AudioController {
@@ -39,6 +50,8 @@ public class AudioController {
 	private final AudioProcessingService audioProcessingService;
 	private final RecordingService recordingService;
 	private final FirebaseService firebaseService;
+	private final ChunkedUploadService chunkedUploadService;
+	private final RecordingDeletionService recordingDeletionService;
 
 	private static final Set<String> ALLOWED_AUDIO_TYPES = Set.of("audio/mpeg", "audio/mp3", "audio/wav", "audio/x-wav",
 			"audio/aac", "audio/x-aac", "audio/ogg", "audio/flac", "audio/x-flac", "audio/aiff", "audio/x-aiff",
@@ -47,12 +60,16 @@ public class AudioController {
 			"application/vnd.openxmlformats-officedocument.presentationml.presentation",
 			"application/vnd.ms-powerpoint");
 	private static final int DEFAULT_PAGE_SIZE = 20;
+	private static final String UPLOAD_OFFSET_HEADER = "Upload-Offset";
 
 	public AudioController(AudioProcessingService audioProcessingService, RecordingService recordingService,
-			FirebaseService firebaseService) {
+			FirebaseService firebaseService, ChunkedUploadService chunkedUploadService,
+			RecordingDeletionService recordingDeletionService) {
 		this.audioProcessingService = audioProcessingService;
 		this.recordingService = recordingService;
 		this.firebaseService = firebaseService;
+		this.chunkedUploadService = chunkedUploadService;
+		this.recordingDeletionService = recordingDeletionService;
 	}
 
 	@PostMapping("/upload")
@@ -113,6 +130,90 @@ public class AudioController {
 		return ResponseEntity.status(HttpStatus.ACCEPTED).body(initialMetadata);
 	}
 
+	@PostMapping("/uploads")
+	@PreAuthorize("isAuthenticated()")
+	public ResponseEntity<?> createUploadSession(
+			@RequestParam(value = "fileType", defaultValue = ChunkedUploadService.FILE_TYPE_AUDIO) String fileType,
+			@RequestParam("fileName") String fileName, @RequestParam("contentType") String contentType,
+			@RequestParam("totalSize") long totalSize) throws IOException {
+		String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+		log.info("User {} requesting chunked {} upload session for {} ({} bytes)", userId, fileType, fileName,
+				totalSize);
+
+		if (ChunkedUploadService.FILE_TYPE_AUDIO.equals(fileType)) {
+			if (!isAllowedAudioType(contentType)) {
+				return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+						.body("Invalid audio file type. Allowed types: " + ALLOWED_AUDIO_TYPES);
+			}
+		} else if (ChunkedUploadService.FILE_TYPE_POWERPOINT.equals(fileType)) {
+			if (!isAllowedPowerpointType(contentType)) {
+				return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+						.body("Invalid PowerPoint file type. Allowed types: " + ALLOWED_POWERPOINT_TYPES);
+			}
+		} else {
+			return ResponseEntity.badRequest().body("fileType must be 'audio' or 'powerpoint'.");
+		}
+
+		UploadSession session = chunkedUploadService.createSession(userId, fileType, fileName, contentType,
+				totalSize);
+		return ResponseEntity.status(HttpStatus.CREATED).header(UPLOAD_OFFSET_HEADER, "0").body(session);
+	}
+
+	@GetMapping("/uploads/{sessionId}")
+	@PreAuthorize("isAuthenticated()")
+	public ResponseEntity<?> getUploadSession(@PathVariable String sessionId) {
+		String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+		UploadSession session = chunkedUploadService.getSession(sessionId, userId);
+		if (session == null) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok().header(UPLOAD_OFFSET_HEADER, String.valueOf(session.getOffset())).body(session);
+	}
+
+	@PutMapping(value = "/uploads/{sessionId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	@PreAuthorize("isAuthenticated()")
+	public ResponseEntity<?> uploadChunk(@PathVariable String sessionId, @RequestParam("offset") long offset,
+			HttpServletRequest request) throws IOException {
+		String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+		if (chunkedUploadService.getSession(sessionId, userId) == null) {
+			return ResponseEntity.notFound().build();
+		}
+		UploadSession session;
+		try (InputStream body = request.getInputStream()) {
+			session = chunkedUploadService.appendChunk(sessionId, userId, offset, body);
+		}
+		return ResponseEntity.ok().header(UPLOAD_OFFSET_HEADER, String.valueOf(session.getOffset())).body(session);
+	}
+
+	@PostMapping("/uploads/{sessionId}/finalize")
+	@PreAuthorize("isAuthenticated()")
+	public ResponseEntity<?> finalizeUpload(@PathVariable String sessionId,
+			@RequestParam(value = "pptxSessionId", required = false) String pptxSessionId,
+			@RequestParam(value = "title", required = false) String title,
+			@RequestParam(value = "description", required = false) String description) throws IOException {
+		String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+		log.info("User {} finalizing chunked upload session {} (pptx session: {})", userId, sessionId,
+				pptxSessionId != null ? pptxSessionId : "N/A");
+		if (chunkedUploadService.getSession(sessionId, userId) == null) {
+			return ResponseEntity.notFound().build();
+		}
+
+		AudioMetadata initialMetadata = chunkedUploadService.finalizeUpload(sessionId, pptxSessionId, userId,
+				Optional.ofNullable(title).filter(s -> !s.isBlank()).orElse(null),
+				Optional.ofNullable(description).filter(s -> !s.isBlank()).orElse(null));
+		return ResponseEntity.status(HttpStatus.ACCEPTED).body(initialMetadata);
+	}
+
+	@DeleteMapping("/uploads/{sessionId}")
+	@PreAuthorize("isAuthenticated()")
+	public ResponseEntity<?> cancelUploadSession(@PathVariable String sessionId) {
+		String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+		if (!chunkedUploadService.cancelSession(sessionId, userId)) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.noContent().build();
+	}
+
 	private boolean isAllowedAudioType(String contentType) {
 		if (contentType == null)
 			return false;
@@ -165,15 +266,36 @@ public class AudioController {
 					.body("You do not have permission to delete this resource.");
 		}
 
-		boolean success = audioProcessingService.deleteAudioMetadata(id);
-		if (success) {
-			log.info("Successfully deleted metadata {} by user {}", id, userId);
-			return ResponseEntity.noContent().build();
-		} else {
-			log.error("Service reported failure to delete metadata {} by user {} after authorization check.", id,
-					userId);
-			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to delete metadata.");
+		DeletionJob job = recordingDeletionService.requestDeletion(metadata);
+		log.info("Deletion of metadata {} accepted for user {}", id, userId);
+		return ResponseEntity.accepted().location(URI.create("/api/audio/metadata/" + id + "/deletion")).body(job);
+	}
+
+	@GetMapping("/metadata/{id}/deletion")
+	@PreAuthorize("isAuthenticated()")
+	public ResponseEntity<?> getDeletionStatus(@PathVariable String id) {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		String userId = authentication.getName();
+
+		DeletionJob job = recordingDeletionService.getJob(id);
+		if (job != null) {
+			if (!userId.equals(job.getUserId())) {
+				return ResponseEntity.status(HttpStatus.FORBIDDEN)
+						.body("You do not have permission to view this resource.");
+			}
+			return ResponseEntity.ok(job);
+		}
+
+		AudioMetadata metadata = audioProcessingService.getAudioMetadataById(id);
+		if (metadata == null || metadata.getStatus() != ProcessingStatus.DELETING) {
+			return ResponseEntity.notFound().build();
+		}
+		if (!userId.equals(metadata.getUserId())) {
+			return ResponseEntity.status(HttpStatus.FORBIDDEN)
+					.body("You do not have permission to view this resource.");
 		}
+		// Known to Firestore but not to this instance, e.g. after a restart; the deletion sweep resumes it.
+		return ResponseEntity.ok(DeletionJob.pending(id, metadata.getUserId()));
 	}
 
 	@GetMapping("/recordings/{recordingId}")
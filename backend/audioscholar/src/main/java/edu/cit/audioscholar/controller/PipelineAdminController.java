@@ -0,0 +1,52 @@
+package edu.cit.audioscholar.controller;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import edu.cit.audioscholar.service.PipelineRetryService;
+
+@RestController
+@RequestMapping("/api/admin/pipeline")
+@PreAuthorize("hasRole('ADMIN')")
+public class PipelineAdminController {
+
+	private static final Logger logger = LoggerFactory.getLogger(PipelineAdminController.class);
+	private static final int MAX_REPLAY_LIMIT = 500;
+	private final PipelineRetryService pipelineRetryService;
+
+	public PipelineAdminController(PipelineRetryService pipelineRetryService) {
+		this.pipelineRetryService = pipelineRetryService;
+	}
+
+	@GetMapping("/parking-lot")
+	public ResponseEntity<?> countParked() {
+		try {
+			return ResponseEntity.ok(Map.of("parked", pipelineRetryService.countParked()));
+		} catch (AmqpException e) {
+			logger.error("Error counting parked pipeline jobs: {}", e.getMessage(), e);
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Message broker is unavailable.");
+		}
+	}
+
+	@PostMapping("/parking-lot/replay")
+	public ResponseEntity<?> replayParked(@RequestParam(value = "limit", defaultValue = "50") int limit) {
+		if (limit < 1 || limit > MAX_REPLAY_LIMIT) {
+			return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_REPLAY_LIMIT + ".");
+		}
+		try {
+			int replayed = pipelineRetryService.replayParked(limit);
+			logger.info("Replayed {} parked pipeline jobs (limit {}).", replayed, limit);
+			return ResponseEntity.ok(Map.of("replayed", replayed));
+		} catch (AmqpException e) {
+			logger.error("Error replaying parked pipeline jobs: {}", e.getMessage(), e);
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Message broker is unavailable.");
+		}
+	}
+}
@@ -176,6 +176,11 @@ public class SummaryController {
 								.body(Map.of("status", status.name(), "message",
 										"Processing failed or halted: " + metadata.getFailureReason()));
 					}
+					case DELETING -> {
+						log.info("Summary requested for recording ID {} while it is being deleted.", recordingId);
+						yield ResponseEntity.status(HttpStatus.NOT_FOUND)
+								.body(Map.of("status", status.name(), "message", "Recording is being deleted."));
+					}
 					default -> {
 						log.error("Unexpected metadata status {} found for recording ID {}.", status.name(),
 								recordingId);
@@ -6,6 +6,7 @@ import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +21,7 @@ import org.springframework.web.server.ResponseStatusException;
 import edu.cit.audioscholar.dto.UpdateUserProfileRequest;
 import edu.cit.audioscholar.dto.UserProfileDto;
 import edu.cit.audioscholar.exception.FirestoreInteractionException;
+import edu.cit.audioscholar.exception.TempStorageFullException;
 import edu.cit.audioscholar.model.User;
 import edu.cit.audioscholar.service.UserService;
 import jakarta.validation.Valid;
@@ -129,6 +131,10 @@ public class UserProfileController {
 			log.error("Firestore error during avatar update for user {}: {}", userId, e.getMessage(), e);
 			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
 					.body("Error updating user profile after avatar upload.");
+		} catch (TempStorageFullException e) {
+			log.warn("Avatar upload rejected for user {}: {}", userId, e.getMessage());
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds())).body(e.getMessage());
 		} catch (RuntimeException e) {
 			if (e.getMessage() != null && e.getMessage().startsWith("User not found")) {
 				log.warn("Avatar upload failed. User not found for ID: {}", userId, e);
@@ -0,0 +1,36 @@
+package edu.cit.audioscholar.exception;
+
+public class AdmissionRejectedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String reason;
+	private final long inFlight;
+	private final long limit;
+	private final long estimatedWaitSeconds;
+
+	public AdmissionRejectedException(String message, String reason, long inFlight, long limit,
+			long estimatedWaitSeconds) {
+		super(message);
+		this.reason = reason;
+		this.inFlight = inFlight;
+		this.limit = limit;
+		this.estimatedWaitSeconds = estimatedWaitSeconds;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	public long getInFlight() {
+		return inFlight;
+	}
+
+	public long getLimit() {
+		return limit;
+	}
+
+	public long getEstimatedWaitSeconds() {
+		return estimatedWaitSeconds;
+	}
+}
@@ -68,6 +68,54 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 		return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
 	}
 
+	@ExceptionHandler(UploadOffsetMismatchException.class)
+	public ResponseEntity<Object> handleUploadOffsetMismatchException(UploadOffsetMismatchException ex,
+			WebRequest request) {
+		Map<String, Object> body = new HashMap<>();
+		body.put("timestamp", System.currentTimeMillis());
+		body.put("status", HttpStatus.CONFLICT.value());
+		body.put("error", "Conflict");
+		body.put("message", ex.getMessage());
+		body.put("offset", ex.getCurrentOffset());
+
+		log.warn("Upload offset mismatch for request [{}]: {}", request.getDescription(false), ex.getMessage());
+
+		return ResponseEntity.status(HttpStatus.CONFLICT).header("Upload-Offset", String.valueOf(ex.getCurrentOffset()))
+				.body(body);
+	}
+
+	@ExceptionHandler(TempStorageFullException.class)
+	public ResponseEntity<Object> handleTempStorageFullException(TempStorageFullException ex, WebRequest request) {
+		Map<String, Object> body = new HashMap<>();
+		body.put("timestamp", System.currentTimeMillis());
+		body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+		body.put("error", "Service Unavailable");
+		body.put("message", ex.getMessage());
+
+		log.warn("Temp storage full for request [{}]: {}", request.getDescription(false), ex.getMessage());
+
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds())).body(body);
+	}
+
+	@ExceptionHandler(AdmissionRejectedException.class)
+	public ResponseEntity<Object> handleAdmissionRejectedException(AdmissionRejectedException ex, WebRequest request) {
+		Map<String, Object> body = new HashMap<>();
+		body.put("timestamp", System.currentTimeMillis());
+		body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+		body.put("error", "Too Many Requests");
+		body.put("message", ex.getMessage());
+		body.put("reason", ex.getReason());
+		body.put("inFlight", ex.getInFlight());
+		body.put("limit", ex.getLimit());
+		body.put("estimatedWaitSeconds", ex.getEstimatedWaitSeconds());
+
+		log.info("Upload not admitted for request [{}]: {}", request.getDescription(false), ex.getMessage());
+
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getEstimatedWaitSeconds())).body(body);
+	}
+
 	@ExceptionHandler(FirestoreInteractionException.class)
 	public ResponseEntity<Object> handleFirestoreInteractionException(FirestoreInteractionException ex,
 			WebRequest request) {
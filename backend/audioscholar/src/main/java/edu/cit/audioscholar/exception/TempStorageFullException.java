@@ -0,0 +1,16 @@
+package edu.cit.audioscholar.exception;
+
+public class TempStorageFullException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final long retryAfterSeconds;
+
+	public TempStorageFullException(String message, long retryAfterSeconds) {
+		super(message);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
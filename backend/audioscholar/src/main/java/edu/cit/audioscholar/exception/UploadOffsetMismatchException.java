@@ -0,0 +1,16 @@
+package edu.cit.audioscholar.exception;
+
+public class UploadOffsetMismatchException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final long currentOffset;
+
+	public UploadOffsetMismatchException(String message, long currentOffset) {
+		super(message);
+		this.currentOffset = currentOffset;
+	}
+
+	public long getCurrentOffset() {
+		return currentOffset;
+	}
+}
@@ -26,6 +26,8 @@ public class AudioMetadata {
 	private String recordingId;
 	private String summaryId;
 	private String transcriptText;
+	private String partialTranscriptText;
+	private Integer transcriptProgressChars;
 	private String tempFilePath;
 	private String failureReason;
 	private Integer durationSeconds;
@@ -42,6 +44,10 @@ public class AudioMetadata {
 	private String googleFilesApiPdfUri;
 	private String convertApiPdfUrl;
 
+	private String audioContentHash;
+	private String pptxContentHash;
+	private String audioCodec;
+
 	private boolean transcriptionComplete = false;
 	private boolean pdfConversionComplete = false;
 	private boolean audioOnly = false;
@@ -192,6 +198,22 @@ public class AudioMetadata {
 		this.transcriptText = transcriptText;
 	}
 
+	public String getPartialTranscriptText() {
+		return partialTranscriptText;
+	}
+
+	public void setPartialTranscriptText(String partialTranscriptText) {
+		this.partialTranscriptText = partialTranscriptText;
+	}
+
+	public Integer getTranscriptProgressChars() {
+		return transcriptProgressChars;
+	}
+
+	public void setTranscriptProgressChars(Integer transcriptProgressChars) {
+		this.transcriptProgressChars = transcriptProgressChars;
+	}
+
 	public String getTempFilePath() {
 		return tempFilePath;
 	}
@@ -352,6 +374,30 @@ public class AudioMetadata {
 		this.waitingForPdf = waitingForPdf;
 	}
 
+	public String getAudioContentHash() {
+		return audioContentHash;
+	}
+
+	public void setAudioContentHash(String audioContentHash) {
+		this.audioContentHash = audioContentHash;
+	}
+
+	public String getPptxContentHash() {
+		return pptxContentHash;
+	}
+
+	public void setPptxContentHash(String pptxContentHash) {
+		this.pptxContentHash = pptxContentHash;
+	}
+
+	public String getAudioCodec() {
+		return audioCodec;
+	}
+
+	public void setAudioCodec(String audioCodec) {
+		this.audioCodec = audioCodec;
+	}
+
 	public Map<String, Object> toMap() {
 		Map<String, Object> map = new HashMap<>();
 		if (id != null)
@@ -383,6 +429,10 @@ public class AudioMetadata {
 			map.put("summaryId", summaryId);
 		if (transcriptText != null)
 			map.put("transcriptText", transcriptText);
+		if (partialTranscriptText != null)
+			map.put("partialTranscriptText", partialTranscriptText);
+		if (transcriptProgressChars != null)
+			map.put("transcriptProgressChars", transcriptProgressChars);
 		if (tempFilePath != null)
 			map.put("tempFilePath", tempFilePath);
 		if (failureReason != null)
@@ -412,6 +462,12 @@ public class AudioMetadata {
 			map.put("googleFilesApiPdfUri", googleFilesApiPdfUri);
 		if (convertApiPdfUrl != null)
 			map.put("convertApiPdfUrl", convertApiPdfUrl);
+		if (audioContentHash != null)
+			map.put("audioContentHash", audioContentHash);
+		if (pptxContentHash != null)
+			map.put("pptxContentHash", pptxContentHash);
+		if (audioCodec != null)
+			map.put("audioCodec", audioCodec);
 		map.put("transcriptionComplete", transcriptionComplete);
 		map.put("pdfConversionComplete", pdfConversionComplete);
 		map.put("audioOnly", audioOnly);
@@ -453,6 +509,10 @@ public class AudioMetadata {
 		meta.setRecordingId((String) map.get("recordingId"));
 		meta.setSummaryId((String) map.get("summaryId"));
 		meta.setTranscriptText((String) map.get("transcriptText"));
+		meta.setPartialTranscriptText((String) map.get("partialTranscriptText"));
+		Object progressChars = map.get("transcriptProgressChars");
+		if (progressChars instanceof Number)
+			meta.setTranscriptProgressChars(((Number) progressChars).intValue());
 		meta.setTempFilePath((String) map.get("tempFilePath"));
 		meta.setFailureReason((String) map.get("failureReason"));
 		Object durationObj = map.get("durationSeconds");
@@ -474,6 +534,10 @@ public class AudioMetadata {
 		meta.setGoogleFilesApiPdfUri((String) map.get("googleFilesApiPdfUri"));
 		meta.setConvertApiPdfUrl((String) map.get("convertApiPdfUrl"));
 
+		meta.setAudioContentHash((String) map.get("audioContentHash"));
+		meta.setPptxContentHash((String) map.get("pptxContentHash"));
+		meta.setAudioCodec((String) map.get("audioCodec"));
+
 		Object transcriptionCompleteFlag = map.get("transcriptionComplete");
 		if (transcriptionCompleteFlag instanceof Boolean)
 			meta.setTranscriptionComplete((Boolean) transcriptionCompleteFlag);
@@ -530,6 +594,9 @@ public class AudioMetadata {
 				&& Objects.equals(generatedPdfUrl, that.generatedPdfUrl)
 				&& Objects.equals(googleFilesApiPdfUri, that.googleFilesApiPdfUri)
 				&& Objects.equals(convertApiPdfUrl, that.convertApiPdfUrl)
+				&& Objects.equals(audioContentHash, that.audioContentHash)
+				&& Objects.equals(pptxContentHash, that.pptxContentHash)
+				&& Objects.equals(audioCodec, that.audioCodec)
 				&& transcriptionComplete == that.transcriptionComplete
 				&& pdfConversionComplete == that.pdfConversionComplete && audioOnly == that.audioOnly
 				&& audioUploadComplete == that.audioUploadComplete && Objects.equals(gptSummary, that.gptSummary)
@@ -543,7 +610,7 @@ public class AudioMetadata {
 				tempPptxFilePath, durationSeconds, lastUpdated, originalPptxFileName, pptxFileSize, pptxContentType,
 				nhostPptxFileId, pptxNhostUrl, generatedPdfNhostFileId, generatedPdfUrl, googleFilesApiPdfUri,
 				convertApiPdfUrl, transcriptionComplete, pdfConversionComplete, audioOnly, audioUploadComplete,
-				gptSummary, waitingForPdf);
+				gptSummary, waitingForPdf, audioContentHash, pptxContentHash, audioCodec);
 	}
 
 	@Override
@@ -561,6 +628,9 @@ public class AudioMetadata {
 				+ ", pptxNhostUrl='" + pptxNhostUrl + '\'' + ", generatedPdfNhostFileId='" + generatedPdfNhostFileId
 				+ '\'' + ", generatedPdfUrl='" + generatedPdfUrl + '\'' + ", googleFilesApiPdfUri='"
 				+ googleFilesApiPdfUri + '\'' + ", convertApiPdfUrl='" + convertApiPdfUrl + '\''
+				+ ", audioCodec=" + audioCodec
+				+ ", audioContentHash=" + audioContentHash
+				+ ", pptxContentHash=" + pptxContentHash
 				+ ", transcriptionComplete=" + transcriptionComplete + ", pdfConversionComplete="
 				+ pdfConversionComplete + ", audioOnly=" + audioOnly + ", audioUploadComplete=" + audioUploadComplete
 				+ ", gptSummary='" + gptSummary + '\'' + ", waitingForPdf=" + waitingForPdf + '}';
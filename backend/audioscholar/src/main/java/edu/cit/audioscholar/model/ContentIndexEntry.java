@@ -0,0 +1,177 @@
+package edu.cit.audioscholar.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.cloud.Timestamp;
+
+public class ContentIndexEntry {
+
+	private String contentHash;
+	private String kind;
+	private String nhostFileId;
+	private long fileSize;
+	private String contentType;
+	private String transcriptText;
+	private String pdfUrl;
+	private Timestamp pdfIndexedAt;
+	private long refCount;
+	private Timestamp createdAt;
+	private Timestamp lastUsed;
+
+	public ContentIndexEntry() {
+	}
+
+	public ContentIndexEntry(String contentHash, String kind, String nhostFileId, long fileSize, String contentType) {
+		this.contentHash = contentHash;
+		this.kind = kind;
+		this.nhostFileId = nhostFileId;
+		this.fileSize = fileSize;
+		this.contentType = contentType;
+		this.refCount = 1;
+		this.createdAt = Timestamp.now();
+		this.lastUsed = this.createdAt;
+	}
+
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	public void setContentHash(String contentHash) {
+		this.contentHash = contentHash;
+	}
+
+	public String getKind() {
+		return kind;
+	}
+
+	public void setKind(String kind) {
+		this.kind = kind;
+	}
+
+	public String getNhostFileId() {
+		return nhostFileId;
+	}
+
+	public void setNhostFileId(String nhostFileId) {
+		this.nhostFileId = nhostFileId;
+	}
+
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	public void setFileSize(long fileSize) {
+		this.fileSize = fileSize;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public String getTranscriptText() {
+		return transcriptText;
+	}
+
+	public void setTranscriptText(String transcriptText) {
+		this.transcriptText = transcriptText;
+	}
+
+	public String getPdfUrl() {
+		return pdfUrl;
+	}
+
+	public void setPdfUrl(String pdfUrl) {
+		this.pdfUrl = pdfUrl;
+	}
+
+	public Timestamp getPdfIndexedAt() {
+		return pdfIndexedAt;
+	}
+
+	public void setPdfIndexedAt(Timestamp pdfIndexedAt) {
+		this.pdfIndexedAt = pdfIndexedAt;
+	}
+
+	public long getRefCount() {
+		return refCount;
+	}
+
+	public void setRefCount(long refCount) {
+		this.refCount = refCount;
+	}
+
+	public Timestamp getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Timestamp createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public Timestamp getLastUsed() {
+		return lastUsed;
+	}
+
+	public void setLastUsed(Timestamp lastUsed) {
+		this.lastUsed = lastUsed;
+	}
+
+	public Map<String, Object> toMap() {
+		Map<String, Object> map = new HashMap<>();
+		if (contentHash != null)
+			map.put("contentHash", contentHash);
+		if (kind != null)
+			map.put("kind", kind);
+		if (nhostFileId != null)
+			map.put("nhostFileId", nhostFileId);
+		map.put("fileSize", fileSize);
+		if (contentType != null)
+			map.put("contentType", contentType);
+		if (transcriptText != null)
+			map.put("transcriptText", transcriptText);
+		if (pdfUrl != null)
+			map.put("pdfUrl", pdfUrl);
+		if (pdfIndexedAt != null)
+			map.put("pdfIndexedAt", pdfIndexedAt);
+		map.put("refCount", refCount);
+		if (createdAt != null)
+			map.put("createdAt", createdAt);
+		if (lastUsed != null)
+			map.put("lastUsed", lastUsed);
+		return map;
+	}
+
+	public static ContentIndexEntry fromMap(Map<String, Object> map) {
+		if (map == null)
+			return null;
+		ContentIndexEntry entry = new ContentIndexEntry();
+		entry.setContentHash((String) map.get("contentHash"));
+		entry.setKind((String) map.get("kind"));
+		entry.setNhostFileId((String) map.get("nhostFileId"));
+		Object size = map.get("fileSize");
+		if (size instanceof Number)
+			entry.setFileSize(((Number) size).longValue());
+		entry.setContentType((String) map.get("contentType"));
+		entry.setTranscriptText((String) map.get("transcriptText"));
+		entry.setPdfUrl((String) map.get("pdfUrl"));
+		entry.setPdfIndexedAt((Timestamp) map.get("pdfIndexedAt"));
+		Object refs = map.get("refCount");
+		if (refs instanceof Number)
+			entry.setRefCount(((Number) refs).longValue());
+		entry.setCreatedAt((Timestamp) map.get("createdAt"));
+		entry.setLastUsed((Timestamp) map.get("lastUsed"));
+		return entry;
+	}
+
+	@Override
+	public String toString() {
+		return "ContentIndexEntry{" + "contentHash='" + contentHash + '\'' + ", kind='" + kind + '\''
+				+ ", nhostFileId='" + nhostFileId + '\'' + ", refCount=" + refCount + ", hasTranscript="
+				+ (transcriptText != null) + ", pdfUrl='" + pdfUrl + '\'' + '}';
+	}
+}
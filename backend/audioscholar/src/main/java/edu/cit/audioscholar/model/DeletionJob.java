@@ -0,0 +1,106 @@
+package edu.cit.audioscholar.model;
+
+import java.time.Instant;
+
+/**
+ * Progress of a background recording deletion, as reported by
+ * {@code GET /api/audio/metadata/{id}/deletion}.
+ */
+public class DeletionJob {
+
+	/**
+	 * {@code PENDING} is a recording that Firestore has in {@code DELETING} but
+	 * that this instance is not running a job for, e.g. after a restart. The
+	 * deletion sweep picks those up.
+	 */
+	public enum State {
+		PENDING, QUEUED, RUNNING, RETRY_SCHEDULED, COMPLETED, FAILED
+	}
+
+	private final String metadataId;
+	private final String userId;
+	private final Instant createdAt;
+	private volatile State state;
+	private volatile int attempts;
+	private volatile String lastError;
+	private volatile Instant nextAttemptAt;
+	private volatile Instant updatedAt;
+
+	public DeletionJob(String metadataId, String userId) {
+		this.metadataId = metadataId;
+		this.userId = userId;
+		this.createdAt = Instant.now();
+		this.state = State.QUEUED;
+		this.updatedAt = this.createdAt;
+	}
+
+	/** A read-only view of a deletion only known from the stored {@code DELETING} status. */
+	public static DeletionJob pending(String metadataId, String userId) {
+		DeletionJob job = new DeletionJob(metadataId, userId);
+		job.state = State.PENDING;
+		return job;
+	}
+
+	public String getMetadataId() {
+		return metadataId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public Instant getNextAttemptAt() {
+		return nextAttemptAt;
+	}
+
+	public Instant getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public boolean isActive() {
+		return state != State.COMPLETED && state != State.FAILED;
+	}
+
+	public synchronized void markRunning() {
+		this.attempts++;
+		this.nextAttemptAt = null;
+		transition(State.RUNNING);
+	}
+
+	public synchronized void markRetryScheduled(String error, Instant nextAttemptAt) {
+		this.lastError = error;
+		this.nextAttemptAt = nextAttemptAt;
+		transition(State.RETRY_SCHEDULED);
+	}
+
+	public synchronized void markCompleted() {
+		this.lastError = null;
+		transition(State.COMPLETED);
+	}
+
+	public synchronized void markFailed(String error) {
+		this.lastError = error;
+		transition(State.FAILED);
+	}
+
+	private void transition(State newState) {
+		this.state = newState;
+		this.updatedAt = Instant.now();
+	}
+}
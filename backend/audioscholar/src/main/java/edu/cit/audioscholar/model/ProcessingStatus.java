@@ -25,5 +25,6 @@ public enum ProcessingStatus {
 	COMPLETE, // Process finished successfully, all steps done
 	COMPLETED_WITH_WARNINGS, // Process finished, but with non-critical failures (e.g. recommendations
 								// skipped)
-	FAILED // An error occurred at some stage
+	FAILED, // An error occurred at some stage
+	DELETING // Deletion requested, stored files and documents are being removed in the background
 }
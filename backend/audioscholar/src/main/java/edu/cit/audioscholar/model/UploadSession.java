@@ -0,0 +1,163 @@
+package edu.cit.audioscholar.model;
+
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public class UploadSession {
+
+	private String sessionId;
+	private String userId;
+	private String fileType;
+	private String fileName;
+	private String contentType;
+	private long totalSize;
+	private long offset;
+	private Instant createdAt;
+	private Instant lastActivity;
+	@JsonIgnore
+	private Path stagingPath;
+	@JsonIgnore
+	private MessageDigest contentDigest;
+	@JsonIgnore
+	private long writerGeneration;
+	@JsonIgnore
+	private long reservedBytes;
+
+	public UploadSession() {
+	}
+
+	public UploadSession(String sessionId, String userId, String fileType, String fileName, String contentType,
+			long totalSize, Path stagingPath) {
+		this.sessionId = sessionId;
+		this.userId = userId;
+		this.fileType = fileType;
+		this.fileName = fileName;
+		this.contentType = contentType;
+		this.totalSize = totalSize;
+		this.stagingPath = stagingPath;
+		this.offset = 0;
+		this.createdAt = Instant.now();
+		this.lastActivity = this.createdAt;
+	}
+
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	public void setSessionId(String sessionId) {
+		this.sessionId = sessionId;
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public String getFileType() {
+		return fileType;
+	}
+
+	public void setFileType(String fileType) {
+		this.fileType = fileType;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public long getTotalSize() {
+		return totalSize;
+	}
+
+	public void setTotalSize(long totalSize) {
+		this.totalSize = totalSize;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	public void setOffset(long offset) {
+		this.offset = offset;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public Instant getLastActivity() {
+		return lastActivity;
+	}
+
+	public void setLastActivity(Instant lastActivity) {
+		this.lastActivity = lastActivity;
+	}
+
+	public Path getStagingPath() {
+		return stagingPath;
+	}
+
+	public void setStagingPath(Path stagingPath) {
+		this.stagingPath = stagingPath;
+	}
+
+	public MessageDigest getContentDigest() {
+		return contentDigest;
+	}
+
+	public void setContentDigest(MessageDigest contentDigest) {
+		this.contentDigest = contentDigest;
+	}
+
+	@JsonIgnore
+	public long getWriterGeneration() {
+		return writerGeneration;
+	}
+
+	public void setWriterGeneration(long writerGeneration) {
+		this.writerGeneration = writerGeneration;
+	}
+
+	@JsonIgnore
+	public long getReservedBytes() {
+		return reservedBytes;
+	}
+
+	public void setReservedBytes(long reservedBytes) {
+		this.reservedBytes = reservedBytes;
+	}
+
+	@JsonIgnore
+	public boolean isComplete() {
+		return offset == totalSize;
+	}
+
+	@Override
+	public String toString() {
+		return "UploadSession{" + "sessionId='" + sessionId + '\'' + ", userId='" + userId + '\'' + ", fileType='"
+				+ fileType + '\'' + ", fileName='" + fileName + '\'' + ", totalSize=" + totalSize + ", offset="
+				+ offset + '}';
+	}
+}
@@ -0,0 +1,266 @@
+package edu.cit.audioscholar.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import com.google.cloud.Timestamp;
+
+import edu.cit.audioscholar.exception.AdmissionRejectedException;
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
+import edu.cit.audioscholar.model.ProcessingStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Gatekeeper in front of {@link AudioProcessingService#queueFilesForUpload}.
+ * Limits how many recordings a single user may have in the pipeline and how
+ * deep the pipeline may get overall, so one user queueing a semester of
+ * lectures cannot starve everyone else behind a single listener.
+ * <p>
+ * In-flight work is counted from the {@link ProcessingStatus} already stored in
+ * {@code audio_metadata}, plus uploads admitted on this instance that a count
+ * could not have seen yet. An admitted upload holds its reservation until its
+ * metadata document is written and a count started after that write has been
+ * read, so the global count can be cached for a few seconds without a burst
+ * slipping past it. Records whose {@code lastUpdated} is older than the stale
+ * cutoff are assumed stuck and no longer hold a slot; neither does a recording
+ * that has reached recommendations. If Firestore cannot be reached the upload
+ * is admitted rather than blocked.
+ */
+@Service
+public class AdmissionControlService {
+
+	private static final Logger log = LoggerFactory.getLogger(AdmissionControlService.class);
+
+	public static final String REASON_USER_LIMIT = "user_limit";
+	public static final String REASON_QUEUE_FULL = "queue_full";
+
+	static final Set<ProcessingStatus> IN_FLIGHT_STATUSES = EnumSet.of(ProcessingStatus.UPLOAD_PENDING,
+			ProcessingStatus.UPLOAD_IN_PROGRESS, ProcessingStatus.UPLOADED, ProcessingStatus.PROCESSING_QUEUED,
+			ProcessingStatus.TRANSCRIBING, ProcessingStatus.PDF_CONVERTING, ProcessingStatus.PDF_CONVERTING_API,
+			ProcessingStatus.TRANSCRIPTION_COMPLETE, ProcessingStatus.PDF_CONVERSION_COMPLETE,
+			ProcessingStatus.SUMMARIZATION_QUEUED, ProcessingStatus.SUMMARIZING);
+
+	private static final long NOT_RECORDED = Long.MAX_VALUE;
+
+	private final FirebaseService firebaseService;
+	private final boolean enabled;
+	private final int maxInFlightPerUser;
+	private final int maxQueueDepth;
+	private final long averageProcessingSeconds;
+	private final int pipelineConcurrency;
+	private final long globalCountTtlNanos;
+	private final Duration staleAfter;
+	private final Set<Reservation> reservations = ConcurrentHashMap.newKeySet();
+	private final Counter userLimitRejections;
+	private final Counter queueFullRejections;
+	private volatile StoredCount cachedGlobal;
+
+	public AdmissionControlService(FirebaseService firebaseService,
+			@Value("${app.admission.enabled:true}") boolean enabled,
+			@Value("${app.admission.max-in-flight-per-user:3}") int maxInFlightPerUser,
+			@Value("${app.admission.max-queue-depth:20}") int maxQueueDepth,
+			@Value("${app.admission.average-processing-seconds:300}") long averageProcessingSeconds,
+			@Value("${app.rabbitmq.listener.transcription.max-concurrency:8}") int transcriptionConcurrency,
+			@Value("${app.rabbitmq.listener.summarization.max-concurrency:16}") int summarizationConcurrency,
+			@Value("${app.admission.global-count-ttl-seconds:5}") long globalCountTtlSeconds,
+			@Value("${app.admission.stale-after-minutes:360}") long staleAfterMinutes,
+			MeterRegistry meterRegistry) {
+		this.firebaseService = firebaseService;
+		this.enabled = enabled;
+		this.maxInFlightPerUser = maxInFlightPerUser;
+		this.maxQueueDepth = maxQueueDepth;
+		this.averageProcessingSeconds = averageProcessingSeconds;
+		// Every recording passes through both Gemini stages, so the narrower one sets the pace.
+		this.pipelineConcurrency = Math.max(1, Math.min(transcriptionConcurrency, summarizationConcurrency));
+		this.globalCountTtlNanos = TimeUnit.SECONDS.toNanos(globalCountTtlSeconds);
+		this.staleAfter = Duration.ofMinutes(staleAfterMinutes);
+		this.userLimitRejections = rejectionCounter(meterRegistry, REASON_USER_LIMIT);
+		this.queueFullRejections = rejectionCounter(meterRegistry, REASON_QUEUE_FULL);
+		log.info("Admission control {} (per-user limit {}, queue depth {}, ~{}s per recording, concurrency {}, "
+				+ "stale after {} min)", enabled ? "enabled" : "disabled", maxInFlightPerUser, maxQueueDepth,
+				averageProcessingSeconds, this.pipelineConcurrency, staleAfterMinutes);
+	}
+
+	/** One admitted upload, counted on top of whatever Firestore reports. */
+	private static final class Reservation {
+		private final String userId;
+		private volatile long recordedAt = NOT_RECORDED;
+
+		private Reservation(String userId) {
+			this.userId = userId;
+		}
+
+		/** Whether a count whose query started at {@code readStartedAt} could not have seen this upload. */
+		private boolean unseenBy(long readStartedAt) {
+			return recordedAt >= readStartedAt;
+		}
+	}
+
+	/**
+	 * Handle for an admitted upload. Call {@link #recorded()} once the metadata
+	 * document has been written; the slot then stays reserved until a count
+	 * that includes the document replaces it. Closing a permit that was never
+	 * recorded gives the slot back.
+	 */
+	public final class Permit implements AutoCloseable {
+		private final Reservation reservation;
+
+		private Permit(Reservation reservation) {
+			this.reservation = reservation;
+		}
+
+		/** Marks the upload's metadata document as written. */
+		public void recorded() {
+			reservation.recordedAt = System.nanoTime();
+		}
+
+		@Override
+		public void close() {
+			if (reservation.recordedAt == NOT_RECORDED) {
+				reservations.remove(reservation);
+			}
+		}
+	}
+
+	/**
+	 * Checks the limits and reserves a slot for {@code userId}. The Firestore
+	 * counts are read first without holding anything; the check against them
+	 * and the reservation are then made together under a short lock, so
+	 * concurrent uploads cannot both take the last slot.
+	 *
+	 * @throws AdmissionRejectedException if the user or the pipeline is at its
+	 *                                    limit
+	 */
+	public Permit admit(String userId) {
+		Reservation reservation = new Reservation(userId);
+		if (!enabled) {
+			return new Permit(reservation);
+		}
+		StoredInFlight stored = storedInFlight(userId);
+		synchronized (reservations) {
+			if (stored != null) {
+				enforceLimits(userId, stored);
+			}
+			reservations.add(reservation);
+		}
+		return new Permit(reservation);
+	}
+
+	/**
+	 * Checks the limits without reserving anything, for callers that want to
+	 * refuse early (e.g. before a chunked upload session starts).
+	 */
+	public void checkAdmission(String userId) {
+		StoredInFlight stored = enabled ? storedInFlight(userId) : null;
+		if (stored != null) {
+			enforceLimits(userId, stored);
+		}
+	}
+
+	private void enforceLimits(String userId, StoredInFlight stored) {
+		long userInFlight = stored.user().count() + unseenReservations(userId, stored.user().readStartedAt());
+		if (userInFlight >= maxInFlightPerUser) {
+			throw userLimitReached(userId, userInFlight);
+		}
+		long globalInFlight = stored.global().count() + unseenReservations(null, stored.global().readStartedAt());
+		if (globalInFlight >= maxQueueDepth) {
+			throw queueFull(userId, globalInFlight);
+		}
+	}
+
+	private long unseenReservations(@Nullable String userId, long readStartedAt) {
+		return reservations.stream()
+				.filter(r -> (userId == null || userId.equals(r.userId)) && r.unseenBy(readStartedAt)).count();
+	}
+
+	/** An in-flight count and the {@link System#nanoTime()} at which its query was issued. */
+	private record StoredCount(long count, long readStartedAt) {
+	}
+
+	private record StoredInFlight(StoredCount user, StoredCount global) {
+	}
+
+	/**
+	 * Reads the in-flight counts stored in Firestore, or {@code null} if they
+	 * cannot be read and the upload should be admitted unchecked.
+	 */
+	@Nullable
+	private StoredInFlight storedInFlight(String userId) {
+		try {
+			return new StoredInFlight(countInFlight(userId), globalInFlight());
+		} catch (FirestoreInteractionException e) {
+			log.warn("Admission check for user {} could not read pipeline state, admitting. Error: {}", userId,
+					e.getMessage());
+			return null;
+		}
+	}
+
+	private StoredCount countInFlight(@Nullable String userId) {
+		long readStartedAt = System.nanoTime();
+		Timestamp updatedAfter = staleAfter.isPositive() ? Timestamp.of(Date.from(Instant.now().minus(staleAfter)))
+				: null;
+		return new StoredCount(firebaseService.countAudioMetadataByStatus(userId, IN_FLIGHT_STATUSES, updatedAfter),
+				readStartedAt);
+	}
+
+	private AdmissionRejectedException userLimitReached(String userId, long userInFlight) {
+		userLimitRejections.increment();
+		long wait = estimateWaitSeconds(userInFlight - maxInFlightPerUser + 1);
+		log.info("Admission refused for user {}: {} recording(s) in flight (limit {}), estimated wait {}s", userId,
+				userInFlight, maxInFlightPerUser, wait);
+		return new AdmissionRejectedException("You already have " + userInFlight
+				+ " recording(s) being processed. Please wait for one to finish before uploading another.",
+				REASON_USER_LIMIT, userInFlight, maxInFlightPerUser, wait);
+	}
+
+	private AdmissionRejectedException queueFull(String userId, long globalInFlight) {
+		queueFullRejections.increment();
+		long wait = estimateWaitSeconds(globalInFlight - maxQueueDepth + 1);
+		log.info("Admission refused for user {}: pipeline holds {} recording(s) (limit {}), estimated wait {}s",
+				userId, globalInFlight, maxQueueDepth, wait);
+		return new AdmissionRejectedException(
+				"The processing queue is currently full. Please try again in a few minutes.", REASON_QUEUE_FULL,
+				globalInFlight, maxQueueDepth, wait);
+	}
+
+	/**
+	 * Rough time until {@code jobsToFinish} recordings leave the pipeline, given
+	 * the configured average processing time and listener concurrency.
+	 */
+	long estimateWaitSeconds(long jobsToFinish) {
+		long jobs = Math.max(1, jobsToFinish);
+		return (jobs * averageProcessingSeconds + pipelineConcurrency - 1) / pipelineConcurrency;
+	}
+
+	private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+		return Counter.builder("audioscholar.admission.rejections").tag("reason", reason)
+				.description("Uploads refused by admission control").register(meterRegistry);
+	}
+
+	/**
+	 * The global in-flight count, cached for the configured TTL. Each refresh
+	 * drops the recorded reservations the new count already includes.
+	 */
+	private StoredCount globalInFlight() {
+		StoredCount cached = cachedGlobal;
+		if (cached == null || System.nanoTime() - cached.readStartedAt() > globalCountTtlNanos) {
+			StoredCount fresh = countInFlight(null);
+			cachedGlobal = fresh;
+			reservations.removeIf(r -> !r.unseenBy(fresh.readStartedAt()));
+			cached = fresh;
+		}
+		return cached;
+	}
+}
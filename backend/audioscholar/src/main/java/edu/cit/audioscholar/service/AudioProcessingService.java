@@ -2,16 +2,23 @@ package edu.cit.audioscholar.service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,8 +43,15 @@ import edu.cit.audioscholar.config.RabbitMQConfig;
 import edu.cit.audioscholar.dto.NhostUploadMessage;
 import edu.cit.audioscholar.exception.FirestoreInteractionException;
 import edu.cit.audioscholar.exception.InvalidAudioFileException;
+import edu.cit.audioscholar.exception.TempStorageFullException;
 import edu.cit.audioscholar.model.AudioMetadata;
+import edu.cit.audioscholar.model.ContentIndexEntry;
 import edu.cit.audioscholar.model.ProcessingStatus;
+import edu.cit.audioscholar.util.AudioHeaderProber;
+import edu.cit.audioscholar.util.AudioHeaderProber.ProbeResult;
+import edu.cit.audioscholar.util.StagedMultipartFile;
+import edu.cit.audioscholar.util.StreamingHeaderProbe;
+import jakarta.annotation.PreDestroy;
 
 @Service
 public class AudioProcessingService {
@@ -45,49 +59,60 @@ public class AudioProcessingService {
 	private static final Logger log = LoggerFactory.getLogger(AudioProcessingService.class);
 	private static final String CACHE_METADATA_BY_ID = "audioMetadataById";
 	private static final String CACHE_METADATA_BY_USER = "audioMetadataByUser";
+	private static final String UPLOAD_MODE_STREAMING = "streaming";
 
 	private final FirebaseService firebaseService;
 	private final RabbitTemplate rabbitTemplate;
 	private final NhostStorageService nhostStorageService;
-	private final LearningMaterialRecommenderService learningMaterialRecommenderService;
-	private final RecordingService recordingService;
+	private final NhostUploadListenerService nhostUploadListenerService;
+	private final ContentDedupService contentDedupService;
+	private final AdmissionControlService admissionControlService;
 	private final String maxFileSizeValue;
-	private final Path tempFileDir;
+	private final String uploadMode;
+	private final TempFileStore tempFileStore;
+	private final ExecutorService uploadExecutor = Executors
+			.newThreadPerTaskExecutor(Thread.ofVirtual().name("StreamUpload-", 0).factory());
 	@SuppressWarnings("unused")
 	private final CacheManager cacheManager;
 	@SuppressWarnings("unused")
 	private final ObjectMapper objectMapper;
 
 	public AudioProcessingService(FirebaseService firebaseService, RabbitTemplate rabbitTemplate,
-			NhostStorageService nhostStorageService,
-			LearningMaterialRecommenderService learningMaterialRecommenderService, RecordingService recordingService,
+			NhostStorageService nhostStorageService, NhostUploadListenerService nhostUploadListenerService,
+			ContentDedupService contentDedupService,
+			AdmissionControlService admissionControlService,
 			@Value("${spring.servlet.multipart.max-file-size}") String maxFileSizeValue,
-			@Value("${app.temp-file-dir}") String tempFileDirStr, CacheManager cacheManager,
-			ObjectMapper objectMapper) {
+			TempFileStore tempFileStore, @Value("${app.upload.mode:streaming}") String uploadMode,
+			CacheManager cacheManager, ObjectMapper objectMapper) {
 		this.firebaseService = firebaseService;
 		this.rabbitTemplate = rabbitTemplate;
 		this.nhostStorageService = nhostStorageService;
-		this.learningMaterialRecommenderService = learningMaterialRecommenderService;
-		this.recordingService = recordingService;
+		this.nhostUploadListenerService = nhostUploadListenerService;
+		this.contentDedupService = contentDedupService;
+		this.admissionControlService = admissionControlService;
 		this.maxFileSizeValue = maxFileSizeValue;
+		this.uploadMode = uploadMode;
+		log.info("Upload ingest mode set to: {}", uploadMode);
 
-		this.tempFileDir = Paths.get(tempFileDirStr);
-		try {
-			Files.createDirectories(this.tempFileDir);
-			log.info("Temporary file directory set to: {}", this.tempFileDir.toAbsolutePath());
-		} catch (IOException e) {
-			log.error("Could not create temporary file directory: {}", this.tempFileDir.toAbsolutePath(), e);
-			throw new RuntimeException("Failed to initialize temporary file directory", e);
-		}
+		this.tempFileStore = tempFileStore;
 
 		this.cacheManager = cacheManager;
 		this.objectMapper = objectMapper;
 	}
 
+	@PreDestroy
+	void stop() {
+		uploadExecutor.shutdownNow();
+	}
+
 	private long getMaxFileSizeInBytes() {
 		return DataSize.parse(maxFileSizeValue).toBytes();
 	}
 
+	private boolean isStreamingUploadMode() {
+		return UPLOAD_MODE_STREAMING.equalsIgnoreCase(uploadMode);
+	}
+
 	@Caching(evict = {@CacheEvict(value = CACHE_METADATA_BY_USER, allEntries = true)})
 	public AudioMetadata queueFilesForUpload(MultipartFile audioFile, @Nullable MultipartFile powerpointFile,
 			@Nullable String title, @Nullable String description, String userId)
@@ -110,17 +135,48 @@ public class AudioProcessingService {
 					"File size exceeds the maximum allowed limit (" + maxFileSizeValue + ").");
 		}
 
+		try (AdmissionControlService.Permit permit = admissionControlService.admit(userId)) {
+			return queueAdmittedFiles(audioFile, powerpointFile, title, description, userId, permit);
+		}
+	}
+
+	/**
+	 * Does the work of {@link #queueFilesForUpload} once admission control has
+	 * let the upload in. The permit is marked recorded as soon as the metadata
+	 * document exists, so admission control can hand the slot over to the
+	 * stored status once its counts see the document.
+	 */
+	private AudioMetadata queueAdmittedFiles(MultipartFile audioFile, @Nullable MultipartFile powerpointFile,
+			@Nullable String title, @Nullable String description, String userId,
+			AdmissionControlService.Permit permit)
+			throws IOException, InvalidAudioFileException, FirestoreInteractionException {
 		Path tempAudioPath = null;
 		Path tempPptxPath = null;
+		String audioContentHash = null;
+		String pptxContentHash = null;
 		AudioMetadata initialMetadata = null;
 
-		try {
-			tempAudioPath = saveTemporaryFile(audioFile, "audio");
-			log.info("Audio file saved temporarily to: {}", tempAudioPath.toAbsolutePath());
+		boolean streaming = isStreamingUploadMode();
 
-			if (powerpointFile != null) {
-				tempPptxPath = saveTemporaryFile(powerpointFile, "pptx");
-				log.info("PowerPoint file saved temporarily to: {}", tempPptxPath.toAbsolutePath());
+		try {
+			// Streaming uploads are staged after all if the stream to Nhost fails, so
+			// every mode is held to the temp store budget.
+			tempFileStore.ensureCapacity(bytesToStage(audioFile) + bytesToStage(powerpointFile));
+			if (streaming) {
+				audioContentHash = resolveContentHash(audioFile, null);
+				pptxContentHash = powerpointFile != null ? resolveContentHash(powerpointFile, null) : null;
+			} else {
+				MessageDigest audioDigest = newContentDigest();
+				tempAudioPath = saveTemporaryFile(audioFile, "audio", audioDigest);
+				audioContentHash = resolveContentHash(audioFile, audioDigest);
+				log.info("Audio file saved temporarily to: {}", tempAudioPath.toAbsolutePath());
+
+				if (powerpointFile != null) {
+					MessageDigest pptxDigest = newContentDigest();
+					tempPptxPath = saveTemporaryFile(powerpointFile, "pptx", pptxDigest);
+					pptxContentHash = resolveContentHash(powerpointFile, pptxDigest);
+					log.info("PowerPoint file saved temporarily to: {}", tempPptxPath.toAbsolutePath());
+				}
 			}
 
 			String metadataId = UUID.randomUUID().toString();
@@ -142,7 +198,15 @@ public class AudioProcessingService {
 			initialMetadata.setFileName(originalAudioFilename);
 			initialMetadata.setFileSize(audioFile.getSize());
 			initialMetadata.setContentType(originalAudioContentType);
-			initialMetadata.setTempFilePath(tempAudioPath.toAbsolutePath().toString());
+			initialMetadata.setAudioContentHash(audioContentHash);
+			if (tempAudioPath != null) {
+				initialMetadata.setTempFilePath(tempAudioPath.toAbsolutePath().toString());
+			}
+			// A streamed multipart body is probed on its way to Nhost instead.
+			boolean probeWhileStreaming = streaming && !(audioFile instanceof StagedMultipartFile);
+			if (!probeWhileStreaming) {
+				probeAudioHeader(initialMetadata, audioFile, tempAudioPath);
+			}
 
 			initialMetadata.setTitle(StringUtils.hasText(title) ? title : originalAudioFilename);
 			initialMetadata.setDescription(description);
@@ -156,6 +220,7 @@ public class AudioProcessingService {
 				initialMetadata.setOriginalPptxFileName(originalPptxFilename);
 				initialMetadata.setPptxFileSize(powerpointFile.getSize());
 				initialMetadata.setPptxContentType(originalPptxContentType);
+				initialMetadata.setPptxContentHash(pptxContentHash);
 				if (tempPptxPath != null) {
 					initialMetadata.setTempPptxFilePath(tempPptxPath.toAbsolutePath().toString());
 				}
@@ -182,6 +247,7 @@ public class AudioProcessingService {
 				firebaseService.saveData(firebaseService.getAudioMetadataCollectionName(), metadataId,
 						initialMetadata.toMap());
 				log.info("Initial metadata (ID: {}) saved to Firestore with status UPLOAD_PENDING.", metadataId);
+				permit.recorded();
 			} catch (Exception e) {
 				log.error("Firestore error saving initial metadata for user {}: {}", userId, e.getMessage(), e);
 				deleteTemporaryFile(tempAudioPath);
@@ -193,28 +259,56 @@ public class AudioProcessingService {
 				initialMetadata = updateMetadataStatus(metadataId, userId, ProcessingStatus.UPLOAD_IN_PROGRESS, null,
 						true);
 
-				String audioTempPathStr = tempAudioPath.toAbsolutePath().toString();
-				sendUploadMessage(metadataId, "audio", audioTempPathStr, RabbitMQConfig.UPLOAD_AUDIO_ROUTING_KEY,
-						originalAudioFilename, originalAudioContentType);
-
-				String pptxTempPathStr = null;
+				// Slides go first so that a deduplicated deck is already marked converted by
+				// the time a reused transcript triggers the summarization check.
+				if (streaming) {
+					StreamingPart pptxPart = powerpointFile != null
+							? startStreamingUpload(initialMetadata, powerpointFile, "powerpoint", pptxContentHash,
+									false, originalPptxFilename, originalPptxContentType)
+							: null;
+					StreamingPart audioPart = startStreamingUpload(initialMetadata, audioFile, "audio",
+							audioContentHash, probeWhileStreaming, originalAudioFilename, originalAudioContentType);
+					if (pptxPart != null) {
+						tempPptxPath = completeStreamingUpload(initialMetadata, pptxPart,
+								RabbitMQConfig.UPLOAD_PPTX_ROUTING_KEY);
+					}
+					tempAudioPath = completeStreamingUpload(initialMetadata, audioPart,
+							RabbitMQConfig.UPLOAD_AUDIO_ROUTING_KEY);
+					log.info("Streamed upload(s) for metadata ID: {}, Status: {}, User ID: {}", metadataId,
+							initialMetadata.getStatus(), userId);
+					return initialMetadata;
+				}
 				if (powerpointFile != null && tempPptxPath != null) {
-					pptxTempPathStr = tempPptxPath.toAbsolutePath().toString();
-					sendUploadMessage(metadataId, "powerpoint", pptxTempPathStr, RabbitMQConfig.UPLOAD_PPTX_ROUTING_KEY,
-							originalPptxFilename, originalPptxContentType);
+					if (reuseIndexedContent(initialMetadata, "powerpoint", pptxContentHash)) {
+						deleteTemporaryFile(tempPptxPath);
+						tempPptxPath = null;
+					} else {
+						String pptxTempPathStr = tempPptxPath.toAbsolutePath().toString();
+						sendUploadMessage(metadataId, "powerpoint", pptxTempPathStr,
+								RabbitMQConfig.UPLOAD_PPTX_ROUTING_KEY, originalPptxFilename, originalPptxContentType);
+					}
+				}
+
+				if (reuseIndexedContent(initialMetadata, "audio", audioContentHash)) {
+					deleteTemporaryFile(tempAudioPath);
+					tempAudioPath = null;
+				} else {
+					String audioTempPathStr = tempAudioPath.toAbsolutePath().toString();
+					sendUploadMessage(metadataId, "audio", audioTempPathStr, RabbitMQConfig.UPLOAD_AUDIO_ROUTING_KEY,
+							originalAudioFilename, originalAudioContentType);
 				}
 
 				try {
+					// Status is left alone here: it is already UPLOAD_IN_PROGRESS, and a
+					// deduplicated upload may have moved it on past that.
 					Map<String, Object> updates = new HashMap<>();
-					updates.put("status", ProcessingStatus.UPLOAD_IN_PROGRESS);
 					updates.put("lastUpdated", Timestamp.of(new Date()));
 					updates.put("tempFilePath", null);
 					updates.put("tempPptxFilePath", null);
 
 					firebaseService.updateData(firebaseService.getAudioMetadataCollectionName(), metadataId, updates);
-					log.info("Updated metadata {} status to UPLOAD_IN_PROGRESS and cleared temp paths.", metadataId);
+					log.info("Cleared temp paths on metadata {} after queueing.", metadataId);
 
-					initialMetadata.setStatus(ProcessingStatus.UPLOAD_IN_PROGRESS);
 					initialMetadata.setTempFilePath(null);
 					initialMetadata.setTempPptxFilePath(null);
 				} catch (Exception e) {
@@ -269,7 +363,7 @@ public class AudioProcessingService {
 					throw new RuntimeException("Failed to send message to upload queue.", e);
 				throw new RuntimeException("Failed to queue files for processing.", e);
 			}
-		} catch (IOException | FirestoreInteractionException e) {
+		} catch (IOException | FirestoreInteractionException | TempStorageFullException e) {
 			log.error("Error during initial file saving or metadata creation for user {}: {}", userId, e.getMessage(),
 					e);
 			deleteTemporaryFile(tempAudioPath);
@@ -294,23 +388,322 @@ public class AudioProcessingService {
 		log.debug("Validation passed for {} file: {}", fileTypeLabel, file.getOriginalFilename());
 	}
 
+	private long bytesToStage(@Nullable MultipartFile file) {
+		return file == null || file instanceof StagedMultipartFile ? 0 : file.getSize();
+	}
+
 	private Path saveTemporaryFile(MultipartFile file, String prefix) throws IOException {
+		return saveTemporaryFile(file, prefix, null);
+	}
+
+	/**
+	 * Copies the upload into the temp directory, feeding {@code digest} on the way
+	 * when one is given. Staged chunked uploads are moved instead and carry their
+	 * own hash, see {@link #resolveContentHash}.
+	 * <p>
+	 * Fresh copies are reserved against the temp store budget and fail with a
+	 * {@link TempStorageFullException} when it is exhausted; staged files already
+	 * occupy the disk, so they are only tracked.
+	 */
+	private Path saveTemporaryFile(MultipartFile file, String prefix, @Nullable MessageDigest digest)
+			throws IOException {
 		String originalFilename = StringUtils
 				.cleanPath(Objects.requireNonNull(file.getOriginalFilename(), "Filename cannot be null"));
-		String fileExtension = StringUtils.getFilenameExtension(originalFilename);
-		String tempFilename = prefix + "-" + UUID.randomUUID() + (fileExtension != null ? "." + fileExtension : "");
-		Path tempFilePath = this.tempFileDir.resolve(tempFilename);
+		if (file instanceof StagedMultipartFile) {
+			Path tempFilePath = tempFileStore.track(prefix, originalFilename, file.getSize());
+			try {
+				file.transferTo(tempFilePath);
+			} catch (IOException e) {
+				tempFileStore.release(tempFilePath);
+				throw e;
+			}
+			return tempFilePath;
+		}
+
+		Path tempFilePath = tempFileStore.reserve(prefix, originalFilename, file.getSize());
 
-		try (InputStream inputStream = file.getInputStream()) {
+		try (InputStream inputStream = digest != null
+				? new DigestInputStream(file.getInputStream(), digest)
+				: file.getInputStream()) {
 			Files.copy(inputStream, tempFilePath, StandardCopyOption.REPLACE_EXISTING);
 			return tempFilePath;
 		} catch (IOException e) {
+			tempFileStore.release(tempFilePath);
 			log.error("Failed to save uploaded file temporarily to {}: {}", tempFilePath.toAbsolutePath(),
 					e.getMessage(), e);
 			throw new IOException("Failed to save temporary " + prefix + " file.", e);
 		}
 	}
 
+	/**
+	 * A part being piped to Nhost. {@code upload} is {@code null} when the
+	 * content was already in the dedup index and nothing is sent.
+	 */
+	private record StreamingPart(MultipartFile file, String fileType, String originalFilename,
+			String originalContentType, @Nullable String knownHash,
+			@Nullable CompletableFuture<StreamedUpload> upload) {
+	}
+
+	private record StreamedUpload(String nhostFileId, @Nullable String contentHash, Optional<ProbeResult> probe) {
+	}
+
+	/**
+	 * Starts piping {@code file} into Nhost on its own virtual thread, hashing it
+	 * through a {@link DigestInputStream} and, for audio, probing its header
+	 * from the same pass. Audio and slides are sent side by side; the request
+	 * waits for both in {@link #completeStreamingUpload}, since the container
+	 * discards the multipart body once the request ends.
+	 * <p>
+	 * Staged chunked uploads carry their hash, so indexed content is reused
+	 * without sending anything.
+	 */
+	private StreamingPart startStreamingUpload(AudioMetadata metadata, MultipartFile file, String fileType,
+			@Nullable String knownHash, boolean probeHeader, String originalFilename, String originalContentType) {
+		if (reuseIndexedContent(metadata, fileType, knownHash)) {
+			return new StreamingPart(file, fileType, originalFilename, originalContentType, knownHash, null);
+		}
+		CompletableFuture<StreamedUpload> upload = CompletableFuture.supplyAsync(() -> {
+			try {
+				return streamToNhost(file, knownHash, probeHeader, originalFilename, originalContentType);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, uploadExecutor);
+		return new StreamingPart(file, fileType, originalFilename, originalContentType, knownHash, upload);
+	}
+
+	private StreamedUpload streamToNhost(MultipartFile file, @Nullable String knownHash, boolean probeHeader,
+			String originalFilename, String originalContentType) throws IOException {
+		MessageDigest digest = knownHash == null ? newContentDigest() : null;
+		StreamingHeaderProbe probe = probeHeader ? new StreamingHeaderProbe(file.getSize(), uploadExecutor) : null;
+		String nhostFileId;
+		Optional<ProbeResult> probed = Optional.empty();
+		try (InputStream part = file.getInputStream()) {
+			InputStream source = digest != null ? new DigestInputStream(part, digest) : part;
+			if (probe != null) {
+				source = probe.tap(source);
+			}
+			nhostFileId = nhostStorageService.uploadStream(source, file.getSize(), originalFilename,
+					originalContentType);
+		} finally {
+			if (probe != null) {
+				probed = probe.finish();
+			}
+		}
+		String contentHash = digest != null ? ContentDedupService.toHex(digest) : knownHash;
+		return new StreamedUpload(nhostFileId, contentHash, probed);
+	}
+
+	/**
+	 * Waits for a streamed part and runs its post-upload steps in the request
+	 * thread. Content found in the dedup index only after streaming is reused and
+	 * the fresh copy discarded. If the stream failed, the part is staged in the
+	 * temp directory and handed to the upload queue as in temp-file mode.
+	 *
+	 * @return the temp path used for the queued fallback, or {@code null} when the
+	 *         stream upload succeeded or the content was reused
+	 */
+	@Nullable
+	private Path completeStreamingUpload(AudioMetadata metadata, StreamingPart part, String routingKey)
+			throws IOException {
+		if (part.upload() == null) {
+			return null;
+		}
+		String metadataId = metadata.getId();
+		String fileType = part.fileType();
+		boolean isAudio = "audio".equals(fileType);
+		StreamedUpload upload;
+		try {
+			upload = part.upload().join();
+		} catch (CompletionException e) {
+			log.warn("[{}] Streaming {} upload failed, falling back to temp-file upload queue. Error: {}", metadataId,
+					fileType, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+			MessageDigest fallbackDigest = part.knownHash() == null ? newContentDigest() : null;
+			Path tempPath = saveTemporaryFile(part.file(), isAudio ? "audio" : "pptx", fallbackDigest);
+			String contentHash = resolveContentHash(part.file(), fallbackDigest);
+			if (isAudio && metadata.getDurationSeconds() == null) {
+				probeAudioHeader(metadata, part.file(), tempPath);
+				storeProbedHeader(metadata);
+			}
+			if (part.knownHash() == null && reuseIndexedContent(metadata, fileType, contentHash)) {
+				deleteTemporaryFile(tempPath);
+				return null;
+			}
+			persistContentHash(metadata, isAudio, contentHash);
+			sendUploadMessage(metadataId, fileType, tempPath.toAbsolutePath().toString(), routingKey,
+					part.originalFilename(), part.originalContentType());
+			return tempPath;
+		}
+		String nhostFileId = upload.nhostFileId();
+		log.info("[{}] Streamed {} file {} to Nhost. File ID: {}", metadataId, fileType, part.originalFilename(),
+				nhostFileId);
+		if (upload.probe().isPresent()) {
+			applyProbeResult(metadata, upload.probe().get());
+			storeProbedHeader(metadata);
+		}
+
+		String contentHash = upload.contentHash();
+		if (part.knownHash() == null && reuseIndexedContent(metadata, fileType, contentHash)) {
+			try {
+				nhostStorageService.deleteFile(nhostFileId);
+				log.info("[{}] Discarded duplicate {} upload {}", metadataId, fileType, nhostFileId);
+			} catch (Exception e) {
+				log.warn("[{}] Failed to discard duplicate {} upload {}: {}", metadataId, fileType, nhostFileId,
+						e.getMessage());
+			}
+			return null;
+		}
+		if (isAudio) {
+			metadata.setAudioContentHash(contentHash);
+		} else {
+			metadata.setPptxContentHash(contentHash);
+		}
+		nhostUploadListenerService.updateMetadataAfterUpload(metadata, nhostFileId, isAudio);
+		return null;
+	}
+
+	/**
+	 * Writes the probed duration and codec, which the transcription listener
+	 * reads, before the upload steps queue it.
+	 */
+	private void storeProbedHeader(AudioMetadata metadata) {
+		if (metadata.getDurationSeconds() == null) {
+			return;
+		}
+		Map<String, Object> updates = new HashMap<>();
+		updates.put("durationSeconds", metadata.getDurationSeconds());
+		updates.put("audioCodec", metadata.getAudioCodec());
+		try {
+			firebaseService.updateData(firebaseService.getAudioMetadataCollectionName(), metadata.getId(), updates);
+		} catch (Exception e) {
+			log.warn("[{}] Could not store probed audio header; transcription will probe again. Error: {}",
+					metadata.getId(), e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads the container header to fill in {@code durationSeconds} and
+	 * {@code audioCodec} before the file enters the pipeline. Failures are logged
+	 * and leave the fields empty; the transcription listener probes again later.
+	 */
+	private void probeAudioHeader(AudioMetadata metadata, MultipartFile audioFile, @Nullable Path tempAudioPath) {
+		try (InputStream in = tempAudioPath != null
+				? Files.newInputStream(tempAudioPath)
+				: audioFile.getInputStream()) {
+			Optional<ProbeResult> probe = AudioHeaderProber.probe(in, audioFile.getSize());
+			if (probe.isPresent()) {
+				applyProbeResult(metadata, probe.get());
+			} else {
+				log.info("[{}] Could not determine duration from the audio header of {}", metadata.getId(),
+						metadata.getFileName());
+			}
+		} catch (IOException e) {
+			log.warn("[{}] Failed to probe audio header: {}", metadata.getId(), e.getMessage());
+		}
+	}
+
+	private void applyProbeResult(AudioMetadata metadata, ProbeResult result) {
+		metadata.setDurationSeconds(result.roundedDurationSeconds());
+		metadata.setAudioCodec(result.codec());
+		log.info("[{}] Probed audio header: {} / {}, {} Hz, {} ch, {} s", metadata.getId(), result.container(),
+				result.codec(), result.sampleRate(), result.channels(), result.roundedDurationSeconds());
+	}
+
+	@Nullable
+	private MessageDigest newContentDigest() {
+		return contentDedupService.isEnabled() ? ContentDedupService.newDigest() : null;
+	}
+
+	@Nullable
+	private String resolveContentHash(MultipartFile file, @Nullable MessageDigest digest) {
+		if (file instanceof StagedMultipartFile staged && staged.getContentHash() != null) {
+			return staged.getContentHash();
+		}
+		return digest != null ? ContentDedupService.toHex(digest) : null;
+	}
+
+	/**
+	 * Points the recording at an already indexed copy of the file. Audio with a
+	 * cached transcript is marked transcribed, so the transcription listener goes
+	 * straight to the summarization check; slides with a PDF that is still valid
+	 * are marked converted. Otherwise the indexed file is fed through the normal
+	 * post-upload steps.
+	 *
+	 * @return {@code true} if the indexed content was taken and the caller must not
+	 *         upload its own copy
+	 */
+	private boolean reuseIndexedContent(AudioMetadata metadata, String fileType, @Nullable String contentHash) {
+		boolean isAudio = "audio".equals(fileType);
+		ContentIndexEntry entry = contentDedupService.acquire(contentHash, fileType);
+		if (entry == null) {
+			return false;
+		}
+		String metadataId = metadata.getId();
+		String nhostFileId = entry.getNhostFileId();
+		try {
+			Map<String, Object> updates = new HashMap<>();
+			updates.put("lastUpdated", Timestamp.now());
+			if (isAudio) {
+				metadata.setAudioContentHash(contentHash);
+				updates.put("audioContentHash", contentHash);
+				if (contentDedupService.hasTranscript(entry)) {
+					metadata.setTranscriptText(entry.getTranscriptText());
+					metadata.setTranscriptionComplete(true);
+					metadata.setStatus(ProcessingStatus.TRANSCRIPTION_COMPLETE);
+					updates.put("transcriptText", entry.getTranscriptText());
+					updates.put("transcriptionComplete", true);
+					updates.put("status", ProcessingStatus.TRANSCRIPTION_COMPLETE.name());
+				}
+				firebaseService.updateData(firebaseService.getAudioMetadataCollectionName(), metadataId, updates);
+				nhostUploadListenerService.updateMetadataAfterUpload(metadata, nhostFileId, true);
+			} else {
+				metadata.setPptxContentHash(contentHash);
+				updates.put("pptxContentHash", contentHash);
+				if (contentDedupService.isPdfReusable(entry)) {
+					metadata.setNhostPptxFileId(nhostFileId);
+					metadata.setConvertApiPdfUrl(entry.getPdfUrl());
+					metadata.setGeneratedPdfUrl(entry.getPdfUrl());
+					metadata.setPdfConversionComplete(true);
+					updates.put("nhostPptxFileId", nhostFileId);
+					updates.put("convertApiPdfUrl", entry.getPdfUrl());
+					updates.put("generatedPdfUrl", entry.getPdfUrl());
+					updates.put("pdfConversionComplete", true);
+					firebaseService.updateData(firebaseService.getAudioMetadataCollectionName(), metadataId, updates);
+				} else {
+					firebaseService.updateData(firebaseService.getAudioMetadataCollectionName(), metadataId, updates);
+					nhostUploadListenerService.updateMetadataAfterUpload(metadata, nhostFileId, false);
+				}
+			}
+		} catch (Exception e) {
+			log.warn("[{}] Failed to reuse indexed {} content {}, uploading normally. Error: {}", metadataId, fileType,
+					contentHash, e.getMessage());
+			contentDedupService.release(contentHash, nhostFileId);
+			return false;
+		}
+		log.info("[{}] Reused indexed {} content {} (Nhost file {}), skipping upload.", metadataId, fileType,
+				contentHash, nhostFileId);
+		return true;
+	}
+
+	private void persistContentHash(AudioMetadata metadata, boolean isAudio, @Nullable String contentHash) {
+		if (contentHash == null) {
+			return;
+		}
+		String field = isAudio ? "audioContentHash" : "pptxContentHash";
+		if (isAudio) {
+			metadata.setAudioContentHash(contentHash);
+		} else {
+			metadata.setPptxContentHash(contentHash);
+		}
+		try {
+			firebaseService.updateData(firebaseService.getAudioMetadataCollectionName(), metadata.getId(),
+					Map.of(field, contentHash));
+		} catch (Exception e) {
+			log.warn("[{}] Could not store {} on metadata; content will not be indexed. Error: {}", metadata.getId(),
+					field, e.getMessage());
+		}
+	}
+
 	private void sendUploadMessage(String metadataId, String fileType, String tempFilePath, String routingKey,
 			String originalFilename, String originalContentType) {
 		try {
@@ -329,16 +722,7 @@ public class AudioProcessingService {
 	}
 
 	private void deleteTemporaryFile(@Nullable Path tempPath) {
-		if (tempPath != null) {
-			try {
-				boolean deleted = Files.deleteIfExists(tempPath);
-				if (deleted) {
-					log.info("Cleaned up temporary file: {}", tempPath.toAbsolutePath());
-				}
-			} catch (IOException e) {
-				log.warn("Failed to clean up temporary file: {}. Error: {}", tempPath.toAbsolutePath(), e.getMessage());
-			}
-		}
+		tempFileStore.release(tempPath);
 	}
 
 	public List<AudioMetadata> getAllAudioMetadataList() {
@@ -387,160 +771,6 @@ public class AudioProcessingService {
 		}
 	}
 
-	@Caching(evict = {@CacheEvict(value = CACHE_METADATA_BY_ID, key = "#metadataId"),
-			@CacheEvict(value = CACHE_METADATA_BY_USER, allEntries = true)})
-	public boolean deleteAudioMetadata(String metadataId) {
-		log.info("Initiating cascading delete for AudioMetadata ID: {}", metadataId);
-		AudioMetadata metadata = null;
-		try {
-			metadata = getAudioMetadataById(metadataId);
-
-			if (metadata == null) {
-				log.warn("AudioMetadata not found for ID: {}. Cannot perform deletion.", metadataId);
-				return false;
-			}
-
-			String nhostFileId = metadata.getNhostFileId();
-			String recordingId = metadata.getRecordingId();
-
-			if (StringUtils.hasText(nhostFileId)) {
-				try {
-					log.info("Attempting to delete Nhost file ID: {} associated with metadata {}", nhostFileId,
-							metadataId);
-					nhostStorageService.deleteFile(nhostFileId);
-					log.info("Successfully requested deletion of Nhost file ID: {}", nhostFileId);
-				} catch (Exception e) {
-					log.error("Failed to delete Nhost file ID {} for metadata {}. Error: {}", nhostFileId, metadataId,
-							e.getMessage());
-				}
-			} else {
-				log.warn("No NhostFileId found in metadata {} to delete.", metadataId);
-			}
-
-			String nhostPptxFileId = metadata.getNhostPptxFileId();
-			if (StringUtils.hasText(nhostPptxFileId)) {
-				try {
-					log.info("Attempting to delete PowerPoint Nhost file ID: {} associated with metadata {}",
-							nhostPptxFileId, metadataId);
-					nhostStorageService.deleteFile(nhostPptxFileId);
-					log.info("Successfully requested deletion of PowerPoint Nhost file ID: {}", nhostPptxFileId);
-				} catch (Exception e) {
-					log.error("Failed to delete PowerPoint Nhost file ID {} for metadata {}. Error: {}",
-							nhostPptxFileId, metadataId, e.getMessage());
-				}
-			} else {
-				log.debug("No NhostPptxFileId found in metadata {} to delete.", metadataId);
-			}
-
-			String generatedPdfNhostFileId = metadata.getGeneratedPdfNhostFileId();
-			if (StringUtils.hasText(generatedPdfNhostFileId)) {
-				try {
-					log.info("Attempting to delete generated PDF Nhost file ID: {} associated with metadata {}",
-							generatedPdfNhostFileId, metadataId);
-					nhostStorageService.deleteFile(generatedPdfNhostFileId);
-					log.info("Successfully requested deletion of generated PDF Nhost file ID: {}",
-							generatedPdfNhostFileId);
-				} catch (Exception e) {
-					log.error("Failed to delete generated PDF Nhost file ID {} for metadata {}. Error: {}",
-							generatedPdfNhostFileId, metadataId, e.getMessage());
-				}
-			} else {
-				log.debug("No generatedPdfNhostFileId found in metadata {} to delete.", metadataId);
-			}
-
-			if (StringUtils.hasText(recordingId)) {
-				try {
-					log.info(
-							"Attempting to delete Learning Recommendations for Recording ID: {} associated with metadata {}",
-							recordingId, metadataId);
-					learningMaterialRecommenderService.deleteRecommendationsByRecordingId(recordingId);
-					log.info("Successfully initiated deletion for Learning Recommendations for Recording ID: {}",
-							recordingId);
-				} catch (Exception e) {
-					log.error(
-							"Failed to delete Learning Recommendations for Recording ID {} for metadata {}. Error: {}",
-							recordingId, metadataId, e.getMessage());
-				}
-
-				try {
-					log.info(
-							"Attempting to delete Recording ID: {} and its related Summary associated with metadata {}",
-							recordingId, metadataId);
-					recordingService.deleteRecording(recordingId);
-					log.info("Successfully initiated deletion for Recording ID: {}", recordingId);
-				} catch (Exception e) {
-					log.error(
-							"Failed to delete Recording ID {} (and potentially related data) for metadata {}. Error: {}",
-							recordingId, metadataId, e.getMessage());
-				}
-			} else {
-				log.warn(
-						"No RecordingId found in metadata {}. Cannot delete associated Recording, Summary, or Recommendations.",
-						metadataId);
-			}
-
-			log.info("Attempting to delete AudioMetadata document ID: {}", metadataId);
-			firebaseService.deleteData(firebaseService.getAudioMetadataCollectionName(), metadataId);
-			log.info("Successfully deleted AudioMetadata document ID: {}", metadataId);
-
-			if (metadata.getTempFilePath() != null && !metadata.getTempFilePath().isBlank()) {
-				try {
-					Files.deleteIfExists(Paths.get(metadata.getTempFilePath()));
-					log.info("Deleted associated temporary file: {}", metadata.getTempFilePath());
-				} catch (IOException e) {
-					log.warn("Could not delete temporary file {} for metadata {}", metadata.getTempFilePath(),
-							metadataId, e);
-				}
-			}
-
-			if (metadata.getTempPptxFilePath() != null && !metadata.getTempPptxFilePath().isBlank()) {
-				try {
-					Files.deleteIfExists(Paths.get(metadata.getTempPptxFilePath()));
-					log.info("Deleted associated temporary PowerPoint file: {}", metadata.getTempPptxFilePath());
-				} catch (IOException e) {
-					log.warn("Could not delete temporary PowerPoint file {} for metadata {}",
-							metadata.getTempPptxFilePath(), metadataId, e);
-				}
-			}
-
-			return true;
-
-		} catch (FirestoreInteractionException e) {
-			log.error("Firestore error during cascading delete process for metadata ID {}: {}", metadataId,
-					e.getMessage(), e);
-			if (metadata != null && metadata.getTempFilePath() != null && !metadata.getTempFilePath().isBlank()) {
-				try {
-					Files.deleteIfExists(Paths.get(metadata.getTempFilePath()));
-				} catch (IOException ignored) {
-				}
-			}
-			if (metadata != null && metadata.getTempPptxFilePath() != null
-					&& !metadata.getTempPptxFilePath().isBlank()) {
-				try {
-					Files.deleteIfExists(Paths.get(metadata.getTempPptxFilePath()));
-				} catch (IOException ignored) {
-				}
-			}
-			return false;
-		} catch (Exception e) {
-			log.error("Unexpected error during cascading delete for metadata ID {}: {}", metadataId, e.getMessage(), e);
-			if (metadata != null && metadata.getTempFilePath() != null && !metadata.getTempFilePath().isBlank()) {
-				try {
-					Files.deleteIfExists(Paths.get(metadata.getTempFilePath()));
-				} catch (IOException ignored) {
-				}
-			}
-			if (metadata != null && metadata.getTempPptxFilePath() != null
-					&& !metadata.getTempPptxFilePath().isBlank()) {
-				try {
-					Files.deleteIfExists(Paths.get(metadata.getTempPptxFilePath()));
-				} catch (IOException ignored) {
-				}
-			}
-			return false;
-		}
-	}
-
 	@Caching(evict = {@CacheEvict(value = CACHE_METADATA_BY_ID, key = "#metadataId"),
 			@CacheEvict(value = CACHE_METADATA_BY_USER, allEntries = true)})
 	public void updateAudioMetadata(String metadataId, Map<String, Object> updates)
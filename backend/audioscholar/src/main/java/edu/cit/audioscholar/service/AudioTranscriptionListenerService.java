@@ -2,15 +2,11 @@ package edu.cit.audioscholar.service;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
@@ -22,14 +18,12 @@ import org.jaudiotagger.tag.TagException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.lang.Nullable;
+import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
 
 import com.google.cloud.Timestamp;
 
@@ -39,7 +33,8 @@ import edu.cit.audioscholar.exception.FirestoreInteractionException;
 import edu.cit.audioscholar.model.AudioMetadata;
 import edu.cit.audioscholar.model.ProcessingStatus;
 import edu.cit.audioscholar.model.Recording;
-import edu.cit.audioscholar.util.RobustTaskExecutor;
+import edu.cit.audioscholar.util.AudioHeaderProber;
+import edu.cit.audioscholar.util.AudioHeaderProber.ProbeResult;
 
 @Service
 public class AudioTranscriptionListenerService {
@@ -51,32 +46,34 @@ public class AudioTranscriptionListenerService {
 	private final GeminiService geminiService;
 	private final RecordingService recordingService;
 	private final CacheManager cacheManager;
-	private final Path tempFileDir;
-	private final RabbitTemplate rabbitTemplate;
-	private final RobustTaskExecutor robustTaskExecutor;
-	private final Map<String, ReentrantLock> metadataLocks = new ConcurrentHashMap<>();
+	private final TempFileStore tempFileStore;
+	private final ProcessingPipelineService processingPipelineService;
+	private final DelayedRequeueService delayedRequeueService;
+	private final PipelineRetryService pipelineRetryService;
+	private final ContentDedupService contentDedupService;
+	private final RecordingLeaseService leaseService;
 
 	public AudioTranscriptionListenerService(FirebaseService firebaseService, NhostStorageService nhostStorageService,
 			GeminiService geminiService, @Lazy RecordingService recordingService, CacheManager cacheManager,
-			@Value("${app.temp-file-dir}") String tempFileDirStr, RabbitTemplate rabbitTemplate,
-			RobustTaskExecutor robustTaskExecutor) {
+			TempFileStore tempFileStore, ProcessingPipelineService processingPipelineService,
+			DelayedRequeueService delayedRequeueService, PipelineRetryService pipelineRetryService,
+			ContentDedupService contentDedupService, RecordingLeaseService leaseService) {
 		this.firebaseService = firebaseService;
 		this.nhostStorageService = nhostStorageService;
 		this.geminiService = geminiService;
 		this.recordingService = recordingService;
 		this.cacheManager = cacheManager;
-		this.tempFileDir = Paths.get(tempFileDirStr);
-		this.rabbitTemplate = rabbitTemplate;
-		this.robustTaskExecutor = robustTaskExecutor;
-		try {
-			Files.createDirectories(this.tempFileDir);
-		} catch (IOException e) {
-			log.error("Could not create temporary directory for listener: {}", this.tempFileDir.toAbsolutePath(), e);
-		}
+		this.tempFileStore = tempFileStore;
+		this.processingPipelineService = processingPipelineService;
+		this.delayedRequeueService = delayedRequeueService;
+		this.pipelineRetryService = pipelineRetryService;
+		this.contentDedupService = contentDedupService;
+		this.leaseService = leaseService;
 	}
 
-	@RabbitListener(queues = RabbitMQConfig.TRANSCRIPTION_QUEUE_NAME)
-	public void handleAudioTranscriptionRequest(AudioProcessingMessage message) {
+	@RabbitListener(queues = RabbitMQConfig.TRANSCRIPTION_QUEUE_NAME, containerFactory = "transcriptionContainerFactory")
+	public void handleAudioTranscriptionRequest(AudioProcessingMessage message,
+			@Headers Map<String, Object> headers) {
 		String metadataId = message.getMetadataId();
 		String userId = message.getUserId();
 		log.info("[{}] Received transcription request for metadata ID from queue. Initial User ID: {}", metadataId,
@@ -87,15 +84,26 @@ public class AudioTranscriptionListenerService {
 			return;
 		}
 
-		Lock metadataLock = metadataLocks.computeIfAbsent(metadataId, id -> new ReentrantLock());
-		if (!metadataLock.tryLock()) {
-			log.info("[{}] Another thread is already processing this metadata ID. Skipping duplicate processing.",
-					metadataId);
+		RecordingLeaseService.Lease lease;
+		try {
+			lease = leaseService.tryAcquire(RecordingLeaseService.Purpose.TRANSCRIPTION, metadataId);
+		} catch (FirestoreInteractionException e) {
+			delayedRequeueService.redeliverLater(PipelineStage.TRANSCRIPTION, metadataId, message, headers,
+					"transcription lease store unavailable");
+			return;
+		}
+		if (lease == null) {
+			// The holder may have died; coming back after its lease runs out lets this job take over.
+			if (!delayedRequeueService.defer(PipelineStage.TRANSCRIPTION, metadataId, message, headers,
+					"another worker holds the transcription lease")) {
+				log.info("[{}] Transcription lease still held after the last deferral. Dropping duplicate message.",
+						metadataId);
+			}
 			return;
 		}
 
-		try {
-			robustTaskExecutor.executeWithInfiniteRetry(metadataId, "transcribing audio", () -> {
+		try (lease) {
+			pipelineRetryService.run(PipelineStage.TRANSCRIPTION, metadataId, message, headers, () -> {
 				try {
 					log.debug("[{}] Fetching AudioMetadata document...", metadataId);
 					Map<String, Object> metadataMap = firebaseService
@@ -110,7 +118,7 @@ public class AudioTranscriptionListenerService {
 					if (metadata.isTranscriptionComplete()) {
 						log.info("[{}] Skipping transcription as it is already marked as complete.", metadataId);
 
-						checkCompletionAndTriggerSummarization(metadataId, userId);
+						processingPipelineService.triggerSummarizationIfReady(metadataId);
 						return;
 					}
 
@@ -133,18 +141,12 @@ public class AudioTranscriptionListenerService {
 					log.debug("[{}] Fetching Recording document {}...", metadataId, metadataId);
 					Recording recording = recordingService.getRecordingById(metadataId);
 
-					// Loop until Audio URL is available (Fix for Race Condition)
-					while (recording == null || recording.getAudioUrl() == null || recording.getAudioUrl().isBlank()) {
-						log.warn(
-								"[{}] Audio URL missing in Firestore. Nhost upload might be lagging. Polling again in 2s...",
-								metadataId);
-						try {
-							Thread.sleep(2000);
-						} catch (InterruptedException e) {
-							Thread.currentThread().interrupt();
-							throw new RuntimeException("Interrupted while waiting for audio URL", e);
+					if (recording == null || recording.getAudioUrl() == null || recording.getAudioUrl().isBlank()) {
+						if (!delayedRequeueService.defer(PipelineStage.TRANSCRIPTION, metadataId, message, headers,
+								"audio URL not in Firestore yet")) {
+							updateMetadataStatusToFailed(metadataId, userId, "Audio upload did not complete in time.");
 						}
-						recording = recordingService.getRecordingById(metadataId);
+						return;
 					}
 
 					log.info("[{}] Found recording {}.", metadataId, metadataId);
@@ -155,77 +157,51 @@ public class AudioTranscriptionListenerService {
 						throw new RuntimeException("Failed to download audio file (downloadAudioToFile returned null)");
 					}
 
-					Integer durationSeconds = metadata.getDurationSeconds();
-					if (durationSeconds == null || durationSeconds <= 0) {
-						durationSeconds = calculateAudioDuration(tempFilePath, metadataId);
-						if (durationSeconds != null && durationSeconds > 0) {
-							Map<String, Object> updates = new HashMap<>();
-							updates.put("durationSeconds", durationSeconds);
-							updates.put("lastUpdated", Timestamp.now());
-							firebaseService.updateDataWithMap(firebaseService.getAudioMetadataCollectionName(),
-									metadataId, updates);
-							log.info("[{}] Successfully updated durationSeconds ({}) in metadata.", metadataId,
-									durationSeconds);
-						}
-					}
-
-					metadataMap = firebaseService.getData(firebaseService.getAudioMetadataCollectionName(), metadataId);
-					metadata = AudioMetadata.fromMap(metadataMap);
-					if (metadata.isTranscriptionComplete()) {
-						log.info(
-								"[{}] Transcription was completed by another process while we were preparing. Skipping API call.",
-								metadataId);
-						checkCompletionAndTriggerSummarization(metadataId, userId);
-						return;
-					}
-
-					log.info("[{}] Calling Gemini API for transcription... Original Filename: {}, ContentType: {}",
-							metadataId, originalFileName, metadata.getContentType());
-					String transcript = geminiService.callGeminiTranscriptionAPI(tempFilePath, originalFileName);
-
-					metadataMap = firebaseService.getData(firebaseService.getAudioMetadataCollectionName(), metadataId);
-					metadata = AudioMetadata.fromMap(metadataMap);
-					if (metadata.isTranscriptionComplete()) {
-						log.info(
-								"[{}] Transcription was completed by another process while we were transcribing. Skipping update.",
-								metadataId);
-						return;
-					}
-
-					log.info("[{}] Transcription completed successfully. Saving transcript and updating status.",
-							metadataId);
-					Map<String, Object> updates = new HashMap<>();
-					updates.put("transcriptText", transcript);
-					updates.put("transcriptionComplete", true);
-					updates.put("status", ProcessingStatus.TRANSCRIPTION_COMPLETE.name());
-					updates.put("lastUpdated", Timestamp.now());
-
-					log.info("[{}] Saving transcript with size: {} characters", metadataId,
-							transcript != null ? transcript.length() : 0);
-
-					firebaseService.updateDataWithMap(firebaseService.getAudioMetadataCollectionName(), metadataId,
-							updates);
-					log.info(
-							"[{}] Successfully saved transcript, set transcriptionComplete=true, and status=TRANSCRIPTION_COMPLETE.",
-							metadataId);
-					invalidateCache(userId);
-
 					try {
-						log.debug("[{}] Adding a short delay to ensure Firestore consistency before summarization...",
-								metadataId);
-						Thread.sleep(3000);
-					} catch (InterruptedException e) {
-						Thread.currentThread().interrupt();
-						log.warn("[{}] Delay before summarization was interrupted", metadataId);
-					}
+						Integer durationSeconds = metadata.getDurationSeconds();
+						if (durationSeconds == null || durationSeconds <= 0) {
+							durationSeconds = calculateAudioDuration(tempFilePath, metadataId);
+							if (durationSeconds != null && durationSeconds > 0) {
+								Map<String, Object> updates = new HashMap<>();
+								updates.put("durationSeconds", durationSeconds);
+								updates.put("lastUpdated", Timestamp.now());
+								firebaseService.updateDataWithMap(firebaseService.getAudioMetadataCollectionName(),
+										metadataId, updates);
+								log.info("[{}] Successfully updated durationSeconds ({}) in metadata.", metadataId,
+										durationSeconds);
+							}
+						}
 
-					checkCompletionAndTriggerSummarization(metadataId, userId);
+						metadataMap = firebaseService.getData(firebaseService.getAudioMetadataCollectionName(), metadataId);
+						metadata = AudioMetadata.fromMap(metadataMap);
+						if (metadata.isTranscriptionComplete()) {
+							log.info(
+									"[{}] Transcription was completed by another process while we were preparing. Skipping API call.",
+									metadataId);
+							processingPipelineService.triggerSummarizationIfReady(metadataId);
+							return;
+						}
 
-					try {
-						Files.deleteIfExists(tempFilePath);
-						log.debug("[{}] Deleted temporary audio file: {}", metadataId, tempFilePath);
-					} catch (IOException e) {
-						log.warn("[{}] Failed to delete temporary audio file: {}", metadataId, e.getMessage());
+						log.info("[{}] Calling Gemini API for transcription... Original Filename: {}, ContentType: {}",
+								metadataId, originalFileName, metadata.getContentType());
+						String transcript = geminiService.callGeminiTranscriptionAPI(tempFilePath, originalFileName,
+								durationSeconds, metadata.getAudioContentHash(),
+								partialTranscript -> savePartialTranscript(metadataId, partialTranscript));
+
+						log.info("[{}] Transcription completed successfully. Saving transcript with size: {} characters",
+								metadataId, transcript != null ? transcript.length() : 0);
+						ProcessingPipelineService.Transition transition = processingPipelineService
+								.completeTranscription(metadataId, transcript, lease);
+						if (!transition.applied()) {
+							log.info(
+									"[{}] Transcription was completed by another process while we were transcribing. Skipping update.",
+									metadataId);
+							return;
+						}
+						invalidateCache(userId);
+						contentDedupService.recordTranscript(transition.metadata().getAudioContentHash(), transcript);
+					} finally {
+						tempFileStore.release(tempFilePath);
 					}
 				} catch (Exception e) {
 					// Wrap any checked exceptions or rethrow RuntimeExceptions to trigger retry
@@ -235,15 +211,8 @@ public class AudioTranscriptionListenerService {
 						throw new RuntimeException("Error during transcription process: " + e.getMessage(), e);
 					}
 				}
-			});
-		} finally {
-			metadataLock.unlock();
-			if (metadataLock instanceof ReentrantLock) {
-				ReentrantLock reentrantLock = (ReentrantLock) metadataLock;
-				if (!reentrantLock.isLocked() && !reentrantLock.hasQueuedThreads()) {
-					metadataLocks.remove(metadataId);
-				}
-			}
+			}, error -> updateMetadataStatusToFailed(metadataId, userId,
+					"Transcription failed: " + error.getMessage()));
 		}
 	}
 
@@ -266,21 +235,24 @@ public class AudioTranscriptionListenerService {
 			log.info("[{}] No filename found in recording. Using default name: {}", metadataId, fileName);
 		}
 
-		Path tempFilePath = tempFileDir.resolve(metadataId + "_" + fileName);
+		Path tempFilePath = tempFileStore.track(metadataId, fileName, 0);
 
 		try {
 			log.info("[{}] Downloading audio file with Nhost ID: {} to {}", metadataId, nhostId,
 					tempFilePath.getFileName());
 			nhostStorageService.downloadFileToPath(nhostId, tempFilePath);
+			tempFileStore.settle(tempFilePath);
 			log.info("[{}] Audio downloaded successfully.", metadataId);
 			return tempFilePath;
 		} catch (IOException e) {
+			tempFileStore.release(tempFilePath);
 			log.error("[{}] Failed to download audio file from Nhost (ID: {}). Error: {}", metadataId, nhostId,
 					e.getMessage(), e);
 			updateMetadataStatusToFailed(metadataId, recording.getUserId(),
 					"Failed to download audio file: " + e.getMessage());
 			return null;
 		} catch (Exception e) {
+			tempFileStore.release(tempFilePath);
 			log.error("[{}] Unexpected error downloading audio file from Nhost (ID: {}). Error: {}", metadataId,
 					nhostId, e.getMessage(), e);
 			updateMetadataStatusToFailed(metadataId, recording.getUserId(),
@@ -289,17 +261,46 @@ public class AudioTranscriptionListenerService {
 		}
 	}
 
+	/**
+	 * Stores the transcript received so far, so clients can show progress on
+	 * long recordings. Failures are only logged; the final save does not depend
+	 * on these.
+	 */
+	private void savePartialTranscript(String metadataId, String partialTranscript) {
+		Map<String, Object> updates = new HashMap<>();
+		updates.put("partialTranscriptText", partialTranscript);
+		updates.put("transcriptProgressChars", partialTranscript.length());
+		updates.put("lastUpdated", Timestamp.now());
+		try {
+			firebaseService.updateDataWithMap(firebaseService.getAudioMetadataCollectionName(), metadataId, updates);
+			log.debug("[{}] Saved partial transcript ({} characters).", metadataId, partialTranscript.length());
+		} catch (RuntimeException e) {
+			log.warn("[{}] Could not save partial transcript: {}", metadataId, e.getMessage());
+		}
+	}
+
 	private Integer calculateAudioDuration(Path audioFilePath, String metadataId) {
 		Integer durationSec = null;
+		try {
+			Optional<ProbeResult> probe = AudioHeaderProber.probe(audioFilePath);
+			if (probe.isPresent()) {
+				durationSec = probe.get().roundedDurationSeconds();
+				log.info("[{}] Calculated audio duration from {} header: {} seconds.", metadataId,
+						probe.get().container(), durationSec);
+				return durationSec;
+			}
+		} catch (IOException e) {
+			log.warn("[{}] Header probe failed for {}: {}. Falling back to JAudioTagger.", metadataId,
+					audioFilePath.getFileName(), e.getMessage());
+		}
 		try {
 			File audioFile = audioFilePath.toFile();
 			String fileName = audioFilePath.getFileName().toString().toLowerCase();
 
-			if (fileName.endsWith(".aac") || fileName.endsWith(".m4a")) {
-				log.info(
-						"[{}] AAC file detected: {}. JAudioTagger cannot reliably read AAC duration. Setting a default duration.",
-						metadataId, audioFilePath.getFileName());
-				return 600;
+			if (fileName.endsWith(".aac")) {
+				log.info("[{}] Raw AAC file {} has no readable header. Proceeding without duration.", metadataId,
+						audioFilePath.getFileName());
+				return null;
 			}
 
 			if (audioFile.exists() && audioFile.length() > 0) {
@@ -330,120 +331,6 @@ public class AudioTranscriptionListenerService {
 		return null;
 	}
 
-	private void checkCompletionAndTriggerSummarization(String metadataId, @Nullable String userId) {
-		Lock lock = null;
-		try {
-			lock = metadataLocks.computeIfAbsent(metadataId, k -> new ReentrantLock());
-			lock.lock();
-			log.debug("[{}] Acquired lock for trigger summarization check", metadataId);
-
-			log.info("[{}] Checking if both transcription and PDF conversion are complete to trigger summarization...",
-					metadataId);
-
-			Map<String, Object> latestMetadataMap = firebaseService
-					.getData(firebaseService.getAudioMetadataCollectionName(), metadataId);
-
-			if (latestMetadataMap == null) {
-				log.error(
-						"[{}] Failed to re-fetch metadata after transcription update. Cannot check for summarization trigger.",
-						metadataId);
-				return;
-			}
-
-			AudioMetadata latestMetadata = AudioMetadata.fromMap(latestMetadataMap);
-
-			ProcessingStatus currentStatus = latestMetadata.getStatus();
-			if (currentStatus == ProcessingStatus.SUMMARIZATION_QUEUED || currentStatus == ProcessingStatus.SUMMARIZING
-					|| currentStatus == ProcessingStatus.SUMMARY_COMPLETE
-					|| currentStatus == ProcessingStatus.RECOMMENDATIONS_QUEUED
-					|| currentStatus == ProcessingStatus.GENERATING_RECOMMENDATIONS
-					|| currentStatus == ProcessingStatus.COMPLETE || currentStatus == ProcessingStatus.FAILED) {
-
-				log.info(
-						"[{}] Summarization already triggered or completed (current status: {}). Skipping duplicate trigger.",
-						metadataId, currentStatus);
-				return;
-			}
-
-			boolean statusChangeInProgress = false;
-			try {
-				Map<String, Object> latestStatusCheck = firebaseService
-						.getData(firebaseService.getAudioMetadataCollectionName(), metadataId);
-
-				if (latestStatusCheck != null) {
-					AudioMetadata checkMetadata = AudioMetadata.fromMap(latestStatusCheck);
-					ProcessingStatus checkStatus = checkMetadata.getStatus();
-
-					if (checkStatus != currentStatus) {
-						log.info(
-								"[{}] Status changed from {} to {} while processing. Likely another service triggered summarization. Skipping.",
-								metadataId, currentStatus, checkStatus);
-						statusChangeInProgress = true;
-					}
-				}
-			} catch (Exception e) {
-				log.warn("[{}] Error during additional status check: {}. Proceeding with normal flow.", metadataId,
-						e.getMessage());
-			}
-
-			if (statusChangeInProgress) {
-				return;
-			}
-
-			boolean transcriptionDone = latestMetadata.isTranscriptionComplete();
-			boolean pdfDone = latestMetadata.isPdfConversionComplete();
-			boolean isAudioOnly = latestMetadata.isAudioOnly();
-			boolean hasPptx = StringUtils.hasText(latestMetadata.getNhostPptxFileId());
-
-			log.debug(
-					"[{}] Completion status check: TranscriptionDone={}, PdfConversionDone={}, AudioOnly={}, HasPptx={}",
-					metadataId, transcriptionDone, pdfDone, isAudioOnly, hasPptx);
-
-			boolean readyForSummarization = transcriptionDone && (pdfDone || isAudioOnly || !hasPptx);
-
-			if (readyForSummarization) {
-				log.info(
-						"[{}] Conditions met for summarization: AudioOnly={}, TranscriptionDone={}, PdfDone={}, HasPptx={}. Sending message to summarization queue.",
-						metadataId, isAudioOnly, transcriptionDone, pdfDone, hasPptx);
-
-				boolean statusUpdated = updateMetadataStatus(metadataId, userId, ProcessingStatus.SUMMARIZATION_QUEUED,
-						null);
-
-				if (!statusUpdated) {
-					log.warn(
-							"[{}] Failed to update status to SUMMARIZATION_QUEUED. Another process may have already claimed this task.",
-							metadataId);
-					return;
-				}
-
-				String messageId = UUID.randomUUID().toString();
-				Map<String, String> messagePayload = new HashMap<>();
-				messagePayload.put("metadataId", metadataId);
-				messagePayload.put("messageId", messageId);
-
-				rabbitTemplate.convertAndSend(RabbitMQConfig.PROCESSING_EXCHANGE_NAME,
-						RabbitMQConfig.SUMMARIZATION_ROUTING_KEY, messagePayload);
-
-				log.info("[{}] Message (ID: {}) sent successfully to queue '{}' with routing key '{}'.", metadataId,
-						messageId, RabbitMQConfig.SUMMARIZATION_QUEUE_NAME, RabbitMQConfig.SUMMARIZATION_ROUTING_KEY);
-
-			} else {
-				log.info(
-						"[{}] Conditions not yet met for final summarization (Transcription: {}, PDF: {}, Audio-only: {}, Has PPTX: {}). Waiting for other process.",
-						metadataId, transcriptionDone, pdfDone, isAudioOnly, hasPptx);
-			}
-
-		} catch (FirestoreInteractionException e) {
-			log.error("[{}] Failed to re-fetch metadata or update status for summarization check. Error: {}",
-					metadataId, e.getMessage(), e);
-		} finally {
-			if (lock != null) {
-				lock.unlock();
-				log.debug("[{}] Released lock for trigger summarization check", metadataId);
-			}
-		}
-	}
-
 	private void updateMetadataStatusToFailed(String metadataId, @Nullable String userId, String reason) {
 		updateMetadataStatus(metadataId, userId, ProcessingStatus.FAILED, reason);
 		log.error("[{}] Processing failed. Reason: {}", metadataId, reason);
@@ -0,0 +1,402 @@
+package edu.cit.audioscholar.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import edu.cit.audioscholar.exception.AdmissionRejectedException;
+import edu.cit.audioscholar.exception.InvalidAudioFileException;
+import edu.cit.audioscholar.exception.UploadOffsetMismatchException;
+import edu.cit.audioscholar.model.AudioMetadata;
+import edu.cit.audioscholar.model.UploadSession;
+import edu.cit.audioscholar.util.StagedMultipartFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Resumable uploads: a session stages the file under
+ * {@code app.temp-file-dir/chunked} as chunks arrive and hands it to the
+ * pipeline on finalize.
+ * <p>
+ * Temp space is reserved as chunks are written rather than for the declared
+ * size up front, and each user may only hold a few open sessions and a bounded
+ * number of declared bytes, so idle sessions cannot take the temp budget from
+ * everyone else. Idle sessions are swept on a timer.
+ * <p>
+ * Sessions and their running hashes live in memory next to a staged file on
+ * local disk, so they do not survive a restart and every request of a session
+ * must reach the instance that created it (sticky routing when scaled out).
+ */
+@Service
+public class ChunkedUploadService {
+
+	private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+	private static final long RESERVATION_STEP_BYTES = 8L * 1024 * 1024;
+	private static final long SESSION_LIMIT_RETRY_SECONDS = 60;
+	public static final String FILE_TYPE_AUDIO = "audio";
+	public static final String FILE_TYPE_POWERPOINT = "powerpoint";
+	public static final String REASON_SESSION_LIMIT = "session_limit";
+
+	private final AudioProcessingService audioProcessingService;
+	private final TempFileStore tempFileStore;
+	private final AdmissionControlService admissionControlService;
+	private final Path stagingDir;
+	private final long maxFileSizeBytes;
+	private final String maxFileSizeValue;
+	private final Duration sessionTtl;
+	private final int maxSessionsPerUser;
+	private final long maxSessionBytesPerUser;
+	private final long sweepIntervalMinutes;
+	private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+	private ScheduledExecutorService sweeper;
+
+	public ChunkedUploadService(AudioProcessingService audioProcessingService, TempFileStore tempFileStore,
+			AdmissionControlService admissionControlService,
+			@Value("${spring.servlet.multipart.max-file-size}") String maxFileSizeValue,
+			@Value("${app.upload.session-ttl-hours:24}") long sessionTtlHours,
+			@Value("${app.upload.max-sessions-per-user:4}") int maxSessionsPerUser,
+			@Value("${app.upload.max-session-bytes-per-user:1GB}") String maxSessionBytesPerUser,
+			@Value("${app.upload.session-sweep-interval-minutes:15}") long sweepIntervalMinutes) {
+		this.audioProcessingService = audioProcessingService;
+		this.tempFileStore = tempFileStore;
+		this.admissionControlService = admissionControlService;
+		this.stagingDir = tempFileStore.getRoot().resolve("chunked");
+		this.maxFileSizeValue = maxFileSizeValue;
+		this.maxFileSizeBytes = DataSize.parse(maxFileSizeValue).toBytes();
+		this.sessionTtl = Duration.ofHours(sessionTtlHours);
+		this.maxSessionsPerUser = Math.max(1, maxSessionsPerUser);
+		this.maxSessionBytesPerUser = DataSize.parse(maxSessionBytesPerUser).toBytes();
+		this.sweepIntervalMinutes = Math.max(1, sweepIntervalMinutes);
+		try {
+			Files.createDirectories(this.stagingDir);
+		} catch (IOException e) {
+			log.error("Could not create chunked upload staging directory: {}", this.stagingDir.toAbsolutePath(), e);
+			throw new RuntimeException("Failed to initialize chunked upload staging directory", e);
+		}
+	}
+
+	@PostConstruct
+	void startSweeper() {
+		sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "UploadSessionSweeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sweeper.scheduleWithFixedDelay(this::expireStaleSessionsSafely, sweepIntervalMinutes, sweepIntervalMinutes,
+				TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	void stopSweeper() {
+		if (sweeper != null) {
+			sweeper.shutdownNow();
+		}
+	}
+
+	public UploadSession createSession(String userId, String fileType, String fileName, String contentType,
+			long totalSize) throws IOException {
+		if (totalSize <= 0) {
+			throw new InvalidAudioFileException("Upload size must be greater than zero.");
+		}
+		if (totalSize > maxFileSizeBytes) {
+			throw new InvalidAudioFileException(
+					"File size exceeds the maximum allowed limit (" + maxFileSizeValue + ").");
+		}
+		if (!StringUtils.hasText(fileName)) {
+			throw new InvalidAudioFileException("File name cannot be empty.");
+		}
+		admissionControlService.checkAdmission(userId);
+
+		String sessionId = UUID.randomUUID().toString();
+		Path stagingPath = stagingDir.resolve(sessionId + ".part");
+		UploadSession session = new UploadSession(sessionId, userId, fileType, StringUtils.cleanPath(fileName),
+				contentType, totalSize, stagingPath);
+		session.setContentDigest(ContentDedupService.newDigest());
+		registerWithinUserLimits(session);
+		// Nothing is reserved up front; appendChunk reserves as the file grows.
+		tempFileStore.reserve(stagingPath, 0);
+		try {
+			Files.createFile(stagingPath);
+		} catch (IOException e) {
+			discardSession(session);
+			throw e;
+		}
+		log.info("[{}] Created {} upload session for user {}: {} ({} bytes)", sessionId, fileType, userId, fileName,
+				totalSize);
+		return session;
+	}
+
+	@Nullable
+	public UploadSession getSession(String sessionId, String userId) {
+		UploadSession session = sessions.get(sessionId);
+		if (session == null || !session.getUserId().equals(userId)) {
+			return null;
+		}
+		return session;
+	}
+
+	/**
+	 * Writes the request body at {@code offset} using positional channel writes.
+	 * The offset must match the bytes already received; on a dropped connection
+	 * the session keeps whatever was written so the client can resume from
+	 * {@link UploadSession#getOffset()}. The content hash is updated per buffer,
+	 * so the offset only advances past bytes that have been both written and
+	 * hashed.
+	 * <p>
+	 * The session lock is only held while a buffer is written, never while the
+	 * body is read from the network. A resume PUT at the current offset takes
+	 * over the session, and a stalled request that wakes up afterwards is turned
+	 * away instead of blocking the resume until its connection times out.
+	 */
+	public UploadSession appendChunk(String sessionId, String userId, long offset, InputStream body)
+			throws IOException {
+		UploadSession session = requireSession(sessionId, userId);
+		long generation;
+		synchronized (session) {
+			requireOffset(session, offset);
+			generation = session.getWriterGeneration() + 1;
+			session.setWriterGeneration(generation);
+			session.setLastActivity(Instant.now());
+		}
+		long position = offset;
+		try (FileChannel channel = FileChannel.open(session.getStagingPath(), StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+			byte[] array = buffer.array();
+			int read;
+			while ((read = body.read(array)) != -1) {
+				synchronized (session) {
+					if (session.getWriterGeneration() != generation) {
+						throw new UploadOffsetMismatchException("Upload session " + sessionId
+								+ " was resumed by another request.", session.getOffset());
+					}
+					if (position + read > session.getTotalSize()) {
+						throw new InvalidAudioFileException(
+								"Chunk exceeds the declared upload size of " + session.getTotalSize() + " bytes.");
+					}
+					reserveUpTo(session, position + read);
+					buffer.clear().limit(read);
+					long writePosition = position;
+					while (buffer.hasRemaining()) {
+						writePosition += channel.write(buffer, writePosition);
+					}
+					session.getContentDigest().update(array, 0, read);
+					position = writePosition;
+					session.setOffset(position);
+					session.setLastActivity(Instant.now());
+				}
+			}
+		}
+		log.debug("[{}] Received {} bytes, offset now {}/{}", sessionId, position - offset, position,
+				session.getTotalSize());
+		return session;
+	}
+
+	/**
+	 * Hands the assembled file(s) to {@link AudioProcessingService#queueFilesForUpload}.
+	 * The staged files are passed as {@link StagedMultipartFile}s, so the temp-file
+	 * mode links them into place instead of copying.
+	 * <p>
+	 * The sessions are only discarded once the upload has been queued. If queueing
+	 * fails (admission refused, temp store full, Firestore unavailable) they are
+	 * kept so the client can finalize again without re-sending the file; sessions
+	 * that are never finalized are cleaned up by the idle-session expiry.
+	 */
+	public AudioMetadata finalizeUpload(String sessionId, @Nullable String pptxSessionId, String userId,
+			@Nullable String title, @Nullable String description) throws IOException {
+		UploadSession audioSession = requireCompleteSession(sessionId, userId, FILE_TYPE_AUDIO);
+		UploadSession pptxSession = StringUtils.hasText(pptxSessionId)
+				? requireCompleteSession(pptxSessionId, userId, FILE_TYPE_POWERPOINT)
+				: null;
+
+		if (!claimSession(audioSession)) {
+			throw new InvalidAudioFileException("Upload session not found: " + sessionId);
+		}
+		if (pptxSession != null && !claimSession(pptxSession)) {
+			restoreSession(audioSession);
+			throw new InvalidAudioFileException("Upload session not found: " + pptxSessionId);
+		}
+
+		AudioMetadata metadata;
+		try {
+			StagedMultipartFile audioFile = toMultipartFile(audioSession, "audioFile");
+			StagedMultipartFile pptxFile = pptxSession != null
+					? toMultipartFile(pptxSession, "powerpointFile")
+					: null;
+			metadata = audioProcessingService.queueFilesForUpload(audioFile, pptxFile, title, description, userId);
+		} catch (RuntimeException | IOException e) {
+			restoreSession(audioSession);
+			if (pptxSession != null) {
+				restoreSession(pptxSession);
+			}
+			throw e;
+		}
+		log.info("[{}] Finalized chunked upload as metadata {}", sessionId, metadata.getId());
+		tempFileStore.release(audioSession.getStagingPath());
+		if (pptxSession != null) {
+			tempFileStore.release(pptxSession.getStagingPath());
+		}
+		return metadata;
+	}
+
+	public boolean cancelSession(String sessionId, String userId) {
+		UploadSession session = getSession(sessionId, userId);
+		if (session == null) {
+			return false;
+		}
+		discardSession(session);
+		log.info("[{}] Upload session cancelled by user {}", sessionId, userId);
+		return true;
+	}
+
+	/**
+	 * Adds the session to the map unless the user already holds
+	 * {@code app.upload.max-sessions-per-user} open sessions or would exceed
+	 * {@code app.upload.max-session-bytes-per-user} in declared sizes.
+	 */
+	private synchronized void registerWithinUserLimits(UploadSession session) {
+		String userId = session.getUserId();
+		long open = 0;
+		long declaredBytes = session.getTotalSize();
+		for (UploadSession existing : sessions.values()) {
+			if (existing.getUserId().equals(userId)) {
+				open++;
+				declaredBytes += existing.getTotalSize();
+			}
+		}
+		if (open >= maxSessionsPerUser) {
+			throw new AdmissionRejectedException("You already have " + open
+					+ " uploads in progress. Finish or cancel one before starting another.", REASON_SESSION_LIMIT,
+					open, maxSessionsPerUser, SESSION_LIMIT_RETRY_SECONDS);
+		}
+		if (declaredBytes > maxSessionBytesPerUser) {
+			throw new AdmissionRejectedException(
+					"Your uploads in progress exceed the allowed total size. Finish or cancel one first.",
+					REASON_SESSION_LIMIT, declaredBytes, maxSessionBytesPerUser, SESSION_LIMIT_RETRY_SECONDS);
+		}
+		sessions.put(session.getSessionId(), session);
+	}
+
+	/**
+	 * Grows the session's temp store reservation to cover {@code end} bytes, in
+	 * steps so the budget is not consulted for every buffer. Called under the
+	 * session lock. A full temp store fails the chunk with a 503; the client
+	 * resumes from the session offset later.
+	 */
+	private void reserveUpTo(UploadSession session, long end) {
+		long reserved = session.getReservedBytes();
+		if (end <= reserved) {
+			return;
+		}
+		long target = Math.min(session.getTotalSize(), Math.max(end, reserved + RESERVATION_STEP_BYTES));
+		tempFileStore.extend(session.getStagingPath(), target - reserved);
+		session.setReservedBytes(target);
+	}
+
+	private UploadSession requireSession(String sessionId, String userId) {
+		UploadSession session = getSession(sessionId, userId);
+		if (session == null) {
+			throw new InvalidAudioFileException("Upload session not found: " + sessionId);
+		}
+		return session;
+	}
+
+	private void requireOffset(UploadSession session, long offset) {
+		if (offset != session.getOffset()) {
+			throw new UploadOffsetMismatchException("Chunk offset " + offset
+					+ " does not match the current upload offset " + session.getOffset() + ".", session.getOffset());
+		}
+	}
+
+	private UploadSession requireCompleteSession(String sessionId, String userId, String expectedFileType) {
+		UploadSession session = requireSession(sessionId, userId);
+		if (!expectedFileType.equals(session.getFileType())) {
+			throw new InvalidAudioFileException(
+					"Upload session " + sessionId + " is not a " + expectedFileType + " upload.");
+		}
+		if (!session.isComplete()) {
+			throw new UploadOffsetMismatchException("Upload session " + sessionId + " is incomplete ("
+					+ session.getOffset() + "/" + session.getTotalSize() + " bytes).", session.getOffset());
+		}
+		return session;
+	}
+
+	private StagedMultipartFile toMultipartFile(UploadSession session, String partName) {
+		return new StagedMultipartFile(partName, session.getFileName(), session.getContentType(),
+				session.getStagingPath(), session.getTotalSize(), contentHash(session));
+	}
+
+	/**
+	 * Hashes a copy of the running digest, since {@link MessageDigest#digest()}
+	 * resets it and a retried finalize would otherwise hash nothing.
+	 */
+	private String contentHash(UploadSession session) {
+		synchronized (session) {
+			try {
+				return ContentDedupService.toHex((MessageDigest) session.getContentDigest().clone());
+			} catch (CloneNotSupportedException e) {
+				throw new IllegalStateException("Content digest cannot be copied", e);
+			}
+		}
+	}
+
+	/**
+	 * Takes the session out of the map for the duration of a finalize, so a
+	 * concurrent finalize of the same session cannot queue the file twice.
+	 */
+	private boolean claimSession(UploadSession session) {
+		return sessions.remove(session.getSessionId(), session);
+	}
+
+	private void restoreSession(UploadSession session) {
+		if (Files.exists(session.getStagingPath())) {
+			session.setLastActivity(Instant.now());
+			sessions.put(session.getSessionId(), session);
+			log.info("[{}] Kept upload session after failed finalize", session.getSessionId());
+		} else {
+			tempFileStore.release(session.getStagingPath());
+		}
+	}
+
+	private void discardSession(UploadSession session) {
+		sessions.remove(session.getSessionId());
+		tempFileStore.release(session.getStagingPath());
+	}
+
+	private void expireStaleSessionsSafely() {
+		try {
+			expireStaleSessions();
+		} catch (RuntimeException e) {
+			log.error("Upload session sweep failed: {}", e.getMessage(), e);
+		}
+	}
+
+	private void expireStaleSessions() {
+		Instant cutoff = Instant.now().minus(sessionTtl);
+		sessions.values().stream().filter(s -> s.getLastActivity().isBefore(cutoff)).toList().forEach(s -> {
+			log.info("[{}] Expiring idle upload session (last activity {})", s.getSessionId(), s.getLastActivity());
+			discardSession(s);
+		});
+	}
+}
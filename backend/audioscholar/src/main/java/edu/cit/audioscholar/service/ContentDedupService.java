@@ -0,0 +1,269 @@
+package edu.cit.audioscholar.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
+import edu.cit.audioscholar.model.ContentIndexEntry;
+
+/**
+ * Content-addressed index of uploaded audio and slide decks, keyed by SHA-256.
+ * Each entry points at the canonical Nhost copy plus any derived artefacts
+ * (transcript, converted PDF) so repeat uploads can skip storage, transcription
+ * and conversion. Entries are reference counted; the Nhost file is only
+ * deleted when the last recording that uses it goes away.
+ */
+@Service
+public class ContentDedupService {
+
+	private static final Logger log = LoggerFactory.getLogger(ContentDedupService.class);
+	private static final String HASH_ALGORITHM = "SHA-256";
+
+	private final FirebaseService firebaseService;
+	private final String collectionName;
+	private final boolean enabled;
+	private final Duration pdfUrlTtl;
+
+	public ContentDedupService(FirebaseService firebaseService,
+			@Value("${firebase.firestore.collection.content-index:content_index}") String collectionName,
+			@Value("${app.dedup.enabled:true}") boolean enabled,
+			@Value("${app.dedup.pdf-url-ttl-minutes:120}") long pdfUrlTtlMinutes) {
+		this.firebaseService = firebaseService;
+		this.collectionName = collectionName;
+		this.enabled = enabled;
+		this.pdfUrlTtl = Duration.ofMinutes(pdfUrlTtlMinutes);
+		log.info("Content deduplication {} (collection: {}, PDF URL TTL: {})", enabled ? "enabled" : "disabled",
+				collectionName, pdfUrlTtl);
+	}
+
+	public static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+		}
+	}
+
+	public static String toHex(MessageDigest digest) {
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Looks up an indexed copy of the content and, if one exists, takes a
+	 * reference on it in the same transaction.
+	 *
+	 * @return the entry, or {@code null} on a miss or when the index is unavailable
+	 */
+	@Nullable
+	public ContentIndexEntry acquire(@Nullable String contentHash, String kind) {
+		if (!enabled || !StringUtils.hasText(contentHash)) {
+			return null;
+		}
+		DocumentReference ref = firebaseService.getDocumentReference(collectionName, contentHash);
+		try {
+			ContentIndexEntry entry = firebaseService.runTransaction(transaction -> {
+				DocumentSnapshot snapshot = transaction.get(ref).get();
+				if (!snapshot.exists()) {
+					return null;
+				}
+				ContentIndexEntry existing = ContentIndexEntry.fromMap(snapshot.getData());
+				if (!kind.equals(existing.getKind()) || !StringUtils.hasText(existing.getNhostFileId())) {
+					return null;
+				}
+				Map<String, Object> updates = new HashMap<>();
+				updates.put("refCount", FieldValue.increment(1));
+				updates.put("lastUsed", Timestamp.now());
+				transaction.update(ref, updates);
+				existing.setRefCount(existing.getRefCount() + 1);
+				return existing;
+			});
+			if (entry != null) {
+				log.info("Content index hit for {} {}: {}", kind, contentHash, entry);
+			} else {
+				log.debug("Content index miss for {} {}", kind, contentHash);
+			}
+			return entry;
+		} catch (FirestoreInteractionException e) {
+			log.warn("Content index lookup failed for {}. Proceeding without deduplication. Error: {}", contentHash,
+					e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Records {@code nhostFileId} as the canonical copy of the content unless a
+	 * different file already owns the hash (e.g. two identical uploads racing).
+	 *
+	 * @return {@code true} if the file is now the indexed copy
+	 */
+	public boolean register(@Nullable String contentHash, String kind, String nhostFileId, long fileSize,
+			@Nullable String contentType) {
+		if (!enabled || !StringUtils.hasText(contentHash) || !StringUtils.hasText(nhostFileId)) {
+			return false;
+		}
+		DocumentReference ref = firebaseService.getDocumentReference(collectionName, contentHash);
+		try {
+			boolean registered = firebaseService.runTransaction(transaction -> {
+				DocumentSnapshot snapshot = transaction.get(ref).get();
+				if (!snapshot.exists()) {
+					transaction.set(ref,
+							new ContentIndexEntry(contentHash, kind, nhostFileId, fileSize, contentType).toMap());
+					return true;
+				}
+				return nhostFileId.equals(snapshot.getString("nhostFileId"));
+			});
+			log.info("Content index registration for {} {} -> {}: {}", kind, contentHash, nhostFileId,
+					registered ? "indexed" : "already owned by another file");
+			return registered;
+		} catch (FirestoreInteractionException e) {
+			log.warn("Failed to register content {} in index: {}", contentHash, e.getMessage());
+			return false;
+		}
+	}
+
+	public void recordTranscript(@Nullable String contentHash, @Nullable String transcript) {
+		if (!enabled || !StringUtils.hasText(contentHash) || !StringUtils.hasText(transcript)
+				|| transcript.trim().startsWith("{\"error\"")) {
+			return;
+		}
+		Map<String, Object> updates = new HashMap<>();
+		updates.put("transcriptText", transcript);
+		updates.put("lastUsed", Timestamp.now());
+		updateEntry(contentHash, updates, "transcript");
+	}
+
+	public void recordPdf(@Nullable String contentHash, @Nullable String pdfUrl) {
+		if (!enabled || !StringUtils.hasText(contentHash) || !StringUtils.hasText(pdfUrl)) {
+			return;
+		}
+		Map<String, Object> updates = new HashMap<>();
+		updates.put("pdfUrl", pdfUrl);
+		updates.put("pdfIndexedAt", Timestamp.now());
+		updates.put("lastUsed", Timestamp.now());
+		updateEntry(contentHash, updates, "PDF");
+	}
+
+	public boolean hasTranscript(ContentIndexEntry entry) {
+		return StringUtils.hasText(entry.getTranscriptText());
+	}
+
+	/**
+	 * ConvertAPI only keeps result files for a limited time, so an indexed PDF URL
+	 * is only reused while it is younger than {@code app.dedup.pdf-url-ttl-minutes}.
+	 */
+	public boolean isPdfReusable(ContentIndexEntry entry) {
+		if (!StringUtils.hasText(entry.getPdfUrl()) || entry.getPdfIndexedAt() == null) {
+			return false;
+		}
+		Instant indexedAt = entry.getPdfIndexedAt().toDate().toInstant();
+		return indexedAt.plus(pdfUrlTtl).isAfter(Instant.now());
+	}
+
+	/**
+	 * Drops one reference on the indexed content. Best effort: if Firestore
+	 * cannot be reached the reference is kept and {@code false} returned, so the
+	 * stored file is never deleted while it might still be in use.
+	 *
+	 * @return {@code true} if the caller may delete {@code nhostFileId} from
+	 *         storage, i.e. it is not indexed or this was the last reference
+	 */
+	public boolean release(@Nullable String contentHash, String nhostFileId) {
+		try {
+			return release(contentHash, nhostFileId, null);
+		} catch (FirestoreInteractionException e) {
+			log.warn("Failed to release content {} (file {}). Keeping the stored file. Error: {}", contentHash,
+					nhostFileId, e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Where a caller that may retry records the outcome of its release: the
+	 * transaction adds {@code releasedStep} or {@code keptStep} to the array
+	 * {@code field} of {@code document}.
+	 */
+	public record ReleaseMarker(DocumentReference document, String field, String releasedStep, String keptStep) {
+	}
+
+	/**
+	 * Same as {@link #release(String, String)}, but records the outcome on
+	 * {@code marker} in the same transaction and reads it back there first, so
+	 * a retried or concurrent caller gets the earlier outcome instead of
+	 * dropping the reference a second time. If the marker document no longer
+	 * exists its owner has been deleted already and nothing is released.
+	 * Firestore failures are thrown, not swallowed, so the caller can retry.
+	 *
+	 * @throws FirestoreInteractionException if the transaction fails
+	 */
+	public boolean release(@Nullable String contentHash, String nhostFileId, @Nullable ReleaseMarker marker) {
+		if (!StringUtils.hasText(contentHash)) {
+			return true;
+		}
+		DocumentReference ref = firebaseService.getDocumentReference(collectionName, contentHash);
+		return firebaseService.runTransaction(transaction -> {
+			if (marker != null) {
+				DocumentSnapshot owner = transaction.get(marker.document()).get();
+				if (!owner.exists()) {
+					return false;
+				}
+				if (owner.get(marker.field()) instanceof Collection<?> steps) {
+					if (steps.contains(marker.releasedStep())) {
+						return true;
+					}
+					if (steps.contains(marker.keptStep())) {
+						return false;
+					}
+				}
+			}
+			DocumentSnapshot snapshot = transaction.get(ref).get();
+			boolean deletable;
+			if (!snapshot.exists() || !nhostFileId.equals(snapshot.getString("nhostFileId"))) {
+				deletable = true;
+			} else {
+				Long refCount = snapshot.getLong("refCount");
+				deletable = refCount == null || refCount <= 1;
+				if (deletable) {
+					transaction.delete(ref);
+				} else {
+					transaction.update(ref, "refCount", FieldValue.increment(-1));
+				}
+			}
+			if (marker != null) {
+				transaction.update(marker.document(), marker.field(),
+						FieldValue.arrayUnion(deletable ? marker.releasedStep() : marker.keptStep()));
+			}
+			return deletable;
+		});
+	}
+
+	private void updateEntry(String contentHash, Map<String, Object> updates, String label) {
+		try {
+			firebaseService.updateDataWithMap(collectionName, contentHash, updates);
+			log.info("Recorded {} for indexed content {}", label, contentHash);
+		} catch (FirestoreInteractionException e) {
+			log.warn("Could not record {} for content {} (not indexed?): {}", label, contentHash, e.getMessage());
+		}
+	}
+}
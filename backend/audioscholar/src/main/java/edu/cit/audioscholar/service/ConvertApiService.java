@@ -1,10 +1,12 @@
 package edu.cit.audioscholar.service;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -29,9 +31,12 @@ public class ConvertApiService {
 	private final RestTemplate restTemplate;
 	private final KeyRotationManager keyRotationManager;
 	private final ObjectMapper objectMapper;
+	private final Duration maxKeyWait;
 
-	public ConvertApiService(RestTemplate restTemplate, KeyRotationManager keyRotationManager) {
+	public ConvertApiService(RestTemplate restTemplate, KeyRotationManager keyRotationManager,
+			@Value("${convertapi.quota.max-key-wait:30s}") Duration maxKeyWait) {
 		this.restTemplate = restTemplate;
+		this.maxKeyWait = maxKeyWait;
 		this.keyRotationManager = keyRotationManager;
 		this.objectMapper = new ObjectMapper();
 	}
@@ -48,7 +53,8 @@ public class ConvertApiService {
 		for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
 			String secret = null;
 			try {
-				secret = keyRotationManager.getKey(KeyProvider.CONVERTAPI);
+				// Conversions wait for a secret to come out of cooldown rather than fail the upload.
+				secret = keyRotationManager.awaitKey(KeyProvider.CONVERTAPI, 0, maxKeyWait);
 			} catch (Exception e) {
 				log.error("Failed to get ConvertAPI key", e);
 				throw e;
@@ -0,0 +1,103 @@
+package edu.cit.audioscholar.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import edu.cit.audioscholar.config.RabbitMQConfig;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Parks a job that cannot run yet, such as a transcription whose audio is
+ * still uploading, and hands it back to its queue after the stage's delay.
+ * The listener returns straight away instead of sleeping on the consumer
+ * thread, so other recordings keep moving while this one waits.
+ * <p>
+ * The wait itself is done by the broker (see
+ * {@link RabbitMQConfig#DELAY_EXCHANGE_NAME}). The number of times a job has
+ * been parked travels with it in a message header, so a job whose
+ * prerequisite never arrives is eventually given up on.
+ */
+@Service
+public class DelayedRequeueService {
+
+	private static final Logger log = LoggerFactory.getLogger(DelayedRequeueService.class);
+
+	private final RabbitTemplate rabbitTemplate;
+	private final Map<PipelineStage, Integer> maxDeferrals = new EnumMap<>(PipelineStage.class);
+	private final Map<PipelineStage, Counter> deferredCounters = new EnumMap<>(PipelineStage.class);
+
+	public DelayedRequeueService(RabbitTemplate rabbitTemplate,
+			@Value("${app.requeue.upload.max-deferrals:30}") int uploadMaxDeferrals,
+			@Value("${app.requeue.pdf-conversion.max-deferrals:30}") int pdfConversionMaxDeferrals,
+			@Value("${app.requeue.transcription.max-deferrals:120}") int transcriptionMaxDeferrals,
+			@Value("${app.requeue.summarization.max-deferrals:240}") int summarizationMaxDeferrals,
+			MeterRegistry meterRegistry) {
+		this.rabbitTemplate = rabbitTemplate;
+		maxDeferrals.put(PipelineStage.UPLOAD, uploadMaxDeferrals);
+		maxDeferrals.put(PipelineStage.PDF_CONVERSION, pdfConversionMaxDeferrals);
+		maxDeferrals.put(PipelineStage.TRANSCRIPTION, transcriptionMaxDeferrals);
+		maxDeferrals.put(PipelineStage.SUMMARIZATION, summarizationMaxDeferrals);
+		for (PipelineStage stage : PipelineStage.values()) {
+			deferredCounters.put(stage,
+					Counter.builder("audioscholar.pipeline.deferred").tag("stage", stage.name().toLowerCase())
+							.description("Jobs parked on a delay queue because they were not ready to run")
+							.register(meterRegistry));
+		}
+	}
+
+	/**
+	 * Publishes {@code payload} to the stage's delay queue.
+	 *
+	 * @param headers
+	 *            the headers of the message being handled; the job's counters
+	 *            are carried over
+	 * @return {@code false} without publishing if the job has already been
+	 *         parked the maximum number of times; the caller decides how to
+	 *         proceed
+	 */
+	public boolean defer(PipelineStage stage, String metadataId, Object payload, @Nullable Map<String, Object> headers,
+			String reason) {
+		int next = (int) PipelineHeaders.longValue(headers, PipelineHeaders.DEFERRALS, 0) + 1;
+		int max = maxDeferrals.get(stage);
+		if (next > max) {
+			log.warn("[{}] {} still not ready after {} deferrals ({}). Giving up on waiting.", metadataId, stage,
+					max, reason);
+			return false;
+		}
+		Map<String, Object> carried = PipelineHeaders.carried(headers);
+		carried.put(PipelineHeaders.DEFERRALS, next);
+		publish(stage, payload, carried);
+		log.info("[{}] {} not ready ({}). Parked for redelivery, deferral {}/{}.", metadataId, stage, reason, next,
+				max);
+		return true;
+	}
+
+	/**
+	 * Publishes {@code payload} to the stage's delay queue without counting it
+	 * as a deferral. For jobs that could not even check whether they may run,
+	 * e.g. because the lease store was unreachable; such a job is never given
+	 * up on, it keeps coming back at the stage's delay until the outage ends.
+	 */
+	public void redeliverLater(PipelineStage stage, String metadataId, Object payload,
+			@Nullable Map<String, Object> headers, String reason) {
+		publish(stage, payload, PipelineHeaders.carried(headers));
+		log.warn("[{}] {} could not run ({}). Parked for redelivery.", metadataId, stage, reason);
+	}
+
+	private void publish(PipelineStage stage, Object payload, Map<String, Object> carried) {
+		rabbitTemplate.convertAndSend(RabbitMQConfig.DELAY_EXCHANGE_NAME, stage.getRoutingKey(), payload, message -> {
+			carried.forEach(message.getMessageProperties()::setHeader);
+			return message;
+		});
+		deferredCounters.get(stage).increment();
+	}
+}
@@ -3,6 +3,7 @@ package edu.cit.audioscholar.service;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -40,6 +41,7 @@ import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
 import com.google.cloud.firestore.WriteBatch;
 import com.google.cloud.firestore.WriteResult;
 import com.google.firebase.FirebaseApp;
@@ -403,6 +405,41 @@ public class FirebaseService {
 		}
 	}
 
+	public DocumentReference getDocumentReference(String collection, String document) {
+		return getFirestore().collection(collection).document(document);
+	}
+
+	public <T> T runTransaction(Transaction.Function<T> updateFunction) {
+		try {
+			return getFirestore().runTransaction(updateFunction).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.error("Interrupted while running Firestore transaction", e);
+			throw new FirestoreInteractionException("Interrupted while running Firestore transaction", e);
+		} catch (ExecutionException e) {
+			log.error("Firestore transaction failed: {}", e.getMessage(), e);
+			throw new FirestoreInteractionException("Firestore transaction failed", e);
+		}
+	}
+
+	public WriteBatch newBatch() {
+		return getFirestore().batch();
+	}
+
+	public void commitBatch(WriteBatch batch, String description) {
+		try {
+			List<WriteResult> results = batch.commit().get();
+			log.info("Committed batch for {} with {} write(s)", description, results.size());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.error("Interrupted while committing batch for {}", description, e);
+			throw new FirestoreInteractionException("Interrupted while committing Firestore batch", e);
+		} catch (ExecutionException e) {
+			log.error("Firestore batch for {} failed: {}", description, e.getMessage(), e);
+			throw new FirestoreInteractionException("Firestore batch failed for " + description, e);
+		}
+	}
+
 	@SuppressWarnings("null")
 	public List<Map<String, Object>> queryCollection(String collection, String field, Object value) {
 		try {
@@ -423,6 +460,47 @@ public class FirebaseService {
 		}
 	}
 
+	/**
+	 * Counts audio metadata documents whose status is one of {@code statuses},
+	 * optionally restricted to one user, using a server-side count aggregation.
+	 */
+	public long countAudioMetadataByStatus(@Nullable String userId, Collection<ProcessingStatus> statuses) {
+		return countAudioMetadataByStatus(userId, statuses, null);
+	}
+
+	/**
+	 * Like {@link #countAudioMetadataByStatus(String, Collection)}, but only
+	 * counts documents whose {@code lastUpdated} is after {@code updatedAfter}
+	 * when it is given. Needs the {@code status}/{@code userId}/{@code lastUpdated}
+	 * composite indexes from {@code firestore.indexes.json}.
+	 */
+	public long countAudioMetadataByStatus(@Nullable String userId, Collection<ProcessingStatus> statuses,
+			@Nullable Timestamp updatedAfter) {
+		if (statuses.isEmpty()) {
+			return 0;
+		}
+		List<String> statusNames = statuses.stream().map(ProcessingStatus::name).toList();
+		try {
+			Query query = getFirestore().collection(audioMetadataCollectionName).whereIn("status", statusNames);
+			if (StringUtils.hasText(userId)) {
+				query = query.whereEqualTo("userId", userId);
+			}
+			if (updatedAfter != null) {
+				query = query.whereGreaterThan("lastUpdated", updatedAfter);
+			}
+			long count = query.count().get().get().getCount();
+			log.debug("Counted {} audio metadata documents for user '{}' in statuses {}", count,
+					userId != null ? userId : "*", statusNames);
+			return count;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FirestoreInteractionException("Interrupted while counting audio metadata by status", e);
+		} catch (ExecutionException e) {
+			log.error("Error counting audio metadata by status for user '{}': {}", userId, e.getMessage(), e);
+			throw new FirestoreInteractionException("Error counting audio metadata by status", e);
+		}
+	}
+
 	@SuppressWarnings("null")
 	public void updateAudioMetadataStatus(String metadataId, ProcessingStatus status)
 			throws FirestoreInteractionException {
@@ -725,6 +803,7 @@ public class FirebaseService {
 			metadata.setSummaryId(getString(data, "summaryId", document.getId()));
 			metadata.setTranscriptText(getString(data, "transcriptText", document.getId()));
 			metadata.setDurationSeconds(getInteger(data, "durationSeconds", document.getId()));
+			metadata.setAudioCodec(getString(data, "audioCodec", document.getId()));
 			metadata.setLastUpdated(getTimestamp(data, "lastUpdated", document.getId()));
 			metadata.setFailureReason(getString(data, "failureReason", document.getId()));
 
@@ -0,0 +1,216 @@
+package edu.cit.audioscholar.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Remembers which files have already been uploaded to the Gemini Files API, so
+ * retries and later pipeline stages reuse the file URI instead of uploading the
+ * same bytes again.
+ * <p>
+ * Entries are keyed by the SHA-256 of the file content and by the API key used
+ * for the upload, since uploaded files are only visible to the project that
+ * owns the key. When all configured keys belong to one project,
+ * {@code gemini.files.cache.shared-project} lets every key reuse every entry.
+ * Callers look up {@link #find} first and, where they can, make their call with
+ * a key that already holds the upload rather than uploading for another key.
+ * The Files API deletes uploads after about 48 hours; an entry is reused only
+ * while its expiration time, less {@code gemini.files.cache.reuse-margin}, is
+ * still ahead. Concurrent uploads of the same content share one upload.
+ */
+@Service
+public class GeminiFileUriCache {
+
+	private static final Logger log = LoggerFactory.getLogger(GeminiFileUriCache.class);
+
+	/** Uploads the file and reports where it went. */
+	@FunctionalInterface
+	public interface Uploader<E extends Exception> {
+		UploadedFile upload() throws IOException, E;
+	}
+
+	/**
+	 * @param expiresAt
+	 *            expiration time reported by the Files API, or {@code null} if it
+	 *            did not report one
+	 */
+	public record UploadedFile(String uri, @Nullable Instant expiresAt) {
+	}
+
+	/** A reusable upload and the API key it was made with. */
+	public record CachedUpload(String uri, String apiKey) {
+	}
+
+	private record Entry(UploadedFile file, String apiKey) {
+	}
+
+	private final boolean enabled;
+	private final Duration defaultTtl;
+	private final Duration reuseMargin;
+	private final boolean sharedProject;
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private final Map<String, CompletableFuture<UploadedFile>> inFlight = new ConcurrentHashMap<>();
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter sharedUploads;
+
+	public GeminiFileUriCache(@Value("${gemini.files.cache.enabled:true}") boolean enabled,
+			@Value("${gemini.files.cache.default-ttl:47h}") Duration defaultTtl,
+			@Value("${gemini.files.cache.reuse-margin:2h}") Duration reuseMargin,
+			@Value("${gemini.files.cache.shared-project:false}") boolean sharedProject,
+			MeterRegistry meterRegistry) {
+		this.enabled = enabled;
+		this.defaultTtl = defaultTtl;
+		this.reuseMargin = reuseMargin;
+		this.sharedProject = sharedProject;
+
+		Gauge.builder("audioscholar.gemini.files.cache.entries", entries, Map::size)
+				.description("Gemini Files API uploads available for reuse").register(meterRegistry);
+		this.hits = requestCounter(meterRegistry, "hit");
+		this.misses = requestCounter(meterRegistry, "miss");
+		this.sharedUploads = requestCounter(meterRegistry, "shared");
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns the still valid uploads of the content with SHA-256
+	 * {@code contentHash}, longest-lived first, with the keys that made them.
+	 */
+	public List<CachedUpload> find(@Nullable String contentHash) {
+		if (!enabled || contentHash == null) {
+			return List.of();
+		}
+		String prefix = contentHash + ":";
+		List<CachedUpload> found = entries.entrySet().stream()
+				.filter(entry -> entry.getKey().startsWith(prefix) && isReusable(entry.getValue().file()))
+				.map(Map.Entry::getValue)
+				.sorted(Comparator.comparing((Entry entry) -> entry.file().expiresAt()).reversed())
+				.map(entry -> new CachedUpload(entry.file().uri(), entry.apiKey()))
+				.toList();
+		if (!found.isEmpty()) {
+			hits.increment();
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the URI of a still valid upload of the content with SHA-256
+	 * {@code contentHash} made with {@code apiKey}'s project, or uploads it once
+	 * with {@code uploader}. Nothing is cached when {@code contentHash} is
+	 * {@code null}.
+	 */
+	public <E extends Exception> String getOrUpload(@Nullable String contentHash, String apiKey,
+			Uploader<E> uploader) throws IOException, E {
+		if (!enabled || contentHash == null) {
+			return uploader.upload().uri();
+		}
+		String key = contentHash + ":" + projectScope(apiKey);
+
+		Entry cached = entries.get(key);
+		if (cached != null && isReusable(cached.file())) {
+			hits.increment();
+			log.info("Reusing Gemini upload {} (content {})", cached.file().uri(), abbreviate(contentHash));
+			return cached.file().uri();
+		}
+
+		CompletableFuture<UploadedFile> ownUpload = new CompletableFuture<>();
+		CompletableFuture<UploadedFile> existing = inFlight.putIfAbsent(key, ownUpload);
+		if (existing != null) {
+			sharedUploads.increment();
+			log.info("Waiting for in-flight Gemini upload of content {}", abbreviate(contentHash));
+			UploadedFile shared = await(existing);
+			if (shared != null) {
+				return shared.uri();
+			}
+			// The shared upload failed; try our own so the caller sees its own error.
+			return uploader.upload().uri();
+		}
+
+		misses.increment();
+		try {
+			UploadedFile uploaded = uploader.upload();
+			UploadedFile entry = uploaded.expiresAt() != null ? uploaded
+					: new UploadedFile(uploaded.uri(), Instant.now().plus(defaultTtl));
+			entries.values().removeIf(candidate -> !isReusable(candidate.file()));
+			entries.put(key, new Entry(entry, apiKey));
+			ownUpload.complete(entry);
+			return entry.uri();
+		} catch (Exception e) {
+			ownUpload.complete(null);
+			throw e;
+		} finally {
+			inFlight.remove(key, ownUpload);
+		}
+	}
+
+	/**
+	 * Forgets every entry pointing at {@code uri}, e.g. after the API reported
+	 * the file as missing.
+	 */
+	public void evict(@Nullable String uri) {
+		if (uri != null && entries.values().removeIf(entry -> entry.file().uri().equals(uri))) {
+			log.info("Dropped cached Gemini upload {}", uri);
+		}
+	}
+
+	public int getEntryCount() {
+		return entries.size();
+	}
+
+	private boolean isReusable(UploadedFile entry) {
+		return entry.expiresAt() != null && Instant.now().plus(reuseMargin).isBefore(entry.expiresAt());
+	}
+
+	private String projectScope(String apiKey) {
+		if (sharedProject) {
+			return "shared";
+		}
+		// Keys are kept out of the map itself; a short fingerprint is enough to tell them apart.
+		MessageDigest digest = ContentDedupService.newDigest();
+		digest.update(apiKey.getBytes(StandardCharsets.UTF_8));
+		return ContentDedupService.toHex(digest).substring(0, 16);
+	}
+
+	@Nullable
+	private static UploadedFile await(CompletableFuture<UploadedFile> upload) throws IOException {
+		try {
+			return upload.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a Gemini upload", e);
+		} catch (ExecutionException e) {
+			return null;
+		}
+	}
+
+	private static String abbreviate(String hash) {
+		return hash.substring(0, 12);
+	}
+
+	private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("audioscholar.gemini.files.cache.requests").tag("result", result)
+				.description("Gemini Files API upload lookups by outcome").register(meterRegistry);
+	}
+}
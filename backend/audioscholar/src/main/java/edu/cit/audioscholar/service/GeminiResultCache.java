@@ -0,0 +1,189 @@
+package edu.cit.audioscholar.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.cloud.Timestamp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Remembers Gemini summarization and recommendation results, so reprocessing a
+ * recording, or another upload with the same transcript and slides, returns the
+ * earlier answer instead of spending another minute of model time.
+ * <p>
+ * Keys are SHA-256 fingerprints of everything that shapes the answer: the
+ * operation, the models it may run on, the prompt text and response schema, and
+ * the inputs (transcript, PDF content hash). Editing a prompt or schema changes
+ * every key built from it, so stale results are never read again. Results are
+ * kept in memory (Caffeine) over a Firestore collection that survives restarts
+ * and is shared by all instances; its documents carry an {@code expiresAt}
+ * field for a Firestore TTL policy. Error responses are never cached.
+ */
+@Service
+public class GeminiResultCache {
+
+	private static final Logger log = LoggerFactory.getLogger(GeminiResultCache.class);
+	// Firestore documents are capped at 1 MiB; larger results stay in memory only.
+	private static final int MAX_PERSISTED_RESULT_CHARS = 900_000;
+	// Sorted so that schemas built from Map.of fingerprint the same in every JVM.
+	private static final ObjectMapper FINGERPRINT_MAPPER = new ObjectMapper()
+			.configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+	/** Cache key of one result; {@code operation} is kept for logs and metrics. */
+	public record ResultKey(String operation, String hash) {
+	}
+
+	private final FirebaseService firebaseService;
+	private final String collectionName;
+	private final boolean enabled;
+	private final Duration ttl;
+	private final Cache<String, String> memory;
+	private final Counter memoryHits;
+	private final Counter firestoreHits;
+	private final Counter misses;
+
+	public GeminiResultCache(FirebaseService firebaseService,
+			@Value("${firebase.firestore.collection.gemini-results:gemini_results}") String collectionName,
+			@Value("${gemini.results.cache.enabled:true}") boolean enabled,
+			@Value("${gemini.results.cache.ttl:30d}") Duration ttl,
+			@Value("${gemini.results.cache.memory-max-entries:200}") long memoryMaxEntries,
+			MeterRegistry meterRegistry) {
+		this.firebaseService = firebaseService;
+		this.collectionName = collectionName;
+		this.enabled = enabled;
+		this.ttl = ttl;
+		this.memory = Caffeine.newBuilder().maximumSize(memoryMaxEntries).expireAfterWrite(ttl).build();
+		this.memoryHits = requestCounter(meterRegistry, "memory_hit");
+		this.firestoreHits = requestCounter(meterRegistry, "firestore_hit");
+		this.misses = requestCounter(meterRegistry, "miss");
+		log.info("Gemini result cache {} (collection: {}, TTL: {}, {} entries in memory)",
+				enabled ? "enabled" : "disabled", collectionName, ttl, memoryMaxEntries);
+	}
+
+	/**
+	 * Builds the key of an {@code operation} from everything that shapes its
+	 * result. Strings are hashed as they are; other parts, such as response
+	 * schemas, as JSON with sorted keys.
+	 */
+	public static ResultKey key(String operation, Object... parts) {
+		MessageDigest digest = ContentDedupService.newDigest();
+		digest.update(operation.getBytes(StandardCharsets.UTF_8));
+		for (Object part : parts) {
+			// Separator, so that ("ab", "c") and ("a", "bc") differ.
+			digest.update((byte) 0);
+			digest.update(serialize(part).getBytes(StandardCharsets.UTF_8));
+		}
+		return new ResultKey(operation, ContentDedupService.toHex(digest));
+	}
+
+	/**
+	 * Returns the cached result for {@code key}, or computes it and caches it if
+	 * {@code cacheable} accepts it.
+	 */
+	public String getOrCompute(ResultKey key, Supplier<String> compute, Predicate<String> cacheable) {
+		if (!enabled) {
+			return compute.get();
+		}
+		String cached = memory.getIfPresent(key.hash());
+		if (cached != null) {
+			memoryHits.increment();
+			log.info("Reusing cached {} result {}", key.operation(), abbreviate(key.hash()));
+			return cached;
+		}
+		cached = readPersisted(key);
+		if (cached != null) {
+			firestoreHits.increment();
+			memory.put(key.hash(), cached);
+			log.info("Reusing stored {} result {}", key.operation(), abbreviate(key.hash()));
+			return cached;
+		}
+
+		misses.increment();
+		String result = compute.get();
+		if (result != null && cacheable.test(result)) {
+			memory.put(key.hash(), result);
+			persist(key, result);
+		}
+		return result;
+	}
+
+	@Nullable
+	private String readPersisted(ResultKey key) {
+		try {
+			Map<String, Object> data = firebaseService.getData(collectionName, key.hash());
+			if (data == null || !(data.get("result") instanceof String result)) {
+				return null;
+			}
+			if (data.get("expiresAt") instanceof Timestamp expiresAt
+					&& expiresAt.toDate().toInstant().isBefore(Instant.now())) {
+				return null;
+			}
+			return result;
+		} catch (RuntimeException e) {
+			log.warn("Could not read cached {} result {}: {}", key.operation(), abbreviate(key.hash()),
+					e.getMessage());
+			return null;
+		}
+	}
+
+	private void persist(ResultKey key, String result) {
+		if (result.length() > MAX_PERSISTED_RESULT_CHARS) {
+			log.debug("{} result {} is too large to store ({} chars)", key.operation(), abbreviate(key.hash()),
+					result.length());
+			return;
+		}
+		Map<String, Object> data = new HashMap<>();
+		data.put("operation", key.operation());
+		data.put("result", result);
+		data.put("createdAt", Timestamp.now());
+		data.put("expiresAt", Timestamp.of(Date.from(Instant.now().plus(ttl))));
+		try {
+			firebaseService.saveData(collectionName, key.hash(), data);
+		} catch (RuntimeException e) {
+			log.warn("Could not store {} result {}: {}", key.operation(), abbreviate(key.hash()), e.getMessage());
+		}
+	}
+
+	private static String serialize(@Nullable Object part) {
+		if (part == null) {
+			return "";
+		}
+		if (part instanceof String text) {
+			return text;
+		}
+		try {
+			return FINGERPRINT_MAPPER.writeValueAsString(part);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Cannot fingerprint " + part.getClass().getSimpleName(), e);
+		}
+	}
+
+	private static String abbreviate(String hash) {
+		return hash.substring(0, 12);
+	}
+
+	private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("audioscholar.gemini.results.cache.requests").tag("result", result)
+				.description("Gemini result cache lookups by outcome").register(meterRegistry);
+	}
+}
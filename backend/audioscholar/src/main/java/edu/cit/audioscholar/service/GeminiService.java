@@ -1,17 +1,42 @@
 package edu.cit.audioscholar.service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,6 +46,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
@@ -37,6 +63,23 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import edu.cit.audioscholar.model.KeyProvider;
+import edu.cit.audioscholar.service.GeminiTokenEstimator.ContextPlan;
+import edu.cit.audioscholar.service.GeminiTokenEstimator.ContextStrategy;
+import edu.cit.audioscholar.service.GeminiTokenEstimator.Forecast;
+import edu.cit.audioscholar.service.GeminiTokenEstimator.TokenEstimate;
+import edu.cit.audioscholar.service.GeminiTokenEstimator.Workload;
+import edu.cit.audioscholar.util.AudioSegmenter;
+import edu.cit.audioscholar.util.GeminiResponseDecoder;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.CandidateText;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.GeminiResponseException;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.GlossaryEntry;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.SummaryResult;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.TranscriptResult;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.UsageMetadata;
+import edu.cit.audioscholar.util.GeminiSseReader;
+import edu.cit.audioscholar.util.SummaryMerger;
+import edu.cit.audioscholar.util.TranscriptChunker;
+import edu.cit.audioscholar.util.TranscriptStitcher;
 
 @Service
 public class GeminiService {
@@ -51,10 +94,57 @@ public class GeminiService {
 	@Value("${gemini.api.model.summarization:gemini-2.5-flash}")
 	private String summarizationModelName;
 
+	@Value("${gemini.transcription.segmented.enabled:true}")
+	private boolean segmentedTranscriptionEnabled;
+
+	@Value("${gemini.transcription.segmented.min-duration-seconds:1800}")
+	private int segmentedMinDurationSeconds;
+
+	@Value("${gemini.transcription.segmented.segment-seconds:600}")
+	private int segmentSeconds;
+
+	@Value("${gemini.transcription.segmented.overlap-seconds:20}")
+	private int segmentOverlapSeconds;
+
+	@Value("${gemini.transcription.segmented.max-parallel:8}")
+	private int segmentMaxParallel;
+
+	@Value("${gemini.summarization.map-reduce.enabled:true}")
+	private boolean mapReduceEnabled;
+
+	@Value("${gemini.summarization.map-reduce.min-transcript-chars:100000}")
+	private int mapReduceMinTranscriptChars;
+
+	@Value("${gemini.summarization.map-reduce.part-chars:40000}")
+	private int mapReducePartChars;
+
+	@Value("${gemini.summarization.map-reduce.max-parallel:4}")
+	private int mapReduceMaxParallel;
+
+	@Value("${gemini.quota.max-key-wait:2m}")
+	private Duration maxKeyWait;
+
+	@Value("${gemini.streaming.enabled:true}")
+	private boolean streamingEnabled;
+
+	@Value("${gemini.streaming.progress-interval:5s}")
+	private Duration streamingProgressInterval;
+
+	/** Receives the transcript received so far while a streamed transcription runs. */
+	@FunctionalInterface
+	public interface TranscriptionProgressListener {
+		void onProgress(String partialTranscript);
+	}
+
 	private static final String API_BASE_URL = "https://generativelanguage.googleapis.com";
 	private static final String FILES_API_UPLOAD_PATH = "/upload/v1beta/files";
 	private static final String FILES_API_BASE_URL = API_BASE_URL;
 	private static final String GENERATE_CONTENT_PATH = "/v1beta/models/{modelName}:generateContent";
+	private static final String STREAM_GENERATE_CONTENT_PATH = "/v1beta/models/{modelName}:streamGenerateContent";
+	// Latency of hedged calls is tracked per operation, since transcripts take far longer than summaries.
+	private static final String SUMMARIZATION_OPERATION = "summarization";
+	private static final String TRANSCRIPTION_OPERATION = "transcription";
+	private static final String RECOMMENDATIONS_OPERATION = "recommendations";
 
 	// Legacy constants for backward compatibility
 	@Deprecated
@@ -72,17 +162,97 @@ public class GeminiService {
 	private static final long RETRY_DELAY_MS = LEGACY_RETRY_DELAY_MS;
 	private static final int MAX_OUTPUT_TOKENS_TRANSCRIPTION = 32768;
 	private static final int MAX_OUTPUT_TOKENS_SUMMARIZATION = 65536;
+	private static final String TRANSCRIPTION_PROMPT = "Transcribe the following audio content accurately. If the audio contains no speech or only silence, output the exact text '[NO SPEECH DETECTED]' in the transcript field. Otherwise, output only the spoken text. Maintain original punctuation, capitalization, and paragraph breaks as best as possible. For numbers, spell them as digits if they represent quantities or measurements, and as words if they are part of natural speech. Include any hesitations, repetitions, or fillers that are meaningful to the content.";
+	private static final String STREAMING_TRANSCRIPTION_PROMPT = TRANSCRIPTION_PROMPT
+			.replace(" in the transcript field", "") + " Respond with the transcript only, as plain text.";
+	private static final String SEGMENT_TRANSCRIPTION_PROMPT = "This audio is one part of a longer recording, so it may start or end in the middle of a sentence. Transcribe all of it accurately and completely, without summarizing, including any words cut off at the start or end. If the audio contains no speech or only silence, output the exact text '[NO SPEECH DETECTED]' in the transcript field. Otherwise, output only the spoken text. Maintain original punctuation, capitalization, and paragraph breaks as best as possible. For numbers, spell them as digits if they represent quantities or measurements, and as words if they are part of natural speech.";
+	private static final String PDF_CONTEXT_SUMMARY_PROMPT = """
+			Analyze the provided lecture transcript and the accompanying PDF document.
+			Generate a comprehensive, concise, well-structured summary incorporating information from BOTH sources, using Markdown in the `summaryText` field. Use headings (##) for main sections and bullet points (* or -) for details. Focus on core arguments, findings, definitions, and conclusions presented in either the transcript or the document.
+			Identify the main key points or action items discussed across both sources and list them as distinct strings in the `keyPoints` array.
+			Generate 3 distinct, intent-based YouTube search queries that would help a student understand these topics in depth, and output them in the `topics` array.
+			Identify important **terms, concepts, acronyms, proper nouns (people, places, organizations mentioned), and technical vocabulary** discussed in either the transcript or the document. For each, provide a concise definition relevant to the context. Structure this as an array of objects in the `glossary` field, where each object has a `term` (string) and a `definition` (string). Aim for comprehensive coverage of potentially unfamiliar items for a learner.
+			Ensure the entire output strictly adheres to the provided JSON schema. Output only the JSON object.
+			""";
+	private static final String TRANSCRIPT_ONLY_SUMMARY_PROMPT = """
+			Analyze the provided lecture transcript carefully.
+			Generate a comprehensive, concise, well-structured summary in Markdown in the `summaryText` field. Use headings (##) for main sections and bullet points (* or -) for details. Focus on core arguments, findings, definitions, and conclusions presented in the transcript.
+			Identify the main key points or action items discussed and list them as distinct strings in the `keyPoints` array.
+			Generate 3 distinct, intent-based YouTube search queries that would help a student understand these topics in depth, and output them in the `topics` array.
+			Identify important **terms, concepts, acronyms, proper nouns (people, places, organizations mentioned), and technical vocabulary** discussed in the transcript. For each, provide a concise definition relevant to the context. Structure this as an array of objects in the `glossary` field, where each object has a `term` (string) and a `definition` (string). Aim for comprehensive coverage of potentially unfamiliar items for a learner.
+			Stay strictly within the boundaries of what is explicitly mentioned in the transcript. Do not add external information, assumptions, or hallucinations.
+			Ensure the entire output strictly adheres to the provided JSON schema. Output only the JSON object.
+			""";
+	private static final String PART_SUMMARY_PROMPT = """
+			This lecture transcript is too long to summarize at once, so it is being summarized in parts. The transcript below is part %d of %d.
+			Summarize only this part in Markdown in the `summaryText` field. Use headings (##) for its main sections and bullet points (* or -) for details. Do not introduce or conclude the lecture as a whole; the parts are merged afterwards.
+			Identify the key points or action items of this part and list them as distinct strings in the `keyPoints` array.
+			Generate up to 3 distinct, intent-based YouTube search queries for the topics of this part and output them in the `topics` array.
+			Identify important **terms, concepts, acronyms, proper nouns (people, places, organizations mentioned), and technical vocabulary** discussed in this part. For each, provide a concise definition relevant to the context. Structure this as an array of objects in the `glossary` field, where each object has a `term` (string) and a `definition` (string).
+			Stay strictly within the boundaries of what is explicitly mentioned in this part. Do not add external information, assumptions, or hallucinations.
+			Ensure the entire output strictly adheres to the provided JSON schema. Output only the JSON object.
+			""";
+	private static final String REDUCE_SUMMARY_PROMPT = """
+			Below are summaries of consecutive parts of one long lecture transcript, in order, each followed by its key points.
+			Merge them into one comprehensive, concise, well-structured summary of the whole lecture in Markdown in the `summaryText` field. Use headings (##) for main sections and bullet points (* or -) for details. Keep the order of the lecture, join sections that continue across parts and remove repetition, but do not drop content.
+			Merge the key points of all parts into the `keyPoints` array, combining duplicates and keeping distinct points as separate strings.
+			Generate 3 distinct, intent-based YouTube search queries that would help a student understand the topics of the whole lecture in depth, and output them in the `topics` array.
+			The glossary of the parts is merged separately; its terms are listed at the end. In the `glossary` field, add only important terms from the summaries that are missing from that list, each with a `term` (string) and a concise `definition` (string). Return an empty array if none are missing.
+			Stay strictly within the boundaries of what the summaries say. Do not add external information, assumptions, or hallucinations.
+			Ensure the entire output strictly adheres to the provided JSON schema. Output only the JSON object.
+			""";
+	private static final String PDF_CONTEXT_REDUCE_SUMMARY_PROMPT = """
+			Below are summaries of consecutive parts of one long lecture transcript, in order, each followed by its key points, and the accompanying PDF document.
+			Merge them into one comprehensive, concise, well-structured summary of the whole lecture incorporating information from BOTH the summaries and the document, using Markdown in the `summaryText` field. Use headings (##) for main sections and bullet points (* or -) for details. Keep the order of the lecture, join sections that continue across parts and remove repetition, but do not drop content.
+			Merge the key points of all parts and of the document into the `keyPoints` array, combining duplicates and keeping distinct points as separate strings.
+			Generate 3 distinct, intent-based YouTube search queries that would help a student understand the topics of the whole lecture in depth, and output them in the `topics` array.
+			The glossary of the parts is merged separately; its terms are listed at the end. In the `glossary` field, add only important terms from the summaries or the document that are missing from that list, each with a `term` (string) and a concise `definition` (string). Return an empty array if none are missing.
+			Ensure the entire output strictly adheres to the provided JSON schema. Output only the JSON object.
+			""";
+	private static final String AUDIO_ONLY_RECOMMENDATIONS_PROMPT = """
+			        You are an expert educational content recommender.
+
+			        Based on the provided lecture summary and transcript (if available), recommend high-quality learning resources that would complement the lecture content.
+
+			        For each recommendation:
+			        1. Use the `title` field to provide a descriptive title that clearly indicates the content (e.g. "Introduction to Neural Networks")
+			        2. Use the `description` field to explain why this resource is relevant and how it relates to the lecture (2-3 sentences)
+			        3. Use the `url` field to provide a direct link to the resource (prefer YouTube videos, official documentation, academic papers)
+			        4. Use the `type` field to specify the type (e.g. "Video", "Article", "Tutorial", "Documentation", "Tool", "Book", "Course")
+			        5. Use the `audience` field to specify the target audience level ("Beginner", "Intermediate", "Advanced")
+
+			        Generate 5-7 diverse, high-quality recommendations that cover different aspects of the material.
+			        Focus on resources that either:
+			        - Clarify complex concepts from the lecture
+			        - Expand on key topics mentioned
+			        - Provide practical applications of the content
+			        - Offer visual explanations for better understanding
+
+			        Ensure recommendations are closely related to the lecture content. Do not include general or loosely related resources.
+			YOUR RESPONSE MUST STRICTLY ADHERE TO THE JSON SCHEMA PROVIDED. Return only the array of recommendation objects.
+			""";
+	private static final String PDF_TEXT_CONTEXT_HEADER = "TEXT OF THE ACCOMPANYING PDF DOCUMENT:\n";
+	// Bump to drop every cached summary and recommendation after a change the prompts do not show.
+	private static final int RESULT_CACHE_VERSION = 1;
 
 	private final RestTemplate restTemplate;
 	private final KeyRotationManager keyRotationManager;
 	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final GeminiResponseDecoder responseDecoder = new GeminiResponseDecoder(objectMapper.getFactory());
 	private final GeminiSmartRotationService rotationService;
+	private final GeminiFileUriCache fileUriCache;
+	private final GeminiResultCache resultCache;
+	private final GeminiTokenEstimator tokenEstimator;
 
 	public GeminiService(RestTemplate restTemplate, KeyRotationManager keyRotationManager,
-			GeminiSmartRotationService rotationService) {
+			GeminiSmartRotationService rotationService, GeminiFileUriCache fileUriCache,
+			GeminiResultCache resultCache, GeminiTokenEstimator tokenEstimator) {
 		this.restTemplate = restTemplate;
 		this.keyRotationManager = keyRotationManager;
 		this.rotationService = rotationService;
+		this.fileUriCache = fileUriCache;
+		this.resultCache = resultCache;
+		this.tokenEstimator = tokenEstimator;
 	}
 
 	/**
@@ -90,7 +260,7 @@ public class GeminiService {
 	 */
 	public String callGeminiSummarizationAPIWithFallback(String promptText, String transcriptText) {
 		try {
-			return rotationService.executeWithInfiniteRotation(targetModel -> {
+			return rotationService.executeHedged(SUMMARIZATION_OPERATION, targetModel -> {
 				try {
 					String currentKey = keyRotationManager.getKey(KeyProvider.GEMINI);
 					String result = callGeminiSummarizationAPISingleModel(promptText, transcriptText, targetModel,
@@ -198,18 +368,15 @@ public class GeminiService {
 		}
 
 		String mimeType = getAudioMimeType(fileName);
-		long fileSize = Files.size(audioFilePath);
-		String displayName = fileName;
 
 		try {
-			String uploadKey = keyRotationManager.getKey(KeyProvider.GEMINI);
-			String fileUri = uploadFile(audioFilePath, mimeType, fileSize, displayName, uploadKey);
-			log.info("File uploaded successfully. URI: {}", fileUri);
+			FileCalls calls = new FileCalls(fileSource(audioFilePath, null, mimeType, fileName), null, null);
 
-			return rotationService.executeWithInfiniteRotation(targetModel -> {
-				String currentKey = keyRotationManager.getKey(KeyProvider.GEMINI);
-				String result = callGeminiTranscriptionAPISingleModel(fileUri, mimeType, targetModel, currentKey);
-				keyRotationManager.reportSuccess(KeyProvider.GEMINI, currentKey);
+			return rotationService.executeHedged(TRANSCRIPTION_OPERATION, targetModel -> {
+				UploadedFileRef file = calls.nextUnchecked();
+				String result = callGeminiTranscriptionAPISingleModel(file.uri(), mimeType, targetModel,
+						file.apiKey());
+				keyRotationManager.reportSuccess(KeyProvider.GEMINI, file.apiKey());
 				return result;
 			});
 
@@ -227,10 +394,25 @@ public class GeminiService {
 	 */
 	private String callGeminiTranscriptionAPISingleModel(String fileUri, String mimeType, String modelName,
 			String currentApiKey) {
+		return callGeminiTranscriptionAPISingleModel(fileUri, mimeType, modelName, currentApiKey,
+				TRANSCRIPTION_PROMPT);
+	}
+
+	private String callGeminiTranscriptionAPISingleModel(String fileUri, String mimeType, String modelName,
+			String currentApiKey, String promptText) {
+		return callGeminiTranscriptionAPISingleModel(fileUri, mimeType, modelName, currentApiKey, promptText, null);
+	}
+
+	/**
+	 * @param estimate
+	 *            the estimate the call was scheduled with, calibrated against the
+	 *            usage Gemini reports; {@code null} to skip calibration
+	 */
+	private String callGeminiTranscriptionAPISingleModel(String fileUri, String mimeType, String modelName,
+			String currentApiKey, String promptText, @Nullable TokenEstimate estimate) {
 		HttpHeaders generateHeaders = new HttpHeaders();
 		generateHeaders.setContentType(MediaType.APPLICATION_JSON);
 
-		String promptText = "Transcribe the following audio content accurately. If the audio contains no speech or only silence, output the exact text '[NO SPEECH DETECTED]' in the transcript field. Otherwise, output only the spoken text. Maintain original punctuation, capitalization, and paragraph breaks as best as possible. For numbers, spell them as digits if they represent quantities or measurements, and as words if they are part of natural speech. Include any hesitations, repetitions, or fillers that are meaningful to the content.";
 		Map<String, Object> textPart = Map.of("text", promptText);
 		Map<String, Object> fileDataPart = Map.of("file_data", Map.of("mime_type", mimeType, "file_uri", fileUri));
 
@@ -255,6 +437,7 @@ public class GeminiService {
 
 		log.info("Calling Gemini Transcription API (Model: {}) using file URI: {}", modelName, fileUri);
 
+		long startedAt = System.nanoTime();
 		ResponseEntity<String> response = restTemplate.exchange(generateContentUrl, HttpMethod.POST, requestEntity,
 				String.class);
 
@@ -267,48 +450,16 @@ public class GeminiService {
 		}
 
 		try {
-			JsonNode responseNode = objectMapper.readTree(responseBody);
-
-			if (responseNode.has("candidates") && responseNode.path("candidates").isArray()
-					&& !responseNode.path("candidates").isEmpty()) {
-				JsonNode firstCandidate = responseNode.path("candidates").get(0);
-
-				if (firstCandidate.has("content") && firstCandidate.path("content").has("parts")
-						&& firstCandidate.path("content").path("parts").isArray()
-						&& !firstCandidate.path("content").path("parts").isEmpty()) {
-
-					JsonNode firstPart = firstCandidate.path("content").path("parts").get(0);
-					if (firstPart.has("text")) {
-						String jsonResponse = firstPart.path("text").asText();
-
-						String transcript = extractTranscriptFromJsonResponse(jsonResponse);
-						if (transcript != null) {
-							return transcript;
-						}
-					}
-				}
+			CandidateText candidate = decodeCandidate(responseBody);
+			if (estimate != null) {
+				tokenEstimator.recordUsage(estimate, candidate.usage(), System.nanoTime() - startedAt);
+				settleUsage(currentApiKey, estimate, candidate.usage());
 			}
-
-			log.warn("Could not extract structured JSON transcript, falling back to standard extraction.");
-			String extractedText;
-			try {
-				extractedText = extractTextFromStandardResponse(responseBody);
-			} catch (Exception ex) {
-				throw new RuntimeException("Failed to extract transcript from standard response", ex);
-			}
-			log.info("Successfully extracted transcript text (length: {}).", extractedText.length());
-			return extractedText;
-
-		} catch (JsonProcessingException e) {
-			log.warn("Error parsing transcript JSON response, falling back to standard extraction: {}", e.getMessage());
-			String extractedText;
-			try {
-				extractedText = extractTextFromStandardResponse(responseBody);
-			} catch (Exception ex) {
-				throw new RuntimeException("Failed to extract transcript from standard response", ex);
-			}
-			log.info("Successfully extracted transcript text (length: {}).", extractedText.length());
-			return extractedText;
+			String transcript = extractText(candidate);
+			log.info("Successfully extracted transcript text (length: {}).", transcript.length());
+			return transcript;
+		} catch (JsonProcessingException | ApiException e) {
+			throw new RuntimeException("Failed to extract transcript from standard response", e);
 		}
 	}
 
@@ -383,30 +534,30 @@ public class GeminiService {
 	}
 
 	public String callGeminiTranscriptionAPI(Path audioFilePath, String fileName) throws IOException {
+		return callGeminiTranscriptionAPIWithRetries(audioFilePath, fileName, null);
+	}
+
+	/**
+	 * @param contentHash
+	 *            SHA-256 of the file, if the caller already knows it, so earlier
+	 *            uploads of it can be found without hashing it again
+	 */
+	private String callGeminiTranscriptionAPIWithRetries(Path audioFilePath, String fileName,
+			@Nullable String contentHash) throws IOException {
 		if (audioFilePath == null || !Files.exists(audioFilePath)) {
 			log.error("Audio file path is null or does not exist: {}", audioFilePath);
 			throw new IOException("Audio file path is null or does not exist: " + audioFilePath);
 		}
 
 		String mimeType = getAudioMimeType(fileName);
-		long fileSize = Files.size(audioFilePath);
-		String displayName = fileName;
 
 		try {
-			String uploadKey = keyRotationManager.getKey(KeyProvider.GEMINI);
-			String fileUri = uploadFile(audioFilePath, mimeType, fileSize, displayName, uploadKey);
-			log.info("File uploaded successfully. URI: {}", fileUri);
+			FileCalls calls = new FileCalls(fileSource(audioFilePath, contentHash, mimeType, fileName), null, null);
 
 			HttpHeaders generateHeaders = new HttpHeaders();
 			generateHeaders.setContentType(MediaType.APPLICATION_JSON);
 
-			String promptText = "Transcribe the following audio content accurately. If the audio contains no speech or only silence, output the exact text '[NO SPEECH DETECTED]' in the transcript field. Otherwise, output only the spoken text. Maintain original punctuation, capitalization, and paragraph breaks as best as possible. For numbers, spell them as digits if they represent quantities or measurements, and as words if they are part of natural speech. Include any hesitations, repetitions, or fillers that are meaningful to the content.";
-			Map<String, Object> textPart = Map.of("text", promptText);
-			Map<String, Object> fileDataPart = Map.of("file_data", Map.of("mime_type", mimeType, "file_uri", fileUri));
-
-			List<Object> parts = List.of(textPart, fileDataPart);
-			Map<String, Object> content = Map.of("parts", parts);
-			List<Object> contents = List.of(content);
+			Map<String, Object> textPart = Map.of("text", TRANSCRIPTION_PROMPT);
 
 			Map<String, Object> generationConfig = new HashMap<>();
 			generationConfig.put("temperature", 0.2);
@@ -414,17 +565,20 @@ public class GeminiService {
 			generationConfig.put("response_mime_type", "application/json");
 			generationConfig.put("response_schema", TRANSCRIPT_RESPONSE_SCHEMA);
 
-			Map<String, Object> requestBody = new HashMap<>();
-			requestBody.put("contents", contents);
-			requestBody.put("generationConfig", generationConfig);
-
-			HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, generateHeaders);
-
-			log.info("Calling Gemini Transcription API (Model: {}) using file URI: {}", TRANSCRIPTION_MODEL_NAME,
-					fileUri);
-
 			for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-				String currentKey = keyRotationManager.getKey(KeyProvider.GEMINI);
+				UploadedFileRef file = calls.next();
+				String currentKey = file.apiKey();
+				String fileUri = file.uri();
+				Map<String, Object> fileDataPart = Map.of("file_data",
+						Map.of("mime_type", mimeType, "file_uri", fileUri));
+
+				Map<String, Object> requestBody = new HashMap<>();
+				requestBody.put("contents", List.of(Map.of("parts", List.of(textPart, fileDataPart))));
+				requestBody.put("generationConfig", generationConfig);
+				HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, generateHeaders);
+
+				log.info("Calling Gemini Transcription API (Model: {}) using file URI: {}", TRANSCRIPTION_MODEL_NAME,
+						fileUri);
 				String generateContentUrl = UriComponentsBuilder.fromUriString(API_BASE_URL + GENERATE_CONTENT_PATH)
 						.queryParam("key", currentKey).buildAndExpand(TRANSCRIPTION_MODEL_NAME).toUriString();
 
@@ -449,42 +603,15 @@ public class GeminiService {
 						continue;
 					}
 
-					try {
-						JsonNode responseNode = objectMapper.readTree(responseBody);
-
-						if (responseNode.has("candidates") && responseNode.path("candidates").isArray()
-								&& !responseNode.path("candidates").isEmpty()) {
-							JsonNode firstCandidate = responseNode.path("candidates").get(0);
-
-							if (firstCandidate.has("content") && firstCandidate.path("content").has("parts")
-									&& firstCandidate.path("content").path("parts").isArray()
-									&& !firstCandidate.path("content").path("parts").isEmpty()) {
-
-								JsonNode firstPart = firstCandidate.path("content").path("parts").get(0);
-								if (firstPart.has("text")) {
-									String jsonResponse = firstPart.path("text").asText();
-
-									String transcript = extractTranscriptFromJsonResponse(jsonResponse);
-									if (transcript != null) {
-										return transcript;
-									}
-								}
-							}
-						}
-
-						log.warn("Could not extract structured JSON transcript, falling back to standard extraction.");
-						String extractedText = extractTextFromStandardResponse(responseBody);
-						log.info("Successfully extracted transcript text (length: {}).", extractedText.length());
-						return extractedText;
-
-					} catch (JsonProcessingException e) {
-						log.warn("Error parsing transcript JSON response, falling back to standard extraction: {}",
-								e.getMessage());
-						String extractedText = extractTextFromStandardResponse(responseBody);
-						log.info("Successfully extracted transcript text (length: {}).", extractedText.length());
-						return extractedText;
-					}
+					String transcript = extractTextFromStandardResponse(responseBody);
+					log.info("Successfully extracted transcript text (length: {}).", transcript.length());
+					return transcript;
 
+				} catch (JsonProcessingException e) {
+					log.error("Gemini Transcription API response was not valid JSON on attempt {}: {}", attempt,
+							e.getMessage());
+					return createErrorResponse("Invalid JSON Response",
+							"API response was not valid JSON: " + e.getMessage());
 				} catch (ApiException e) {
 					log.error("Gemini Transcription API Error on attempt {}: {}", attempt, e.getMessage(), e);
 					return createErrorResponse("Transcription API Error", e.getMessage());
@@ -503,6 +630,7 @@ public class GeminiService {
 					if (statusCode == 429 || statusCode == 403) {
 						keyRotationManager.reportError(KeyProvider.GEMINI, currentKey, statusCode);
 					}
+					forgetUploadIfRejected(e, fileUri);
 					log.error("Gemini Transcription API (generateContent) client error: {} - {}", e.getStatusCode(),
 							e.getResponseBodyAsString(), e);
 					String details = parseErrorDetails(e);
@@ -533,8 +661,548 @@ public class GeminiService {
 		}
 	}
 
-	private String uploadFile(Path filePath, String mimeType, long fileSize, String displayName, String apiKey)
+	public String callGeminiTranscriptionAPI(Path audioFilePath, String fileName, @Nullable Integer durationSeconds)
+			throws IOException {
+		return callGeminiTranscriptionAPI(audioFilePath, fileName, durationSeconds, null, null);
+	}
+
+	/**
+	 * Transcribes a recording, picking the request style by its length.
+	 * <p>
+	 * Long recordings are cut into overlapping segments with
+	 * {@link AudioSegmenter}, one request per segment, spread across the
+	 * configured Gemini keys and stitched back together with
+	 * {@link TranscriptStitcher}. Each segment is uploaded on its own and its
+	 * requests go to the key that uploaded it, so a window is billed for its own
+	 * audio only and stays well below the output token cap; wall-clock time
+	 * depends on the number of keys rather than on the length of the lecture.
+	 * Recordings in a format the segmenter cannot cut, and all shorter ones, are
+	 * streamed with {@code streamGenerateContent}, reporting the transcript
+	 * received so far to {@code progressListener}, or sent through
+	 * {@link #callGeminiTranscriptionAPI(Path, String)} when streaming is
+	 * disabled.
+	 * <p>
+	 * {@code contentHash} is the SHA-256 of the file if the caller already knows
+	 * it. Calls then go to a key that still holds an upload of the content,
+	 * where one has room, instead of uploading it again.
+	 */
+	public String callGeminiTranscriptionAPI(Path audioFilePath, String fileName, @Nullable Integer durationSeconds,
+			@Nullable String contentHash, @Nullable TranscriptionProgressListener progressListener)
+			throws IOException {
+		if (segmentedTranscriptionEnabled && durationSeconds != null
+				&& durationSeconds >= Math.max(segmentedMinDurationSeconds, segmentSeconds + 1)) {
+			String transcript = callGeminiTranscriptionAPISegmented(audioFilePath, fileName);
+			if (transcript != null) {
+				return transcript;
+			}
+		}
+		if (streamingEnabled) {
+			return callGeminiTranscriptionAPIStreaming(audioFilePath, fileName, durationSeconds, contentHash,
+					progressListener);
+		}
+		return callGeminiTranscriptionAPIWithRetries(audioFilePath, fileName, contentHash);
+	}
+
+	private String callGeminiTranscriptionAPIStreaming(Path audioFilePath, String fileName,
+			@Nullable Integer durationSeconds, @Nullable String contentHash,
+			@Nullable TranscriptionProgressListener progressListener) throws IOException {
+		if (audioFilePath == null || !Files.exists(audioFilePath)) {
+			log.error("Audio file path is null or does not exist: {}", audioFilePath);
+			throw new IOException("Audio file path is null or does not exist: " + audioFilePath);
+		}
+
+		String mimeType = getAudioMimeType(fileName);
+		try {
+			TokenEstimate estimate = durationSeconds != null
+					? tokenEstimator.estimate(TRANSCRIPTION_OPERATION, Workload.transcription(durationSeconds))
+					: null;
+			FileCalls calls = new FileCalls(fileSource(audioFilePath, contentHash, mimeType, fileName), estimate,
+					null);
+			for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+				UploadedFileRef file = calls.next();
+				String currentKey = file.apiKey();
+				String fileUri = file.uri();
+				try {
+					String transcript = streamTranscript(fileUri, mimeType, transcriptionModelName, currentKey,
+							progressListener, estimate);
+					keyRotationManager.reportSuccess(KeyProvider.GEMINI, currentKey);
+					return transcript;
+				} catch (HttpServerErrorException | ResourceAccessException e) {
+					if (estimate != null) {
+						// The failed request was not processed, so its tokens go back to the key.
+						keyRotationManager.reportUsage(KeyProvider.GEMINI, currentKey, estimate.inputTokens(), 0);
+					}
+					log.warn("Streamed transcription failed on attempt {}/{} with retryable error: {}. Retrying...",
+							attempt, MAX_RETRIES, e.getMessage());
+					if (attempt == MAX_RETRIES) {
+						log.error("Streamed transcription failed after {} attempts.", MAX_RETRIES, e);
+						return createErrorResponse("API Request Failed (Server/Network)", e.getMessage());
+					}
+					sleepForRetry(attempt);
+				} catch (HttpClientErrorException e) {
+					int statusCode = e.getStatusCode().value();
+					if (statusCode == 429 || statusCode == 403) {
+						keyRotationManager.reportError(KeyProvider.GEMINI, currentKey, statusCode);
+					}
+					forgetUploadIfRejected(e, fileUri);
+					log.error("Gemini Transcription API (streamGenerateContent) client error: {} - {}",
+							e.getStatusCode(), e.getResponseBodyAsString(), e);
+					return createErrorResponse("API Client Error: " + e.getStatusCode(), parseErrorDetails(e));
+				} catch (RestClientResponseException e) {
+					log.error("Gemini Transcription API (streamGenerateContent) REST client error: Status {}, Body: {}",
+							e.getStatusCode(), e.getResponseBodyAsString(), e);
+					return createErrorResponse("API Request Failed (REST Client)", e.getMessage());
+				}
+			}
+			return createErrorResponse("API Request Failed", "Max retries reached for streamGenerateContent.");
+		} catch (IOException e) {
+			log.error("IOException during file handling or upload: {}", e.getMessage(), e);
+			throw e;
+		} catch (ApiException e) {
+			log.error("File Upload API call failed: {}", e.getMessage(), e);
+			return createErrorResponse("File Upload Failed", e.getMessage());
+		} catch (Exception e) {
+			log.error("Unexpected error during streamed transcription: {}", e.getMessage(), e);
+			return createErrorResponse("Unexpected Transcription Error", e.getMessage());
+		}
+	}
+
+	/**
+	 * Streams one transcription request. Text parts are appended as they arrive,
+	 * so neither the raw response nor a parsed tree of it is ever held in memory.
+	 *
+	 * @param estimate
+	 *            the estimate the key was picked with, settled against the usage
+	 *            the stream reports; {@code null} if there was none
+	 */
+	private String streamTranscript(String fileUri, String mimeType, String modelName, String currentApiKey,
+			@Nullable TranscriptionProgressListener progressListener, @Nullable TokenEstimate estimate) {
+		Map<String, Object> textPart = Map.of("text", STREAMING_TRANSCRIPTION_PROMPT);
+		Map<String, Object> fileDataPart = Map.of("file_data", Map.of("mime_type", mimeType, "file_uri", fileUri));
+
+		Map<String, Object> generationConfig = new HashMap<>();
+		generationConfig.put("temperature", 0.2);
+		generationConfig.put("maxOutputTokens", MAX_OUTPUT_TOKENS_TRANSCRIPTION);
+		generationConfig.put("response_mime_type", "text/plain");
+
+		Map<String, Object> requestBody = new HashMap<>();
+		requestBody.put("contents", List.of(Map.of("parts", List.of(textPart, fileDataPart))));
+		requestBody.put("generationConfig", generationConfig);
+		byte[] requestJson;
+		try {
+			requestJson = objectMapper.writeValueAsBytes(requestBody);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize transcription request", e);
+		}
+
+		URI streamUrl = UriComponentsBuilder.fromUriString(API_BASE_URL + STREAM_GENERATE_CONTENT_PATH)
+				.queryParam("alt", "sse").queryParam("key", currentApiKey).buildAndExpand(modelName).toUri();
+		long reportIntervalNanos = streamingProgressInterval != null ? streamingProgressInterval.toNanos() : 0;
+		long startedAt = System.nanoTime();
+		long[] lastReportAt = {startedAt};
+		StringBuilder transcript = new StringBuilder();
+
+		log.info("Calling Gemini Transcription API (Model: {}, streaming) using file URI: {}", modelName, fileUri);
+		GeminiSseReader.StreamSummary summary = restTemplate.execute(streamUrl, HttpMethod.POST, request -> {
+			request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+			request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+			request.getBody().write(requestJson);
+		}, response -> GeminiSseReader.read(response.getBody(), objectMapper.getFactory(), text -> {
+			if (transcript.isEmpty()) {
+				log.info("First transcript text received after {} ms", (System.nanoTime() - startedAt) / 1_000_000);
+			}
+			transcript.append(text);
+			long now = System.nanoTime();
+			if (progressListener != null && now - lastReportAt[0] >= reportIntervalNanos) {
+				lastReportAt[0] = now;
+				progressListener.onProgress(transcript.toString());
+			}
+		}));
+
+		if (estimate != null && summary != null) {
+			UsageMetadata usage = new UsageMetadata(summary.promptTokens(), summary.outputTokens(), 0);
+			tokenEstimator.recordUsage(estimate, usage, System.nanoTime() - startedAt);
+			settleUsage(currentApiKey, estimate, usage);
+		}
+		if (summary != null && summary.truncated()) {
+			log.warn("Streamed transcript hit the output token limit after {} characters.", transcript.length());
+		}
+		log.info("Streamed transcription finished in {} ms: {} events, {} characters, {} output tokens.",
+				(System.nanoTime() - startedAt) / 1_000_000, summary != null ? summary.events() : 0,
+				transcript.length(), summary != null ? summary.outputTokens() : 0);
+		String result = transcript.toString().strip();
+		if (result.isEmpty()) {
+			throw new RuntimeException("API returned success status but no content");
+		}
+		return result;
+	}
+
+	/**
+	 * Returns {@code null} when the file cannot be cut into segments, so the
+	 * caller sends it in one request instead.
+	 */
+	@Nullable
+	private String callGeminiTranscriptionAPISegmented(Path audioFilePath, String fileName) throws IOException {
+		if (audioFilePath == null || !Files.exists(audioFilePath)) {
+			log.error("Audio file path is null or does not exist: {}", audioFilePath);
+			throw new IOException("Audio file path is null or does not exist: " + audioFilePath);
+		}
+
+		Optional<AudioSegmenter> opened = AudioSegmenter.open(audioFilePath);
+		if (opened.isEmpty()) {
+			log.info("{} cannot be cut into segments; transcribing it in one request.", fileName);
+			return null;
+		}
+		AudioSegmenter segmenter = opened.get();
+		int durationSeconds = (int) Math.ceil(segmenter.durationSeconds());
+		List<TranscriptionWindow> windows = transcriptionWindows(durationSeconds, segmentSeconds,
+				segmentOverlapSeconds);
+		int parallelism = Math.max(1, Math.min(Math.min(segmentMaxParallel, windows.size()),
+				keyRotationManager.getKeyCount(KeyProvider.GEMINI)));
+
+		Path segmentDir = Files.createTempDirectory("transcription-segments-");
+		try {
+			log.info("Transcribing {}s of audio in {} segments, {} at a time.", durationSeconds, windows.size(),
+					parallelism);
+
+			long startedAt = System.nanoTime();
+			List<String> segments = transcribeWindows(segmenter, segmentDir, windows, parallelism);
+			// Roughly three spoken words per second; search well past the overlap itself.
+			String transcript = TranscriptStitcher.stitch(segments, Math.max(50, segmentOverlapSeconds * 6));
+			log.info("Segmented transcription finished in {} ms (length: {}).",
+					(System.nanoTime() - startedAt) / 1_000_000, transcript.length());
+			return transcript;
+		} catch (ApiException e) {
+			log.error("File Upload API call failed: {}", e.getMessage(), e);
+			return createErrorResponse("File Upload Failed", e.getMessage());
+		} catch (IOException e) {
+			log.error("IOException during file handling or upload: {}", e.getMessage(), e);
+			throw e;
+		} catch (Exception e) {
+			log.error("Segmented transcription failed: {}", e.getMessage(), e);
+			return createErrorResponse("Segmented Transcription Error", e.getMessage());
+		} finally {
+			deleteQuietly(segmentDir);
+		}
+	}
+
+	private List<String> transcribeWindows(AudioSegmenter segmenter, Path segmentDir,
+			List<TranscriptionWindow> windows, int parallelism) throws Exception {
+		List<Callable<String>> tasks = new ArrayList<>(windows.size());
+		for (TranscriptionWindow window : windows) {
+			tasks.add(() -> transcribeWindow(segmenter, segmentDir, window));
+		}
+		return runConcurrently(tasks, parallelism);
+	}
+
+	/**
+	 * Runs {@code tasks} on virtual threads, at most {@code parallelism} at a time,
+	 * and returns their results in order. The first failure, in task order,
+	 * cancels the tasks still running and is rethrown.
+	 */
+	private static <T> List<T> runConcurrently(List<Callable<T>> tasks, int parallelism) throws Exception {
+		Semaphore permits = new Semaphore(parallelism);
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<T>> futures = new ArrayList<>(tasks.size());
+			for (Callable<T> task : tasks) {
+				futures.add(executor.submit(() -> {
+					permits.acquire();
+					try {
+						return task.call();
+					} finally {
+						permits.release();
+					}
+				}));
+			}
+			List<T> results = new ArrayList<>(tasks.size());
+			try {
+				for (Future<T> future : futures) {
+					results.add(future.get());
+				}
+			} catch (ExecutionException e) {
+				executor.shutdownNow();
+				if (e.getCause() instanceof Exception cause) {
+					throw cause;
+				}
+				throw e;
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw e;
+			}
+			return results;
+		}
+	}
+
+	/**
+	 * Starts {@code calls} at most {@code parallelism} at a time, each as soon as
+	 * an earlier one completes, so no thread waits on a call that is queued in the
+	 * model rotation. Completes with their results in order; the first failure
+	 * cancels the calls still running and stops the rest from starting.
+	 */
+	private static <T> CompletableFuture<List<T>> startConcurrently(List<Supplier<CompletableFuture<T>>> calls,
+			int parallelism) {
+		CompletableFuture<List<T>> result = new CompletableFuture<>();
+		Queue<CompletableFuture<T>> started = new ConcurrentLinkedQueue<>();
+		AtomicReferenceArray<T> results = new AtomicReferenceArray<>(calls.size());
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger remaining = new AtomicInteger(calls.size());
+		Runnable startNext = new Runnable() {
+			@Override
+			public void run() {
+				int index = next.getAndIncrement();
+				if (index >= calls.size() || result.isDone()) {
+					return;
+				}
+				CompletableFuture<T> call;
+				try {
+					call = calls.get(index).get();
+				} catch (RuntimeException e) {
+					result.completeExceptionally(e);
+					return;
+				}
+				started.add(call);
+				if (result.isDone()) {
+					// Failed while this call was being started.
+					call.cancel(true);
+					return;
+				}
+				call.whenComplete((value, error) -> {
+					if (error != null) {
+						result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+						return;
+					}
+					results.set(index, value);
+					if (remaining.decrementAndGet() > 0) {
+						run();
+						return;
+					}
+					List<T> ordered = new ArrayList<>(results.length());
+					for (int i = 0; i < results.length(); i++) {
+						ordered.add(results.get(i));
+					}
+					result.complete(ordered);
+				});
+			}
+		};
+		result.whenComplete((value, error) -> {
+			if (error != null) {
+				started.forEach(call -> call.cancel(true));
+			}
+		});
+		if (calls.isEmpty()) {
+			result.complete(List.of());
+		}
+		for (int i = 0; i < Math.max(1, parallelism); i++) {
+			startNext.run();
+		}
+		return result;
+	}
+
+	/** Waits for {@code results}, rethrowing its failure unwrapped. */
+	private static <T> T awaitAll(CompletableFuture<T> results) throws Exception {
+		try {
+			return results.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception cause) {
+				throw cause;
+			}
+			throw e;
+		} catch (InterruptedException e) {
+			results.cancel(true);
+			Thread.currentThread().interrupt();
+			throw e;
+		}
+	}
+
+	private String transcribeWindow(AudioSegmenter segmenter, Path segmentDir, TranscriptionWindow window)
+			throws IOException, ApiException {
+		String segmentName = String.format("segment-%05d.%s", window.startSeconds(), segmenter.extension());
+		Path segmentPath = segmentDir.resolve(segmentName);
+		try {
+			segmenter.write(window.startSeconds(), window.endSeconds(), segmentPath);
+			return transcribeSegment(fileSource(segmentPath, null, segmenter.mimeType(), segmentName), window);
+		} finally {
+			deleteQuietly(segmentPath);
+		}
+	}
+
+	private String transcribeSegment(FileSource file, TranscriptionWindow window) throws IOException, ApiException {
+		TokenEstimate estimate = tokenEstimator.estimate(TRANSCRIPTION_OPERATION,
+				Workload.transcription(window.endSeconds() - window.startSeconds()));
+		// Windows are fired together; wait for a key with room for one instead of failing the whole lecture.
+		// The segment is uploaded on the key it is sent with, so retries stay on keys that can read it.
+		FileCalls calls = new FileCalls(file, estimate, maxKeyWait);
+		for (int attempt = 1;; attempt++) {
+			UploadedFileRef upload = calls.next();
+			String currentKey = upload.apiKey();
+			String fileUri = upload.uri();
+			try {
+				String transcript = callGeminiTranscriptionAPISingleModel(fileUri, file.mimeType(),
+						transcriptionModelName, currentKey, SEGMENT_TRANSCRIPTION_PROMPT, estimate);
+				keyRotationManager.reportSuccess(KeyProvider.GEMINI, currentKey);
+				log.debug("Transcribed window {}-{}s (length: {}).", window.startSeconds(), window.endSeconds(),
+						transcript.length());
+				return transcript;
+			} catch (HttpClientErrorException e) {
+				int statusCode = e.getStatusCode().value();
+				if (statusCode != 429 && statusCode != 403) {
+					forgetUploadIfRejected(e, fileUri);
+					throw e;
+				}
+				keyRotationManager.reportError(KeyProvider.GEMINI, currentKey, statusCode);
+				if (attempt >= MAX_RETRIES) {
+					throw e;
+				}
+				log.warn("Window {}-{}s rate limited on attempt {}/{}. Retrying with another key.",
+						window.startSeconds(), window.endSeconds(), attempt, MAX_RETRIES);
+			} catch (HttpServerErrorException | ResourceAccessException e) {
+				keyRotationManager.reportUsage(KeyProvider.GEMINI, currentKey, estimate.inputTokens(), 0);
+				if (attempt >= MAX_RETRIES) {
+					throw e;
+				}
+				log.warn("Window {}-{}s failed on attempt {}/{} with retryable error: {}. Retrying...",
+						window.startSeconds(), window.endSeconds(), attempt, MAX_RETRIES, e.getMessage());
+				sleepForRetry(attempt);
+			}
+		}
+	}
+
+	record TranscriptionWindow(int startSeconds, int endSeconds) {
+	}
+
+	/**
+	 * Splits {@code durationSeconds} into windows of {@code segmentSeconds} that
+	 * overlap their predecessor by {@code overlapSeconds}.
+	 */
+	static List<TranscriptionWindow> transcriptionWindows(int durationSeconds, int segmentSeconds,
+			int overlapSeconds) {
+		int step = Math.max(1, segmentSeconds - overlapSeconds);
+		List<TranscriptionWindow> windows = new ArrayList<>();
+		for (int start = 0; start < durationSeconds; start += step) {
+			int end = Math.min(durationSeconds, start + segmentSeconds);
+			windows.add(new TranscriptionWindow(start, end));
+			if (end == durationSeconds) {
+				break;
+			}
+		}
+		return windows;
+	}
+
+	/** A file to send to Gemini, with the SHA-256 of its content if known. */
+	private record FileSource(Path path, @Nullable String contentHash, String mimeType, long size,
+			String displayName) {
+	}
+
+	/** An uploaded file and the key whose project can read it. */
+	private record UploadedFileRef(String uri, String apiKey) {
+	}
+
+	/**
+	 * Describes {@code path} for {@link #keyForFile}. Without {@code knownHash}
+	 * the file is hashed, and only when uploads are cached at all.
+	 */
+	private FileSource fileSource(Path path, @Nullable String knownHash, String mimeType, String displayName)
+			throws IOException {
+		String contentHash = knownHash != null || !fileUriCache.isEnabled() ? knownHash
+				: NhostFileCache.sha256(path);
+		return new FileSource(path, contentHash, mimeType, Files.size(path), displayName);
+	}
+
+	/**
+	 * Picks and charges the key for one generate call on {@code file}. Keys that
+	 * still hold an upload of the content are tried first, so the call reuses it;
+	 * otherwise the key is picked by headroom and the file uploaded with it, or
+	 * taken from an earlier upload by the same project. The returned URI is
+	 * always readable with the returned key.
+	 *
+	 * @param estimate
+	 *            the call's estimate, or {@code null} to charge the default
+	 * @param maxWait
+	 *            how long to wait for a key with room, or {@code null} to fail
+	 *            right away
+	 */
+	private UploadedFileRef keyForFile(FileSource file, @Nullable TokenEstimate estimate, @Nullable Duration maxWait)
 			throws IOException, ApiException {
+		for (GeminiFileUriCache.CachedUpload cached : fileUriCache.find(file.contentHash())) {
+			if (tryKey(cached.apiKey(), estimate)) {
+				log.info("Reusing Gemini upload {} of {} with the key that made it.", cached.uri(),
+						file.displayName());
+				return new UploadedFileRef(cached.uri(), cached.apiKey());
+			}
+		}
+		String apiKey;
+		if (estimate == null) {
+			apiKey = keyRotationManager.getKey(KeyProvider.GEMINI);
+		} else if (maxWait == null) {
+			apiKey = keyRotationManager.getKey(KeyProvider.GEMINI, estimate.inputTokens());
+		} else {
+			apiKey = keyRotationManager.awaitKey(KeyProvider.GEMINI, estimate.inputTokens(), maxWait);
+		}
+		String uri = fileUriCache.getOrUpload(file.contentHash(), apiKey, () -> uploadFileUncached(file.path(),
+				file.mimeType(), file.size(), file.displayName(), apiKey));
+		log.info("File uploaded successfully. URI: {}", uri);
+		return new UploadedFileRef(uri, apiKey);
+	}
+
+	private boolean tryKey(String apiKey, @Nullable TokenEstimate estimate) {
+		return estimate != null ? keyRotationManager.tryKey(KeyProvider.GEMINI, apiKey, estimate.inputTokens())
+				: keyRotationManager.tryKey(KeyProvider.GEMINI, apiKey);
+	}
+
+	/**
+	 * Hands out the key and file URI for each generate call of one request. The
+	 * file is prepared up front, so upload errors surface before any call is
+	 * made; the first call takes that pick. Later calls (retries, fallback models,
+	 * hedges) stay on the previous key while it has room and otherwise pick again
+	 * through {@link #keyForFile}.
+	 */
+	private final class FileCalls {
+		private final FileSource file;
+		@Nullable
+		private final TokenEstimate estimate;
+		@Nullable
+		private final Duration maxWait;
+		private final AtomicReference<UploadedFileRef> prepared;
+		private volatile UploadedFileRef last;
+
+		private FileCalls(FileSource file, @Nullable TokenEstimate estimate, @Nullable Duration maxWait)
+				throws IOException, ApiException {
+			this.file = file;
+			this.estimate = estimate;
+			this.maxWait = maxWait;
+			this.last = keyForFile(file, estimate, maxWait);
+			this.prepared = new AtomicReference<>(last);
+		}
+
+		private UploadedFileRef next() throws IOException, ApiException {
+			UploadedFileRef ref = prepared.getAndSet(null);
+			if (ref != null) {
+				return ref;
+			}
+			UploadedFileRef previous = last;
+			if (tryKey(previous.apiKey(), estimate)) {
+				return previous;
+			}
+			ref = keyForFile(file, estimate, maxWait);
+			last = ref;
+			return ref;
+		}
+
+		/** {@link #next()} for callers that cannot throw checked exceptions. */
+		private UploadedFileRef nextUnchecked() {
+			try {
+				return next();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (ApiException e) {
+				throw new IllegalStateException("Could not upload " + file.displayName() + ": " + e.getMessage(), e);
+			}
+		}
+	}
+
+	private GeminiFileUriCache.UploadedFile uploadFileUncached(Path filePath, String mimeType, long fileSize,
+			String displayName, String apiKey) throws IOException, ApiException {
 		String initiateUrl = UriComponentsBuilder.fromUriString(FILES_API_BASE_URL + FILES_API_UPLOAD_PATH)
 				.queryParam("key", apiKey).toUriString();
 
@@ -595,7 +1263,8 @@ public class GeminiService {
 				String fileUri = responseNode.get("file").get("uri").asText();
 				if (fileUri != null && !fileUri.isBlank()) {
 					log.debug("Extracted file URI: {}", fileUri);
-					return fileUri;
+					return new GeminiFileUriCache.UploadedFile(fileUri,
+							parseExpirationTime(responseNode.get("file").path("expirationTime").asText(null)));
 				}
 			}
 			log.error("Upload response did not contain expected file URI. Body: {}", responseBody);
@@ -615,6 +1284,40 @@ public class GeminiService {
 		}
 	}
 
+	/**
+	 * Corrects the key's token budget from the estimate it was picked with to
+	 * the input tokens Gemini reported, see {@link KeyRotationManager#reportUsage}.
+	 */
+	private void settleUsage(String apiKey, TokenEstimate estimate, @Nullable UsageMetadata usage) {
+		if (usage != null && usage.promptTokens() > 0) {
+			keyRotationManager.reportUsage(KeyProvider.GEMINI, apiKey, estimate.inputTokens(), usage.promptTokens());
+		}
+	}
+
+	/**
+	 * Drops a cached upload the API refused to use (expired, deleted or owned by
+	 * another project), so the next attempt uploads the file again.
+	 */
+	private void forgetUploadIfRejected(HttpClientErrorException e, String fileUri) {
+		if (e.getStatusCode().value() != 429
+				&& e.getResponseBodyAsString().toLowerCase(Locale.ROOT).contains("file")) {
+			fileUriCache.evict(fileUri);
+		}
+	}
+
+	@Nullable
+	private static Instant parseExpirationTime(@Nullable String expirationTime) {
+		if (expirationTime == null || expirationTime.isBlank()) {
+			return null;
+		}
+		try {
+			return Instant.parse(expirationTime);
+		} catch (DateTimeParseException e) {
+			log.warn("Unrecognised file expiration time '{}'", expirationTime);
+			return null;
+		}
+	}
+
 	public String callGeminiSummarizationAPI(String promptText, String transcriptText) {
 		HttpHeaders headers = new HttpHeaders();
 		headers.setContentType(MediaType.APPLICATION_JSON);
@@ -736,27 +1439,66 @@ public class GeminiService {
 			return createErrorResponse("Input Error", "PDF file is missing or invalid.");
 		}
 
-		String pdfFileUri = null;
+		String pdfHash;
+		try {
+			pdfHash = NhostFileCache.sha256(pdfFilePath);
+		} catch (IOException e) {
+			log.warn("[{}] Could not hash PDF for the result cache: {}", metadataId, e.getMessage());
+			return summarizeWithPdfContext(transcriptText, pdfFilePath, null, metadataId);
+		}
+		GeminiResultCache.ResultKey cacheKey = GeminiResultCache.key("summary-pdf", RESULT_CACHE_VERSION,
+				rotationService.getModelHierarchy(), PDF_CONTEXT_SUMMARY_PROMPT, SUMMARY_RESPONSE_SCHEMA,
+				mapReduceKeyParts(PDF_CONTEXT_REDUCE_SUMMARY_PROMPT), transcriptText, pdfHash);
+		return resultCache.getOrCompute(cacheKey,
+				() -> summarizeWithPdfContext(transcriptText, pdfFilePath, pdfHash, metadataId),
+				this::isCacheableResult);
+	}
 
+	private String summarizeWithPdfContext(String transcriptText, Path pdfFilePath, @Nullable String pdfHash,
+			String metadataId) {
 		try {
 			log.info("[{}] Using local PDF file: {}", metadataId, pdfFilePath.getFileName());
 
-			long pdfSize = Files.size(pdfFilePath);
-			String pdfDisplayName = "context_" + metadataId + ".pdf";
-			log.info("[{}] Uploading PDF ({}) to Google Files API...", metadataId, pdfDisplayName);
-
-			String uploadKey = keyRotationManager.getKey(KeyProvider.GEMINI);
-			pdfFileUri = uploadFile(pdfFilePath, "application/pdf", pdfSize, pdfDisplayName, uploadKey);
-			log.info("[{}] PDF uploaded successfully to Google Files API. URI: {}", metadataId, pdfFileUri);
-
-			// Make the file URI effectively final for the lambda
-			final String finalPdfFileUri = pdfFileUri;
+			PdfContent pdf = readPdf(pdfFilePath, metadataId);
+			ContextPlan fullPlan = planSummary(metadataId,
+					pdfWorkload(PDF_CONTEXT_SUMMARY_PROMPT, transcriptText, pdf));
+			List<SummaryResult> partSummaries = shouldSummarizeInParts(metadataId, transcriptText, fullPlan)
+					? summarizeParts(transcriptText, metadataId)
+					: null;
+			String prompt = partSummaries != null ? PDF_CONTEXT_REDUCE_SUMMARY_PROMPT : PDF_CONTEXT_SUMMARY_PROMPT;
+			String textInput = partSummaries != null ? reduceInput(partSummaries) : transcriptText;
+			ContextPlan plan = partSummaries != null
+					? planSummary(metadataId, pdfWorkload(prompt, textInput, pdf))
+					: fullPlan;
+
+			Map<String, Object> pdfText = null;
+			FileCalls pdfCalls = null;
+			if (plan.strategy() == ContextStrategy.PDF_AS_TEXT) {
+				log.info("[{}] Sending the text of the PDF's {} pages instead of the file.", metadataId, pdf.pages());
+				pdfText = Map.of("text", PDF_TEXT_CONTEXT_HEADER + pdf.text());
+			} else {
+				String pdfDisplayName = "context_" + metadataId + ".pdf";
+				log.info("[{}] Uploading PDF ({}) to Google Files API...", metadataId, pdfDisplayName);
+				pdfCalls = new FileCalls(fileSource(pdfFilePath, pdfHash, "application/pdf", pdfDisplayName),
+						plan.estimate(), null);
+			}
 
-			return rotationService.executeWithInfiniteRotation(targetModel -> {
+			Map<String, Object> pdfTextPart = pdfText;
+			FileCalls pdfFileCalls = pdfCalls;
+			Supplier<String> summarize = () -> executeSummarization(plan, targetModel -> {
 				try {
-					String currentKey = keyRotationManager.getKey(KeyProvider.GEMINI);
-					String result = callGeminiSummarizationWithPdfContextSingleModel(transcriptText, finalPdfFileUri,
-							metadataId, targetModel, currentKey);
+					String currentKey;
+					Map<String, Object> pdfPart;
+					if (pdfFileCalls != null) {
+						UploadedFileRef pdfFile = pdfFileCalls.next();
+						currentKey = pdfFile.apiKey();
+						pdfPart = pdfFilePart(pdfFile.uri());
+					} else {
+						currentKey = keyRotationManager.getKey(KeyProvider.GEMINI, plan.estimate().inputTokens());
+						pdfPart = pdfTextPart;
+					}
+					String result = callGeminiSummarizationWithPdfContextSingleModel(prompt, textInput, pdfPart,
+							metadataId, targetModel, currentKey, plan.estimate());
 					keyRotationManager.reportSuccess(KeyProvider.GEMINI, currentKey);
 					return result;
 				} catch (Exception e) {
@@ -765,6 +1507,7 @@ public class GeminiService {
 					throw new RuntimeException(e);
 				}
 			});
+			return partSummaries != null ? reduceSummaries(metadataId, partSummaries, summarize) : summarize.get();
 
 		} catch (IOException e) {
 			log.error("[{}] IOException during PDF upload: {}", metadataId, e.getMessage(), e);
@@ -778,24 +1521,15 @@ public class GeminiService {
 		}
 	}
 
-	private String callGeminiSummarizationWithPdfContextSingleModel(String transcriptText, String pdfFileUri,
-			String metadataId, String modelName, String currentApiKey) throws Exception {
+	private String callGeminiSummarizationWithPdfContextSingleModel(String prompt, String transcriptText,
+			Map<String, Object> pdfPart, String metadataId, String modelName, String currentApiKey,
+			TokenEstimate estimate) throws Exception {
 		HttpHeaders generateHeaders = new HttpHeaders();
 		generateHeaders.setContentType(MediaType.APPLICATION_JSON);
 
-		String prompt = """
-				Analyze the provided lecture transcript and the accompanying PDF document.
-				Generate a comprehensive, concise, well-structured summary incorporating information from BOTH sources, using Markdown in the `summaryText` field. Use headings (##) for main sections and bullet points (* or -) for details. Focus on core arguments, findings, definitions, and conclusions presented in either the transcript or the document.
-				Identify the main key points or action items discussed across both sources and list them as distinct strings in the `keyPoints` array.
-				Generate 3 distinct, intent-based YouTube search queries that would help a student understand these topics in depth, and output them in the `topics` array.
-				Identify important **terms, concepts, acronyms, proper nouns (people, places, organizations mentioned), and technical vocabulary** discussed in either the transcript or the document. For each, provide a concise definition relevant to the context. Structure this as an array of objects in the `glossary` field, where each object has a `term` (string) and a `definition` (string). Aim for comprehensive coverage of potentially unfamiliar items for a learner.
-				Ensure the entire output strictly adheres to the provided JSON schema. Output only the JSON object.
-				""";
 
 		Map<String, Object> promptPart = Map.of("text", prompt);
 		Map<String, Object> transcriptPart = Map.of("text", transcriptText);
-		Map<String, Object> pdfPart = Map.of("file_data",
-				Map.of("mime_type", "application/pdf", "file_uri", pdfFileUri));
 
 		List<Object> parts = List.of(promptPart, transcriptPart, pdfPart);
 		Map<String, Object> content = Map.of("parts", parts);
@@ -813,12 +1547,13 @@ public class GeminiService {
 
 		HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, generateHeaders);
 
-		log.info("[{}] Calling Gemini Summarization API (Model: {}) with transcript and PDF context (URI: {})...",
-				metadataId, modelName, pdfFileUri);
+		log.info("[{}] Calling Gemini Summarization API (Model: {}) with transcript and PDF context...", metadataId,
+				modelName);
 
 		String generateContentUrl = UriComponentsBuilder.fromUriString(API_BASE_URL + GENERATE_CONTENT_PATH)
 				.queryParam("key", currentApiKey).buildAndExpand(modelName).toUriString();
 
+		long startedAt = System.nanoTime();
 		ResponseEntity<String> response = restTemplate.exchange(generateContentUrl, HttpMethod.POST, requestEntity,
 				String.class);
 
@@ -831,7 +1566,9 @@ public class GeminiService {
 		}
 
 		try {
-			objectMapper.readTree(responseBody);
+			CandidateText candidate = decodeCandidate(responseBody);
+			tokenEstimator.recordUsage(estimate, candidate.usage(), System.nanoTime() - startedAt);
+			settleUsage(currentApiKey, estimate, candidate.usage());
 			log.info("[{}] Successfully received JSON summary response (Length: {}).", metadataId,
 					responseBody.length());
 			return responseBody;
@@ -843,6 +1580,156 @@ public class GeminiService {
 		}
 	}
 
+	/**
+	 * Estimates a summarization request and picks how to send it, logging what it
+	 * is expected to cost.
+	 */
+	private ContextPlan planSummary(String metadataId, Workload workload) {
+		ContextPlan plan = tokenEstimator.plan(SUMMARIZATION_OPERATION, workload,
+				rotationService.getModelHierarchy());
+		Forecast forecast = tokenEstimator.forecast(plan.estimate());
+		log.info("[{}] Summarization plan: {} on {} (~{} input, ~{} output tokens{}).", metadataId, plan.strategy(),
+				plan.models(), forecast.inputTokens(), forecast.outputTokens(),
+				forecast.latency() != null ? ", ~" + forecast.latency().toSeconds() + "s" : "");
+		return plan;
+	}
+
+	/** Runs a summarization call on the models {@code plan} chose. */
+	private <T> T executeSummarization(ContextPlan plan, Function<String, T> apiCallFunction) {
+		if (plan.strategy() == ContextStrategy.SINGLE_SHOT) {
+			return rotationService.executeHedged(SUMMARIZATION_OPERATION, apiCallFunction);
+		}
+		return rotationService.executeHedged(SUMMARIZATION_OPERATION, plan.models(), apiCallFunction);
+	}
+
+	/**
+	 * Whether a transcript is summarized in parts and merged, rather than in one
+	 * request: above {@code gemini.summarization.map-reduce.min-transcript-chars},
+	 * or whenever {@code plan} found it too large for one request.
+	 */
+	private boolean shouldSummarizeInParts(String metadataId, String transcriptText, ContextPlan plan) {
+		boolean tooLarge = plan.strategy() == ContextStrategy.MAP_REDUCE;
+		if (!mapReduceEnabled || transcriptText.length() <= mapReducePartChars) {
+			if (tooLarge) {
+				log.warn("[{}] Summarization input is larger than one request should carry; sending it whole anyway.",
+						metadataId);
+			}
+			return false;
+		}
+		return tooLarge || transcriptText.length() >= mapReduceMinTranscriptChars;
+	}
+
+	/**
+	 * The map-reduce settings and prompts that shape a summary, for its result
+	 * cache key: a long transcript is summarized in parts and merged, so changing
+	 * how it is split or either prompt must miss the cache.
+	 */
+	private List<Object> mapReduceKeyParts(String reducePrompt) {
+		return List.of(mapReduceEnabled, mapReduceMinTranscriptChars, mapReducePartChars, PART_SUMMARY_PROMPT,
+				reducePrompt);
+	}
+
+	/** Summarizes the parts of a long transcript, several at a time, and returns the summaries in order. */
+	private List<SummaryResult> summarizeParts(String transcriptText, String metadataId) throws Exception {
+		List<String> parts = TranscriptChunker.split(transcriptText, mapReducePartChars);
+		int parallelism = Math.max(1, Math.min(Math.min(mapReduceMaxParallel, parts.size()),
+				keyRotationManager.getKeyCount(KeyProvider.GEMINI)));
+		log.info("[{}] Summarizing {} characters of transcript in {} parts, {} at a time.", metadataId,
+				transcriptText.length(), parts.size(), parallelism);
+
+		long startedAt = System.nanoTime();
+		List<Supplier<CompletableFuture<SummaryResult>>> calls = new ArrayList<>(parts.size());
+		for (int i = 0; i < parts.size(); i++) {
+			String prompt = String.format(PART_SUMMARY_PROMPT, i + 1, parts.size());
+			String part = parts.get(i);
+			calls.add(() -> summarizePart(prompt, part, metadataId));
+		}
+		List<SummaryResult> summaries = awaitAll(startConcurrently(calls, parallelism));
+		log.info("[{}] Summarized {} parts in {} ms.", metadataId, parts.size(),
+				(System.nanoTime() - startedAt) / 1_000_000);
+		return summaries;
+	}
+
+	private CompletableFuture<SummaryResult> summarizePart(String prompt, String part, String metadataId) {
+		TokenEstimate estimate = tokenEstimator.estimate(SUMMARIZATION_OPERATION,
+				Workload.summary(prompt.length(), part.length()));
+		return rotationService.executeHedgedAsync(SUMMARIZATION_OPERATION, targetModel -> {
+			// Parts are fired together; wait for a key with room for one, as transcription windows do.
+			String currentKey = keyRotationManager.awaitKey(KeyProvider.GEMINI, estimate.inputTokens(), maxKeyWait);
+			try {
+				String result = callGeminiTranscriptOnlySummarizationSingleModel(prompt, part, metadataId,
+						targetModel, currentKey, estimate);
+				keyRotationManager.reportSuccess(KeyProvider.GEMINI, currentKey);
+				// Decoded here so that an unreadable summary falls back to the next model.
+				return responseDecoder.decodeSummary(result);
+			} catch (Exception e) {
+				if (e instanceof RuntimeException)
+					throw (RuntimeException) e;
+				throw new RuntimeException(e);
+			}
+		});
+	}
+
+	/** The input of the reduce pass: each part's summary and key points, then the glossary terms found so far. */
+	private static String reduceInput(List<SummaryResult> partSummaries) {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < partSummaries.size(); i++) {
+			SummaryResult part = partSummaries.get(i);
+			input.append("PART ").append(i + 1).append(" OF ").append(partSummaries.size()).append(":\n");
+			input.append(part.summaryText() != null ? part.summaryText().strip() : "").append("\n\nKey points:\n");
+			part.keyPoints().forEach(keyPoint -> input.append("- ").append(keyPoint).append('\n'));
+			input.append('\n');
+		}
+		List<String> terms = SummaryMerger.merge(null, partSummaries).glossary().stream().map(GlossaryEntry::term)
+				.toList();
+		input.append("TERMS ALREADY IN THE GLOSSARY: ").append(String.join("; ", terms));
+		return input.toString();
+	}
+
+	/**
+	 * Runs the reduce pass and merges its result with the part summaries into one
+	 * summary document. If the reduce pass fails, the part summaries are joined
+	 * as they are rather than failing a lecture whose parts all succeeded.
+	 */
+	private String reduceSummaries(String metadataId, List<SummaryResult> partSummaries, Supplier<String> reduce)
+			throws JsonProcessingException {
+		SummaryResult reduced = null;
+		try {
+			reduced = responseDecoder.decodeSummary(reduce.get());
+		} catch (IOException | RuntimeException e) {
+			log.warn("[{}] Merging {} part summaries failed, joining them instead: {}", metadataId,
+					partSummaries.size(), e.getMessage());
+		}
+		SummaryResult merged = SummaryMerger.merge(reduced, partSummaries);
+		log.info("[{}] Merged {} part summaries (key points: {}, glossary: {}).", metadataId, partSummaries.size(),
+				merged.keyPoints().size(), merged.glossary().size());
+		return objectMapper.writeValueAsString(merged);
+	}
+
+	private static Workload pdfWorkload(String prompt, String textInput, @Nullable PdfContent pdf) {
+		Workload workload = Workload.summary(prompt.length(), textInput.length());
+		return pdf != null ? workload.withPdf(pdf.pages(), pdf.text().length()) : workload;
+	}
+
+	private static Map<String, Object> pdfFilePart(String fileUri) {
+		return Map.of("file_data", Map.of("mime_type", "application/pdf", "file_uri", fileUri));
+	}
+
+	private record PdfContent(int pages, String text) {
+	}
+
+	/** Page count and text of a PDF, or {@code null} if it cannot be read. */
+	@Nullable
+	private PdfContent readPdf(Path pdfFilePath, String metadataId) {
+		try (PDDocument document = Loader.loadPDF(pdfFilePath.toFile())) {
+			return new PdfContent(document.getNumberOfPages(), new PDFTextStripper().getText(document));
+		} catch (IOException e) {
+			log.warn("[{}] Could not read PDF {} to estimate its tokens: {}", metadataId, pdfFilePath.getFileName(),
+					e.getMessage());
+			return null;
+		}
+	}
+
 	public String generateSummaryWithGoogleFileUri(String transcriptText, String googleFileUri, String metadataId) {
 		log.info("[{}] Starting combined summarization with direct Google Files API URI.", metadataId);
 
@@ -855,14 +1742,36 @@ public class GeminiService {
 			return createErrorResponse("Input Error", "Google Files API URI is missing.");
 		}
 
+		// The URI names one uploaded file, so it stands in for the PDF's content.
+		GeminiResultCache.ResultKey cacheKey = GeminiResultCache.key("summary-pdf-uri", RESULT_CACHE_VERSION,
+				rotationService.getModelHierarchy(), PDF_CONTEXT_SUMMARY_PROMPT, SUMMARY_RESPONSE_SCHEMA,
+				mapReduceKeyParts(PDF_CONTEXT_REDUCE_SUMMARY_PROMPT), transcriptText, googleFileUri);
+		return resultCache.getOrCompute(cacheKey,
+				() -> summarizeWithGoogleFileUri(transcriptText, googleFileUri, metadataId), this::isCacheableResult);
+	}
+
+	private String summarizeWithGoogleFileUri(String transcriptText, String googleFileUri, String metadataId) {
 		try {
 			log.info("[{}] Using Google Files API URI directly: {}", metadataId, googleFileUri);
 
-			return rotationService.executeWithInfiniteRotation(targetModel -> {
+			// The PDF's page count is unknown here, so only the transcript is estimated.
+			ContextPlan fullPlan = planSummary(metadataId,
+					pdfWorkload(PDF_CONTEXT_SUMMARY_PROMPT, transcriptText, null));
+			List<SummaryResult> partSummaries = shouldSummarizeInParts(metadataId, transcriptText, fullPlan)
+					? summarizeParts(transcriptText, metadataId)
+					: null;
+			String prompt = partSummaries != null ? PDF_CONTEXT_REDUCE_SUMMARY_PROMPT : PDF_CONTEXT_SUMMARY_PROMPT;
+			String textInput = partSummaries != null ? reduceInput(partSummaries) : transcriptText;
+			ContextPlan plan = partSummaries != null
+					? planSummary(metadataId, pdfWorkload(prompt, textInput, null))
+					: fullPlan;
+			Map<String, Object> pdfPart = pdfFilePart(googleFileUri);
+
+			Supplier<String> summarize = () -> executeSummarization(plan, targetModel -> {
 				try {
-					String currentKey = keyRotationManager.getKey(KeyProvider.GEMINI);
-					String result = callGeminiSummarizationWithPdfContextSingleModel(transcriptText, googleFileUri,
-							metadataId, targetModel, currentKey);
+					String currentKey = keyRotationManager.getKey(KeyProvider.GEMINI, plan.estimate().inputTokens());
+					String result = callGeminiSummarizationWithPdfContextSingleModel(prompt, textInput, pdfPart,
+							metadataId, targetModel, currentKey, plan.estimate());
 					keyRotationManager.reportSuccess(KeyProvider.GEMINI, currentKey);
 					return result;
 				} catch (Exception e) {
@@ -871,6 +1780,7 @@ public class GeminiService {
 					throw new RuntimeException(e);
 				}
 			});
+			return partSummaries != null ? reduceSummaries(metadataId, partSummaries, summarize) : summarize.get();
 
 		} catch (Exception e) {
 			log.error("[{}] Unexpected error during combined summarization setup: {}", metadataId, e.getMessage(), e);
@@ -878,70 +1788,39 @@ public class GeminiService {
 		}
 	}
 
+	/**
+	 * The transcript of a transcription response, otherwise the text of the first
+	 * candidate (summary or recommendations JSON, or plain text).
+	 */
 	private String extractTextFromStandardResponse(String rawResponse) throws JsonProcessingException, ApiException {
-		JsonNode jsonNode = objectMapper.readTree(rawResponse);
-
-		if (jsonNode.has("error")) {
-			String errorMessage = jsonNode.path("error").path("message").asText("Unknown API error");
-			log.error("Gemini API returned an error object: {}", rawResponse);
-			throw new ApiException("Gemini API Error: " + errorMessage);
-		}
-
-		if (jsonNode.has("promptFeedback") && jsonNode.path("promptFeedback").has("blockReason")) {
-			String reason = jsonNode.path("promptFeedback").path("blockReason").asText("Unknown");
-			String safetyRatings = jsonNode.path("promptFeedback").path("safetyRatings").toString();
-			log.warn("Gemini API request blocked due to prompt feedback. Reason: {}. Safety Ratings: {}", reason,
-					safetyRatings);
-			throw new ApiException("Gemini API Error: Content Blocked (Prompt Feedback) - " + reason);
-		}
-
-		if (jsonNode.has("candidates") && jsonNode.path("candidates").isArray()
-				&& !jsonNode.path("candidates").isEmpty()) {
-			JsonNode firstCandidate = jsonNode.path("candidates").get(0);
-
-			if (firstCandidate.has("finishReason") && !"STOP".equals(firstCandidate.path("finishReason").asText())) {
-				String reason = firstCandidate.path("finishReason").asText();
-				log.warn("Gemini generation finished with reason: {}. Output might be incomplete or blocked.", reason);
-				if ("SAFETY".equals(reason) || "RECITATION".equals(reason) || "OTHER".equals(reason)) {
-					String safetyRatings = firstCandidate.path("safetyRatings").toString();
-					log.error("Gemini API generation blocked. Finish Reason: {}. Safety Ratings: {}", reason,
-							safetyRatings);
-					throw new ApiException("Gemini API Error: Content Blocked (Finish Reason) - " + reason);
-				}
-			}
-
-			if (firstCandidate.has("content") && firstCandidate.path("content").has("parts")
-					&& firstCandidate.path("content").path("parts").isArray()
-					&& !firstCandidate.path("content").path("parts").isEmpty()) {
-				JsonNode firstPart = firstCandidate.path("content").path("parts").get(0);
-				if (firstPart.has("text")) {
-					String jsonResponse = firstPart.path("text").asText();
-					String transcript = extractTranscriptFromJsonResponse(jsonResponse);
-					if (transcript != null) {
-						return transcript;
-					}
+		return extractText(decodeCandidate(rawResponse));
+	}
 
-					try {
-						JsonNode responseNode = objectMapper.readTree(jsonResponse);
-						if (responseNode.has("summaryText")) {
-							log.info("Found valid summarization JSON structure with summaryText field");
-							return jsonResponse;
-						}
-					} catch (JsonProcessingException e) {
-						log.warn("Could not parse inner JSON response: {}", e.getMessage());
-					}
-				}
-			} else {
-				log.warn(
-						"First candidate in Gemini response does not contain expected content/parts structure. Candidate: {}",
-						firstCandidate.toString());
-				throw new ApiException("Invalid response structure: Missing 'content' or 'parts' in candidate.");
-			}
+	private CandidateText decodeCandidate(String rawResponse) throws JsonProcessingException, ApiException {
+		try {
+			return responseDecoder.decodeText(rawResponse);
+		} catch (GeminiResponseException e) {
+			log.warn("Gemini response carried no usable content: {}", e.getMessage());
+			throw new ApiException(e.getMessage(), e);
+		} catch (JsonProcessingException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new ApiException("Could not read Gemini response: " + e.getMessage(), e);
 		}
+	}
 
-		log.warn("Could not extract text from Gemini standard response structure (no valid candidates found): {}",
-				rawResponse);
-		throw new ApiException("No valid candidates found in Gemini response.");
+	private String extractText(CandidateText candidate) {
+		if (candidate.truncated()) {
+			log.warn("Gemini generation finished with reason: {}. Output might be incomplete.",
+					candidate.finishReason());
+		}
+		TranscriptResult transcript = responseDecoder.findTranscript(candidate);
+		if (transcript != null) {
+			log.info("Successfully extracted {}transcript from JSON response (length: {}).",
+					transcript.truncated() ? "partial " : "", transcript.transcript().length());
+			return transcript.transcript();
+		}
+		return candidate.text();
 	}
 
 	private String parseErrorDetails(HttpClientErrorException e) {
@@ -972,6 +1851,16 @@ public class GeminiService {
 		}
 	}
 
+	/** Whether a result is worth caching, i.e. JSON that is not one of our error responses. */
+	private boolean isCacheableResult(String result) {
+		try {
+			JsonNode node = objectMapper.readTree(result);
+			return node != null && !(node.isObject() && node.has("error"));
+		} catch (JsonProcessingException e) {
+			return false;
+		}
+	}
+
 	public String callSimpleTextAPI(String promptText) {
 		HttpHeaders headers = new HttpHeaders();
 		headers.setContentType(MediaType.APPLICATION_JSON);
@@ -1090,6 +1979,14 @@ public class GeminiService {
 		return "audio/mpeg";
 	}
 
+	private static void deleteQuietly(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			log.debug("Could not delete transcription segment {}: {}", path, e.getMessage());
+		}
+	}
+
 	private void sleepForRetry(int attempt) {
 		try {
 			TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MS * attempt);
@@ -1108,12 +2005,31 @@ public class GeminiService {
 			return createErrorResponse("Input Error", "Transcript text is missing.");
 		}
 
+		GeminiResultCache.ResultKey cacheKey = GeminiResultCache.key("summary-transcript", RESULT_CACHE_VERSION,
+				rotationService.getModelHierarchy(), TRANSCRIPT_ONLY_SUMMARY_PROMPT, SUMMARY_RESPONSE_SCHEMA,
+				mapReduceKeyParts(REDUCE_SUMMARY_PROMPT), transcriptText);
+		return resultCache.getOrCompute(cacheKey, () -> summarizeTranscriptOnly(transcriptText, metadataId),
+				this::isCacheableResult);
+	}
+
+	private String summarizeTranscriptOnly(String transcriptText, String metadataId) {
 		try {
-			return rotationService.executeWithInfiniteRotation(targetModel -> {
+			ContextPlan fullPlan = planSummary(metadataId,
+					Workload.summary(TRANSCRIPT_ONLY_SUMMARY_PROMPT.length(), transcriptText.length()));
+			List<SummaryResult> partSummaries = shouldSummarizeInParts(metadataId, transcriptText, fullPlan)
+					? summarizeParts(transcriptText, metadataId)
+					: null;
+			String prompt = partSummaries != null ? REDUCE_SUMMARY_PROMPT : TRANSCRIPT_ONLY_SUMMARY_PROMPT;
+			String textInput = partSummaries != null ? reduceInput(partSummaries) : transcriptText;
+			ContextPlan plan = partSummaries != null
+					? planSummary(metadataId, Workload.summary(prompt.length(), textInput.length()))
+					: fullPlan;
+
+			Supplier<String> summarize = () -> executeSummarization(plan, targetModel -> {
 				try {
-					String currentKey = keyRotationManager.getKey(KeyProvider.GEMINI);
-					String result = callGeminiTranscriptOnlySummarizationSingleModel(transcriptText, metadataId,
-							targetModel, currentKey);
+					String currentKey = keyRotationManager.getKey(KeyProvider.GEMINI, plan.estimate().inputTokens());
+					String result = callGeminiTranscriptOnlySummarizationSingleModel(prompt, textInput, metadataId,
+							targetModel, currentKey, plan.estimate());
 					keyRotationManager.reportSuccess(KeyProvider.GEMINI, currentKey);
 					return result;
 				} catch (Exception e) {
@@ -1122,26 +2038,18 @@ public class GeminiService {
 					throw new RuntimeException(e);
 				}
 			});
+			return partSummaries != null ? reduceSummaries(metadataId, partSummaries, summarize) : summarize.get();
 		} catch (Exception e) {
 			log.error("[{}] Unexpected error during transcript-only summarization: {}", metadataId, e.getMessage(), e);
 			return createErrorResponse("Summarization Error", "Unexpected error: " + e.getMessage());
 		}
 	}
 
-	private String callGeminiTranscriptOnlySummarizationSingleModel(String transcriptText, String metadataId,
-			String modelName, String currentApiKey) throws Exception {
+	private String callGeminiTranscriptOnlySummarizationSingleModel(String prompt, String transcriptText,
+			String metadataId, String modelName, String currentApiKey, TokenEstimate estimate) throws Exception {
 		HttpHeaders generateHeaders = new HttpHeaders();
 		generateHeaders.setContentType(MediaType.APPLICATION_JSON);
 
-		String prompt = """
-				Analyze the provided lecture transcript carefully.
-				Generate a comprehensive, concise, well-structured summary in Markdown in the `summaryText` field. Use headings (##) for main sections and bullet points (* or -) for details. Focus on core arguments, findings, definitions, and conclusions presented in the transcript.
-				Identify the main key points or action items discussed and list them as distinct strings in the `keyPoints` array.
-				Generate 3 distinct, intent-based YouTube search queries that would help a student understand these topics in depth, and output them in the `topics` array.
-				Identify important **terms, concepts, acronyms, proper nouns (people, places, organizations mentioned), and technical vocabulary** discussed in the transcript. For each, provide a concise definition relevant to the context. Structure this as an array of objects in the `glossary` field, where each object has a `term` (string) and a `definition` (string). Aim for comprehensive coverage of potentially unfamiliar items for a learner.
-				Stay strictly within the boundaries of what is explicitly mentioned in the transcript. Do not add external information, assumptions, or hallucinations.
-				Ensure the entire output strictly adheres to the provided JSON schema. Output only the JSON object.
-				""";
 
 		Map<String, Object> promptPart = Map.of("text", prompt);
 		Map<String, Object> transcriptPart = Map.of("text", transcriptText);
@@ -1168,6 +2076,7 @@ public class GeminiService {
 		String generateContentUrl = UriComponentsBuilder.fromUriString(API_BASE_URL + GENERATE_CONTENT_PATH)
 				.queryParam("key", currentApiKey).buildAndExpand(modelName).toUriString();
 
+		long startedAt = System.nanoTime();
 		ResponseEntity<String> response = restTemplate.exchange(generateContentUrl, HttpMethod.POST, requestEntity,
 				String.class);
 
@@ -1180,7 +2089,10 @@ public class GeminiService {
 		}
 
 		try {
-			String extractedJsonText = extractTextFromStandardResponse(responseBody);
+			CandidateText candidate = decodeCandidate(responseBody);
+			tokenEstimator.recordUsage(estimate, candidate.usage(), System.nanoTime() - startedAt);
+			settleUsage(currentApiKey, estimate, candidate.usage());
+			String extractedJsonText = extractText(candidate);
 			log.info(
 					"[{}] Successfully received and extracted JSON summary response for transcript-only summary (Length: {}).",
 					metadataId, extractedJsonText.length());
@@ -1200,34 +2112,20 @@ public class GeminiService {
 			return createErrorResponse("Input Error", "Summary text is missing.");
 		}
 
+		GeminiResultCache.ResultKey cacheKey = GeminiResultCache.key("recommendations-audio", RESULT_CACHE_VERSION,
+				SUMMARIZATION_MODEL_NAME, AUDIO_ONLY_RECOMMENDATIONS_PROMPT, RECOMMENDATIONS_RESPONSE_SCHEMA,
+				summaryText, transcriptText);
+		return resultCache.getOrCompute(cacheKey,
+				() -> recommendAudioOnly(summaryText, transcriptText, metadataId), this::isCacheableResult);
+	}
+
+	private String recommendAudioOnly(String summaryText, String transcriptText, String metadataId) {
 		try {
 			HttpHeaders generateHeaders = new HttpHeaders();
 			generateHeaders.setContentType(MediaType.APPLICATION_JSON);
 
-			String prompt = """
-					        You are an expert educational content recommender.
-
-					        Based on the provided lecture summary and transcript (if available), recommend high-quality learning resources that would complement the lecture content.
-
-					        For each recommendation:
-					        1. Use the `title` field to provide a descriptive title that clearly indicates the content (e.g. "Introduction to Neural Networks")
-					        2. Use the `description` field to explain why this resource is relevant and how it relates to the lecture (2-3 sentences)
-					        3. Use the `url` field to provide a direct link to the resource (prefer YouTube videos, official documentation, academic papers)
-					        4. Use the `type` field to specify the type (e.g. "Video", "Article", "Tutorial", "Documentation", "Tool", "Book", "Course")
-					        5. Use the `audience` field to specify the target audience level ("Beginner", "Intermediate", "Advanced")
-
-					        Generate 5-7 diverse, high-quality recommendations that cover different aspects of the material.
-					        Focus on resources that either:
-					        - Clarify complex concepts from the lecture
-					        - Expand on key topics mentioned
-					        - Provide practical applications of the content
-					        - Offer visual explanations for better understanding
 
-					        Ensure recommendations are closely related to the lecture content. Do not include general or loosely related resources.
-					YOUR RESPONSE MUST STRICTLY ADHERE TO THE JSON SCHEMA PROVIDED. Return only the array of recommendation objects.
-					""";
-
-			Map<String, Object> promptPart = Map.of("text", prompt);
+			Map<String, Object> promptPart = Map.of("text", AUDIO_ONLY_RECOMMENDATIONS_PROMPT);
 			Map<String, Object> transcriptPart = Map.of("text", "LECTURE TRANSCRIPT: " + transcriptText);
 			Map<String, Object> summaryPart = Map.of("text", "LECTURE SUMMARY: " + summaryText);
 
@@ -1257,15 +2155,19 @@ public class GeminiService {
 
 			HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, generateHeaders);
 
-			log.info("[{}] Calling Gemini API (Model: {}) for audio-only recommendations with schema...", metadataId,
-					SUMMARIZATION_MODEL_NAME);
+			TokenEstimate estimate = tokenEstimator.estimate(RECOMMENDATIONS_OPERATION,
+					Workload.recommendations(AUDIO_ONLY_RECOMMENDATIONS_PROMPT.length(),
+							summaryText.length() + (transcriptText != null ? transcriptText.length() : 0)));
+			log.info("[{}] Calling Gemini API (Model: {}) for audio-only recommendations with schema (~{} input tokens)...",
+					metadataId, SUMMARIZATION_MODEL_NAME, estimate.inputTokens());
 
 			for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-				String currentKey = keyRotationManager.getKey(KeyProvider.GEMINI);
+				String currentKey = keyRotationManager.getKey(KeyProvider.GEMINI, estimate.inputTokens());
 				String generateContentUrl = UriComponentsBuilder.fromUriString(API_BASE_URL + GENERATE_CONTENT_PATH)
 						.queryParam("key", currentKey).buildAndExpand(SUMMARIZATION_MODEL_NAME).toUriString();
 
 				try {
+					long startedAt = System.nanoTime();
 					ResponseEntity<String> response = restTemplate.exchange(generateContentUrl, HttpMethod.POST,
 							requestEntity, String.class);
 					keyRotationManager.reportSuccess(KeyProvider.GEMINI, currentKey);
@@ -1285,7 +2187,10 @@ public class GeminiService {
 					}
 
 					try {
-						String extractedJsonText = extractTextFromStandardResponse(responseBody);
+						CandidateText candidate = decodeCandidate(responseBody);
+						tokenEstimator.recordUsage(estimate, candidate.usage(), System.nanoTime() - startedAt);
+						settleUsage(currentKey, estimate, candidate.usage());
+						String extractedJsonText = extractText(candidate);
 
 						objectMapper.readTree(extractedJsonText);
 
@@ -1343,91 +2248,6 @@ public class GeminiService {
 		}
 	}
 
-	private String extractPartialTranscriptFromIncompleteJson(String incompleteJson) {
-		try {
-			int transcriptStartIndex = incompleteJson.indexOf("\"transcript\"");
-			if (transcriptStartIndex == -1) {
-				return null;
-			}
-
-			int contentStartIndex = incompleteJson.indexOf(":", transcriptStartIndex);
-			if (contentStartIndex == -1) {
-				return null;
-			}
-
-			int textStartIndex = incompleteJson.indexOf("\"", contentStartIndex);
-			if (textStartIndex == -1) {
-				return null;
-			}
-
-			String partialContent = incompleteJson.substring(textStartIndex + 1);
-
-			int closingQuoteIndex = findUnescapedQuote(partialContent);
-			if (closingQuoteIndex != -1) {
-				return partialContent.substring(0, closingQuoteIndex);
-			}
-
-			log.warn("Transcript text was truncated due to MAX_TOKENS. Returning partial transcript.");
-			return partialContent;
-		} catch (Exception e) {
-			log.error("Error extracting partial transcript: {}", e.getMessage());
-			return null;
-		}
-	}
-
-	private int findUnescapedQuote(String text) {
-		boolean escaped = false;
-		for (int i = 0; i < text.length(); i++) {
-			char c = text.charAt(i);
-			if (c == '\\') {
-				escaped = !escaped;
-			} else if (c == '"' && !escaped) {
-				return i;
-			} else {
-				escaped = false;
-			}
-		}
-		return -1;
-	}
-
-	private String extractTranscriptFromJsonResponse(String jsonResponse) {
-		if (jsonResponse == null || jsonResponse.isBlank()) {
-			log.warn("Empty JSON response received");
-			return null;
-		}
-
-		try {
-			JsonNode jsonNode = objectMapper.readTree(jsonResponse);
-			if (jsonNode.has("transcript")) {
-				String transcript = jsonNode.path("transcript").asText();
-				log.info("Successfully extracted transcript from JSON response (length: {}).", transcript.length());
-				return transcript;
-			}
-			// Handle audio-only summarization case which returns a different structure
-			if (jsonNode.has("summaryText")) {
-				log.info(
-						"Found summarization response format with 'summaryText' field. Returning entire JSON structure.");
-				return jsonResponse; // Return the entire JSON structure for proper
-										// processing in SummarizationListenerService
-			}
-			log.warn("JSON response missing both 'transcript' and 'summaryText' fields");
-		} catch (JsonProcessingException e) {
-			// Handle malformed JSON due to MAX_TOKENS truncation
-			log.warn("Error parsing transcript JSON response, attempting to extract partial content: {}",
-					e.getMessage());
-
-			// Attempt to salvage partial transcript
-			String partialTranscript = extractPartialTranscriptFromIncompleteJson(jsonResponse);
-			if (partialTranscript != null && !partialTranscript.isBlank()) {
-				log.info("Successfully extracted partial transcript from truncated response (length: {}).",
-						partialTranscript.length());
-				return partialTranscript;
-			}
-		}
-
-		return null;
-	}
-
 	private static class ApiException extends Exception {
 		public ApiException(String message) {
 			super(message);
@@ -1,39 +1,179 @@
 package edu.cit.audioscholar.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
 
+import edu.cit.audioscholar.util.AimdLimiter;
+import edu.cit.audioscholar.util.CircuitBreaker;
+import edu.cit.audioscholar.util.LatencyTracker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs Gemini calls across the models of {@code gemini.model-hierarchy}.
+ * <p>
+ * Every model has an {@link AimdLimiter} bounding how many calls it serves at
+ * once and a {@link CircuitBreaker} that takes it out of rotation after
+ * repeated 429/503 responses. A call goes to the first model in the hierarchy
+ * that has a free slot and has not turned it away in the current cycle; a 429
+ * or 503 moves it on to the next model right away. Once every model has turned
+ * it away, the call is retried after an exponential backoff. If the remaining
+ * models are only at their concurrency limit, it waits for a slot to be
+ * released instead. Waiting is done by a scheduler rather than a sleeping
+ * thread, and calls run on virtual threads, so {@link #executeAsync} never ties
+ * up the caller.
+ * <p>
+ * Calls made through {@link #executeHedged} can also be hedged (opt-in with
+ * {@code gemini.hedging.enabled}). Once an attempt has run longer than the
+ * tracked latency percentile of its operation, a second rotation starts at the
+ * next model in the hierarchy, the first success wins and the other is
+ * cancelled. Each hedgeable call earns {@code gemini.hedging.budget-ratio} of a
+ * hedge, so hedges add at most that share of extra requests.
+ */
 @Service
 public class GeminiSmartRotationService {
 
 	private static final Logger logger = LoggerFactory.getLogger(GeminiSmartRotationService.class);
+	// Safety net for a slot released between a call finding every model busy and queueing itself.
+	private static final long WAITER_SWEEP_MS = 1000;
+	private static final int LATENCY_WINDOW = 200;
+	// Unused hedge budget that may pile up while traffic is healthy.
+	private static final double MAX_HEDGE_CREDITS = 5;
 
 	private final List<String> modelHierarchy;
 	private final long baseBackoff;
 	private final long maxBackoff;
 	private final double backoffMultiplier;
+	private final Map<String, ModelGuard> guards = new LinkedHashMap<>();
+	private final Queue<Rotation<?>> waiting = new ConcurrentLinkedQueue<>();
+	private final ExecutorService callExecutor;
+	private final ScheduledExecutorService scheduler;
+	private final boolean hedgingEnabled;
+	private final double hedgePercentile;
+	private final int hedgeMinSamples;
+	private final long hedgeMinDelayNanos;
+	private final double hedgeBudgetRatio;
+	private final Map<String, LatencyTracker> latencyTrackers = new ConcurrentHashMap<>();
+	private final Object hedgeBudgetLock = new Object();
+	private double hedgeCredits;
+	private final Counter hedgesFired;
+	private final Counter hedgesWon;
+	private final Counter hedgesOverBudget;
 
 	public GeminiSmartRotationService(@Value("${gemini.model-hierarchy}") String hierarchyStr,
 			@Value("${gemini.rotation.base-backoff-ms:2000}") long baseBackoff,
 			@Value("${gemini.rotation.max-backoff-ms:60000}") long maxBackoff,
-			@Value("${gemini.rotation.backoff-multiplier:2.0}") double backoffMultiplier) {
+			@Value("${gemini.rotation.backoff-multiplier:2.0}") double backoffMultiplier,
+			@Value("${gemini.limiter.initial-limit:4}") int initialLimit,
+			@Value("${gemini.limiter.min-limit:1}") int minLimit,
+			@Value("${gemini.limiter.max-limit:32}") int maxLimit,
+			@Value("${gemini.limiter.backoff-ratio:0.5}") double limitBackoffRatio,
+			@Value("${gemini.limiter.latency-threshold:120s}") Duration latencyThreshold,
+			@Value("${gemini.breaker.failure-threshold:5}") int failureThreshold,
+			@Value("${gemini.breaker.open-duration:30s}") Duration openDuration,
+			@Value("${gemini.hedging.enabled:false}") boolean hedgingEnabled,
+			@Value("${gemini.hedging.percentile:0.95}") double hedgePercentile,
+			@Value("${gemini.hedging.min-samples:20}") int hedgeMinSamples,
+			@Value("${gemini.hedging.min-delay:10s}") Duration hedgeMinDelay,
+			@Value("${gemini.hedging.budget-ratio:0.1}") double hedgeBudgetRatio, MeterRegistry meterRegistry) {
 		// Parse the comma-separated string into a List
-		this.modelHierarchy = Arrays.asList(hierarchyStr.split(","));
+		this.modelHierarchy = Arrays.stream(hierarchyStr.split(",")).map(String::trim).filter(s -> !s.isEmpty())
+				.toList();
 		this.baseBackoff = baseBackoff;
 		this.maxBackoff = maxBackoff;
 		this.backoffMultiplier = backoffMultiplier;
+		this.hedgingEnabled = hedgingEnabled;
+		this.hedgePercentile = hedgePercentile;
+		this.hedgeMinSamples = hedgeMinSamples;
+		this.hedgeMinDelayNanos = hedgeMinDelay.toNanos();
+		this.hedgeBudgetRatio = hedgeBudgetRatio;
+		this.hedgesFired = hedgeCounter(meterRegistry, "fired");
+		this.hedgesWon = hedgeCounter(meterRegistry, "won");
+		this.hedgesOverBudget = hedgeCounter(meterRegistry, "over_budget");
+
+		for (String model : modelHierarchy) {
+			ModelGuard guard = new ModelGuard(
+					new AimdLimiter(initialLimit, minLimit, maxLimit, limitBackoffRatio, latencyThreshold),
+					new CircuitBreaker(failureThreshold, openDuration, System::nanoTime));
+			guards.put(model, guard);
+			Gauge.builder("audioscholar.gemini.model.concurrency.limit", guard.limiter, AimdLimiter::getLimit)
+					.tag("model", model).description("Adaptive concurrency limit of the Gemini model")
+					.register(meterRegistry);
+			Gauge.builder("audioscholar.gemini.model.in.flight", guard.limiter, AimdLimiter::getInFlight)
+					.tag("model", model).description("Gemini calls currently running against the model")
+					.register(meterRegistry);
+			Gauge.builder("audioscholar.gemini.model.breaker.open", guard.breaker,
+					breaker -> breaker.getState() == CircuitBreaker.State.OPEN ? 1 : 0).tag("model", model)
+					.description("Whether the Gemini model's circuit breaker is open").register(meterRegistry);
+		}
+		logger.info("Gemini model rotation over {} (concurrency limit {} per model, {}-{})", modelHierarchy,
+				initialLimit, minLimit, maxLimit);
+		if (hedgingEnabled) {
+			logger.info("Hedging Gemini calls slower than p{} (at least {}), budget {} extra calls per call",
+					Math.round(hedgePercentile * 100), hedgeMinDelay, hedgeBudgetRatio);
+		}
+
+		this.callExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("GeminiCall-", 0).factory());
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "GeminiRotation");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::wakeAllWaiters, WAITER_SWEEP_MS, WAITER_SWEEP_MS,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/** The models calls rotate through, in order of preference. */
+	public List<String> getModelHierarchy() {
+		return modelHierarchy;
+	}
+
+	private static Counter hedgeCounter(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("audioscholar.gemini.hedges").tag("result", result)
+				.description("Hedged Gemini attempts by outcome").register(meterRegistry);
+	}
+
+	@PreDestroy
+	void stop() {
+		scheduler.shutdownNow();
+		callExecutor.shutdownNow();
 	}
 
 	/**
-	 * Executes the Gemini API call with Infinite Smart Rotation.
+	 * Executes the Gemini API call with Infinite Smart Rotation, waiting for the
+	 * result. The calling thread stays blocked until the rotation finishes,
+	 * including any wait in a model's limiter queue. The pipeline listeners call
+	 * this from consumers on virtual threads (see {@code RabbitMQConfig}), so a
+	 * waiting call parks a virtual thread rather than holding a platform thread;
+	 * callers on platform threads should use {@link #executeAsync} instead.
 	 *
 	 * @param apiCallFunction
 	 *            A function that takes the MODEL_NAME as input and returns the
@@ -41,61 +181,426 @@ public class GeminiSmartRotationService {
 	 * @return The result of type T.
 	 */
 	public <T> T executeWithInfiniteRotation(Function<String, T> apiCallFunction) {
-		long currentBackoff = baseBackoff;
-		int hierarchyIndex = 0;
-		int cycleCount = 0;
+		return await(executeAsync(apiCallFunction));
+	}
+
+	/**
+	 * Like {@link #executeWithInfiniteRotation}, but a slow attempt may be hedged
+	 * with a second one on the next model when hedging is enabled. Only use it
+	 * for calls that are safe to run twice. Like that method it blocks the
+	 * caller; calls fanned out together, such as the parts of a long summary,
+	 * should go through {@link #executeHedgedAsync} so none of them holds a
+	 * thread while it waits for a model.
+	 *
+	 * @param operation
+	 *            Name of the kind of call, e.g. "summarization". Latency
+	 *            percentiles are tracked per operation.
+	 */
+	public <T> T executeHedged(String operation, Function<String, T> apiCallFunction) {
+		return await(executeHedgedAsync(operation, apiCallFunction));
+	}
+
+	/**
+	 * Like {@link #executeHedged(String, Function)}, but only on {@code models},
+	 * e.g. the ones whose token limits fit the request. They are tried in
+	 * hierarchy order.
+	 */
+	public <T> T executeHedged(String operation, List<String> models, Function<String, T> apiCallFunction) {
+		return await(executeHedgedAsync(operation, models, apiCallFunction));
+	}
+
+	/**
+	 * Asynchronous form of {@link #executeHedged}. The returned future completes
+	 * with the first successful result of either attempt, or exceptionally once
+	 * every attempt has failed.
+	 */
+	public <T> CompletableFuture<T> executeHedgedAsync(String operation, Function<String, T> apiCallFunction) {
+		return executeHedgedAsync(operation, modelHierarchy, apiCallFunction);
+	}
+
+	/** Asynchronous form of {@link #executeHedged(String, List, Function)}. */
+	public <T> CompletableFuture<T> executeHedgedAsync(String operation, List<String> models,
+			Function<String, T> apiCallFunction) {
+		List<String> order = modelHierarchy.stream().filter(models::contains).toList();
+		if (order.isEmpty()) {
+			throw new IllegalArgumentException("None of " + models + " is in the model hierarchy " + modelHierarchy);
+		}
+		if (!hedgingEnabled) {
+			Rotation<T> rotation = new Rotation<>(apiCallFunction, order, null, null);
+			rotation.dispatch();
+			return rotation.result;
+		}
+		earnHedgeCredit();
+		LatencyTracker latencies = latencyTrackers.computeIfAbsent(operation,
+				key -> new LatencyTracker(LATENCY_WINDOW));
+		HedgedCall<T> call = new HedgedCall<>(operation, apiCallFunction, order, latencies);
+		call.start();
+		return call.result;
+	}
+
+	/** Blocks the caller until {@code result} completes, rethrowing its failure unwrapped. */
+	private <T> T await(CompletableFuture<T> result) {
+		try {
+			return result.get();
+		} catch (InterruptedException ie) {
+			result.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Rotation interrupted", ie);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof Error error) {
+				throw error;
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Executes the Gemini API call with Infinite Smart Rotation. The returned
+	 * future completes with the first successful result, or exceptionally with
+	 * the first non-retriable error. Cancelling it stops further attempts.
+	 *
+	 * @param apiCallFunction
+	 *            A function that takes the MODEL_NAME as input and returns the
+	 *            result (T). Runs on a virtual thread.
+	 */
+	public <T> CompletableFuture<T> executeAsync(Function<String, T> apiCallFunction) {
+		Rotation<T> rotation = new Rotation<>(apiCallFunction, modelHierarchy, null, null);
+		rotation.dispatch();
+		return rotation.result;
+	}
+
+	private void earnHedgeCredit() {
+		synchronized (hedgeBudgetLock) {
+			hedgeCredits = Math.min(MAX_HEDGE_CREDITS, hedgeCredits + hedgeBudgetRatio);
+		}
+	}
+
+	private boolean tryTakeHedgeCredit() {
+		synchronized (hedgeBudgetLock) {
+			if (hedgeCredits < 1) {
+				return false;
+			}
+			hedgeCredits--;
+			return true;
+		}
+	}
+
+	/** {@code models} starting at the model after {@code model}, wrapping around. */
+	private static List<String> rotateAfter(List<String> models, String model) {
+		int index = models.indexOf(model);
+		List<String> order = new ArrayList<>(models.subList(index + 1, models.size()));
+		order.addAll(models.subList(0, index + 1));
+		return order;
+	}
+
+	private void wakeWaiter() {
+		Rotation<?> rotation = waiting.poll();
+		if (rotation != null) {
+			callExecutor.execute(rotation::dispatch);
+		}
+	}
+
+	private void wakeAllWaiters() {
+		for (int pending = waiting.size(); pending > 0; pending--) {
+			wakeWaiter();
+		}
+	}
+
+	/**
+	 * One call working its way through the hierarchy. Only one step of a
+	 * rotation runs at a time, each handed to the next through an executor.
+	 */
+	private final class Rotation<T> {
+		private final Function<String, T> apiCallFunction;
+		private final List<String> order;
+		@Nullable
+		private final LatencyTracker latencies;
+		@Nullable
+		private final HedgedCall<T> hedgedCall;
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		private final Set<String> turnedAwayThisCycle = new HashSet<>();
+		private long currentBackoff = baseBackoff;
+		private int cycleCount;
+		// Thread running an attempt right now, interrupted when the rotation is cancelled.
+		private Thread runner;
+
+		/**
+		 * @param latencies
+		 *            where successful attempts record their latency, if anywhere
+		 * @param hedgedCall
+		 *            the hedged call to tell when attempts start and end, if this is
+		 *            its primary rotation
+		 */
+		private Rotation(Function<String, T> apiCallFunction, List<String> order, @Nullable LatencyTracker latencies,
+				@Nullable HedgedCall<T> hedgedCall) {
+			this.apiCallFunction = apiCallFunction;
+			this.order = order;
+			this.latencies = latencies;
+			this.hedgedCall = hedgedCall;
+			result.whenComplete((value, error) -> {
+				if (result.isCancelled()) {
+					interruptRunner();
+				}
+			});
+		}
 
-		// INFINITE LOOP: Will only exit on success or non-retriable error
-		while (true) {
-			String currentModel = modelHierarchy.get(hierarchyIndex);
+		private synchronized boolean claimRunner() {
+			if (result.isDone()) {
+				return false;
+			}
+			runner = Thread.currentThread();
+			return true;
+		}
+
+		private synchronized void releaseRunner() {
+			runner = null;
+			// Clear an interrupt that raced with the end of the attempt.
+			Thread.interrupted();
+		}
+
+		private synchronized void interruptRunner() {
+			if (runner != null) {
+				runner.interrupt();
+			}
+		}
+
+		private void dispatch() {
+			if (result.isDone()) {
+				return;
+			}
+			boolean atLimit = false;
+			for (String model : order) {
+				if (turnedAwayThisCycle.contains(model)) {
+					continue;
+				}
+				ModelGuard guard = guards.get(model);
+				Admission admission = guard.tryAcquire();
+				if (admission == Admission.ACQUIRED) {
+					callExecutor.execute(() -> call(model, guard));
+					return;
+				}
+				atLimit |= admission == Admission.AT_LIMIT;
+			}
 
+			if (atLimit) {
+				// A slot frees up as soon as any running call finishes.
+				waiting.add(this);
+				return;
+			}
+
+			// Did we exhaust the whole list?
+			cycleCount++;
+			long delay = currentBackoff;
+			// Update backoff for next time (Exponential, capped at 60s)
+			currentBackoff = (long) Math.min(currentBackoff * backoffMultiplier, maxBackoff);
+			turnedAwayThisCycle.clear();
+			logger.info("Cycle {} complete. All models exhausted. Restarting hierarchy in {} ms...", cycleCount, delay);
+			scheduler.schedule(() -> callExecutor.execute(this::dispatch), delay, TimeUnit.MILLISECONDS);
+		}
+
+		private void call(String model, ModelGuard guard) {
+			if (!claimRunner()) {
+				guard.onIgnored();
+				wakeWaiter();
+				return;
+			}
+			long startedAt = System.nanoTime();
+			if (hedgedCall != null) {
+				hedgedCall.attemptStarted(model);
+			}
+			T value;
 			try {
-				// Try the current model
-				// logger.debug("Attempting operation using model: {}", currentModel); //
-				// Optional: reduce noise
-				return apiCallFunction.apply(currentModel);
+				value = apiCallFunction.apply(model);
+			} catch (Throwable e) {
+				attemptEnded();
+				onAttemptFailed(model, guard, e);
+				return;
+			}
+			attemptEnded();
+			long latency = System.nanoTime() - startedAt;
+			guard.onSuccess(latency);
+			if (latencies != null) {
+				latencies.record(latency);
+			}
+			wakeWaiter();
+			result.complete(value);
+		}
 
-			} catch (HttpClientErrorException.TooManyRequests | HttpServerErrorException.ServiceUnavailable e) {
+		private void attemptEnded() {
+			releaseRunner();
+			if (hedgedCall != null) {
+				hedgedCall.attemptEnded();
+			}
+		}
+
+		private void onAttemptFailed(String model, ModelGuard guard, Throwable failure) {
+			if (result.isDone()) {
+				// Cancelled while the attempt ran; the failure is most likely the interrupt.
+				guard.onIgnored();
+				wakeWaiter();
+				logger.debug("Attempt on model {} ended after its call was cancelled: {}", model,
+						failure.toString());
+				return;
+			}
+			if (failure instanceof HttpClientErrorException.TooManyRequests
+					|| failure instanceof HttpServerErrorException.ServiceUnavailable) {
 				// 429 or 503 -> Rate Limit or Overloaded.
-				// DO NOT SLEEP YET. IMMEDIATE ROTATION.
-				logger.warn("Model {} is rate limited/overloaded ({}). Switching to next...", currentModel,
-						e.getStatusCode());
+				// DO NOT WAIT. IMMEDIATE ROTATION.
+				guard.onOverloaded();
+				wakeWaiter();
+				logger.warn("Model {} is rate limited/overloaded ({}). Switching to next...", model,
+						((HttpStatusCodeException) failure).getStatusCode());
+				turnedAwayThisCycle.add(model);
+				dispatch();
+				return;
+			}
+			// If it's a critical error (400, 401, etc.), stop
+			guard.onIgnored();
+			wakeWaiter();
+			logger.error("Non-retriable error on model {}. Stopping rotation.", model, failure);
+			result.completeExceptionally(failure);
+		}
+	}
+
+	/**
+	 * A call that may run as two rotations: the primary, and a hedge started at
+	 * the next model once a primary attempt has run longer than the operation's
+	 * latency percentile. At most one hedge is started per call.
+	 */
+	private final class HedgedCall<T> {
+		private final String operation;
+		private final Function<String, T> apiCallFunction;
+		private final List<String> order;
+		private final LatencyTracker latencies;
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		private final Rotation<T> primary;
+		// Guarded by this.
+		private Rotation<T> hedge;
+		private ScheduledFuture<?> hedgeTimer;
+		private int outstanding = 1;
+
+		private HedgedCall(String operation, Function<String, T> apiCallFunction, List<String> order,
+				LatencyTracker latencies) {
+			this.operation = operation;
+			this.apiCallFunction = apiCallFunction;
+			this.order = order;
+			this.latencies = latencies;
+			this.primary = new Rotation<>(apiCallFunction, order, latencies, this);
+		}
+
+		private void start() {
+			primary.result.whenComplete((value, error) -> onRotationDone(primary, value, error));
+			result.whenComplete((value, error) -> cancelRemaining());
+			primary.dispatch();
+		}
 
-			} catch (Exception e) {
-				// Check for wrapped 429/503 in unexpected wrapper exceptions if necessary
-				// For now, assume standard Spring RestTemplate exceptions or those thrown by
-				// apiCallFunction
+		private synchronized void attemptStarted(String model) {
+			if (hedge != null || result.isDone()) {
+				return;
+			}
+			long threshold = latencies.percentile(hedgePercentile, hedgeMinSamples);
+			if (threshold < 0) {
+				// Too few samples yet to tell a slow call from a normal one.
+				return;
+			}
+			long delay = Math.max(threshold, hedgeMinDelayNanos);
+			hedgeTimer = scheduler.schedule(() -> fireHedge(model, delay), delay, TimeUnit.NANOSECONDS);
+		}
 
-				// If it's a critical error (400, 401, etc.), rethrow
-				logger.error("Non-retriable error on model {}. Stopping rotation.", currentModel, e);
-				throw e;
+		private synchronized void attemptEnded() {
+			if (hedgeTimer != null) {
+				hedgeTimer.cancel(false);
+				hedgeTimer = null;
 			}
+		}
 
-			// --- Rotation Logic ---
-			hierarchyIndex++;
+		private synchronized void fireHedge(String slowModel, long delay) {
+			hedgeTimer = null;
+			if (hedge != null || result.isDone()) {
+				return;
+			}
+			if (!tryTakeHedgeCredit()) {
+				hedgesOverBudget.increment();
+				logger.debug("{} call on model {} is slow but the hedge budget is spent.", operation, slowModel);
+				return;
+			}
+			hedgesFired.increment();
+			hedge = new Rotation<>(apiCallFunction, rotateAfter(order, slowModel), latencies, null);
+			outstanding++;
+			Rotation<T> started = hedge;
+			started.result.whenComplete((value, error) -> onRotationDone(started, value, error));
+			logger.info("{} call on model {} still running after {} ms. Hedging on the next model...", operation,
+					slowModel, TimeUnit.NANOSECONDS.toMillis(delay));
+			callExecutor.execute(started::dispatch);
+		}
 
-			// Did we exhaust the whole list?
-			if (hierarchyIndex >= modelHierarchy.size()) {
-				cycleCount++;
-
-				// Calculate Backoff
-				logger.info("Cycle {} complete. All models exhausted. Backing off...", cycleCount);
-
-				try {
-					logger.info("Sleeping for {} ms before restarting hierarchy...", currentBackoff);
-					Thread.sleep(currentBackoff);
-				} catch (InterruptedException ie) {
-					Thread.currentThread().interrupt();
-					throw new RuntimeException("Rotation interrupted", ie);
+		private void onRotationDone(Rotation<T> rotation, T value, Throwable error) {
+			synchronized (this) {
+				if (result.isDone()) {
+					return;
+				}
+				if (error == null) {
+					if (rotation != primary) {
+						hedgesWon.increment();
+					}
+				} else if (--outstanding > 0) {
+					// The other attempt may still succeed.
+					return;
 				}
+			}
+			if (error == null) {
+				result.complete(value);
+			} else {
+				result.completeExceptionally(error);
+			}
+		}
+
+		private void cancelRemaining() {
+			Rotation<T> started;
+			synchronized (this) {
+				attemptEnded();
+				started = hedge;
+			}
+			primary.result.cancel(true);
+			if (started != null) {
+				started.result.cancel(true);
+			}
+		}
+	}
+
+	private enum Admission {
+		ACQUIRED, AT_LIMIT, OPEN
+	}
 
-				// Update backoff for next time (Exponential, capped at 60s)
-				currentBackoff = (long) Math.min(currentBackoff * backoffMultiplier, maxBackoff);
+	private record ModelGuard(AimdLimiter limiter, CircuitBreaker breaker) {
 
-				// Reset to top of hierarchy
-				hierarchyIndex = 0;
-				logger.info("Restarting hierarchy at index 0 ({})", modelHierarchy.get(0));
+		private Admission tryAcquire() {
+			if (!limiter.tryAcquire()) {
+				return Admission.AT_LIMIT;
 			}
+			if (!breaker.tryAcquirePermission()) {
+				limiter.onIgnored();
+				return Admission.OPEN;
+			}
+			return Admission.ACQUIRED;
+		}
+
+		private void onSuccess(long latencyNanos) {
+			limiter.onSuccess(latencyNanos);
+			breaker.onSuccess();
+		}
+
+		private void onOverloaded() {
+			limiter.onDropped();
+			breaker.onFailure();
+		}
+
+		private void onIgnored() {
+			limiter.onIgnored();
+			breaker.onIgnored();
 		}
 	}
 }
@@ -0,0 +1,333 @@
+package edu.cit.audioscholar.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import edu.cit.audioscholar.util.GeminiResponseDecoder.UsageMetadata;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Estimates the tokens a Gemini request will use before it is sent, and picks
+ * how to send it so that it is neither rejected nor truncated.
+ * <p>
+ * Estimates start from fixed rates (characters of text, seconds of audio, pages
+ * of PDF) and are corrected per operation by how far off earlier estimates were
+ * from the {@code usageMetadata} Gemini reported. The same corrections give a
+ * forecast of the tokens and time a recording will take.
+ */
+@Service
+public class GeminiTokenEstimator {
+
+	private static final Logger log = LoggerFactory.getLogger(GeminiTokenEstimator.class);
+
+	// English text averages about four characters per token.
+	static final double CHARS_PER_TOKEN = 4.0;
+	// Gemini bills audio input at 32 tokens per second.
+	static final int AUDIO_TOKENS_PER_SECOND = 32;
+	// Gemini bills every PDF page as one image, whatever is on it.
+	static final int PDF_TOKENS_PER_PAGE = 258;
+	// Prompt and file reference of an audio request.
+	static final int AUDIO_PROMPT_TOKENS = 300;
+	// About 150 spoken words a minute, plus punctuation.
+	static final double TRANSCRIPT_TOKENS_PER_SECOND = 4.0;
+	// Summaries (with thinking) grow with the lecture, from this base.
+	static final int SUMMARY_BASE_OUTPUT_TOKENS = 2048;
+	static final double SUMMARY_OUTPUT_PER_INPUT_TOKEN = 0.125;
+	static final int RECOMMENDATIONS_OUTPUT_TOKENS = 1500;
+	private static final ModelLimits DEFAULT_LIMITS = new ModelLimits(1_048_576, 8_192);
+	// Corrections are kept within this factor of the fixed rates.
+	private static final double MAX_CORRECTION = 4.0;
+
+	/** How a request is sent. */
+	public enum ContextStrategy {
+		/** One request, on any model. */
+		SINGLE_SHOT,
+		/** One request, on the models whose limits fit it. */
+		LARGER_CONTEXT_MODEL,
+		/** One request, with the PDF's text instead of the PDF file. */
+		PDF_AS_TEXT,
+		/** Too large for one request; summarize parts and merge them. */
+		MAP_REDUCE
+	}
+
+	/** What a request asks for, which decides how long the answer is expected to be. */
+	public enum OutputKind {
+		TRANSCRIPT, SUMMARY, RECOMMENDATIONS
+	}
+
+	/**
+	 * What goes into a request.
+	 *
+	 * @param pdfTextChars
+	 *            length of the text extracted from the PDF, or -1 if it was not
+	 *            extracted
+	 */
+	public record Workload(int promptChars, long textChars, int audioSeconds, int pdfPages, long pdfTextChars,
+			boolean pdfAsText, OutputKind outputKind) {
+
+		public static Workload transcription(int audioSeconds) {
+			return new Workload(0, 0, audioSeconds, 0, -1, false, OutputKind.TRANSCRIPT);
+		}
+
+		/** @param textChars length of the transcript and any other text sent with the prompt */
+		public static Workload summary(int promptChars, long textChars) {
+			return new Workload(promptChars, textChars, 0, 0, -1, false, OutputKind.SUMMARY);
+		}
+
+		public static Workload recommendations(int promptChars, long textChars) {
+			return new Workload(promptChars, textChars, 0, 0, -1, false, OutputKind.RECOMMENDATIONS);
+		}
+
+		public Workload withPdf(int pages, long textChars) {
+			return new Workload(promptChars, this.textChars, audioSeconds, pages, textChars, false, outputKind);
+		}
+
+		private Workload withPdfAsText() {
+			return new Workload(promptChars, textChars, audioSeconds, pdfPages, pdfTextChars, true, outputKind);
+		}
+	}
+
+	public record TokenEstimate(String operation, long inputTokens, long outputTokens) {
+	}
+
+	public record ModelLimits(long inputTokens, long outputTokens) {
+	}
+
+	/**
+	 * @param models
+	 *            the models to send the request to, in order of preference
+	 */
+	public record ContextPlan(ContextStrategy strategy, TokenEstimate estimate, List<String> models) {
+	}
+
+	/** @param latency {@code null} until a call of the operation has been timed */
+	public record Forecast(long inputTokens, long outputTokens, @Nullable Duration latency) {
+	}
+
+	private final Map<String, ModelLimits> modelLimits;
+	private final long singleShotMaxInputTokens;
+	private final double calibrationWeight;
+	private final MeterRegistry meterRegistry;
+	private final Map<String, Calibration> calibrations = new ConcurrentHashMap<>();
+
+	public GeminiTokenEstimator(@Value("${gemini.model-limits:}") String modelLimits,
+			@Value("${gemini.context.single-shot-max-input-tokens:250000}") long singleShotMaxInputTokens,
+			@Value("${gemini.context.calibration-weight:0.2}") double calibrationWeight,
+			MeterRegistry meterRegistry) {
+		this.modelLimits = parseModelLimits(modelLimits);
+		this.singleShotMaxInputTokens = singleShotMaxInputTokens;
+		this.calibrationWeight = calibrationWeight;
+		this.meterRegistry = meterRegistry;
+		log.info("Gemini token estimates: single requests up to {} input tokens, limits of {} models configured",
+				singleShotMaxInputTokens, this.modelLimits.size());
+	}
+
+	/** Parses {@code model:inputTokens:outputTokens,...}. */
+	static Map<String, ModelLimits> parseModelLimits(String spec) {
+		Map<String, ModelLimits> limits = new HashMap<>();
+		for (String entry : spec.split(",")) {
+			if (entry.isBlank()) {
+				continue;
+			}
+			String[] fields = entry.trim().split(":");
+			if (fields.length != 3) {
+				throw new IllegalArgumentException("Expected model:inputTokens:outputTokens, got: " + entry);
+			}
+			limits.put(fields[0].trim(),
+					new ModelLimits(Long.parseLong(fields[1].trim()), Long.parseLong(fields[2].trim())));
+		}
+		return Map.copyOf(limits);
+	}
+
+	public ModelLimits limitsOf(String model) {
+		return modelLimits.getOrDefault(model, DEFAULT_LIMITS);
+	}
+
+	public TokenEstimate estimate(String operation, Workload workload) {
+		double input = workload.promptChars() / CHARS_PER_TOKEN + workload.textChars() / CHARS_PER_TOKEN
+				+ (double) workload.audioSeconds() * AUDIO_TOKENS_PER_SECOND;
+		if (workload.audioSeconds() > 0) {
+			input += AUDIO_PROMPT_TOKENS;
+		}
+		if (workload.pdfAsText()) {
+			input += Math.max(0, workload.pdfTextChars()) / CHARS_PER_TOKEN;
+		} else {
+			input += (double) workload.pdfPages() * PDF_TOKENS_PER_PAGE;
+		}
+		double output = switch (workload.outputKind()) {
+			case TRANSCRIPT -> workload.audioSeconds() * TRANSCRIPT_TOKENS_PER_SECOND;
+			case SUMMARY -> SUMMARY_BASE_OUTPUT_TOKENS + input * SUMMARY_OUTPUT_PER_INPUT_TOKEN;
+			case RECOMMENDATIONS -> RECOMMENDATIONS_OUTPUT_TOKENS;
+		};
+		Calibration calibration = calibrations.get(operation);
+		if (calibration != null) {
+			input *= calibration.inputRatio();
+			output *= calibration.outputRatio();
+		}
+		return new TokenEstimate(operation, (long) Math.ceil(input), (long) Math.ceil(output));
+	}
+
+	/**
+	 * Estimates a request and picks how to send it to {@code models}:
+	 * <ol>
+	 * <li>in one request, to every model or to those whose limits fit it, while
+	 * the input stays within the single-request budget;</li>
+	 * <li>otherwise with the PDF's text in place of the file, if that fits;</li>
+	 * <li>otherwise in parts ({@link ContextStrategy#MAP_REDUCE}), planned for
+	 * the models with the largest output limit.</li>
+	 * </ol>
+	 */
+	public ContextPlan plan(String operation, Workload workload, List<String> models) {
+		ContextPlan plan = choose(operation, workload, models);
+		Counter.builder("audioscholar.gemini.context.plans").tag("operation", operation)
+				.tag("strategy", plan.strategy().name().toLowerCase()).description("Gemini requests by context strategy")
+				.register(meterRegistry).increment();
+		return plan;
+	}
+
+	private ContextPlan choose(String operation, Workload workload, List<String> models) {
+		TokenEstimate estimate = estimate(operation, workload);
+		List<String> fitting = fitting(estimate, models);
+		if (estimate.inputTokens() <= singleShotMaxInputTokens) {
+			if (fitting.size() == models.size()) {
+				return new ContextPlan(ContextStrategy.SINGLE_SHOT, estimate, models);
+			}
+			if (!fitting.isEmpty()) {
+				return new ContextPlan(ContextStrategy.LARGER_CONTEXT_MODEL, estimate, fitting);
+			}
+		}
+		if (workload.pdfPages() > 0 && workload.pdfTextChars() >= 0) {
+			TokenEstimate asText = estimate(operation, workload.withPdfAsText());
+			List<String> fittingAsText = fitting(asText, models);
+			if (asText.inputTokens() <= singleShotMaxInputTokens && !fittingAsText.isEmpty()) {
+				return new ContextPlan(ContextStrategy.PDF_AS_TEXT, asText, fittingAsText);
+			}
+		}
+		long largestOutput = models.stream().mapToLong(model -> limitsOf(model).outputTokens()).max().orElse(0);
+		List<String> largest = models.stream().filter(model -> limitsOf(model).outputTokens() == largestOutput)
+				.toList();
+		return new ContextPlan(ContextStrategy.MAP_REDUCE, estimate, largest);
+	}
+
+	private List<String> fitting(TokenEstimate estimate, List<String> models) {
+		List<String> fitting = new ArrayList<>();
+		for (String model : models) {
+			ModelLimits limits = limitsOf(model);
+			if (estimate.inputTokens() <= limits.inputTokens() && estimate.outputTokens() <= limits.outputTokens()) {
+				fitting.add(model);
+			}
+		}
+		return fitting;
+	}
+
+	/**
+	 * The tokens and time a request is expected to take, from its estimate and
+	 * the speed of earlier calls of its operation.
+	 */
+	public Forecast forecast(TokenEstimate estimate) {
+		Calibration calibration = calibrations.get(estimate.operation());
+		double nanosPerOutputToken = calibration != null ? calibration.nanosPerOutputToken() : 0;
+		Duration latency = nanosPerOutputToken > 0
+				? Duration.ofNanos((long) (nanosPerOutputToken * estimate.outputTokens()))
+				: null;
+		return new Forecast(estimate.inputTokens(), estimate.outputTokens(), latency);
+	}
+
+	/**
+	 * Records the tokens a call actually used, correcting later estimates of its
+	 * operation.
+	 *
+	 * @param estimate
+	 *            the estimate the call was planned with
+	 * @param usage
+	 *            the call's {@code usageMetadata}; nothing is recorded without it
+	 */
+	public void recordUsage(TokenEstimate estimate, @Nullable UsageMetadata usage, long latencyNanos) {
+		if (usage == null || usage.promptTokens() <= 0) {
+			return;
+		}
+		String operation = estimate.operation();
+		tokens(operation, "input").record(usage.promptTokens());
+		tokens(operation, "output").record(usage.outputTokens());
+		double inputError = (double) usage.promptTokens() / Math.max(1, estimate.inputTokens());
+		double outputError = (double) usage.outputTokens() / Math.max(1, estimate.outputTokens());
+		estimateError(operation, "input").record(inputError);
+		estimateError(operation, "output").record(outputError);
+
+		Calibration calibration = calibrations.computeIfAbsent(operation, key -> new Calibration());
+		calibration.update(inputError, outputError, usage.outputTokens() > 0
+				? (double) latencyNanos / usage.outputTokens()
+				: 0, calibrationWeight);
+		log.debug("{} call used {} input / {} output tokens, estimated {} / {}", operation, usage.promptTokens(),
+				usage.outputTokens(), estimate.inputTokens(), estimate.outputTokens());
+	}
+
+	private DistributionSummary tokens(String operation, String direction) {
+		return DistributionSummary.builder("audioscholar.gemini.tokens").tag("operation", operation)
+				.tag("direction", direction).baseUnit("tokens").description("Tokens used by Gemini calls")
+				.register(meterRegistry);
+	}
+
+	private DistributionSummary estimateError(String operation, String direction) {
+		return DistributionSummary.builder("audioscholar.gemini.tokens.estimate.ratio").tag("operation", operation)
+				.tag("direction", direction).description("Tokens used by Gemini calls divided by their estimate")
+				.register(meterRegistry);
+	}
+
+	/** Corrections learned from one operation's calls. */
+	private static final class Calibration {
+		// Scale factors applied on top of the corrections already in effect.
+		private double inputRatio = 1;
+		private double outputRatio = 1;
+		private double nanosPerOutputToken;
+
+		private synchronized double inputRatio() {
+			return inputRatio;
+		}
+
+		private synchronized double outputRatio() {
+			return outputRatio;
+		}
+
+		private synchronized double nanosPerOutputToken() {
+			return nanosPerOutputToken;
+		}
+
+		/**
+		 * @param inputError
+		 *            actual input tokens divided by the (already corrected)
+		 *            estimate
+		 */
+		private synchronized void update(double inputError, double outputError, double nanosPerToken,
+				double weight) {
+			inputRatio = clamp(inputRatio * blend(inputError, weight));
+			outputRatio = clamp(outputRatio * blend(outputError, weight));
+			if (nanosPerToken > 0) {
+				nanosPerOutputToken = nanosPerOutputToken == 0
+						? nanosPerToken
+						: nanosPerOutputToken + weight * (nanosPerToken - nanosPerOutputToken);
+			}
+		}
+
+		// Moves the correction a step of the given weight towards the observed error.
+		private static double blend(double error, double weight) {
+			return 1 + weight * (error - 1);
+		}
+
+		private static double clamp(double ratio) {
+			return Math.max(1 / MAX_CORRECTION, Math.min(MAX_CORRECTION, ratio));
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package edu.cit.audioscholar.service;
 
+import java.time.Duration;
+
+import edu.cit.audioscholar.exception.KeysExhaustedException;
 import edu.cit.audioscholar.model.KeyProvider;
 
 public interface KeyRotationManager {
@@ -15,6 +18,70 @@ public interface KeyRotationManager {
 	 */
 	String getKey(KeyProvider provider);
 
+	/**
+	 * Like {@link #getKey(KeyProvider)}, for a request expected to consume about
+	 * {@code estimatedTokens} tokens. Implementations that track quotas prefer
+	 * the key with the most headroom left for a request of that size.
+	 *
+	 * @param provider
+	 *            The service provider
+	 * @param estimatedTokens
+	 *            Expected input tokens of the request, 0 if unknown
+	 * @return A valid API key
+	 * @throws KeysExhaustedException
+	 *             if no key currently has capacity for the request
+	 */
+	String getKey(KeyProvider provider, long estimatedTokens);
+
+	/**
+	 * Like {@link #getKey(KeyProvider, long)}, but waits up to {@code maxWait}
+	 * for a key to regain capacity instead of failing right away.
+	 *
+	 * @param provider
+	 *            The service provider
+	 * @param estimatedTokens
+	 *            Expected input tokens of the request, 0 if unknown
+	 * @param maxWait
+	 *            How long to wait for capacity
+	 * @return A valid API key
+	 * @throws KeysExhaustedException
+	 *             if no key regains capacity within {@code maxWait}, or the
+	 *             thread is interrupted while waiting
+	 */
+	String awaitKey(KeyProvider provider, long estimatedTokens, Duration maxWait);
+
+	/**
+	 * Charges {@code key} for a request of {@code estimatedTokens} if that key
+	 * can take it now. For requests that should go to one particular key, such
+	 * as calls on a file the key's project has already uploaded.
+	 *
+	 * @param provider
+	 *            The service provider
+	 * @param key
+	 *            The key to charge
+	 * @param estimatedTokens
+	 *            Expected input tokens of the request, 0 if unknown
+	 * @return {@code true} if the key was charged, {@code false} if it is unknown,
+	 *         in cooldown or out of quota
+	 */
+	boolean tryKey(KeyProvider provider, String key, long estimatedTokens);
+
+	/**
+	 * Like {@link #tryKey(KeyProvider, String, long)}, charging the provider's
+	 * default token estimate the way {@link #getKey(KeyProvider)} does.
+	 */
+	boolean tryKey(KeyProvider provider, String key);
+
+	/**
+	 * Returns how many keys are configured for the specified provider, including
+	 * keys currently in cooldown. Callers use this to size parallel work.
+	 *
+	 * @param provider
+	 *            The service provider
+	 * @return The number of configured keys, 0 if none
+	 */
+	int getKeyCount(KeyProvider provider);
+
 	/**
 	 * Reports an error for a specific key. If the statusCode indicates a rate limit
 	 * (e.g., 429, 403), the key may be placed in cooldown.
@@ -38,4 +105,20 @@ public interface KeyRotationManager {
 	 *            The key that was successfully used
 	 */
 	void reportSuccess(KeyProvider provider, String key);
+
+	/**
+	 * Reports the tokens a request actually used, so the key's token budget is
+	 * corrected by the difference from what picking the key charged. A request
+	 * that failed without being processed reports 0.
+	 *
+	 * @param provider
+	 *            The service provider
+	 * @param key
+	 *            The key the request was sent with
+	 * @param chargedTokens
+	 *            The estimate the key was picked with
+	 * @param usedTokens
+	 *            The input tokens the API reported for the request
+	 */
+	void reportUsage(KeyProvider provider, String key, long chargedTokens, long usedTokens);
 }
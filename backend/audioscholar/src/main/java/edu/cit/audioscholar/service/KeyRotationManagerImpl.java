@@ -1,38 +1,63 @@
 package edu.cit.audioscholar.service;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import edu.cit.audioscholar.exception.KeysExhaustedException;
 import edu.cit.audioscholar.model.KeyProvider;
+import edu.cit.audioscholar.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
+/**
+ * Hands out API keys according to each key's remaining quota.
+ * <p>
+ * Every key has token buckets for the limits configured for its provider:
+ * requests per minute, input tokens per minute and requests per day. A limit
+ * of 0 is not tracked. A request is charged against the buckets when its key is
+ * handed out, and the key with the most headroom left after the charge wins;
+ * ties go round-robin. A 429 or 403 drains the key's per-minute buckets and
+ * puts it in a cooldown that starts at {@code app.key-scheduler.cooldown-initial}
+ * and doubles with each further rate limit up to
+ * {@code app.key-scheduler.cooldown-max}, until a request with the key
+ * succeeds again.
+ * <p>
+ * The daily bucket refills continuously rather than at the provider's reset
+ * time, and all buckets start full after a restart, so the limits are a model of
+ * the real quota, not a mirror of it.
+ */
 @Service
 public class KeyRotationManagerImpl implements KeyRotationManager {
 
 	private static final Logger log = LoggerFactory.getLogger(KeyRotationManagerImpl.class);
-	private static final long COOLDOWN_DURATION_MS = 60 * 1000; // 1 minute cooldown
+	private static final long MIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
 
-	// Storage for keys per provider
-	private final Map<KeyProvider, List<String>> keyStore = new ConcurrentHashMap<>();
+	// Keys and their quota state per provider
+	private final Map<KeyProvider, ProviderKeys> providers = new ConcurrentHashMap<>();
 
-	// Round-robin counters per provider
-	private final Map<KeyProvider, AtomicInteger> counters = new ConcurrentHashMap<>();
-
-	// Cooldown tracking: Key -> Timestamp when it becomes available again
-	private final Map<String, Long> cooldownMap = new ConcurrentHashMap<>();
+	private final MeterRegistry meterRegistry;
+	private final LongSupplier nanoClock;
 
 	@Value("${gemini.api.keys:}")
 	private String geminiKeysRaw;
@@ -46,13 +71,50 @@ public class KeyRotationManagerImpl implements KeyRotationManager {
 	@Value("${convertapi.secret:${CONVERTAPI_SECRET:}}")
 	private String convertApiSecretLegacy;
 
+	@Value("${gemini.quota.requests-per-minute:15}")
+	private long geminiRequestsPerMinute = 15;
+
+	@Value("${gemini.quota.tokens-per-minute:1000000}")
+	private long geminiTokensPerMinute = 1_000_000;
+
+	@Value("${gemini.quota.requests-per-day:1500}")
+	private long geminiRequestsPerDay = 1500;
+
+	@Value("${gemini.quota.default-request-tokens:8000}")
+	private long geminiDefaultRequestTokens = 8000;
+
+	@Value("${convertapi.quota.requests-per-minute:0}")
+	private long convertApiRequestsPerMinute;
+
+	@Value("${convertapi.quota.requests-per-day:0}")
+	private long convertApiRequestsPerDay;
+
+	@Value("${app.key-scheduler.cooldown-initial:5s}")
+	private Duration cooldownInitial = Duration.ofSeconds(5);
+
+	@Value("${app.key-scheduler.cooldown-max:60s}")
+	private Duration cooldownMax = Duration.ofSeconds(60);
+
+	@Autowired
+	public KeyRotationManagerImpl(MeterRegistry meterRegistry) {
+		this(meterRegistry, System::nanoTime);
+	}
+
+	KeyRotationManagerImpl(MeterRegistry meterRegistry, LongSupplier nanoClock) {
+		this.meterRegistry = meterRegistry;
+		this.nanoClock = nanoClock;
+	}
+
 	@PostConstruct
 	public void init() {
-		loadKeys(KeyProvider.GEMINI, geminiKeysRaw, geminiKeyLegacy);
-		loadKeys(KeyProvider.CONVERTAPI, convertApiSecretsRaw, convertApiSecretLegacy);
+		loadKeys(KeyProvider.GEMINI, geminiKeysRaw, geminiKeyLegacy,
+				new Quota(geminiRequestsPerMinute, geminiTokensPerMinute, geminiRequestsPerDay,
+						geminiDefaultRequestTokens));
+		loadKeys(KeyProvider.CONVERTAPI, convertApiSecretsRaw, convertApiSecretLegacy,
+				new Quota(convertApiRequestsPerMinute, 0, convertApiRequestsPerDay, 0));
 	}
 
-	private void loadKeys(KeyProvider provider, String listRaw, String singleLegacy) {
+	private void loadKeys(KeyProvider provider, String listRaw, String singleLegacy, Quota quota) {
 		List<String> keys = new ArrayList<>();
 
 		// 1. Try loading from comma-separated list
@@ -72,71 +134,145 @@ public class KeyRotationManagerImpl implements KeyRotationManager {
 		if (keys.isEmpty()) {
 			log.warn("No API keys found for provider: {}", provider);
 		} else {
-			log.info("Loaded {} keys for provider: {}", keys.size(), provider);
+			log.info("Loaded {} keys for provider: {} (per key: {} requests/min, {} tokens/min, {} requests/day)",
+					keys.size(), provider, describeLimit(quota.requestsPerMinute()),
+					describeLimit(quota.tokensPerMinute()), describeLimit(quota.requestsPerDay()));
 		}
 
-		keyStore.put(provider, Collections.unmodifiableList(keys));
-		counters.put(provider, new AtomicInteger(0));
+		ProviderKeys providerKeys = new ProviderKeys(provider, keys, quota, nanoClock.getAsLong());
+		providers.put(provider, providerKeys);
+		providerKeys.registerMetrics();
 	}
 
 	@Override
 	public String getKey(KeyProvider provider) {
-		List<String> keys = keyStore.getOrDefault(provider, Collections.emptyList());
-		if (keys.isEmpty()) {
-			throw new RuntimeException("No API keys configured for " + provider);
-		}
-
-		AtomicInteger counter = counters.get(provider);
-		int size = keys.size();
-
-		// Try to find a non-cooldown key, trying each key at least once
-		for (int i = 0; i < size; i++) {
-			// Get next index atomically-ish (just round robin)
-			// We use getAndIncrement but mod it locally.
-			// Race conditions on the exact index don't matter as much as distribution.
-			int index = Math.abs(counter.getAndIncrement() % size);
-			String candidateKey = keys.get(index);
+		return getKey(provider, keysFor(provider).quota.defaultRequestTokens());
+	}
 
-			if (!isCooldown(candidateKey)) {
-				return candidateKey;
+	@Override
+	public String getKey(KeyProvider provider, long estimatedTokens) {
+		ProviderKeys keys = keysFor(provider);
+		synchronized (keys) {
+			KeyState chosen = keys.acquire(estimatedTokens, nanoClock.getAsLong());
+			if (chosen != null) {
+				return chosen.key;
 			}
 		}
 
-		// If all keys are in cooldown, DO NOT force use.
+		// If no key has capacity, DO NOT force use.
 		// Throw a specific exception that the listener can catch to requeue the
 		// message.
-		log.warn("All keys for {} are in cooldown/rate-limited state.", provider);
+		log.warn("All keys for {} are in cooldown or out of quota.", provider);
 		throw new KeysExhaustedException("All API keys for " + provider + " are currently in cooldown.");
 	}
 
+	@Override
+	public String awaitKey(KeyProvider provider, long estimatedTokens, Duration maxWait) {
+		ProviderKeys keys = keysFor(provider);
+		long startedAt = nanoClock.getAsLong();
+		long deadline = startedAt + maxWait.toNanos();
+		while (true) {
+			long waitNanos;
+			synchronized (keys) {
+				long now = nanoClock.getAsLong();
+				KeyState chosen = keys.acquire(estimatedTokens, now);
+				if (chosen != null) {
+					keys.waitTimer.record(now - startedAt, TimeUnit.NANOSECONDS);
+					return chosen.key;
+				}
+				waitNanos = Math.max(MIN_WAIT_NANOS, keys.nanosUntilCapacity(estimatedTokens, now));
+				if (now + waitNanos > deadline) {
+					log.warn("No key for {} regains capacity within {}.", provider, maxWait);
+					throw new KeysExhaustedException(
+							"No API key for " + provider + " has capacity within " + maxWait + ".");
+				}
+			}
+			log.debug("All keys for {} are busy; waiting {} ms for capacity.", provider,
+					TimeUnit.NANOSECONDS.toMillis(waitNanos));
+			try {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new KeysExhaustedException("Interrupted while waiting for an API key for " + provider + ".");
+			}
+		}
+	}
+
+	@Override
+	public boolean tryKey(KeyProvider provider, String key) {
+		ProviderKeys keys = providers.get(provider);
+		return keys != null && tryKey(provider, key, keys.quota.defaultRequestTokens());
+	}
+
+	@Override
+	public boolean tryKey(KeyProvider provider, String key, long estimatedTokens) {
+		ProviderKeys keys = providers.get(provider);
+		KeyState state = keys != null ? keys.byKey.get(key) : null;
+		if (state == null) {
+			return false;
+		}
+		synchronized (keys) {
+			long now = nanoClock.getAsLong();
+			if (state.headroomAfter(estimatedTokens, now) < 0) {
+				return false;
+			}
+			state.charge(estimatedTokens, now);
+			return true;
+		}
+	}
+
+	@Override
+	public int getKeyCount(KeyProvider provider) {
+		ProviderKeys keys = providers.get(provider);
+		return keys != null ? keys.states.size() : 0;
+	}
+
 	@Override
 	public void reportError(KeyProvider provider, String key, int statusCode) {
-		if (isRateLimitError(statusCode)) {
-			log.warn("Rate limit error ({}) reported for key: ...{}. Putting in cooldown for {}ms.", statusCode,
-					maskKey(key), COOLDOWN_DURATION_MS);
-			cooldownMap.put(key, System.currentTimeMillis() + COOLDOWN_DURATION_MS);
+		if (!isRateLimitError(statusCode)) {
+			return;
+		}
+		ProviderKeys keys = providers.get(provider);
+		KeyState state = keys != null ? keys.byKey.get(key) : null;
+		if (state == null) {
+			return;
 		}
+		long cooldownMs;
+		synchronized (keys) {
+			cooldownMs = state.rateLimited(nanoClock.getAsLong());
+		}
+		log.warn("Rate limit error ({}) reported for key: ...{}. Putting in cooldown for {}ms.", statusCode,
+				maskKey(key), cooldownMs);
 	}
 
 	@Override
 	public void reportSuccess(KeyProvider provider, String key) {
-		// Optional: If we wanted to implement "slow start" or remove from cooldown
-		// early (if it was a soft error)
-		// For now, we just trust the cooldown timer.
-		// We could clear cooldown if a key suddenly works, but usually 429s require
-		// time.
+		ProviderKeys keys = providers.get(provider);
+		KeyState state = keys != null ? keys.byKey.get(key) : null;
+		if (state != null) {
+			synchronized (keys) {
+				state.consecutiveRateLimits = 0;
+			}
+		}
 	}
 
-	private boolean isCooldown(String key) {
-		Long expiry = cooldownMap.get(key);
-		if (expiry == null) {
-			return false;
+	@Override
+	public void reportUsage(KeyProvider provider, String key, long chargedTokens, long usedTokens) {
+		ProviderKeys keys = providers.get(provider);
+		KeyState state = keys != null ? keys.byKey.get(key) : null;
+		if (state != null) {
+			synchronized (keys) {
+				state.settle(chargedTokens, usedTokens, nanoClock.getAsLong());
+			}
 		}
-		if (System.currentTimeMillis() > expiry) {
-			cooldownMap.remove(key);
-			return false;
+	}
+
+	private ProviderKeys keysFor(KeyProvider provider) {
+		ProviderKeys keys = providers.get(provider);
+		if (keys == null || keys.states.isEmpty()) {
+			throw new RuntimeException("No API keys configured for " + provider);
 		}
-		return true;
+		return keys;
 	}
 
 	private boolean isRateLimitError(int statusCode) {
@@ -148,4 +284,210 @@ public class KeyRotationManagerImpl implements KeyRotationManager {
 			return "********";
 		return key.substring(key.length() - 4);
 	}
+
+	private static String describeLimit(long limit) {
+		return limit > 0 ? String.valueOf(limit) : "unlimited";
+	}
+
+	/**
+	 * Per-key limits of a provider; 0 means the limit is not tracked.
+	 * {@code defaultRequestTokens} is charged when a caller gives no estimate.
+	 */
+	private record Quota(long requestsPerMinute, long tokensPerMinute, long requestsPerDay,
+			long defaultRequestTokens) {
+	}
+
+	/** Keys of one provider. Guarded by its own monitor. */
+	private final class ProviderKeys {
+		private final KeyProvider provider;
+		private final Quota quota;
+		private final List<KeyState> states;
+		private final Map<String, KeyState> byKey = new HashMap<>();
+		private final AtomicInteger counter = new AtomicInteger();
+		private final Timer waitTimer;
+
+		private ProviderKeys(KeyProvider provider, List<String> keys, Quota quota, long now) {
+			this.provider = provider;
+			this.quota = quota;
+			List<KeyState> created = new ArrayList<>();
+			for (int i = 0; i < keys.size(); i++) {
+				KeyState state = new KeyState(keys.get(i), i, quota, now);
+				created.add(state);
+				byKey.put(state.key, state);
+			}
+			this.states = Collections.unmodifiableList(created);
+			this.waitTimer = Timer.builder("audioscholar.api.keys.wait").tag("provider", provider.name())
+					.description("Time callers waited for an API key with capacity").register(meterRegistry);
+		}
+
+		/**
+		 * Picks the key with the most headroom for a request of
+		 * {@code estimatedTokens} and charges it, or returns {@code null} if no key
+		 * can take the request now.
+		 */
+		private KeyState acquire(long estimatedTokens, long now) {
+			int size = states.size();
+			int start = Math.floorMod(counter.getAndIncrement(), size);
+			KeyState best = null;
+			double bestHeadroom = 0;
+			for (int i = 0; i < size; i++) {
+				KeyState candidate = states.get((start + i) % size);
+				double headroom = candidate.headroomAfter(estimatedTokens, now);
+				if (headroom >= 0 && (best == null || headroom > bestHeadroom)) {
+					best = candidate;
+					bestHeadroom = headroom;
+				}
+			}
+			if (best != null) {
+				best.charge(estimatedTokens, now);
+			}
+			return best;
+		}
+
+		private long nanosUntilCapacity(long estimatedTokens, long now) {
+			long soonest = Long.MAX_VALUE;
+			for (KeyState state : states) {
+				soonest = Math.min(soonest, state.nanosUntilCapacity(estimatedTokens, now));
+			}
+			return soonest;
+		}
+
+		private void registerMetrics() {
+			for (KeyState state : states) {
+				registerUtilization(state, "requests_per_minute", state.requestsPerMinute);
+				registerUtilization(state, "tokens_per_minute", state.tokensPerMinute);
+				registerUtilization(state, "requests_per_day", state.requestsPerDay);
+				Gauge.builder("audioscholar.api.keys.cooldown", state,
+						keyState -> keyState.cooldownUntil > nanoClock.getAsLong() ? 1 : 0)
+						.tags("provider", provider.name(), "key", String.valueOf(state.index))
+						.description("Whether the API key is cooling down after a rate limit").register(meterRegistry);
+				state.rateLimits = Counter.builder("audioscholar.api.keys.rate.limited")
+						.tags("provider", provider.name(), "key", String.valueOf(state.index))
+						.description("Rate limit errors reported for the API key").register(meterRegistry);
+			}
+		}
+
+		private void registerUtilization(KeyState state, String limit, TokenBucket bucket) {
+			if (bucket == null) {
+				return;
+			}
+			ToDoubleFunction<TokenBucket> utilization = tracked -> {
+				synchronized (this) {
+					return tracked.utilization(nanoClock.getAsLong());
+				}
+			};
+			Gauge.builder("audioscholar.api.keys.utilization", bucket, utilization)
+					.tags("provider", provider.name(), "key", String.valueOf(state.index), "limit", limit)
+					.description("Share of the API key's quota currently spent").register(meterRegistry);
+		}
+	}
+
+	/** Quota state of one key. Guarded by the monitor of its {@link ProviderKeys}. */
+	private final class KeyState {
+		private final String key;
+		private final int index;
+		private final TokenBucket requestsPerMinute;
+		private final TokenBucket tokensPerMinute;
+		private final TokenBucket requestsPerDay;
+		private long cooldownUntil;
+		private int consecutiveRateLimits;
+		private Counter rateLimits;
+
+		private KeyState(String key, int index, Quota quota, long now) {
+			this.key = key;
+			this.index = index;
+			this.requestsPerMinute = bucket(quota.requestsPerMinute(), Duration.ofMinutes(1), now);
+			this.tokensPerMinute = bucket(quota.tokensPerMinute(), Duration.ofMinutes(1), now);
+			this.requestsPerDay = bucket(quota.requestsPerDay(), Duration.ofDays(1), now);
+		}
+
+		/**
+		 * Smallest share of any tracked budget left after charging the request,
+		 * negative if the key cannot take it now. Keys without limits report 1.
+		 */
+		private double headroomAfter(long estimatedTokens, long now) {
+			if (cooldownUntil - now > 0) {
+				return -1;
+			}
+			double headroom = 1;
+			headroom = Math.min(headroom, headroomAfter(requestsPerMinute, 1, now));
+			headroom = Math.min(headroom, headroomAfter(tokensPerMinute, estimatedTokens, now));
+			headroom = Math.min(headroom, headroomAfter(requestsPerDay, 1, now));
+			return headroom;
+		}
+
+		private void charge(long estimatedTokens, long now) {
+			if (requestsPerMinute != null) {
+				requestsPerMinute.take(1, now);
+			}
+			if (tokensPerMinute != null) {
+				tokensPerMinute.take(cost(tokensPerMinute, estimatedTokens), now);
+			}
+			if (requestsPerDay != null) {
+				requestsPerDay.take(1, now);
+			}
+		}
+
+		/** Corrects the token budget from the charged estimate to what the request used. */
+		private void settle(long chargedTokens, long usedTokens, long now) {
+			if (tokensPerMinute == null) {
+				return;
+			}
+			double difference = cost(tokensPerMinute, chargedTokens) - cost(tokensPerMinute, usedTokens);
+			if (difference > 0) {
+				tokensPerMinute.refund(difference, now);
+			} else if (difference < 0) {
+				tokensPerMinute.take(-difference, now);
+			}
+		}
+
+		private long nanosUntilCapacity(long estimatedTokens, long now) {
+			long wait = Math.max(0, cooldownUntil - now);
+			if (requestsPerMinute != null) {
+				wait = Math.max(wait, requestsPerMinute.nanosUntil(1, now));
+			}
+			if (tokensPerMinute != null) {
+				wait = Math.max(wait, tokensPerMinute.nanosUntil(cost(tokensPerMinute, estimatedTokens), now));
+			}
+			if (requestsPerDay != null) {
+				wait = Math.max(wait, requestsPerDay.nanosUntil(1, now));
+			}
+			return wait;
+		}
+
+		/** Records a rate limit and returns the cooldown in milliseconds. */
+		private long rateLimited(long now) {
+			consecutiveRateLimits++;
+			long cooldownNanos = Math.min(cooldownMax.toNanos(),
+					cooldownInitial.toNanos() << Math.min(consecutiveRateLimits - 1, 20));
+			cooldownUntil = now + cooldownNanos;
+			// The server says this minute's budget is spent, whatever our model thought.
+			if (requestsPerMinute != null) {
+				requestsPerMinute.drain(now);
+			}
+			if (tokensPerMinute != null) {
+				tokensPerMinute.drain(now);
+			}
+			if (rateLimits != null) {
+				rateLimits.increment();
+			}
+			return TimeUnit.NANOSECONDS.toMillis(cooldownNanos);
+		}
+
+		private static double headroomAfter(TokenBucket bucket, long cost, long now) {
+			if (bucket == null) {
+				return 1;
+			}
+			return (bucket.available(now) - cost(bucket, cost)) / bucket.getCapacity();
+		}
+
+		/** A request larger than the whole budget is charged the whole budget, so it can still run. */
+		private static double cost(TokenBucket bucket, long cost) {
+			return Math.min(Math.max(0, cost), bucket.getCapacity());
+		}
+
+		private static TokenBucket bucket(long capacity, Duration period, long now) {
+			return capacity > 0 ? new TokenBucket(capacity, period, now) : null;
+		}
+	}
 }
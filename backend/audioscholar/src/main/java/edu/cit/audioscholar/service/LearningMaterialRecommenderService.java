@@ -44,11 +44,11 @@ import com.optimaize.langdetect.text.TextObject;
 import com.optimaize.langdetect.text.TextObjectFactory;
 
 import edu.cit.audioscholar.dto.AnalysisResults;
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
 import edu.cit.audioscholar.integration.YouTubeAPIClient;
 import edu.cit.audioscholar.model.LearningRecommendation;
 import edu.cit.audioscholar.model.ProcessingStatus;
 import edu.cit.audioscholar.model.Recording;
-import edu.cit.audioscholar.util.RobustTaskExecutor;
 import jakarta.annotation.PostConstruct;
 
 @Service
@@ -61,7 +61,6 @@ public class LearningMaterialRecommenderService {
 	private final FirebaseService firebaseService;
 	private final UserService userService;
 	private final String recommendationsCollectionName;
-	private final RobustTaskExecutor robustTaskExecutor;
 	private static final int MAX_RECOMMENDATIONS_TO_FETCH = 10;
 	private static final int SEARCH_RESULTS_POOL_SIZE = 50;
 	private static final Set<String> EDUCATIONAL_DOMAINS = Set.of("edu", "education", "academic", "university",
@@ -73,8 +72,7 @@ public class LearningMaterialRecommenderService {
 	public LearningMaterialRecommenderService(LectureContentAnalyzerService lectureContentAnalyzerService,
 			YouTubeAPIClient youTubeAPIClient, Firestore firestore, RecordingService recordingService,
 			FirebaseService firebaseService, UserService userService,
-			@Value("${firebase.firestore.collection.recommendations}") String recommendationsCollectionName,
-			RobustTaskExecutor robustTaskExecutor) {
+			@Value("${firebase.firestore.collection.recommendations}") String recommendationsCollectionName) {
 		this.lectureContentAnalyzerService = lectureContentAnalyzerService;
 		this.youTubeAPIClient = youTubeAPIClient;
 		this.firestore = firestore;
@@ -82,7 +80,6 @@ public class LearningMaterialRecommenderService {
 		this.firebaseService = firebaseService;
 		this.userService = userService;
 		this.recommendationsCollectionName = recommendationsCollectionName;
-		this.robustTaskExecutor = robustTaskExecutor;
 	}
 
 	@PostConstruct
@@ -119,9 +116,16 @@ public class LearningMaterialRecommenderService {
 		log.debug("Using search queries for recording ID {}: {}", recordingId, searchQueries);
 
 		try {
-			List<SearchResult> youtubeResults = robustTaskExecutor.executeWithInfiniteRetry(recordingId,
-					"searching YouTube videos",
-					() -> youTubeAPIClient.searchVideos(searchQueries, SEARCH_RESULTS_POOL_SIZE));
+			List<SearchResult> youtubeResults;
+			try {
+				youtubeResults = youTubeAPIClient.searchVideos(searchQueries, SEARCH_RESULTS_POOL_SIZE);
+			} catch (RuntimeException e) {
+				// The client only throws once the API is blocked or out of quota, which retrying
+				// on the summarization thread cannot fix. Finish without recommendations instead.
+				log.warn("YouTube search failed for recording ID: {}. Continuing without recommendations. Error: {}",
+						recordingId, e.getMessage());
+				youtubeResults = Collections.emptyList();
+			}
 
 			if (youtubeResults.isEmpty()) {
 				log.info(
@@ -564,6 +568,25 @@ public class LearningMaterialRecommenderService {
 		}
 	}
 
+	/**
+	 * References to all recommendation documents of a recording, for callers
+	 * that delete them as part of a larger batch. Unlike
+	 * {@link #deleteRecommendationsByRecordingId} this fails loudly.
+	 */
+	public List<DocumentReference> getRecommendationReferences(String recordingId) {
+		try {
+			return firestore.collection(Objects.requireNonNull(recommendationsCollectionName))
+					.whereEqualTo("recordingId", recordingId).get().get().getDocuments().stream()
+					.map(QueryDocumentSnapshot::getReference).toList();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FirestoreInteractionException("Interrupted while listing recommendations for " + recordingId,
+					e);
+		} catch (ExecutionException e) {
+			throw new FirestoreInteractionException("Failed to list recommendations for " + recordingId, e);
+		}
+	}
+
 	public void deleteRecommendationsByRecordingId(String recordingId) {
 		if (!StringUtils.hasText(recordingId)) {
 			log.warn("Attempted to delete recommendations with null or empty recordingId.");
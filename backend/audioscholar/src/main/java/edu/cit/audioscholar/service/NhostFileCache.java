@@ -0,0 +1,426 @@
+package edu.cit.audioscholar.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Size-bounded LRU disk cache for files downloaded from Nhost, keyed by Nhost
+ * file ID. Nhost files are never modified in place, so an entry stays valid
+ * until the file is deleted through {@link NhostStorageService#deleteFile} or
+ * pushed out by newer entries.
+ * <p>
+ * A cached file is handed to the caller as a hard link at the requested path
+ * (or a copy if the temp directory is on another file system), so callers can
+ * delete their copy as usual. Concurrent requests for the same file ID share one
+ * download. Every entry records its length and SHA-256 when it is written; the
+ * length is checked on each hit and the hash as well when
+ * {@code app.nhost-cache.verify-hash-on-hit} is set. A mismatch drops the entry
+ * and downloads the file again. The index is rebuilt from disk on startup, so
+ * entries survive restarts and redeliveries.
+ */
+@Service
+public class NhostFileCache {
+
+	private static final Logger log = LoggerFactory.getLogger(NhostFileCache.class);
+
+	private static final String DATA_SUFFIX = ".bin";
+	private static final String SIDECAR_SUFFIX = ".sha256";
+	private static final String PART_SUFFIX = ".part";
+
+	/** Writes the content of a Nhost file to the given path. */
+	@FunctionalInterface
+	public interface Fetcher {
+		void fetchTo(Path target) throws IOException;
+	}
+
+	private record Entry(Path path, long size, String sha256) {
+	}
+
+	private final boolean enabled;
+	private final Path directory;
+	private final long maxBytes;
+	private final boolean verifyHashOnHit;
+	private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+	private long cachedBytes;
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter sharedFetches;
+	private final Counter evictions;
+	private final Counter invalidEntries;
+
+	public NhostFileCache(@Value("${app.nhost-cache.enabled:true}") boolean enabled,
+			@Value("${app.nhost-cache.dir:${java.io.tmpdir}/audioscholar_nhost_cache}") String directory,
+			@Value("${app.nhost-cache.max-size:1GB}") String maxSize,
+			@Value("${app.nhost-cache.verify-hash-on-hit:false}") boolean verifyHashOnHit,
+			MeterRegistry meterRegistry) {
+		this.enabled = enabled;
+		this.directory = Paths.get(directory).toAbsolutePath();
+		this.maxBytes = DataSize.parse(maxSize).toBytes();
+		this.verifyHashOnHit = verifyHashOnHit;
+
+		Gauge.builder("audioscholar.nhost.cache.size", this, NhostFileCache::getCachedBytes).baseUnit("bytes")
+				.description("Bytes held by the Nhost download cache").register(meterRegistry);
+		Gauge.builder("audioscholar.nhost.cache.entries", this, NhostFileCache::getEntryCount)
+				.description("Files held by the Nhost download cache").register(meterRegistry);
+		this.hits = requestCounter(meterRegistry, "hit");
+		this.misses = requestCounter(meterRegistry, "miss");
+		this.sharedFetches = requestCounter(meterRegistry, "shared");
+		this.evictions = Counter.builder("audioscholar.nhost.cache.evictions")
+				.description("Entries evicted to stay within the cache budget").register(meterRegistry);
+		this.invalidEntries = Counter.builder("audioscholar.nhost.cache.invalid")
+				.description("Entries dropped because their length or hash no longer matched")
+				.register(meterRegistry);
+	}
+
+	@PostConstruct
+	void loadIndex() {
+		if (!enabled) {
+			log.info("Nhost download cache disabled");
+			return;
+		}
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			log.error("Could not create Nhost cache directory: {}", directory, e);
+			throw new RuntimeException("Failed to initialize Nhost cache directory", e);
+		}
+
+		List<Path> dataFiles;
+		try (Stream<Path> files = Files.list(directory)) {
+			dataFiles = files.filter(path -> {
+				String name = path.getFileName().toString();
+				if (name.endsWith(PART_SUFFIX)) {
+					deleteQuietly(path);
+					return false;
+				}
+				return name.endsWith(DATA_SUFFIX);
+			}).sorted(Comparator.comparing(NhostFileCache::lastModified)).toList();
+		} catch (IOException e) {
+			log.warn("Could not scan Nhost cache directory {}: {}", directory, e.getMessage());
+			return;
+		}
+
+		List<Path> evicted;
+		synchronized (index) {
+			for (Path dataFile : dataFiles) {
+				Entry entry = readEntry(dataFile);
+				if (entry == null) {
+					deleteEntryFiles(dataFile);
+					continue;
+				}
+				String name = dataFile.getFileName().toString();
+				index.put(name.substring(0, name.length() - DATA_SUFFIX.length()), entry);
+				cachedBytes += entry.size();
+			}
+			evicted = evictOverBudget(null);
+		}
+		evicted.forEach(this::deleteEntryFiles);
+		log.info("Nhost download cache at {} with budget {}: {} entries, {} bytes restored", directory,
+				DataSize.ofBytes(maxBytes), getEntryCount(), getCachedBytes());
+	}
+
+	/**
+	 * Places the content of {@code fileId} at {@code target}, serving it from the
+	 * cache when possible and otherwise downloading it once with {@code fetcher}.
+	 */
+	public void materialize(String fileId, Path target, Fetcher fetcher) throws IOException {
+		if (!enabled) {
+			fetcher.fetchTo(target);
+			return;
+		}
+		String key = cacheKey(fileId);
+
+		Entry entry = lookup(key);
+		if (entry != null) {
+			hits.increment();
+			log.debug("Nhost cache hit for file {} ({} bytes)", fileId, entry.size());
+			placeOrFetch(entry, target, fetcher);
+			return;
+		}
+
+		CompletableFuture<Entry> ownFetch = new CompletableFuture<>();
+		CompletableFuture<Entry> existing = inFlight.putIfAbsent(key, ownFetch);
+		if (existing != null) {
+			sharedFetches.increment();
+			log.info("Waiting for in-flight download of Nhost file {}", fileId);
+			entry = await(existing, fileId);
+		} else {
+			misses.increment();
+			try {
+				entry = load(key, target, fetcher);
+				ownFetch.complete(entry);
+			} catch (IOException | RuntimeException e) {
+				ownFetch.completeExceptionally(e);
+				throw e;
+			} finally {
+				inFlight.remove(key, ownFetch);
+			}
+			if (entry == null) {
+				return;
+			}
+		}
+
+		if (entry == null) {
+			fetcher.fetchTo(target);
+		} else {
+			placeOrFetch(entry, target, fetcher);
+		}
+	}
+
+	/** Drops the cached copy of {@code fileId}, if any. */
+	public void evict(String fileId) {
+		if (!enabled || fileId == null) {
+			return;
+		}
+		Entry removed;
+		synchronized (index) {
+			removed = index.remove(cacheKey(fileId));
+			if (removed != null) {
+				cachedBytes -= removed.size();
+			}
+		}
+		if (removed != null) {
+			deleteEntryFiles(removed.path());
+			log.debug("Evicted Nhost file {} from cache", fileId);
+		}
+	}
+
+	public long getCachedBytes() {
+		synchronized (index) {
+			return cachedBytes;
+		}
+	}
+
+	public int getEntryCount() {
+		synchronized (index) {
+			return index.size();
+		}
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	@Nullable
+	private Entry lookup(String key) throws IOException {
+		Entry entry;
+		synchronized (index) {
+			entry = index.get(key);
+		}
+		if (entry == null) {
+			return null;
+		}
+		boolean valid;
+		try {
+			valid = Files.size(entry.path()) == entry.size()
+					&& (!verifyHashOnHit || sha256(entry.path()).equals(entry.sha256()));
+		} catch (NoSuchFileException e) {
+			valid = false;
+		}
+		if (!valid) {
+			invalidEntries.increment();
+			log.warn("Cached Nhost file {} failed verification, downloading it again", key);
+			synchronized (index) {
+				if (index.remove(key, entry)) {
+					cachedBytes -= entry.size();
+				}
+			}
+			deleteEntryFiles(entry.path());
+			return null;
+		}
+		try {
+			Files.setLastModifiedTime(entry.path(), FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			log.debug("Could not touch cached file {}: {}", entry.path(), e.getMessage());
+		}
+		return entry;
+	}
+
+	/**
+	 * Downloads into a part file and promotes it into the cache. Files larger
+	 * than the whole budget are moved straight to {@code target} instead, in
+	 * which case this returns {@code null}.
+	 */
+	@Nullable
+	private Entry load(String key, Path target, Fetcher fetcher) throws IOException {
+		Path part = directory.resolve(key + "." + UUID.randomUUID() + PART_SUFFIX);
+		try {
+			fetcher.fetchTo(part);
+			long size = Files.size(part);
+			if (size > maxBytes) {
+				log.info("Nhost file {} ({} bytes) exceeds the cache budget, not caching it", key, size);
+				Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+				return null;
+			}
+			String sha256 = sha256(part);
+			Path dataFile = directory.resolve(key + DATA_SUFFIX);
+			Files.move(part, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			Files.writeString(sidecarFor(dataFile), sha256 + " " + size);
+			Entry entry = new Entry(dataFile, size, sha256);
+
+			List<Path> evicted;
+			synchronized (index) {
+				Entry previous = index.put(key, entry);
+				cachedBytes += size - (previous != null ? previous.size() : 0);
+				evicted = evictOverBudget(key);
+			}
+			evicted.forEach(this::deleteEntryFiles);
+			log.info("Cached Nhost file {} ({} bytes, {} entries / {} bytes in cache)", key, size, getEntryCount(),
+					getCachedBytes());
+			return entry;
+		} finally {
+			deleteQuietly(part);
+		}
+	}
+
+	/** Must be called while holding the index lock. */
+	private List<Path> evictOverBudget(@Nullable String keep) {
+		List<Path> evicted = new ArrayList<>();
+		Iterator<Map.Entry<String, Entry>> eldest = index.entrySet().iterator();
+		while (cachedBytes > maxBytes && eldest.hasNext()) {
+			Map.Entry<String, Entry> candidate = eldest.next();
+			if (candidate.getKey().equals(keep)) {
+				continue;
+			}
+			eldest.remove();
+			cachedBytes -= candidate.getValue().size();
+			evictions.increment();
+			evicted.add(candidate.getValue().path());
+		}
+		return evicted;
+	}
+
+	/**
+	 * Links or copies a cached entry to {@code target}. If the entry was evicted
+	 * in the meantime the file is fetched directly instead.
+	 */
+	private void placeOrFetch(Entry entry, Path target, Fetcher fetcher) throws IOException {
+		try {
+			Files.deleteIfExists(target);
+			try {
+				Files.createLink(target, entry.path());
+			} catch (NoSuchFileException e) {
+				throw e;
+			} catch (UnsupportedOperationException | FileSystemException e) {
+				Files.copy(entry.path(), target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (NoSuchFileException e) {
+			log.debug("Cached file {} disappeared before it could be used, fetching directly", entry.path());
+			fetcher.fetchTo(target);
+		}
+	}
+
+	@Nullable
+	private Entry await(CompletableFuture<Entry> fetch, String fileId) throws IOException {
+		try {
+			return fetch.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for download of Nhost file " + fileId, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException ioException) {
+				throw ioException;
+			}
+			if (cause instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IOException("Download of Nhost file " + fileId + " failed", cause);
+		}
+	}
+
+	@Nullable
+	private Entry readEntry(Path dataFile) {
+		try {
+			String[] parts = Files.readString(sidecarFor(dataFile)).trim().split(" ");
+			if (parts.length != 2) {
+				return null;
+			}
+			long size = Long.parseLong(parts[1]);
+			if (Files.size(dataFile) != size) {
+				return null;
+			}
+			return new Entry(dataFile, size, parts[0]);
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private void deleteEntryFiles(Path dataFile) {
+		deleteQuietly(dataFile);
+		deleteQuietly(sidecarFor(dataFile));
+	}
+
+	private static void deleteQuietly(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			log.debug("Could not delete cache file {}: {}", path, e.getMessage());
+		}
+	}
+
+	private static Path sidecarFor(Path dataFile) {
+		return dataFile.resolveSibling(dataFile.getFileName() + SIDECAR_SUFFIX);
+	}
+
+	private static FileTime lastModified(Path path) {
+		try {
+			return Files.getLastModifiedTime(path);
+		} catch (IOException e) {
+			return FileTime.fromMillis(0);
+		}
+	}
+
+	static String sha256(Path path) throws IOException {
+		MessageDigest digest = ContentDedupService.newDigest();
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(path)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return ContentDedupService.toHex(digest);
+	}
+
+	private static String cacheKey(String fileId) {
+		return fileId.replaceAll("[^A-Za-z0-9_-]", "_");
+	}
+
+	private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("audioscholar.nhost.cache.requests").tag("result", result)
+				.description("Nhost downloads requested through the cache").register(meterRegistry);
+	}
+}
@@ -15,11 +15,13 @@ import java.util.logging.Logger;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
@@ -29,6 +31,8 @@ import org.springframework.web.multipart.MultipartFile;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import edu.cit.audioscholar.util.ParallelRangeDownloader;
+
 @Service
 public class NhostStorageService {
 	private static final Logger LOGGER = Logger.getLogger(NhostStorageService.class.getName());
@@ -37,13 +41,20 @@ public class NhostStorageService {
 	private final String nhostStorageUrl;
 	private final String nhostAdminSecret;
 	private final ObjectMapper objectMapper;
+	private final NhostFileCache fileCache;
+	private final ParallelRangeDownloader rangeDownloader;
 
 	public NhostStorageService(RestTemplate restTemplate, @Value("${nhost.storage.url}") String nhostStorageUrl,
-			@Value("${nhost.storage.admin-secret}") String nhostAdminSecret, ObjectMapper objectMapper) {
+			@Value("${nhost.storage.admin-secret}") String nhostAdminSecret, ObjectMapper objectMapper,
+			NhostFileCache fileCache, @Value("${app.nhost.download.parallel-parts:4}") int parallelParts,
+			@Value("${app.nhost.download.parallel-min-size:32MB}") String parallelMinSize) {
 		this.restTemplate = restTemplate;
 		this.nhostStorageUrl = nhostStorageUrl.endsWith("/v1/files") ? nhostStorageUrl : nhostStorageUrl + "/v1/files";
 		this.nhostAdminSecret = nhostAdminSecret;
 		this.objectMapper = objectMapper;
+		this.fileCache = fileCache;
+		this.rangeDownloader = new ParallelRangeDownloader(restTemplate, parallelParts,
+				DataSize.parse(parallelMinSize).toBytes());
 
 		if (this.nhostAdminSecret == null || this.nhostAdminSecret.isEmpty()
 				|| "${NHOST_ADMIN_SECRET}".equals(this.nhostAdminSecret)) {
@@ -82,6 +93,40 @@ public class NhostStorageService {
 		LOGGER.log(Level.INFO, "Uploading file {0} ({1} bytes) from path {2} to Nhost URL: {3}",
 				new Object[]{filenameToLog, file.length(), file.getAbsolutePath(), nhostStorageUrl});
 
+		return executeUpload(requestEntity);
+	}
+
+	/**
+	 * Streams the given input straight into a multipart upload without staging it
+	 * on local disk first. The stream is consumed exactly once and closed by the
+	 * caller.
+	 */
+	public String uploadStream(InputStream inputStream, long contentLength, String originalFilename,
+			String contentType) throws IOException {
+		if (inputStream == null) {
+			throw new IOException("Input stream is null for file: " + originalFilename);
+		}
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+		headers.set("x-hasura-admin-secret", nhostAdminSecret);
+
+		HttpHeaders partHeaders = new HttpHeaders();
+		if (StringUtils.hasText(contentType)) {
+			partHeaders.setContentType(MediaType.parseMediaType(contentType));
+		}
+		MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+		body.add("file", new HttpEntity<>(new NamedInputStreamResource(inputStream, originalFilename, contentLength),
+				partHeaders));
+
+		HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+
+		LOGGER.log(Level.INFO, "Streaming file {0} ({1} bytes) to Nhost URL: {2}",
+				new Object[]{originalFilename, contentLength, nhostStorageUrl});
+
+		return executeUpload(requestEntity);
+	}
+
+	private String executeUpload(HttpEntity<MultiValueMap<String, Object>> requestEntity) throws IOException {
 		try {
 			ResponseEntity<String> rawResponse = restTemplate.exchange(nhostStorageUrl, HttpMethod.POST, requestEntity,
 					String.class);
@@ -100,6 +145,27 @@ public class NhostStorageService {
 		}
 	}
 
+	private static class NamedInputStreamResource extends InputStreamResource {
+		private final String filename;
+		private final long contentLength;
+
+		NamedInputStreamResource(InputStream inputStream, String filename, long contentLength) {
+			super(inputStream);
+			this.filename = filename;
+			this.contentLength = contentLength;
+		}
+
+		@Override
+		public String getFilename() {
+			return filename;
+		}
+
+		@Override
+		public long contentLength() {
+			return contentLength;
+		}
+	}
+
 	@Deprecated
 	public String uploadFile(MultipartFile file) throws IOException {
 		LOGGER.log(Level.WARNING, "Deprecated uploadFile(MultipartFile) called. Use uploadFile(File) instead.");
@@ -159,12 +225,22 @@ public class NhostStorageService {
 			throw new IllegalArgumentException("Target path cannot be null.");
 		}
 
+		fileCache.materialize(fileId, targetPath, path -> fetchFileToPath(fileId, path));
+	}
+
+	private void fetchFileToPath(String fileId, Path targetPath) throws IOException {
 		String downloadUrl = getPublicUrl(fileId);
 		LOGGER.log(Level.INFO, "Attempting to stream download PUBLIC file from Nhost URL: {0} to path: {1}",
 				new Object[]{downloadUrl, targetPath.toAbsolutePath()});
 
 		try {
-			restTemplate.execute(new URI(downloadUrl), HttpMethod.GET, null, clientHttpResponse -> {
+			URI downloadUri = new URI(downloadUrl);
+			if (rangeDownloader.download(downloadUri, targetPath)) {
+				LOGGER.log(Level.INFO, "Successfully downloaded file ID: {0} to {1} using parallel ranges",
+						new Object[]{fileId, targetPath.toAbsolutePath()});
+				return;
+			}
+			restTemplate.execute(downloadUri, HttpMethod.GET, null, clientHttpResponse -> {
 				HttpStatusCode statusCode = clientHttpResponse.getStatusCode();
 				if (statusCode == HttpStatus.OK) {
 					try (InputStream inputStream = clientHttpResponse.getBody()) {
@@ -284,6 +360,7 @@ public class NhostStorageService {
 			return;
 		}
 
+		fileCache.evict(fileId);
 		String deleteUrl = nhostStorageUrl + "/" + fileId;
 		LOGGER.log(Level.INFO, "Attempting to delete Nhost file with ID: {0} using URL: {1}",
 				new Object[]{fileId, deleteUrl});
@@ -10,8 +10,6 @@ import java.time.Instant;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,19 +38,28 @@ public class NhostUploadListenerService {
 	private final FirebaseService firebaseService;
 	private final NhostStorageService nhostStorageService;
 	private final RabbitTemplate rabbitTemplate;
+	private final ContentDedupService contentDedupService;
+	private final TempFileStore tempFileStore;
 	@SuppressWarnings("unused")
 	private final ObjectMapper objectMapper;
-	private final Map<String, Lock> metadataLocks = new HashMap<>();
+	private final RecordingLeaseService leaseService;
+	private final DelayedRequeueService delayedRequeueService;
 
 	public NhostUploadListenerService(FirebaseService firebaseService, NhostStorageService nhostStorageService,
-			RabbitTemplate rabbitTemplate, ObjectMapper objectMapper) {
+			RabbitTemplate rabbitTemplate, ContentDedupService contentDedupService, TempFileStore tempFileStore,
+			RecordingLeaseService leaseService, DelayedRequeueService delayedRequeueService,
+			ObjectMapper objectMapper) {
 		this.firebaseService = firebaseService;
 		this.nhostStorageService = nhostStorageService;
 		this.rabbitTemplate = rabbitTemplate;
+		this.contentDedupService = contentDedupService;
+		this.tempFileStore = tempFileStore;
+		this.leaseService = leaseService;
+		this.delayedRequeueService = delayedRequeueService;
 		this.objectMapper = objectMapper;
 	}
 
-	@RabbitListener(queues = RabbitMQConfig.UPLOAD_QUEUE_NAME)
+	@RabbitListener(queues = RabbitMQConfig.UPLOAD_QUEUE_NAME, containerFactory = "uploadContainerFactory")
 	public void handleNhostUploadRequest(NhostUploadMessage message, Message amqpMessage) {
 		if (amqpMessage != null && amqpMessage.getMessageProperties() != null) {
 			Date timestamp = amqpMessage.getMessageProperties().getTimestamp();
@@ -112,15 +119,35 @@ public class NhostUploadListenerService {
 			return;
 		}
 
-		Lock lock = metadataLocks.computeIfAbsent(metadataId, k -> new ReentrantLock());
-		lock.lock();
-		log.debug("Acquired lock for metadataId {}", metadataId);
-
+		// Audio and slides touch different fields, so each file kind has its own lease and both upload at once.
+		Map<String, Object> headers = amqpMessage != null && amqpMessage.getMessageProperties() != null
+				? amqpMessage.getMessageProperties().getHeaders()
+				: null;
+		RecordingLeaseService.Lease lease;
 		try {
+			lease = leaseService.tryAcquire(
+					isAudio ? RecordingLeaseService.Purpose.UPLOAD_AUDIO : RecordingLeaseService.Purpose.UPLOAD_PPTX,
+					metadataId);
+		} catch (FirestoreInteractionException e) {
+			delayedRequeueService.redeliverLater(PipelineStage.UPLOAD, metadataId, message, headers,
+					fileType + " upload lease store unavailable");
+			return;
+		}
+		if (lease == null) {
+			// The holder may have died; coming back after its lease runs out lets this job take over.
+			if (!delayedRequeueService.defer(PipelineStage.UPLOAD, metadataId, message, headers,
+					"another worker holds the " + fileType + " upload lease")) {
+				log.info("[{}] Upload lease for {} still held after the last deferral. Dropping duplicate message.",
+						metadataId, fileType);
+			}
+			return;
+		}
+
+		try (lease) {
 			metadata = firebaseService.getAudioMetadataById(metadataId);
 			if (metadata == null) {
 				log.error(
-						"[Nhost Upload Listener] Metadata not found for ID: {} after acquiring lock. Cannot process upload message.",
+						"[Nhost Upload Listener] Metadata not found for ID: {} after acquiring lease. Cannot process upload message.",
 						metadataId);
 				deleteTempFileHelper(tempFilePathStr, metadataId, fileType);
 				return;
@@ -179,9 +206,6 @@ public class NhostUploadListenerService {
 
 			updateMetadataAfterUpload(metadata, nhostFileId, isAudio);
 
-			// checkUploadCompletionAndTriggerProcessing(metadata); // Disabled for parallel
-			// processing
-
 			deleteTempFileHelper(tempFilePathStr, metadataId, fileType);
 
 		} catch (Exception e) {
@@ -192,9 +216,6 @@ public class NhostUploadListenerService {
 			if (tempFilePathStr != null) {
 				deleteTempFileHelper(tempFilePathStr, metadataId, fileType);
 			}
-		} finally {
-			lock.unlock();
-			log.debug("Released lock for metadataId {}", metadataId);
 		}
 	}
 
@@ -232,24 +253,25 @@ public class NhostUploadListenerService {
 		if (!StringUtils.hasText(tempFilePathStr))
 			return;
 		Path tempPath = Paths.get(tempFilePathStr);
-		try {
-			if (Files.exists(tempPath)) {
-				Files.delete(tempPath);
-				log.info("Cleaned up temporary {} file {} for metadataId {}", fileType, tempPath, metadataId);
-			}
-		} catch (IOException ioException) {
-			log.warn("Could not delete temporary {} file {} for metadataId {}: {}", fileType, tempPath, metadataId,
-					ioException.getMessage());
-		}
+		tempFileStore.release(tempPath);
+		log.info("Released temporary {} file {} for metadataId {}", fileType, tempPath, metadataId);
 	}
 
-	private void updateMetadataAfterUpload(AudioMetadata metadata, String nhostFileId, boolean isAudio) {
+	public void updateMetadataAfterUpload(AudioMetadata metadata, String nhostFileId, boolean isAudio) {
 		String metadataId = metadata.getId();
 		String userId = metadata.getUserId();
 		Map<String, Object> updates = new HashMap<>();
 		String fieldName = isAudio ? "nhostFileId" : "nhostPptxFileId";
 		updates.put(fieldName, nhostFileId);
 
+		if (isAudio) {
+			contentDedupService.register(metadata.getAudioContentHash(), "audio", nhostFileId, metadata.getFileSize(),
+					metadata.getContentType());
+		} else {
+			contentDedupService.register(metadata.getPptxContentHash(), "powerpoint", nhostFileId,
+					metadata.getPptxFileSize(), metadata.getPptxContentType());
+		}
+
 		if (isAudio) {
 			updates.put("audioUploadComplete", true);
 			metadata.setAudioUploadComplete(true);
@@ -347,57 +369,6 @@ public class NhostUploadListenerService {
 		}
 	}
 
-	private void checkUploadCompletionAndTriggerProcessing(AudioMetadata latestMetadata) {
-		if (latestMetadata == null) {
-			log.error("[Completion Check] Received null metadata. Cannot proceed.");
-			return;
-		}
-		String metadataId = latestMetadata.getId();
-		ProcessingStatus currentStatus = latestMetadata.getStatus();
-
-		if (currentStatus != ProcessingStatus.UPLOAD_IN_PROGRESS && currentStatus != ProcessingStatus.UPLOAD_PENDING) {
-			log.info("[Completion Check - {}] Status is already {}. No action needed.", metadataId, currentStatus);
-			return;
-		}
-
-		boolean audioUploadDone = StringUtils.hasText(latestMetadata.getNhostFileId());
-		boolean pptxUploadRequired = StringUtils.hasText(latestMetadata.getOriginalPptxFileName());
-		boolean pptxProcessingDone = !pptxUploadRequired || latestMetadata.isPdfConversionComplete();
-
-		boolean allProcessingReady = audioUploadDone && pptxProcessingDone;
-
-		log.info("[Completion Check - {}] Details: AudioDone={}, PptxRequired={}, PptxConvDone={}, AllReadyForNext={}",
-				metadataId, audioUploadDone, pptxUploadRequired, latestMetadata.isPdfConversionComplete(),
-				allProcessingReady);
-
-		if (allProcessingReady) {
-			log.info(
-					"[Completion Check - {}] All required uploads/conversions complete. Triggering next steps (Transcription) and setting status to PROCESSING_QUEUED.",
-					metadataId);
-
-			updateStatus(metadataId, latestMetadata.getUserId(), ProcessingStatus.PROCESSING_QUEUED, null);
-
-			AudioProcessingMessage transcriptionMessage = new AudioProcessingMessage();
-			transcriptionMessage.setMetadataId(metadataId);
-			transcriptionMessage.setUserId(latestMetadata.getUserId());
-
-			try {
-				rabbitTemplate.convertAndSend(RabbitMQConfig.PROCESSING_EXCHANGE_NAME,
-						RabbitMQConfig.TRANSCRIPTION_ROUTING_KEY, transcriptionMessage);
-				log.info("Sent message (transcription queue) for metadataId {} to exchange '{}' with key '{}'",
-						metadataId, RabbitMQConfig.PROCESSING_EXCHANGE_NAME, RabbitMQConfig.TRANSCRIPTION_ROUTING_KEY);
-			} catch (Exception e) {
-				log.error("[{}] Failed to send message to transcription queue: {}", metadataId, e.getMessage(), e);
-				updateStatus(metadataId, latestMetadata.getUserId(), ProcessingStatus.FAILED,
-						"Failed to queue transcription");
-			}
-
-		} else {
-			log.info("[Completion Check - {}] Not all uploads/conversions complete yet. Current status: {}. Waiting...",
-					metadataId, currentStatus);
-		}
-	}
-
 	private void invalidateUserCache(@Nullable String userId) {
 	}
 }
@@ -0,0 +1,53 @@
+package edu.cit.audioscholar.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * AMQP headers that travel with a pipeline job across deferrals and retries.
+ * Everything under {@link #PREFIX} is copied onto the republished message, so
+ * a job that is both deferred and retried keeps both counts.
+ */
+final class PipelineHeaders {
+
+	static final String PREFIX = "x-audioscholar-";
+	static final String DEFERRALS = PREFIX + "deferrals";
+	static final String FAILED_ATTEMPTS = PREFIX + "failed-attempts";
+	static final String FIRST_FAILURE_AT = PREFIX + "first-failure-at";
+	static final String RETRY_DELAY_MS = PREFIX + "retry-delay-ms";
+	static final String STAGE = PREFIX + "stage";
+	static final String METADATA_ID = PREFIX + "metadata-id";
+	static final String LAST_ERROR = PREFIX + "last-error";
+
+	private PipelineHeaders() {
+	}
+
+	static Map<String, Object> carried(@Nullable Map<String, Object> headers) {
+		Map<String, Object> carried = new HashMap<>();
+		if (headers != null) {
+			headers.forEach((name, value) -> {
+				if (name.startsWith(PREFIX) && value != null) {
+					carried.put(name, value);
+				}
+			});
+		}
+		return carried;
+	}
+
+	static long longValue(@Nullable Map<String, Object> headers, String name, long defaultValue) {
+		Object value = headers != null ? headers.get(name) : null;
+		if (value instanceof Number number) {
+			return number.longValue();
+		}
+		if (value != null) {
+			try {
+				return Long.parseLong(value.toString());
+			} catch (NumberFormatException e) {
+				return defaultValue;
+			}
+		}
+		return defaultValue;
+	}
+}
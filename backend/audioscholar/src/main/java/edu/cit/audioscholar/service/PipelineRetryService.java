@@ -0,0 +1,270 @@
+package edu.cit.audioscholar.service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import com.google.cloud.Timestamp;
+
+import edu.cit.audioscholar.config.RabbitMQConfig;
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
+import edu.cit.audioscholar.util.FailureClassifier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runs a pipeline job and, when it fails, hands the retry to the broker
+ * instead of sleeping on the listener thread.
+ * <p>
+ * Retries are spaced with decorrelated jitter: each delay is drawn between the
+ * base delay and three times the previous one, capped, so recordings that
+ * failed together do not come back together. The failure count, the time of
+ * the first failure and the last delay travel with the job as message headers.
+ * A job is parked instead of retried when its failure is not retryable (see
+ * {@link FailureClassifier}) or when the stage's attempt or time budget is
+ * spent. Parked jobs wait on {@link RabbitMQConfig#PARKING_LOT_QUEUE_NAME}
+ * until an admin replays them.
+ * <p>
+ * A retry is published before the failed delivery is acked, onto a durable
+ * retry queue where it waits out its delay (see
+ * {@link RabbitMQConfig#RETRY_EXCHANGE_NAME}), so it survives a restart of
+ * this instance.
+ */
+@Service
+public class PipelineRetryService {
+
+	private static final Logger log = LoggerFactory.getLogger(PipelineRetryService.class);
+	private static final int MAX_ERROR_LENGTH = 500;
+
+	public enum Outcome {
+		SUCCEEDED, RETRY_SCHEDULED, PARKED
+	}
+
+	private record Budget(int maxAttempts, Duration maxElapsed) {
+	}
+
+	private final RabbitTemplate rabbitTemplate;
+	private final FirebaseService firebaseService;
+	private final long baseDelayMs;
+	private final long maxDelayMs;
+	private final Map<PipelineStage, Budget> budgets = new EnumMap<>(PipelineStage.class);
+	private final MeterRegistry meterRegistry;
+
+	public PipelineRetryService(RabbitTemplate rabbitTemplate, FirebaseService firebaseService,
+			@Value("${app.retry.base-delay-ms:2000}") long baseDelayMs,
+			@Value("${app.retry.max-delay-ms:300000}") long maxDelayMs,
+			@Value("${app.retry.transcription.max-attempts:8}") int transcriptionMaxAttempts,
+			@Value("${app.retry.transcription.max-elapsed-minutes:120}") long transcriptionMaxElapsedMinutes,
+			@Value("${app.retry.summarization.max-attempts:6}") int summarizationMaxAttempts,
+			@Value("${app.retry.summarization.max-elapsed-minutes:60}") long summarizationMaxElapsedMinutes,
+			MeterRegistry meterRegistry) {
+		this.rabbitTemplate = rabbitTemplate;
+		this.firebaseService = firebaseService;
+		this.baseDelayMs = Math.max(1, baseDelayMs);
+		this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+		this.meterRegistry = meterRegistry;
+		budgets.put(PipelineStage.TRANSCRIPTION,
+				new Budget(Math.max(1, transcriptionMaxAttempts), Duration.ofMinutes(transcriptionMaxElapsedMinutes)));
+		budgets.put(PipelineStage.SUMMARIZATION,
+				new Budget(Math.max(1, summarizationMaxAttempts), Duration.ofMinutes(summarizationMaxElapsedMinutes)));
+	}
+
+	/**
+	 * Runs {@code task} for the job. If it throws, the job is either scheduled
+	 * for another attempt or parked; the method returns in both cases without
+	 * waiting. If the retry cannot be published the {@link AmqpException}
+	 * propagates, so the failed delivery is not acked and the broker redelivers
+	 * it.
+	 *
+	 * @param payload
+	 *            the message body, republished as is
+	 * @param headers
+	 *            the headers of the message being handled
+	 * @param onParked
+	 *            called with the failure when the job is parked, so the caller
+	 *            can record it on the recording
+	 */
+	public Outcome run(PipelineStage stage, String metadataId, Object payload, @Nullable Map<String, Object> headers,
+			Runnable task, Consumer<RuntimeException> onParked) {
+		try {
+			task.run();
+			return Outcome.SUCCEEDED;
+		} catch (RuntimeException e) {
+			Outcome outcome = handleFailure(stage, metadataId, payload, headers, e);
+			if (outcome == Outcome.PARKED) {
+				onParked.accept(e);
+			}
+			return outcome;
+		}
+	}
+
+	private Outcome handleFailure(PipelineStage stage, String metadataId, Object payload,
+			@Nullable Map<String, Object> headers, RuntimeException error) {
+		Budget budget = budgets.get(stage);
+		long now = System.currentTimeMillis();
+		int failures = (int) PipelineHeaders.longValue(headers, PipelineHeaders.FAILED_ATTEMPTS, 0) + 1;
+		long firstFailureAt = PipelineHeaders.longValue(headers, PipelineHeaders.FIRST_FAILURE_AT, now);
+		long previousDelay = PipelineHeaders.longValue(headers, PipelineHeaders.RETRY_DELAY_MS, baseDelayMs);
+		long delayMs = nextDelayMs(baseDelayMs, maxDelayMs, previousDelay, ThreadLocalRandom.current());
+
+		Map<String, Object> carried = PipelineHeaders.carried(headers);
+		carried.put(PipelineHeaders.FAILED_ATTEMPTS, failures);
+		carried.put(PipelineHeaders.FIRST_FAILURE_AT, firstFailureAt);
+		carried.put(PipelineHeaders.RETRY_DELAY_MS, delayMs);
+		carried.put(PipelineHeaders.LAST_ERROR, truncate(rootMessage(error)));
+
+		String parkReason = null;
+		if (!FailureClassifier.isRetryable(error)) {
+			parkReason = "failure is not retryable";
+		} else if (failures >= budget.maxAttempts()) {
+			parkReason = "attempt budget of " + budget.maxAttempts() + " spent";
+		} else if (now + delayMs - firstFailureAt > budget.maxElapsed().toMillis()) {
+			parkReason = "time budget of " + budget.maxElapsed().toMinutes() + " minutes spent";
+		}
+
+		if (parkReason != null) {
+			log.error("[{}] {} failed (attempt {}), {}. Parking the job. Error: {}", metadataId, stage, failures,
+					parkReason, error.getMessage(), error);
+			park(stage, metadataId, payload, carried);
+			counter(stage, "parked").increment();
+			return Outcome.PARKED;
+		}
+
+		publishRetry(stage, metadataId, payload, carried, delayMs);
+		counter(stage, "scheduled").increment();
+		log.warn("[{}] {} failed (attempt {}/{}). Retrying in {}ms. Error: {}", metadataId, stage, failures,
+				budget.maxAttempts(), delayMs, error.getMessage());
+		return Outcome.RETRY_SCHEDULED;
+	}
+
+	/**
+	 * Decorrelated jitter: a random delay between {@code base} and three times
+	 * the previous delay, capped at {@code cap}.
+	 */
+	static long nextDelayMs(long base, long cap, long previous, RandomGenerator random) {
+		long upper = Math.min(cap, Math.max(base, previous) * 3);
+		if (upper <= base) {
+			return Math.min(base, cap);
+		}
+		return random.nextLong(base, upper + 1);
+	}
+
+	private void publishRetry(PipelineStage stage, String metadataId, Object payload, Map<String, Object> headers,
+			long delayMs) {
+		String tier = RabbitMQConfig.retryTierFor(delayMs);
+		try {
+			rabbitTemplate.convertAndSend(RabbitMQConfig.RETRY_EXCHANGE_NAME, stage.getRoutingKey(), payload,
+					message -> {
+						MessageProperties properties = message.getMessageProperties();
+						headers.forEach(properties::setHeader);
+						properties.setHeader(RabbitMQConfig.RETRY_TIER_HEADER, tier);
+						properties.setExpiration(String.valueOf(delayMs));
+						return message;
+					});
+		} catch (AmqpException e) {
+			log.error("[{}] Could not publish retry of {}. Leaving the delivery for the broker to redeliver. Error: {}",
+					metadataId, stage, e.getMessage());
+			throw e;
+		}
+	}
+
+	private void park(PipelineStage stage, String metadataId, Object payload, Map<String, Object> headers) {
+		headers.put(PipelineHeaders.STAGE, stage.name());
+		headers.put(PipelineHeaders.METADATA_ID, metadataId);
+		rabbitTemplate.convertAndSend(RabbitMQConfig.PROCESSING_EXCHANGE_NAME, RabbitMQConfig.PARKING_LOT_ROUTING_KEY,
+				payload, message -> {
+					headers.forEach(message.getMessageProperties()::setHeader);
+					return message;
+				});
+	}
+
+	/** Number of jobs waiting in the parking lot. */
+	public long countParked() {
+		Long count = rabbitTemplate
+				.execute(channel -> (long) channel.messageCount(RabbitMQConfig.PARKING_LOT_QUEUE_NAME));
+		return count != null ? count : 0;
+	}
+
+	/**
+	 * Sends up to {@code limit} parked jobs back to their stage with a fresh
+	 * retry budget. The recording's status is reset first so the stage's
+	 * listener accepts the job again.
+	 *
+	 * @return the number of jobs replayed
+	 */
+	public int replayParked(int limit) {
+		int replayed = 0;
+		for (int i = 0; i < limit; i++) {
+			Message message = rabbitTemplate.receive(RabbitMQConfig.PARKING_LOT_QUEUE_NAME);
+			if (message == null) {
+				break;
+			}
+			MessageProperties properties = message.getMessageProperties();
+			Object stageHeader = properties.getHeader(PipelineHeaders.STAGE);
+			Object metadataHeader = properties.getHeader(PipelineHeaders.METADATA_ID);
+			PipelineStage stage;
+			try {
+				stage = PipelineStage.valueOf(String.valueOf(stageHeader));
+			} catch (IllegalArgumentException e) {
+				log.error("Discarding parked message without a known stage ({}): {}", stageHeader, properties);
+				continue;
+			}
+			String metadataId = String.valueOf(metadataHeader);
+			try {
+				resetStatus(stage, metadataId);
+			} catch (FirestoreInteractionException e) {
+				log.error("[{}] Could not reset status for replay. Leaving the job parked. Error: {}", metadataId,
+						e.getMessage());
+				rabbitTemplate.send(RabbitMQConfig.PROCESSING_EXCHANGE_NAME, RabbitMQConfig.PARKING_LOT_ROUTING_KEY,
+						message);
+				break;
+			}
+			properties.getHeaders().keySet().removeIf(name -> name.startsWith(PipelineHeaders.PREFIX));
+			rabbitTemplate.send(RabbitMQConfig.PROCESSING_EXCHANGE_NAME, stage.getRoutingKey(), message);
+			replayed++;
+			log.info("[{}] Replayed parked {} job.", metadataId, stage);
+		}
+		return replayed;
+	}
+
+	private void resetStatus(PipelineStage stage, String metadataId) {
+		Map<String, Object> updates = new HashMap<>();
+		updates.put("status", stage.getQueuedStatus().name());
+		updates.put("failureReason", null);
+		updates.put("lastUpdated", Timestamp.now());
+		firebaseService.updateDataWithMap(firebaseService.getAudioMetadataCollectionName(), metadataId, updates);
+	}
+
+	private Counter counter(PipelineStage stage, String outcome) {
+		return Counter.builder("audioscholar.pipeline.retries").tag("stage", stage.name().toLowerCase())
+				.tag("outcome", outcome).description("Failed pipeline jobs by what happened next")
+				.register(meterRegistry);
+	}
+
+	private static String rootMessage(Throwable error) {
+		Throwable root = error;
+		while (root.getCause() != null && root.getCause() != root) {
+			root = root.getCause();
+		}
+		return root.getClass().getSimpleName() + ": " + root.getMessage();
+	}
+
+	private static String truncate(String text) {
+		return text.length() > MAX_ERROR_LENGTH ? text.substring(0, MAX_ERROR_LENGTH) : text;
+	}
+}
@@ -0,0 +1,32 @@
+package edu.cit.audioscholar.service;
+
+import edu.cit.audioscholar.config.RabbitMQConfig;
+import edu.cit.audioscholar.model.ProcessingStatus;
+
+/**
+ * Pipeline stages whose jobs can be parked and redelivered, with the routing
+ * key that reaches the stage's queue and the status a recording needs for the
+ * stage's listener to pick the job up again.
+ */
+public enum PipelineStage {
+	UPLOAD(RabbitMQConfig.UPLOAD_AUDIO_ROUTING_KEY, ProcessingStatus.UPLOAD_IN_PROGRESS),
+	PDF_CONVERSION(RabbitMQConfig.PPTX_CONVERSION_ROUTING_KEY, ProcessingStatus.PROCESSING_QUEUED),
+	TRANSCRIPTION(RabbitMQConfig.TRANSCRIPTION_ROUTING_KEY, ProcessingStatus.PROCESSING_QUEUED),
+	SUMMARIZATION(RabbitMQConfig.SUMMARIZATION_ROUTING_KEY, ProcessingStatus.SUMMARIZATION_QUEUED);
+
+	private final String routingKey;
+	private final ProcessingStatus queuedStatus;
+
+	PipelineStage(String routingKey, ProcessingStatus queuedStatus) {
+		this.routingKey = routingKey;
+		this.queuedStatus = queuedStatus;
+	}
+
+	public String getRoutingKey() {
+		return routingKey;
+	}
+
+	public ProcessingStatus getQueuedStatus() {
+		return queuedStatus;
+	}
+}
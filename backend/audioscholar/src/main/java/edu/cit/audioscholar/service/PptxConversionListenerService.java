@@ -2,15 +2,12 @@ package edu.cit.audioscholar.service;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -18,6 +15,7 @@ import com.google.cloud.Timestamp;
 
 import edu.cit.audioscholar.config.RabbitMQConfig;
 import edu.cit.audioscholar.dto.AudioProcessingMessage;
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
 import edu.cit.audioscholar.model.AudioMetadata;
 import edu.cit.audioscholar.model.ProcessingStatus;
 
@@ -30,51 +28,65 @@ public class PptxConversionListenerService {
 	private final NhostStorageService nhostStorageService;
 	private final ConvertApiService convertApiService;
 	private final RabbitTemplate rabbitTemplate;
+	private final ContentDedupService contentDedupService;
+	private final ProcessingPipelineService processingPipelineService;
 	@SuppressWarnings("unused")
 	private final ObjectMapper objectMapper;
-	private final Map<String, Lock> metadataLocks = new ConcurrentHashMap<>();
+	private final RecordingLeaseService leaseService;
+	private final DelayedRequeueService delayedRequeueService;
 
 	public PptxConversionListenerService(FirebaseService firebaseService, NhostStorageService nhostStorageService,
-			ConvertApiService convertApiService, RabbitTemplate rabbitTemplate, ObjectMapper objectMapper) {
+			ConvertApiService convertApiService, RabbitTemplate rabbitTemplate, ContentDedupService contentDedupService,
+			ProcessingPipelineService processingPipelineService, RecordingLeaseService leaseService,
+			DelayedRequeueService delayedRequeueService, ObjectMapper objectMapper) {
 		this.firebaseService = firebaseService;
 		this.nhostStorageService = nhostStorageService;
 		this.convertApiService = convertApiService;
 		this.rabbitTemplate = rabbitTemplate;
+		this.contentDedupService = contentDedupService;
+		this.processingPipelineService = processingPipelineService;
+		this.leaseService = leaseService;
+		this.delayedRequeueService = delayedRequeueService;
 		this.objectMapper = objectMapper;
 	}
 
-	@RabbitListener(queues = RabbitMQConfig.PPTX_CONVERSION_QUEUE_NAME)
-	public void handlePptxConversion(AudioProcessingMessage messageDto) {
+	@RabbitListener(queues = RabbitMQConfig.PPTX_CONVERSION_QUEUE_NAME,
+			containerFactory = "pptxConversionContainerFactory")
+	public void handlePptxConversion(AudioProcessingMessage messageDto, @Headers Map<String, Object> headers) {
 		String metadataId = messageDto.getMetadataId();
 		logger.info("Processing PPTX conversion for metadata ID: {}", metadataId);
 
-		Lock lock = metadataLocks.computeIfAbsent(metadataId, k -> new ReentrantLock());
-		lock.lock();
-
+		RecordingLeaseService.Lease lease;
 		try {
-			Map<String, Object> metadataMap = firebaseService.getData(firebaseService.getAudioMetadataCollectionName(),
-					metadataId);
+			lease = leaseService.tryAcquire(RecordingLeaseService.Purpose.PDF_CONVERSION, metadataId);
+		} catch (FirestoreInteractionException e) {
+			delayedRequeueService.redeliverLater(PipelineStage.PDF_CONVERSION, metadataId, messageDto, headers,
+					"PDF conversion lease store unavailable");
+			return;
+		}
+		if (lease == null) {
+			// The holder may have died; coming back after its lease runs out lets this job take over.
+			if (!delayedRequeueService.defer(PipelineStage.PDF_CONVERSION, metadataId, messageDto, headers,
+					"another worker holds the PDF conversion lease")) {
+				logger.info("PDF conversion lease for ID: {} still held after the last deferral. Dropping duplicate "
+						+ "message.", metadataId);
+			}
+			return;
+		}
 
-			if (metadataMap == null) {
+		try (lease) {
+			ProcessingPipelineService.Transition begun = processingPipelineService.beginPdfConversion(metadataId);
+			if (begun.metadata() == null) {
 				logger.error("Cannot find metadata for ID: {}. Abandoning PPTX conversion.", metadataId);
 				return;
 			}
-
-			AudioMetadata metadata = AudioMetadata.fromMap(metadataMap);
-			ProcessingStatus currentStatus = metadata.getStatus();
-
-			if (currentStatus == ProcessingStatus.SUMMARY_COMPLETE || currentStatus == ProcessingStatus.SUMMARIZING
-					|| currentStatus == ProcessingStatus.SUMMARIZATION_QUEUED) {
-				logger.info("Skipping PDF conversion as summarization is already in progress or complete (status: {})",
-						currentStatus);
+			AudioMetadata metadata = begun.metadata();
+			if (!begun.applied()) {
+				logger.info("Skipping PDF conversion for ID: {} (status: {}, PDF conversion complete: {})", metadataId,
+						metadata.getStatus(), metadata.isPdfConversionComplete());
 				return;
 			}
 
-			updateStatus(metadataId, ProcessingStatus.PDF_CONVERTING_API, null);
-
-			metadataMap = firebaseService.getData(firebaseService.getAudioMetadataCollectionName(), metadataId);
-			metadata = AudioMetadata.fromMap(metadataMap);
-
 			String nhostPptxFileId = metadata.getNhostPptxFileId();
 			if (nhostPptxFileId == null || nhostPptxFileId.isBlank()) {
 				logger.error("No PPTX file ID found in metadata. Cannot proceed with conversion.");
@@ -96,77 +108,36 @@ public class PptxConversionListenerService {
 			String pdfUrl = convertApiService.convertPptxUrlToPdfUrl(pptxUrl);
 			logger.info("PPTX to PDF conversion successful. PDF URL: {}", pdfUrl);
 
-			Map<String, Object> updates = new HashMap<>();
-			updates.put("convertApiPdfUrl", pdfUrl);
-			updates.put("generatedPdfUrl", pdfUrl);
-			updates.put("pdfConversionComplete", true);
-			updates.put("status", ProcessingStatus.PDF_CONVERSION_COMPLETE.name());
-			updates.put("lastUpdated", Timestamp.now());
-
-			firebaseService.updateDataWithMap(firebaseService.getAudioMetadataCollectionName(), metadataId, updates);
-			logger.info("AudioMetadata updated with PDF details and status PDF_CONVERSION_COMPLETE for ID: {}",
-					metadataId);
-
-			metadataMap = firebaseService.getData(firebaseService.getAudioMetadataCollectionName(), metadataId);
-			metadata = AudioMetadata.fromMap(metadataMap);
-
-			logger.info(
-					"PDF conversion complete for ID: {}. Waiting for transcription (Current status: {}, Transcription complete flag: {}).",
-					metadataId, metadata.getStatus(), metadata.isTranscriptionComplete());
+			ProcessingPipelineService.Transition completed = processingPipelineService
+					.completePdfConversion(metadataId, pdfUrl, lease);
+			if (completed.metadata() == null || !completed.applied()) {
+				logger.info("Recording {} was removed or taken over during PDF conversion. Discarding the result.",
+						metadataId);
+				return;
+			}
+			metadata = completed.metadata();
+			contentDedupService.recordPdf(metadata.getPptxContentHash(), pdfUrl);
 
 			boolean transcriptionDone = metadata.isTranscriptionComplete();
-			boolean pdfDone = metadata.isPdfConversionComplete();
-			boolean isAudioOnly = metadata.isAudioOnly();
-
-			logger.debug("Completion status check for {}: TranscriptionDone={}, PdfConversionDone={}, AudioOnly={}",
-					metadataId, transcriptionDone, pdfDone, isAudioOnly);
-
-			boolean readyForSummarization = transcriptionDone && (pdfDone || isAudioOnly);
-
-			if (readyForSummarization && metadata.getStatus() != ProcessingStatus.SUMMARIZATION_QUEUED
-					&& metadata.getStatus() != ProcessingStatus.SUMMARIZING
-					&& metadata.getStatus() != ProcessingStatus.SUMMARY_COMPLETE) {
-
-				updates = new HashMap<>();
-				updates.put("status", ProcessingStatus.SUMMARIZATION_QUEUED.name());
-				updates.put("lastUpdated", Timestamp.now());
-				firebaseService.updateDataWithMap(firebaseService.getAudioMetadataCollectionName(), metadataId,
-						updates);
-				logger.info("Updated status to SUMMARIZATION_QUEUED for metadata ID: {}", metadataId);
-
-				Map<String, String> message = new HashMap<>();
-				message.put("metadataId", metadataId);
-				message.put("messageId", UUID.randomUUID().toString());
+			if (!completed.summarizationQueued() && !transcriptionDone && !metadata.isAudioOnly()
+					&& metadata.getStatus() != ProcessingStatus.TRANSCRIBING) {
+				logger.info(
+						"PDF conversion is complete but transcription is not yet started or may be stalled. Attempting to trigger/retry transcription process for ID: {}",
+						metadataId);
+				AudioProcessingMessage transcriptionMessage = new AudioProcessingMessage();
+				transcriptionMessage.setMetadataId(metadataId);
+				transcriptionMessage.setUserId(metadata.getUserId());
 
 				rabbitTemplate.convertAndSend(RabbitMQConfig.PROCESSING_EXCHANGE_NAME,
-						RabbitMQConfig.SUMMARIZATION_ROUTING_KEY, message);
-				logger.info("Sent message to summarization queue for metadata ID: {}", metadataId);
-			} else {
-				logger.info(
-						"Conditions not yet met for summarization or already in progress (Transcription: {}, PDF: {}, AudioOnly: {}, Status: {}). Waiting for other processes.",
-						transcriptionDone, pdfDone, isAudioOnly, metadata.getStatus());
-
-				if (pdfDone && !transcriptionDone && !isAudioOnly
-						&& metadata.getStatus() != ProcessingStatus.TRANSCRIBING) {
-					logger.info(
-							"PDF conversion is complete but transcription is not yet started or may be stalled. Attempting to trigger/retry transcription process for ID: {}",
-							metadataId);
-					AudioProcessingMessage transcriptionMessage = new AudioProcessingMessage();
-					transcriptionMessage.setMetadataId(metadataId);
-					transcriptionMessage.setUserId(metadata.getUserId());
-
-					rabbitTemplate.convertAndSend(RabbitMQConfig.PROCESSING_EXCHANGE_NAME,
-							RabbitMQConfig.TRANSCRIPTION_ROUTING_KEY, transcriptionMessage);
-					logger.info("Sent retry message to transcription queue for metadata ID: {}", metadataId);
-				}
+						RabbitMQConfig.TRANSCRIPTION_ROUTING_KEY, transcriptionMessage);
+				logger.info("Sent retry message to transcription queue for metadata ID: {}", metadataId);
+			} else if (!completed.summarizationQueued()) {
+				logger.info("PDF conversion complete for ID: {}. Waiting for transcription (status: {}).", metadataId,
+						metadata.getStatus());
 			}
 		} catch (Exception e) {
 			logger.error("Error during PPTX to PDF conversion: {}", e.getMessage(), e);
 			updateStatus(metadataId, ProcessingStatus.FAILED, "Error converting PPTX to PDF: " + e.getMessage());
-		} finally {
-			lock.unlock();
-			// Optional: Remove lock from map if needed, but keeping it simple for now to
-			// avoid concurrency issues with removal
 		}
 	}
 
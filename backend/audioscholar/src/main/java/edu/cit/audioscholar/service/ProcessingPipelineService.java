@@ -0,0 +1,295 @@
+package edu.cit.audioscholar.service;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+
+import edu.cit.audioscholar.config.RabbitMQConfig;
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
+import edu.cit.audioscholar.model.AudioMetadata;
+import edu.cit.audioscholar.model.ProcessingStatus;
+
+/**
+ * Joins the two parallel branches of the pipeline, transcription and slide
+ * conversion, and queues summarization once both are done.
+ * <p>
+ * Every step is a single Firestore transaction that reads the recording's
+ * metadata, applies the step only if the current state allows it, and
+ * evaluates the join against the state it is about to write. Firestore retries
+ * the transaction when another writer got there first, so two branches
+ * finishing at the same moment cannot both see the other one as pending, and
+ * exactly one of them moves the recording to {@code SUMMARIZATION_QUEUED} and
+ * publishes the message.
+ */
+@Service
+public class ProcessingPipelineService {
+
+	private static final Logger log = LoggerFactory.getLogger(ProcessingPipelineService.class);
+
+	/** Summarization has been queued or has run; the join must not fire again. */
+	private static final Set<ProcessingStatus> SUMMARIZATION_TRIGGERED = EnumSet.of(
+			ProcessingStatus.SUMMARIZATION_QUEUED, ProcessingStatus.SUMMARIZING, ProcessingStatus.SUMMARY_COMPLETE,
+			ProcessingStatus.SUMMARY_FAILED, ProcessingStatus.RECOMMENDATIONS_QUEUED,
+			ProcessingStatus.GENERATING_RECOMMENDATIONS, ProcessingStatus.COMPLETE,
+			ProcessingStatus.COMPLETED_WITH_WARNINGS);
+
+	/** The recording will not progress any further. */
+	private static final Set<ProcessingStatus> STOPPED = EnumSet.of(ProcessingStatus.FAILED,
+			ProcessingStatus.DELETING, ProcessingStatus.PROCESSING_HALTED_NO_SPEECH,
+			ProcessingStatus.PROCESSING_HALTED_UNSUITABLE_CONTENT);
+
+	private static final String MESSAGE_ID_FIELD = "summarizationMessageId";
+
+	private final FirebaseService firebaseService;
+	private final RabbitTemplate rabbitTemplate;
+
+	public ProcessingPipelineService(FirebaseService firebaseService, RabbitTemplate rabbitTemplate) {
+		this.firebaseService = firebaseService;
+		this.rabbitTemplate = rabbitTemplate;
+	}
+
+	/**
+	 * Outcome of one step.
+	 *
+	 * @param metadata
+	 *            the metadata as written by the step, or as read if nothing
+	 *            was written; {@code null} if the document does not exist
+	 * @param applied
+	 *            whether the step's own change was written
+	 * @param summarizationQueued
+	 *            whether this call fired the join and published the
+	 *            summarization message
+	 */
+	public record Transition(@Nullable AudioMetadata metadata, boolean applied, boolean summarizationQueued) {
+	}
+
+	@FunctionalInterface
+	private interface Step {
+		/**
+		 * Applies the step to {@code metadata} and records the same change in
+		 * {@code updates}.
+		 *
+		 * @return {@code false} to leave the document untouched
+		 */
+		boolean apply(AudioMetadata metadata, Map<String, Object> updates);
+	}
+
+	/**
+	 * Claims slide conversion for the recording. Not applied when the slides
+	 * are already converted or the recording has moved past the point where a
+	 * PDF is still useful. A recording already queued for summarization is
+	 * still converted, because the summarizer waits for the PDF, but keeps its
+	 * status.
+	 */
+	public Transition beginPdfConversion(String metadataId) {
+		return apply(metadataId, "begin PDF conversion", (metadata, updates) -> {
+			ProcessingStatus status = metadata.getStatus();
+			if (metadata.isPdfConversionComplete() || STOPPED.contains(status)
+					|| (SUMMARIZATION_TRIGGERED.contains(status) && status != ProcessingStatus.SUMMARIZATION_QUEUED)) {
+				return false;
+			}
+			if (status != ProcessingStatus.SUMMARIZATION_QUEUED) {
+				setStatus(metadata, updates, ProcessingStatus.PDF_CONVERTING_API);
+				metadata.setFailureReason(null);
+				updates.put("failureReason", null);
+			}
+			return true;
+		});
+	}
+
+	/** Stores the finished transcript and queues summarization if the slides are ready too. */
+	public Transition completeTranscription(String metadataId, @Nullable String transcript) {
+		return completeTranscription(metadataId, transcript, null);
+	}
+
+	/**
+	 * As {@link #completeTranscription(String, String)}, but not applied if
+	 * {@code fence} has been taken over by another worker.
+	 */
+	public Transition completeTranscription(String metadataId, @Nullable String transcript,
+			@Nullable RecordingLeaseService.Lease fence) {
+		return apply(metadataId, "complete transcription", fence, (metadata, updates) -> {
+			if (metadata.isTranscriptionComplete() || metadata.getStatus() == ProcessingStatus.DELETING) {
+				return false;
+			}
+			int length = transcript != null ? transcript.length() : 0;
+			metadata.setTranscriptText(transcript);
+			metadata.setPartialTranscriptText(null);
+			metadata.setTranscriptProgressChars(length);
+			metadata.setTranscriptionComplete(true);
+			updates.put("transcriptText", transcript);
+			updates.put("partialTranscriptText", FieldValue.delete());
+			updates.put("transcriptProgressChars", length);
+			updates.put("transcriptionComplete", true);
+			if (!isPastJoin(metadata.getStatus())) {
+				setStatus(metadata, updates, ProcessingStatus.TRANSCRIPTION_COMPLETE);
+			}
+			return true;
+		});
+	}
+
+	/** Stores the converted PDF and queues summarization if the transcript is ready too. */
+	public Transition completePdfConversion(String metadataId, String pdfUrl) {
+		return completePdfConversion(metadataId, pdfUrl, null);
+	}
+
+	/**
+	 * As {@link #completePdfConversion(String, String)}, but not applied if
+	 * {@code fence} has been taken over by another worker.
+	 */
+	public Transition completePdfConversion(String metadataId, String pdfUrl,
+			@Nullable RecordingLeaseService.Lease fence) {
+		return apply(metadataId, "complete PDF conversion", fence, (metadata, updates) -> {
+			if (metadata.getStatus() == ProcessingStatus.DELETING) {
+				return false;
+			}
+			metadata.setConvertApiPdfUrl(pdfUrl);
+			metadata.setGeneratedPdfUrl(pdfUrl);
+			metadata.setPdfConversionComplete(true);
+			updates.put("convertApiPdfUrl", pdfUrl);
+			updates.put("generatedPdfUrl", pdfUrl);
+			updates.put("pdfConversionComplete", true);
+			if (!isPastJoin(metadata.getStatus())) {
+				setStatus(metadata, updates, ProcessingStatus.PDF_CONVERSION_COMPLETE);
+			}
+			return true;
+		});
+	}
+
+	/** Re-evaluates the join without changing anything else, e.g. for a redelivered message. */
+	public Transition triggerSummarizationIfReady(String metadataId) {
+		return apply(metadataId, "check summarization", (metadata, updates) -> false);
+	}
+
+	/**
+	 * Summarization needs the transcript, and the PDF whenever slides were
+	 * uploaded with the recording. The original file name is set when the
+	 * upload is accepted, before the slides reach storage, so the join cannot
+	 * fire early while the slide upload is still running.
+	 */
+	static boolean isReadyForSummarization(AudioMetadata metadata) {
+		boolean slidesExpected = !metadata.isAudioOnly() && (StringUtils.hasText(metadata.getOriginalPptxFileName())
+				|| StringUtils.hasText(metadata.getNhostPptxFileId()));
+		return metadata.isTranscriptionComplete() && (metadata.isPdfConversionComplete() || !slidesExpected);
+	}
+
+	private static boolean isPastJoin(@Nullable ProcessingStatus status) {
+		return SUMMARIZATION_TRIGGERED.contains(status) || STOPPED.contains(status);
+	}
+
+	private static void setStatus(AudioMetadata metadata, Map<String, Object> updates, ProcessingStatus status) {
+		metadata.setStatus(status);
+		updates.put("status", status.name());
+	}
+
+	private Transition apply(String metadataId, String event, Step step) {
+		return apply(metadataId, event, null, step);
+	}
+
+	private Transition apply(String metadataId, String event, @Nullable RecordingLeaseService.Lease fence,
+			Step step) {
+		DocumentReference ref = firebaseService.getDocumentReference(firebaseService.getAudioMetadataCollectionName(),
+				metadataId);
+		String messageId = UUID.randomUUID().toString();
+		Transition transition = firebaseService.runTransaction(transaction -> {
+			DocumentSnapshot snapshot = transaction.get(ref).get();
+			if (!snapshot.exists()) {
+				return new Transition(null, false, false);
+			}
+			AudioMetadata metadata = AudioMetadata.fromMap(snapshot.getData());
+			metadata.setId(snapshot.getId());
+			if (fence != null && !fence.isCurrent(transaction)) {
+				log.warn("[{}] Cannot {}: lease token {} has been superseded.", metadataId, event, fence.getToken());
+				return new Transition(metadata, false, false);
+			}
+
+			Map<String, Object> updates = new HashMap<>();
+			boolean applied = step.apply(metadata, updates);
+			boolean queue = !isPastJoin(metadata.getStatus()) && isReadyForSummarization(metadata);
+			if (queue) {
+				setStatus(metadata, updates, ProcessingStatus.SUMMARIZATION_QUEUED);
+				updates.put(MESSAGE_ID_FIELD, messageId);
+			}
+			if (!updates.isEmpty()) {
+				Timestamp now = Timestamp.now();
+				metadata.setLastUpdated(now);
+				updates.put("lastUpdated", now);
+				transaction.update(ref, updates);
+			}
+			return new Transition(metadata, applied, queue);
+		});
+
+		if (transition.metadata() == null) {
+			log.warn("[{}] Cannot {}: metadata not found.", metadataId, event);
+		} else {
+			log.info("[{}] {}: applied={}, status={}, transcriptionComplete={}, pdfConversionComplete={}", metadataId,
+					event, transition.applied(), transition.metadata().getStatus(),
+					transition.metadata().isTranscriptionComplete(), transition.metadata().isPdfConversionComplete());
+		}
+		if (transition.summarizationQueued()) {
+			publishSummarization(metadataId, messageId);
+		}
+		return transition;
+	}
+
+	/**
+	 * Sends the summarization message claimed by a committed transition. If the
+	 * broker refuses it, the claim is handed back so that the next event or
+	 * redelivery can fire the join again; the message ID makes sure a claim
+	 * taken by someone else in the meantime is left alone.
+	 */
+	private void publishSummarization(String metadataId, String messageId) {
+		Map<String, String> payload = new HashMap<>();
+		payload.put("metadataId", metadataId);
+		payload.put("messageId", messageId);
+		try {
+			rabbitTemplate.convertAndSend(RabbitMQConfig.PROCESSING_EXCHANGE_NAME,
+					RabbitMQConfig.SUMMARIZATION_ROUTING_KEY, payload);
+			log.info("[{}] Both branches complete. Summarization message (ID: {}) sent to queue '{}'.", metadataId,
+					messageId, RabbitMQConfig.SUMMARIZATION_QUEUE_NAME);
+		} catch (AmqpException e) {
+			log.error("[{}] Failed to send summarization message (ID: {}). Releasing the claim. Error: {}",
+					metadataId, messageId, e.getMessage());
+			releaseClaim(metadataId, messageId);
+			throw e;
+		}
+	}
+
+	private void releaseClaim(String metadataId, String messageId) {
+		DocumentReference ref = firebaseService.getDocumentReference(firebaseService.getAudioMetadataCollectionName(),
+				metadataId);
+		try {
+			firebaseService.runTransaction(transaction -> {
+				DocumentSnapshot snapshot = transaction.get(ref).get();
+				if (!snapshot.exists() || !messageId.equals(snapshot.getString(MESSAGE_ID_FIELD))
+						|| !ProcessingStatus.SUMMARIZATION_QUEUED.name().equals(snapshot.getString("status"))) {
+					return false;
+				}
+				Map<String, Object> updates = new HashMap<>();
+				updates.put("status", ProcessingStatus.TRANSCRIPTION_COMPLETE.name());
+				updates.put(MESSAGE_ID_FIELD, FieldValue.delete());
+				updates.put("lastUpdated", Timestamp.now());
+				transaction.update(ref, updates);
+				return true;
+			});
+		} catch (FirestoreInteractionException e) {
+			log.error("[{}] Failed to release summarization claim {}. Error: {}", metadataId, messageId,
+					e.getMessage());
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package edu.cit.audioscholar.service;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -17,6 +18,9 @@ import com.google.cloud.Timestamp;
 import edu.cit.audioscholar.model.AudioMetadata;
 import edu.cit.audioscholar.model.LearningRecommendation;
 import edu.cit.audioscholar.model.ProcessingStatus;
+import edu.cit.audioscholar.util.GeminiResponseDecoder;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.Recommendation;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.RecommendationResult;
 
 @Service
 public class RecommendationService {
@@ -182,16 +186,18 @@ public class RecommendationService {
 			}
 
 			try {
-				if (recommendationsJson.trim().startsWith("[")) {
-					recommendations = objectMapper.readValue(recommendationsJson, objectMapper.getTypeFactory()
-							.constructCollectionType(List.class, LearningRecommendation.class));
-					log.info("[{}] Successfully parsed {} recommendations from JSON array", metadataId,
-							recommendations.size());
-				} else {
-					log.warn("[{}] Non-array JSON format received, complex parsing required", metadataId);
+				RecommendationResult result = new GeminiResponseDecoder(objectMapper.getFactory())
+						.decodeRecommendations(recommendationsJson);
+				for (Recommendation item : result.recommendations()) {
+					LearningRecommendation recommendation = new LearningRecommendation();
+					recommendation.setTitle(item.title());
+					recommendation.setDescriptionSnippet(item.description());
+					recommendations.add(recommendation);
 				}
-			} catch (JsonProcessingException jpe) {
-				log.warn("[{}] Could not parse JSON as recommendation array: {}", metadataId, jpe.getMessage());
+				log.info("[{}] Successfully parsed {} recommendations from JSON array", metadataId,
+						recommendations.size());
+			} catch (IOException e) {
+				log.warn("[{}] Could not parse JSON as recommendation array: {}", metadataId, e.getMessage());
 			}
 		} catch (Exception e) {
 			log.error("[{}] Error parsing recommendations JSON: {}", metadataId, e.getMessage(), e);
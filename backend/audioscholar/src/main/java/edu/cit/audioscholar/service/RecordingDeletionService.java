@@ -0,0 +1,354 @@
+package edu.cit.audioscholar.service;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.WriteBatch;
+
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
+import edu.cit.audioscholar.model.AudioMetadata;
+import edu.cit.audioscholar.model.DeletionJob;
+import edu.cit.audioscholar.model.ProcessingStatus;
+import edu.cit.audioscholar.model.Recording;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Deletes a recording and everything hanging off it in the background. The
+ * request thread only flips the metadata to {@link ProcessingStatus#DELETING}
+ * and queues a {@link DeletionJob}; the job then
+ * <ol>
+ * <li>releases and deletes the audio, slide deck and generated PDF in Nhost in
+ * parallel, and</li>
+ * <li>removes the recommendations, summary, recording, the user's link to the
+ * recording and the metadata document in a single Firestore
+ * {@link WriteBatch}.</li>
+ * </ol>
+ * Failed attempts, including a release that could not reach Firestore, are
+ * retried with exponential backoff. Releasing a deduplicated file reads and
+ * writes a marker on the metadata document in the same transaction, so
+ * neither a retry nor a sweep on another instance drops the same reference
+ * twice. Recordings
+ * left in {@code DELETING} without a job here, e.g. by a restart or by another
+ * instance that went away, are picked up again by a periodic sweep.
+ */
+@Service
+public class RecordingDeletionService {
+
+	private static final Logger log = LoggerFactory.getLogger(RecordingDeletionService.class);
+
+	private static final String CACHE_METADATA_BY_ID = "audioMetadataById";
+	private static final String CACHE_METADATA_BY_USER = "audioMetadataByUser";
+	static final String FIELD_DELETION_STEPS = "deletionSteps";
+	private static final String STEP_RELEASED = ":released";
+	private static final String STEP_KEPT = ":kept";
+	private static final int MAX_BATCH_WRITES = 500;
+
+	private final FirebaseService firebaseService;
+	private final NhostStorageService nhostStorageService;
+	private final ContentDedupService contentDedupService;
+	private final LearningMaterialRecommenderService learningMaterialRecommenderService;
+	private final RecordingService recordingService;
+	private final TempFileStore tempFileStore;
+	private final CacheManager cacheManager;
+	private final int maxAttempts;
+	private final Duration initialBackoff;
+	private final Duration jobRetention;
+	private final Duration sweepInterval;
+	private final Map<String, DeletionJob> jobs = new ConcurrentHashMap<>();
+	private ScheduledExecutorService scheduler;
+	private ExecutorService storageExecutor;
+
+	public RecordingDeletionService(FirebaseService firebaseService, NhostStorageService nhostStorageService,
+			ContentDedupService contentDedupService,
+			LearningMaterialRecommenderService learningMaterialRecommenderService, RecordingService recordingService,
+			TempFileStore tempFileStore, CacheManager cacheManager,
+			@Value("${app.deletion.max-attempts:5}") int maxAttempts,
+			@Value("${app.deletion.initial-backoff-seconds:2}") long initialBackoffSeconds,
+			@Value("${app.deletion.job-retention-minutes:60}") long jobRetentionMinutes,
+			@Value("${app.deletion.sweep-interval-minutes:10}") long sweepIntervalMinutes) {
+		this.firebaseService = firebaseService;
+		this.nhostStorageService = nhostStorageService;
+		this.contentDedupService = contentDedupService;
+		this.learningMaterialRecommenderService = learningMaterialRecommenderService;
+		this.recordingService = recordingService;
+		this.tempFileStore = tempFileStore;
+		this.cacheManager = cacheManager;
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.initialBackoff = Duration.ofSeconds(initialBackoffSeconds);
+		this.jobRetention = Duration.ofMinutes(jobRetentionMinutes);
+		this.sweepInterval = Duration.ofMinutes(Math.max(1, sweepIntervalMinutes));
+	}
+
+	@PostConstruct
+	void start() {
+		AtomicInteger threadCount = new AtomicInteger();
+		scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+			Thread thread = new Thread(runnable, "DeletionJob-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		storageExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("DeletionStorage-", 0).factory());
+		scheduler.scheduleWithFixedDelay(this::resumeInterruptedDeletions, 30, sweepInterval.toSeconds(),
+				TimeUnit.SECONDS);
+		scheduler.scheduleWithFixedDelay(this::purgeFinishedJobs, 10, 10, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		if (storageExecutor != null) {
+			storageExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Marks the recording as deleting and queues the cascade. Calling this again
+	 * while a job is active returns the existing job.
+	 */
+	public DeletionJob requestDeletion(AudioMetadata metadata) {
+		String metadataId = metadata.getId();
+		DeletionJob existing = jobs.get(metadataId);
+		if (existing != null && existing.isActive()) {
+			log.info("[{}] Deletion already in progress ({})", metadataId, existing.getState());
+			return existing;
+		}
+
+		if (metadata.getStatus() != ProcessingStatus.DELETING) {
+			Map<String, Object> updates = new HashMap<>();
+			updates.put("status", ProcessingStatus.DELETING.name());
+			updates.put("lastUpdated", Timestamp.now());
+			firebaseService.updateDataWithMap(firebaseService.getAudioMetadataCollectionName(), metadataId, updates);
+			evictMetadataCaches(metadataId, null);
+		}
+
+		DeletionJob job = new DeletionJob(metadataId, metadata.getUserId());
+		jobs.put(metadataId, job);
+		scheduler.execute(() -> runAttempt(job));
+		log.info("[{}] Deletion queued for user {}", metadataId, metadata.getUserId());
+		return job;
+	}
+
+	@Nullable
+	public DeletionJob getJob(String metadataId) {
+		return jobs.get(metadataId);
+	}
+
+	private void runAttempt(DeletionJob job) {
+		String metadataId = job.getMetadataId();
+		job.markRunning();
+		log.info("[{}] Deletion attempt {}/{} started", metadataId, job.getAttempts(), maxAttempts);
+		try {
+			cascadeDelete(metadataId);
+			job.markCompleted();
+			log.info("[{}] Deletion completed after {} attempt(s)", metadataId, job.getAttempts());
+		} catch (RuntimeException e) {
+			String error = rootMessage(e);
+			if (job.getAttempts() >= maxAttempts) {
+				job.markFailed(error);
+				log.error("[{}] Deletion failed after {} attempts, leaving it in DELETING: {}", metadataId,
+						job.getAttempts(), error, e);
+				return;
+			}
+			Duration delay = initialBackoff.multipliedBy(1L << Math.min(job.getAttempts() - 1, 10));
+			job.markRetryScheduled(error, Instant.now().plus(delay));
+			log.warn("[{}] Deletion attempt {} failed, retrying in {}s: {}", metadataId, job.getAttempts(),
+					delay.toSeconds(), error);
+			scheduler.schedule(() -> runAttempt(job), delay.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void cascadeDelete(String metadataId) {
+		String collection = firebaseService.getAudioMetadataCollectionName();
+		Map<String, Object> data = firebaseService.getData(collection, metadataId);
+		if (data == null) {
+			log.info("[{}] Metadata already gone, nothing left to delete", metadataId);
+			evictMetadataCaches(metadataId, null);
+			return;
+		}
+		AudioMetadata metadata = AudioMetadata.fromMap(data);
+		Set<String> completedSteps = ConcurrentHashMap.newKeySet();
+		if (data.get(FIELD_DELETION_STEPS) instanceof Collection<?> steps) {
+			steps.forEach(step -> completedSteps.add(String.valueOf(step)));
+		}
+
+		deleteStoredFiles(metadataId, metadata, completedSteps);
+		String userId = deleteDocuments(metadataId, metadata);
+
+		if (StringUtils.hasText(metadata.getTempFilePath())) {
+			tempFileStore.release(Paths.get(metadata.getTempFilePath()));
+		}
+		if (StringUtils.hasText(metadata.getTempPptxFilePath())) {
+			tempFileStore.release(Paths.get(metadata.getTempPptxFilePath()));
+		}
+		evictMetadataCaches(metadataId, userId);
+	}
+
+	private void deleteStoredFiles(String metadataId, AudioMetadata metadata, Set<String> completedSteps) {
+		List<CompletableFuture<Void>> deletes = List.of(
+				deleteStoredFile(metadataId, "audio", metadata.getNhostFileId(), metadata.getAudioContentHash(),
+						completedSteps),
+				deleteStoredFile(metadataId, "pptx", metadata.getNhostPptxFileId(), metadata.getPptxContentHash(),
+						completedSteps),
+				deleteStoredFile(metadataId, "pdf", metadata.getGeneratedPdfNhostFileId(), null, completedSteps));
+		try {
+			CompletableFuture.allOf(deletes.toArray(CompletableFuture[]::new)).join();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+		}
+	}
+
+	private CompletableFuture<Void> deleteStoredFile(String metadataId, String kind, @Nullable String fileId,
+			@Nullable String contentHash, Set<String> completedSteps) {
+		if (!StringUtils.hasText(fileId) || completedSteps.contains(kind + STEP_KEPT)) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return CompletableFuture.runAsync(() -> {
+			// completedSteps only skips the round trip; the release transaction re-reads the markers itself.
+			if (!completedSteps.contains(kind + STEP_RELEASED)) {
+				DocumentReference metadataRef = firebaseService
+						.getDocumentReference(firebaseService.getAudioMetadataCollectionName(), metadataId);
+				boolean deletable = contentDedupService.release(contentHash, fileId,
+						new ContentDedupService.ReleaseMarker(metadataRef, FIELD_DELETION_STEPS, kind + STEP_RELEASED,
+								kind + STEP_KEPT));
+				if (!deletable) {
+					log.info("[{}] Nhost {} file {} is still referenced by other recordings. Keeping it.", metadataId,
+							kind, fileId);
+					return;
+				}
+			}
+			nhostStorageService.deleteFile(fileId);
+			log.info("[{}] Deleted Nhost {} file {}", metadataId, kind, fileId);
+		}, storageExecutor);
+	}
+
+	/**
+	 * Deletes all Firestore documents of the recording in one batch.
+	 *
+	 * @return the owning user ID, if the recording document still existed
+	 */
+	@Nullable
+	private String deleteDocuments(String metadataId, AudioMetadata metadata) {
+		WriteBatch batch = firebaseService.newBatch();
+		int writes = 0;
+		String userId = null;
+		String recordingId = metadata.getRecordingId();
+
+		if (StringUtils.hasText(recordingId)) {
+			List<DocumentReference> recommendations = learningMaterialRecommenderService
+					.getRecommendationReferences(recordingId);
+			for (DocumentReference recommendation : recommendations) {
+				if (writes == MAX_BATCH_WRITES - 4) {
+					// Unusually many recommendations; flush them ahead of the final batch.
+					firebaseService.commitBatch(batch, "recommendations of " + recordingId);
+					batch = firebaseService.newBatch();
+					writes = 0;
+				}
+				batch.delete(recommendation);
+				writes++;
+			}
+
+			Recording recording;
+			try {
+				recording = recordingService.getRecordingById(recordingId);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new FirestoreInteractionException("Interrupted while loading recording " + recordingId, e);
+			} catch (Exception e) {
+				throw new FirestoreInteractionException("Failed to load recording " + recordingId, e);
+			}
+			if (recording != null) {
+				userId = recording.getUserId();
+				if (StringUtils.hasText(userId) && firebaseService.getData(UserService.COLLECTION_NAME, userId) != null) {
+					batch.update(firebaseService.getDocumentReference(UserService.COLLECTION_NAME, userId),
+							"recordingIds", FieldValue.arrayRemove(recordingId));
+				}
+				if (StringUtils.hasText(recording.getSummaryId())) {
+					batch.delete(firebaseService.getDocumentReference(SummaryService.COLLECTION_NAME,
+							recording.getSummaryId()));
+				}
+				batch.delete(firebaseService.getDocumentReference(RecordingService.RECORDINGS_COLLECTION, recordingId));
+			}
+		} else {
+			log.warn("[{}] No recording ID on metadata. Only the metadata document will be deleted.", metadataId);
+		}
+
+		batch.delete(firebaseService.getDocumentReference(firebaseService.getAudioMetadataCollectionName(),
+				metadataId));
+		firebaseService.commitBatch(batch, "deletion of " + metadataId);
+		return userId;
+	}
+
+	private void resumeInterruptedDeletions() {
+		try {
+			List<Map<String, Object>> pending = firebaseService.queryCollection(
+					firebaseService.getAudioMetadataCollectionName(), "status", ProcessingStatus.DELETING.name());
+			for (Map<String, Object> data : pending) {
+				AudioMetadata metadata = AudioMetadata.fromMap(data);
+				if (metadata != null && StringUtils.hasText(metadata.getId())
+						&& !jobs.containsKey(metadata.getId())) {
+					log.info("[{}] Resuming interrupted deletion", metadata.getId());
+					requestDeletion(metadata);
+				}
+			}
+		} catch (RuntimeException e) {
+			log.warn("Could not look for interrupted deletions: {}", e.getMessage());
+		}
+	}
+
+	private void purgeFinishedJobs() {
+		Instant cutoff = Instant.now().minus(jobRetention);
+		jobs.values().removeIf(job -> !job.isActive() && job.getUpdatedAt().isBefore(cutoff));
+	}
+
+	private void evictMetadataCaches(String metadataId, @Nullable String userId) {
+		Cache byId = cacheManager.getCache(CACHE_METADATA_BY_ID);
+		if (byId != null) {
+			byId.evict(metadataId);
+		}
+		Cache byUser = cacheManager.getCache(CACHE_METADATA_BY_USER);
+		if (byUser != null) {
+			byUser.clear();
+		}
+		Cache users = cacheManager.getCache(UserService.USER_CACHE);
+		if (users != null && userId != null) {
+			users.evict(userId);
+		}
+	}
+
+	private static String rootMessage(Throwable e) {
+		Throwable root = e;
+		while (root.getCause() != null && root.getCause() != root) {
+			root = root.getCause();
+		}
+		return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,326 @@
+package edu.cit.audioscholar.service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Transaction;
+
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Per-recording leases that keep two workers, on this instance or another,
+ * from running the same pipeline step for the same recording.
+ * <p>
+ * A lease is a Firestore document per recording and purpose holding the
+ * holder, an expiry and a fencing token. Taking a lease is a transaction that
+ * succeeds only when the document is free or expired, and bumps the token.
+ * Held leases are renewed on a timer, so a worker that dies simply lets its
+ * lease run out and the next delivery of the job takes over. Because expiry
+ * is judged on each instance's clock, a worker that stalls past its lease can
+ * still wake up and write; steps that commit results pass the lease to the
+ * commit transaction, which refuses the write once a newer token exists (see
+ * {@link Lease#isCurrent(Transaction)}).
+ * <p>
+ * In front of Firestore sits a striped lock and a table of the leases this
+ * instance holds, so a second attempt on the same node is turned away without
+ * a round trip. With {@code app.lease.distributed=false} the table is all
+ * there is, which is enough for a single instance.
+ * <p>
+ * Lease documents are kept after release so tokens keep increasing; each
+ * carries a {@code purgeAt} time for a Firestore TTL policy to clean it up.
+ */
+@Service
+public class RecordingLeaseService {
+
+	private static final Logger log = LoggerFactory.getLogger(RecordingLeaseService.class);
+	private static final int STRIPES = 64;
+	private static final Duration PURGE_AFTER = Duration.ofDays(7);
+
+	/** The pipeline steps that take a lease; each is leased independently. */
+	public enum Purpose {
+		UPLOAD_AUDIO, UPLOAD_PPTX, PDF_CONVERSION, TRANSCRIPTION, SUMMARIZATION
+	}
+
+	private final FirebaseService firebaseService;
+	private final String collectionName;
+	private final boolean distributed;
+	private final Duration ttl;
+	private final String instanceId = ManagementFactory.getRuntimeMXBean().getName();
+	private final Lock[] stripes = new Lock[STRIPES];
+	private final Map<String, Lease> heldLeases = new ConcurrentHashMap<>();
+	private final AtomicLong localTokens = new AtomicLong();
+	private final ScheduledExecutorService renewalTimer;
+	private final MeterRegistry meterRegistry;
+
+	public RecordingLeaseService(FirebaseService firebaseService,
+			@Value("${firebase.firestore.collection.leases:processing_leases}") String collectionName,
+			@Value("${app.lease.distributed:true}") boolean distributed,
+			@Value("${app.lease.ttl-seconds:120}") long ttlSeconds, MeterRegistry meterRegistry) {
+		this.firebaseService = firebaseService;
+		this.collectionName = collectionName;
+		this.distributed = distributed;
+		this.ttl = Duration.ofSeconds(Math.max(10, ttlSeconds));
+		this.meterRegistry = meterRegistry;
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+		this.renewalTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "LeaseRenewal");
+			thread.setDaemon(true);
+			return thread;
+		});
+		log.info("Recording leases: {} (collection: {}, TTL: {})", distributed ? "Firestore" : "in-process only",
+				collectionName, ttl);
+	}
+
+	@PreDestroy
+	void stop() {
+		renewalTimer.shutdownNow();
+		heldLeases.values().forEach(Lease::close);
+	}
+
+	/**
+	 * Takes the lease if nobody holds it. A caller that is turned away should
+	 * come back later rather than wait here: if the holder died, its lease runs
+	 * out within the TTL and the next attempt takes over.
+	 *
+	 * @return the lease, or {@code null} when it is held elsewhere
+	 * @throws FirestoreInteractionException
+	 *             if the lease store could not be reached, in which case nothing
+	 *             is known about the holder and the job must not be dropped
+	 */
+	@Nullable
+	public Lease tryAcquire(Purpose purpose, String metadataId) {
+		String key = metadataId + ":" + purpose.name();
+		if (heldLeases.containsKey(key)) {
+			countAcquisition(purpose, "busy");
+			return null;
+		}
+		Lock stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+		stripe.lock();
+		try {
+			if (heldLeases.containsKey(key)) {
+				countAcquisition(purpose, "busy");
+				return null;
+			}
+			Lease lease = distributed ? acquireDocument(purpose, metadataId, key)
+					: new Lease(purpose, metadataId, key, null, instanceId, localTokens.incrementAndGet(), false,
+							Long.MAX_VALUE);
+			if (lease == null) {
+				return null;
+			}
+			heldLeases.put(key, lease);
+			if (lease.ref != null) {
+				long period = ttl.toMillis() / 3;
+				lease.renewal = renewalTimer.scheduleAtFixedRate(() -> renew(lease), period, period,
+						TimeUnit.MILLISECONDS);
+			}
+			return lease;
+		} finally {
+			stripe.unlock();
+		}
+	}
+
+	@Nullable
+	private Lease acquireDocument(Purpose purpose, String metadataId, String key) {
+		DocumentReference ref = firebaseService.getDocumentReference(collectionName, key);
+		String holder = instanceId + "/" + UUID.randomUUID();
+		try {
+			Lease lease = firebaseService.runTransaction(transaction -> {
+				DocumentSnapshot snapshot = transaction.get(ref).get();
+				Timestamp now = Timestamp.now();
+				String previousHolder = snapshot.exists() ? snapshot.getString("holder") : null;
+				Timestamp previousExpiry = snapshot.exists() ? snapshot.getTimestamp("expiresAt") : null;
+				if (previousHolder != null && previousExpiry != null && previousExpiry.compareTo(now) > 0) {
+					return null;
+				}
+				Long previousToken = snapshot.exists() ? snapshot.getLong("token") : null;
+				long token = (previousToken != null ? previousToken : 0) + 1;
+				long expiresAtMillis = System.currentTimeMillis() + ttl.toMillis();
+
+				Map<String, Object> data = new HashMap<>();
+				data.put("metadataId", metadataId);
+				data.put("purpose", purpose.name());
+				data.put("holder", holder);
+				data.put("token", token);
+				data.put("acquiredAt", now);
+				data.put("expiresAt", timestampOf(expiresAtMillis));
+				data.put("purgeAt", timestampOf(expiresAtMillis + PURGE_AFTER.toMillis()));
+				transaction.set(ref, data);
+				return new Lease(purpose, metadataId, key, ref, holder, token, previousHolder != null,
+						expiresAtMillis);
+			});
+			if (lease == null) {
+				countAcquisition(purpose, "busy");
+			} else if (lease.isTakeover()) {
+				countAcquisition(purpose, "takeover");
+				log.warn("[{}] Took over the expired {} lease (token {}).", metadataId, purpose, lease.getToken());
+			} else {
+				countAcquisition(purpose, "acquired");
+			}
+			return lease;
+		} catch (FirestoreInteractionException e) {
+			countAcquisition(purpose, "error");
+			log.warn("[{}] Could not take the {} lease. Error: {}", metadataId, purpose, e.getMessage());
+			throw e;
+		}
+	}
+
+	private void renew(Lease lease) {
+		if (!lease.held) {
+			return;
+		}
+		try {
+			long expiresAtMillis = System.currentTimeMillis() + ttl.toMillis();
+			boolean renewed = firebaseService.runTransaction(transaction -> {
+				if (!lease.isCurrent(transaction)) {
+					return false;
+				}
+				Map<String, Object> updates = new HashMap<>();
+				updates.put("expiresAt", timestampOf(expiresAtMillis));
+				updates.put("purgeAt", timestampOf(expiresAtMillis + PURGE_AFTER.toMillis()));
+				transaction.update(lease.ref, updates);
+				return true;
+			});
+			if (renewed) {
+				lease.expiresAtMillis = expiresAtMillis;
+			} else {
+				log.warn("[{}] Lost the {} lease (token {}) to another worker.", lease.metadataId, lease.purpose,
+						lease.token);
+				lease.held = false;
+				lease.renewal.cancel(false);
+			}
+		} catch (FirestoreInteractionException e) {
+			// The lease lapses on its own if renewals keep failing until it expires.
+			log.warn("[{}] Could not renew the {} lease. Error: {}", lease.metadataId, lease.purpose, e.getMessage());
+		}
+	}
+
+	private void release(Lease lease) {
+		if (lease.renewal != null) {
+			lease.renewal.cancel(false);
+		}
+		boolean wasHeld = lease.held;
+		lease.held = false;
+		heldLeases.remove(lease.key, lease);
+		if (lease.ref == null || !wasHeld) {
+			return;
+		}
+		try {
+			firebaseService.runTransaction(transaction -> {
+				if (!lease.isCurrent(transaction)) {
+					return false;
+				}
+				Map<String, Object> updates = new HashMap<>();
+				updates.put("holder", FieldValue.delete());
+				updates.put("expiresAt", Timestamp.now());
+				updates.put("purgeAt", timestampOf(System.currentTimeMillis() + PURGE_AFTER.toMillis()));
+				transaction.update(lease.ref, updates);
+				return true;
+			});
+		} catch (FirestoreInteractionException e) {
+			log.warn("[{}] Could not release the {} lease; it will expire in {}. Error: {}", lease.metadataId,
+					lease.purpose, ttl, e.getMessage());
+		}
+	}
+
+	private void countAcquisition(Purpose purpose, String result) {
+		meterRegistry.counter("audioscholar.lease.acquisitions", "purpose", purpose.name().toLowerCase(), "result",
+				result).increment();
+	}
+
+	private static Timestamp timestampOf(long epochMillis) {
+		return Timestamp.ofTimeMicroseconds(epochMillis * 1_000);
+	}
+
+	/** A held lease. Closing it releases the lease. */
+	public final class Lease implements AutoCloseable {
+
+		private final Purpose purpose;
+		private final String metadataId;
+		private final String key;
+		@Nullable
+		private final DocumentReference ref;
+		private final String holder;
+		private final long token;
+		private final boolean takeover;
+		private volatile boolean held = true;
+		private volatile long expiresAtMillis;
+		private volatile ScheduledFuture<?> renewal;
+
+		private Lease(Purpose purpose, String metadataId, String key, @Nullable DocumentReference ref, String holder,
+				long token, boolean takeover, long expiresAtMillis) {
+			this.purpose = purpose;
+			this.metadataId = metadataId;
+			this.key = key;
+			this.ref = ref;
+			this.holder = holder;
+			this.token = token;
+			this.takeover = takeover;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+
+		/** Fencing token; every acquisition of the same lease gets a larger one. */
+		public long getToken() {
+			return token;
+		}
+
+		/**
+		 * Whether the lease was taken over from a holder whose lease ran out
+		 * without being released, i.e. one that most likely died mid-step.
+		 */
+		public boolean isTakeover() {
+			return takeover;
+		}
+
+		/** Whether the lease is still held as far as this instance knows. */
+		public boolean isHeld() {
+			return held && System.currentTimeMillis() < expiresAtMillis;
+		}
+
+		/**
+		 * Reads the lease inside {@code transaction} and tells whether it still
+		 * carries this lease's token, so the transaction can refuse to commit
+		 * work from a holder that has been replaced. Must be called before the
+		 * transaction writes anything.
+		 */
+		public boolean isCurrent(Transaction transaction) throws InterruptedException, ExecutionException {
+			if (ref == null) {
+				return held;
+			}
+			DocumentSnapshot snapshot = transaction.get(ref).get();
+			Long currentToken = snapshot.exists() ? snapshot.getLong("token") : null;
+			return currentToken != null && currentToken == token && holder.equals(snapshot.getString("holder"));
+		}
+
+		@Override
+		public void close() {
+			release(this);
+		}
+	}
+}
@@ -18,7 +18,7 @@ import edu.cit.audioscholar.model.Recording;
 public class RecordingService {
 
 	private static final Logger log = LoggerFactory.getLogger(RecordingService.class);
-	private static final String RECORDINGS_COLLECTION = "recordings";
+	public static final String RECORDINGS_COLLECTION = "recordings";
 
 	private final FirebaseService firebaseService;
 	private final UserService userService;
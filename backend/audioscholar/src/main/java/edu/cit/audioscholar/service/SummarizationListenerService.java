@@ -3,7 +3,6 @@ package edu.cit.audioscholar.service;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -12,8 +11,6 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -21,17 +18,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.lang.Nullable;
+import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.FieldValue;
 
 import edu.cit.audioscholar.config.RabbitMQConfig;
@@ -40,7 +38,10 @@ import edu.cit.audioscholar.model.AudioMetadata;
 import edu.cit.audioscholar.model.ProcessingStatus;
 import edu.cit.audioscholar.model.Recording;
 import edu.cit.audioscholar.model.Summary;
-import edu.cit.audioscholar.util.RobustTaskExecutor;
+import edu.cit.audioscholar.util.GeminiResponseDecoder;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.GeminiResponseException;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.GlossaryEntry;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.SummaryResult;
 
 @Service
 public class SummarizationListenerService {
@@ -54,37 +55,37 @@ public class SummarizationListenerService {
 	private final SummaryService summaryService;
 	private final CacheManager cacheManager;
 	private final ObjectMapper objectMapper;
-	private final Path tempDir;
+	private final GeminiResponseDecoder responseDecoder;
+	private final TempFileStore tempFileStore;
 	private final LearningMaterialRecommenderService recommenderService;
 	private final RecordingService recordingService;
 	private final RabbitTemplate rabbitTemplate;
-	private final RobustTaskExecutor robustTaskExecutor;
+	private final PipelineRetryService pipelineRetryService;
+	private final DelayedRequeueService delayedRequeueService;
+	private final RecordingLeaseService leaseService;
 	private final Map<String, Long> processedMessageIds = new ConcurrentHashMap<>();
-	private final Map<String, Lock> metadataLocks = new ConcurrentHashMap<>();
 	private static final long MESSAGE_ID_EXPIRATION_TIME = 10 * 60 * 1000;
 
 	public SummarizationListenerService(FirebaseService firebaseService, GeminiService geminiService,
 			NhostStorageService nhostStorageService, @Lazy SummaryService summaryService, CacheManager cacheManager,
-			ObjectMapper objectMapper, @Value("${app.temp-file-dir:./temp_files}") String tempDirStr,
+			ObjectMapper objectMapper, TempFileStore tempFileStore,
 			@Lazy LearningMaterialRecommenderService recommenderService, @Lazy RecordingService recordingService,
-			RabbitTemplate rabbitTemplate, RobustTaskExecutor robustTaskExecutor) {
+			RabbitTemplate rabbitTemplate, PipelineRetryService pipelineRetryService,
+			DelayedRequeueService delayedRequeueService, RecordingLeaseService leaseService) {
 		this.firebaseService = firebaseService;
 		this.geminiService = geminiService;
 		this.nhostStorageService = nhostStorageService;
 		this.summaryService = summaryService;
 		this.cacheManager = cacheManager;
 		this.objectMapper = objectMapper;
-		this.tempDir = Paths.get(tempDirStr);
+		this.responseDecoder = new GeminiResponseDecoder(objectMapper.getFactory());
+		this.tempFileStore = tempFileStore;
 		this.recommenderService = recommenderService;
 		this.recordingService = recordingService;
 		this.rabbitTemplate = rabbitTemplate;
-		this.robustTaskExecutor = robustTaskExecutor;
-		try {
-			Files.createDirectories(this.tempDir);
-		} catch (IOException e) {
-			log.error("Could not create temporary directory for SummarizationListenerService: {}",
-					this.tempDir.toAbsolutePath(), e);
-		}
+		this.pipelineRetryService = pipelineRetryService;
+		this.delayedRequeueService = delayedRequeueService;
+		this.leaseService = leaseService;
 
 		Thread cleanupThread = new Thread(() -> {
 			while (!Thread.currentThread().isInterrupted()) {
@@ -108,7 +109,8 @@ public class SummarizationListenerService {
 	}
 
 	@RabbitListener(queues = RabbitMQConfig.SUMMARIZATION_QUEUE_NAME, containerFactory = "summarizationContainerFactory")
-	public void handleSummarizationRequest(Map<String, String> message) {
+	public void handleSummarizationRequest(Map<String, String> message,
+			@Headers Map<String, Object> headers) {
 		if (message == null || message.get("metadataId") == null || message.get("metadataId").isEmpty()) {
 			log.error("[AMQP Listener - Summarization] Received invalid message: {}. Ignoring.", message);
 			return;
@@ -132,14 +134,33 @@ public class SummarizationListenerService {
 		log.info("[AMQP Listener - Summarization] Received request for metadataId: {}, messageId: {}", metadataId,
 				messageId);
 
-		Lock lock = null;
-
+		RecordingLeaseService.Lease lease;
 		try {
-			lock = metadataLocks.computeIfAbsent(metadataId, k -> new ReentrantLock());
-			lock.lock();
-			log.debug("[{}] Acquired lock for summarization processing", metadataId);
+			lease = leaseService.tryAcquire(RecordingLeaseService.Purpose.SUMMARIZATION, metadataId);
+		} catch (FirestoreInteractionException e) {
+			if (messageId != null) {
+				processedMessageIds.remove(messageId);
+			}
+			delayedRequeueService.redeliverLater(PipelineStage.SUMMARIZATION, metadataId, message, headers,
+					"summarization lease store unavailable");
+			return;
+		}
+		if (lease == null) {
+			if (messageId != null) {
+				processedMessageIds.remove(messageId);
+			}
+			// The holder may have died; coming back after its lease runs out lets this job take over.
+			if (!delayedRequeueService.defer(PipelineStage.SUMMARIZATION, metadataId, message, headers,
+					"another worker holds the summarization lease")) {
+				log.info("[{}] Summarization lease still held after the last deferral. Dropping duplicate message.",
+						metadataId);
+			}
+			return;
+		}
 
-			robustTaskExecutor.executeWithInfiniteRetry(metadataId, "summarization", () -> {
+		try (lease) {
+			PipelineRetryService.Outcome outcome = pipelineRetryService.run(PipelineStage.SUMMARIZATION, metadataId,
+					message, headers, () -> {
 				Map<String, Object> latestMetadataMap;
 				try {
 					latestMetadataMap = firebaseService.getData(firebaseService.getAudioMetadataCollectionName(),
@@ -158,7 +179,12 @@ public class SummarizationListenerService {
 				log.info("[{}] Found metadata. Current status: {}, User: {}", metadataId, metadata.getStatus(), userId);
 
 				ProcessingStatus currentStatus = metadata.getStatus();
-				if (currentStatus == ProcessingStatus.SUMMARIZING || currentStatus == ProcessingStatus.SUMMARY_COMPLETE
+				// A lease that ran out while SUMMARIZING belonged to a worker that died mid-summary.
+				boolean resuming = currentStatus == ProcessingStatus.SUMMARIZING && lease.isTakeover();
+				if (resuming) {
+					log.warn("[{}] Previous summarization worker stopped renewing its lease. Resuming.", metadataId);
+				} else if (currentStatus == ProcessingStatus.SUMMARIZING
+						|| currentStatus == ProcessingStatus.SUMMARY_COMPLETE
 						|| currentStatus == ProcessingStatus.RECOMMENDATIONS_QUEUED
 						|| currentStatus == ProcessingStatus.GENERATING_RECOMMENDATIONS
 						|| currentStatus == ProcessingStatus.COMPLETE
@@ -170,7 +196,7 @@ public class SummarizationListenerService {
 					return;
 				}
 
-				if (currentStatus != ProcessingStatus.SUMMARIZATION_QUEUED) {
+				if (!resuming && currentStatus != ProcessingStatus.SUMMARIZATION_QUEUED) {
 					log.warn("[{}] Metadata status is not SUMMARIZATION_QUEUED (it's {}). Skipping summarization.",
 							metadataId, metadata.getStatus());
 					return;
@@ -192,7 +218,7 @@ public class SummarizationListenerService {
 					try {
 						String summarizationJson = geminiService.generateSummaryWithGoogleFileUri(transcript,
 								googleFilesApiPdfUri, metadataId);
-						processSummarizationResult(summarizationJson, metadataId, userId, metadata);
+						processSummarizationResult(summarizationJson, metadataId, userId, metadata, lease);
 					} catch (Exception e) {
 						throw new RuntimeException("Summarization with Google Files API failed: " + e.getMessage(), e);
 					}
@@ -208,12 +234,12 @@ public class SummarizationListenerService {
 
 					Path tempPdfPath = null;
 					try {
-						String tempPdfFilename = metadataId + "_context.pdf";
-						tempPdfPath = tempDir.resolve(tempPdfFilename);
+						tempPdfPath = tempFileStore.track(metadataId + "_context", "context.pdf", 0);
 						log.info("[{}] Downloading PDF from ConvertAPI URL to local file: {}", metadataId,
 								tempPdfPath.getFileName());
 
 						downloadFileFromUrl(convertApiPdfUrl, tempPdfPath);
+						tempFileStore.settle(tempPdfPath);
 						log.info("[{}] Successfully downloaded PDF from ConvertAPI to local file", metadataId);
 
 						log.info("[{}] Calling GeminiService to generate summary with PDF context...", metadataId);
@@ -221,7 +247,7 @@ public class SummarizationListenerService {
 						try {
 							String summarizationJson = geminiService.generateSummaryWithPdfContext(transcript,
 									tempPdfPath, metadataId);
-							processSummarizationResult(summarizationJson, metadataId, userId, metadata);
+							processSummarizationResult(summarizationJson, metadataId, userId, metadata, lease);
 						} catch (Exception e) {
 							throw new RuntimeException(
 									"Summarization with ConvertAPI PDF context failed: " + e.getMessage(), e);
@@ -229,13 +255,7 @@ public class SummarizationListenerService {
 					} catch (IOException e) {
 						throw new RuntimeException("Error downloading PDF from ConvertAPI: " + e.getMessage(), e);
 					} finally {
-						if (tempPdfPath != null) {
-							try {
-								Files.deleteIfExists(tempPdfPath);
-							} catch (IOException e) {
-								log.warn("[{}] Failed to delete temporary PDF file", metadataId);
-							}
-						}
+						tempFileStore.release(tempPdfPath);
 					}
 					return;
 				}
@@ -247,7 +267,7 @@ public class SummarizationListenerService {
 
 					try {
 						String summarizationJson = geminiService.generateTranscriptOnlySummary(transcript, metadataId);
-						processSummarizationResult(summarizationJson, metadataId, userId, metadata);
+						processSummarizationResult(summarizationJson, metadataId, userId, metadata, lease);
 					} catch (Exception e) {
 						throw new RuntimeException("Transcript-only summarization failed: " + e.getMessage(), e);
 					}
@@ -269,8 +289,26 @@ public class SummarizationListenerService {
 						} catch (Exception e) {
 							log.warn("Failed to update status to waitingForPdf", e);
 						}
-						// Throw exception to trigger retry (loop)
-						throw new RuntimeException("Waiting for PDF conversion to complete...");
+						if (messageId != null) {
+							// The parked copy comes back with the same ID and must not be dropped as a duplicate.
+							processedMessageIds.remove(messageId);
+						}
+						if (delayedRequeueService.defer(PipelineStage.SUMMARIZATION, metadataId, message, headers,
+								"waiting for PDF conversion")) {
+							return;
+						}
+
+						log.warn("[{}] PDF conversion did not complete in time. Summarizing the transcript alone.",
+								metadataId);
+						updateMetadataStatus(metadataId, userId, ProcessingStatus.SUMMARIZING, null);
+						try {
+							String summarizationJson = geminiService.generateTranscriptOnlySummary(transcript,
+									metadataId);
+							processSummarizationResult(summarizationJson, metadataId, userId, metadata, lease);
+						} catch (Exception e) {
+							throw new RuntimeException("Transcript-only summarization failed: " + e.getMessage(), e);
+						}
+						return;
 					}
 
 					updateMetadataStatus(metadataId, userId, ProcessingStatus.SUMMARIZING, null);
@@ -289,12 +327,12 @@ public class SummarizationListenerService {
 
 						Path tempPdfPath = null;
 						try {
-							String tempPdfFilename = metadataId + "_context.pdf";
-							tempPdfPath = tempDir.resolve(tempPdfFilename);
+							tempPdfPath = tempFileStore.track(metadataId + "_context", "context.pdf", 0);
 							log.info("[{}] Downloading PDF from ConvertAPI URL to local file: {}", metadataId,
 									tempPdfPath.getFileName());
 
 							downloadFileFromUrl(pdfUrl, tempPdfPath);
+							tempFileStore.settle(tempPdfPath);
 							log.info("[{}] Successfully downloaded PDF from ConvertAPI to local file", metadataId);
 
 							log.info("[{}] Calling GeminiService to generate summary with PDF context...", metadataId);
@@ -302,7 +340,7 @@ public class SummarizationListenerService {
 							try {
 								String summarizationJson = geminiService.generateSummaryWithPdfContext(transcript,
 										tempPdfPath, metadataId);
-								processSummarizationResult(summarizationJson, metadataId, userId, metadata);
+								processSummarizationResult(summarizationJson, metadataId, userId, metadata, lease);
 							} catch (Exception e) {
 								throw new RuntimeException(
 										"Summarization with ConvertAPI PDF failed: " + e.getMessage(), e);
@@ -310,25 +348,19 @@ public class SummarizationListenerService {
 						} catch (IOException e) {
 							throw new RuntimeException("Error downloading PDF from ConvertAPI: " + e.getMessage(), e);
 						} finally {
-							if (tempPdfPath != null) {
-								try {
-									Files.deleteIfExists(tempPdfPath);
-								} catch (IOException e) {
-									log.warn("Failed to delete temp PDF", e);
-								}
-							}
+							tempFileStore.release(tempPdfPath);
 						}
 						return;
 					}
 
 					Path tempPdfPath = null;
 					try {
-						String tempPdfFilename = metadataId + "_context.pdf";
-						tempPdfPath = tempDir.resolve(tempPdfFilename);
+						tempPdfPath = tempFileStore.track(metadataId + "_context", "context.pdf", 0);
 						log.info("[{}] Downloading PDF from Nhost (ID: {}) to local file: {}", metadataId, pdfNhostId,
 								tempPdfPath.getFileName());
 
 						nhostStorageService.downloadFileToPath(pdfNhostId, tempPdfPath);
+						tempFileStore.settle(tempPdfPath);
 						log.info("[{}] Successfully downloaded PDF to local file", metadataId);
 
 						log.info("[{}] Calling GeminiService to generate summary with PDF context...", metadataId);
@@ -336,20 +368,14 @@ public class SummarizationListenerService {
 						try {
 							String summarizationJson = geminiService.generateSummaryWithPdfContext(transcript,
 									tempPdfPath, metadataId);
-							processSummarizationResult(summarizationJson, metadataId, userId, metadata);
+							processSummarizationResult(summarizationJson, metadataId, userId, metadata, lease);
 						} catch (Exception e) {
 							throw new RuntimeException("Summarization with PDF context failed: " + e.getMessage(), e);
 						}
 					} catch (Exception e) {
 						throw new RuntimeException("Error downloading or processing PDF: " + e.getMessage(), e);
 					} finally {
-						if (tempPdfPath != null) {
-							try {
-								Files.deleteIfExists(tempPdfPath);
-							} catch (IOException e) {
-								log.warn("Failed to delete temp PDF", e);
-							}
-						}
+						tempFileStore.release(tempPdfPath);
 					}
 				} else {
 					log.warn("[{}] Neither audio-only flag nor PowerPoint file detected. Treating as audio-only.",
@@ -357,24 +383,57 @@ public class SummarizationListenerService {
 					updateMetadataStatus(metadataId, userId, ProcessingStatus.SUMMARIZING, null);
 					try {
 						String summarizationJson = geminiService.generateTranscriptOnlySummary(transcript, metadataId);
-						processSummarizationResult(summarizationJson, metadataId, userId, metadata);
+						processSummarizationResult(summarizationJson, metadataId, userId, metadata, lease);
 					} catch (Exception e) {
 						throw new RuntimeException("Fallback transcript-only summarization failed: " + e.getMessage(),
 								e);
 					}
 				}
-			});
+			}, error -> updateMetadataStatus(metadataId, null, ProcessingStatus.SUMMARY_FAILED,
+					"Summarization failed: " + error.getMessage()));
 
-		} finally {
-			if (lock != null) {
-				lock.unlock();
-				log.debug("[{}] Released lock for summarization processing", metadataId);
+			if (outcome != PipelineRetryService.Outcome.SUCCEEDED && messageId != null) {
+				// A retry or replay comes back with the same ID and must not be dropped as a duplicate.
+				processedMessageIds.remove(messageId);
 			}
+			if (outcome == PipelineRetryService.Outcome.RETRY_SCHEDULED) {
+				returnToQueue(metadataId);
+			}
+		}
+	}
+
+	/**
+	 * A failure after the status moved to {@code SUMMARIZING} would make the
+	 * scheduled retry look like a duplicate, so the recording is put back in the
+	 * queued state for it.
+	 */
+	private void returnToQueue(String metadataId) {
+		DocumentReference ref = firebaseService.getDocumentReference(firebaseService.getAudioMetadataCollectionName(),
+				metadataId);
+		try {
+			firebaseService.runTransaction(transaction -> {
+				DocumentSnapshot snapshot = transaction.get(ref).get();
+				if (snapshot.exists() && ProcessingStatus.SUMMARIZING.name().equals(snapshot.getString("status"))) {
+					Map<String, Object> updates = new HashMap<>();
+					updates.put("status", ProcessingStatus.SUMMARIZATION_QUEUED.name());
+					updates.put("lastUpdated", Timestamp.now());
+					transaction.update(ref, updates);
+				}
+				return null;
+			});
+		} catch (FirestoreInteractionException e) {
+			log.warn("[{}] Could not put the recording back in the queue for its retry: {}", metadataId,
+					e.getMessage());
 		}
 	}
 
 	private void processSummarizationResult(String summarizationJson, String metadataId, String userId,
-			AudioMetadata metadata) {
+			AudioMetadata metadata, RecordingLeaseService.Lease lease) {
+		if (!lease.isHeld()) {
+			log.warn("[{}] Summarization lease lost while waiting for Gemini. Leaving the result to the new holder.",
+					metadataId);
+			return;
+		}
 		log.info("[{}] Processing summarization result...", metadataId);
 
 		try {
@@ -383,12 +442,12 @@ public class SummarizationListenerService {
 			}
 
 			log.debug("[{}] Attempting to parse summarization result as JSON...", metadataId);
-			JsonNode rootNode = objectMapper.readTree(summarizationJson);
-
-			// Check for error response from GeminiService
-			if (rootNode.has("error")) {
-				// Throw exception to trigger retry
-				throw new RuntimeException("Received error in summarization result: " + rootNode.toString());
+			SummaryResult result;
+			try {
+				result = responseDecoder.decodeSummary(summarizationJson);
+			} catch (GeminiResponseException e) {
+				// Error response from GeminiService or the API; throw to trigger retry
+				throw new RuntimeException("Received error in summarization result: " + e.getMessage(), e);
 			}
 
 			Map<String, Object> latestMetadataMap = firebaseService
@@ -407,81 +466,15 @@ public class SummarizationListenerService {
 					return;
 				}
 			}
-			String summaryText = null;
-			List<String> keyPoints = new ArrayList<>();
-			List<String> topics = new ArrayList<>();
+			String summaryText = result.summaryText();
+			List<String> keyPoints = result.keyPoints();
+			List<String> topics = result.topics();
 			List<Map<String, String>> glossary = new ArrayList<>();
-
-			if (rootNode.has("candidates") && rootNode.get("candidates").size() > 0
-					&& rootNode.get("candidates").get(0).has("content")
-					&& rootNode.get("candidates").get(0).get("content").has("parts")
-					&& rootNode.get("candidates").get(0).get("content").get("parts").size() > 0) {
-
-				JsonNode firstPart = rootNode.get("candidates").get(0).get("content").get("parts").get(0);
-
-				if (firstPart.has("text")) {
-					String jsonText = firstPart.get("text").asText();
-					JsonNode innerJson = objectMapper.readTree(jsonText);
-
-					if (innerJson.has("summaryText")) {
-						summaryText = innerJson.get("summaryText").asText();
-					}
-
-					if (innerJson.has("keyPoints") && innerJson.get("keyPoints").isArray()) {
-						for (JsonNode keyPoint : innerJson.get("keyPoints")) {
-							keyPoints.add(keyPoint.asText());
-						}
-					}
-
-					if (innerJson.has("topics") && innerJson.get("topics").isArray()) {
-						for (JsonNode topic : innerJson.get("topics")) {
-							topics.add(topic.asText());
-						}
-					}
-
-					if (innerJson.has("glossary") && innerJson.get("glossary").isArray()) {
-						for (JsonNode glossaryItem : innerJson.get("glossary")) {
-							if (glossaryItem.has("term") && glossaryItem.has("definition")) {
-								Map<String, String> item = new HashMap<>();
-								item.put("term", glossaryItem.get("term").asText());
-								item.put("definition", glossaryItem.get("definition").asText());
-								glossary.add(item);
-							}
-						}
-					}
-				} else {
-					log.warn("[{}] First part does not contain text field", metadataId);
-				}
-			} else {
-				log.warn("[{}] Response does not have the expected candidates structure. Attempting direct parsing...",
-						metadataId);
-
-				if (rootNode.has("summaryText")) {
-					summaryText = rootNode.get("summaryText").asText();
-				}
-
-				if (rootNode.has("keyPoints") && rootNode.get("keyPoints").isArray()) {
-					for (JsonNode keyPoint : rootNode.get("keyPoints")) {
-						keyPoints.add(keyPoint.asText());
-					}
-				}
-
-				if (rootNode.has("topics") && rootNode.get("topics").isArray()) {
-					for (JsonNode topic : rootNode.get("topics")) {
-						topics.add(topic.asText());
-					}
-				}
-
-				if (rootNode.has("glossary") && rootNode.get("glossary").isArray()) {
-					for (JsonNode glossaryItem : rootNode.get("glossary")) {
-						if (glossaryItem.has("term") && glossaryItem.has("definition")) {
-							Map<String, String> item = new HashMap<>();
-							item.put("term", glossaryItem.get("term").asText());
-							item.put("definition", glossaryItem.get("definition").asText());
-							glossary.add(item);
-						}
-					}
-				}
+			for (GlossaryEntry entry : result.glossary()) {
+				Map<String, String> item = new HashMap<>();
+				item.put("term", entry.term());
+				item.put("definition", entry.definition());
+				glossary.add(item);
 			}
 
 			if (summaryText == null || summaryText.isBlank()) {
@@ -515,7 +508,7 @@ public class SummarizationListenerService {
 			invalidateCache(userId);
 
 		} catch (Exception e) {
-			// Rethrow as RuntimeException to be caught by RobustTaskExecutor
+			// Rethrow as RuntimeException so the failure is retried or parked
 			if (e instanceof RuntimeException) {
 				throw (RuntimeException) e;
 			}
@@ -16,7 +16,7 @@ import edu.cit.audioscholar.model.Summary;
 public class SummaryService {
 
 	private static final Logger log = LoggerFactory.getLogger(SummaryService.class);
-	private static final String COLLECTION_NAME = "summaries";
+	public static final String COLLECTION_NAME = "summaries";
 
 	private final FirebaseService firebaseService;
 	private final RecordingService recordingService;
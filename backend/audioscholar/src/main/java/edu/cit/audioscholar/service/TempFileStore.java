@@ -0,0 +1,324 @@
+package edu.cit.audioscholar.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import edu.cit.audioscholar.exception.TempStorageFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Single owner of {@code app.temp-file-dir}. Every temp file is allocated here
+ * and tracked with the bytes it is expected to take, so uploads can be refused
+ * with a 503 before the disk fills up instead of failing half-way through a
+ * copy.
+ * <p>
+ * {@link #reserve} enforces the budget and is meant for request-driven writes
+ * (uploads, avatars); {@link #track} only accounts for the bytes and is used by
+ * the queue listeners, which must be able to drain work that was already
+ * admitted. A janitor thread deletes untracked files older than the orphan
+ * grace period, which covers files left behind by crashes and restarts.
+ */
+@Service
+public class TempFileStore {
+
+	private static final Logger log = LoggerFactory.getLogger(TempFileStore.class);
+
+	private final Path root;
+	private final long maxBytes;
+	private final long minFreeDiskBytes;
+	private final Duration orphanGrace;
+	private final long janitorIntervalMinutes;
+	private final long retryAfterSeconds;
+	private final Map<Path, Allocation> allocations = new ConcurrentHashMap<>();
+	private final AtomicLong reservedBytes = new AtomicLong();
+	private final Counter rejections;
+	private final Counter orphansReclaimed;
+	private final Counter orphanBytesReclaimed;
+	private ScheduledExecutorService janitor;
+
+	private record Allocation(long bytes, Instant createdAt) {
+	}
+
+	public TempFileStore(@Value("${app.temp-file-dir}") String tempFileDirStr,
+			@Value("${app.temp-store.max-size:2GB}") String maxSize,
+			@Value("${app.temp-store.min-free-disk:256MB}") String minFreeDisk,
+			@Value("${app.temp-store.orphan-grace-minutes:360}") long orphanGraceMinutes,
+			@Value("${app.temp-store.janitor-interval-minutes:15}") long janitorIntervalMinutes,
+			@Value("${app.temp-store.retry-after-seconds:60}") long retryAfterSeconds, MeterRegistry meterRegistry) {
+		this.root = Paths.get(tempFileDirStr).toAbsolutePath();
+		this.maxBytes = DataSize.parse(maxSize).toBytes();
+		this.minFreeDiskBytes = DataSize.parse(minFreeDisk).toBytes();
+		this.orphanGrace = Duration.ofMinutes(orphanGraceMinutes);
+		this.janitorIntervalMinutes = janitorIntervalMinutes;
+		this.retryAfterSeconds = retryAfterSeconds;
+		try {
+			Files.createDirectories(this.root);
+		} catch (IOException e) {
+			log.error("Could not create temporary file directory: {}", this.root, e);
+			throw new RuntimeException("Failed to initialize temporary file directory", e);
+		}
+
+		Gauge.builder("audioscholar.tempstore.used", reservedBytes, AtomicLong::get).baseUnit("bytes")
+				.description("Bytes reserved by tracked temp files").register(meterRegistry);
+		Gauge.builder("audioscholar.tempstore.budget", () -> this.maxBytes).baseUnit("bytes")
+				.description("Configured temp file budget").register(meterRegistry);
+		Gauge.builder("audioscholar.tempstore.files", allocations, Map::size)
+				.description("Number of tracked temp files").register(meterRegistry);
+		Gauge.builder("audioscholar.tempstore.disk.usable", this, TempFileStore::usableDiskBytes).baseUnit("bytes")
+				.description("Usable space on the temp file disk").register(meterRegistry);
+		this.rejections = Counter.builder("audioscholar.tempstore.rejections")
+				.description("Temp file reservations refused because the budget or disk was full")
+				.register(meterRegistry);
+		this.orphansReclaimed = Counter.builder("audioscholar.tempstore.orphans.reclaimed")
+				.description("Untracked temp files deleted by the janitor").register(meterRegistry);
+		this.orphanBytesReclaimed = Counter.builder("audioscholar.tempstore.orphans.reclaimed.bytes")
+				.baseUnit("bytes").description("Bytes freed by the janitor").register(meterRegistry);
+
+		log.info("Temp file store at {} with budget {} (min free disk {}, orphan grace {})", root, maxSize,
+				minFreeDisk, orphanGrace);
+	}
+
+	@PostConstruct
+	void startJanitor() {
+		janitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "TempFileJanitor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		janitor.scheduleWithFixedDelay(this::runJanitorSafely, 1, janitorIntervalMinutes, TimeUnit.MINUTES);
+	}
+
+	@PreDestroy
+	void stopJanitor() {
+		if (janitor != null) {
+			janitor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Allocates a temp file path and reserves {@code expectedBytes} against the
+	 * budget. The file itself is not created.
+	 *
+	 * @throws TempStorageFullException if the budget or the disk cannot take the
+	 *                                  file
+	 */
+	public Path reserve(String prefix, @Nullable String originalFilename, long expectedBytes) {
+		Path path = newPath(prefix, originalFilename);
+		reserve(path, expectedBytes);
+		return path;
+	}
+
+	/**
+	 * Reserves {@code expectedBytes} for a file at a path chosen by the caller,
+	 * which must live under the temp directory so the janitor can see it.
+	 *
+	 * @throws TempStorageFullException if the budget or the disk cannot take the
+	 *                                  file
+	 */
+	public void reserve(Path path, long expectedBytes) {
+		long bytes = Math.max(0, expectedBytes);
+		reserveBytes(bytes);
+		allocations.put(path.toAbsolutePath(), new Allocation(bytes, Instant.now()));
+	}
+
+	/**
+	 * Adds {@code additionalBytes} to the reservation for {@code path}, for files
+	 * that are written piece by piece and reserve space as they grow.
+	 *
+	 * @throws TempStorageFullException if the budget or the disk cannot take the
+	 *                                  extra bytes
+	 */
+	public void extend(Path path, long additionalBytes) {
+		long bytes = Math.max(0, additionalBytes);
+		reserveBytes(bytes);
+		allocations.merge(path.toAbsolutePath(), new Allocation(bytes, Instant.now()),
+				(existing, added) -> new Allocation(existing.bytes() + added.bytes(), existing.createdAt()));
+	}
+
+	private void reserveBytes(long bytes) {
+		ensureCapacity(bytes);
+		while (true) {
+			long current = reservedBytes.get();
+			if (current + bytes > maxBytes) {
+				throw reject(bytes, current);
+			}
+			if (reservedBytes.compareAndSet(current, current + bytes)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Allocates a temp file path that is accounted for but never refused, for
+	 * pipeline work that has already been admitted.
+	 */
+	public Path track(String prefix, @Nullable String originalFilename, long expectedBytes) {
+		long bytes = Math.max(0, expectedBytes);
+		Path path = newPath(prefix, originalFilename);
+		reservedBytes.addAndGet(bytes);
+		allocations.put(path, new Allocation(bytes, Instant.now()));
+		return path;
+	}
+
+	/**
+	 * Fails fast if {@code bytes} more would not fit, without reserving anything.
+	 */
+	public void ensureCapacity(long bytes) {
+		long current = reservedBytes.get();
+		if (current + bytes > maxBytes || usableDiskBytes() - bytes < minFreeDiskBytes) {
+			throw reject(bytes, current);
+		}
+	}
+
+	/**
+	 * Replaces the reservation for {@code path} with the size actually on disk,
+	 * for files whose size was unknown or estimated when they were allocated.
+	 */
+	public void settle(Path path) {
+		Path key = path.toAbsolutePath();
+		try {
+			long actual = Files.size(key);
+			Allocation previous = allocations.computeIfPresent(key,
+					(p, allocation) -> new Allocation(actual, allocation.createdAt()));
+			if (previous != null) {
+				reservedBytes.addAndGet(actual - previous.bytes());
+			}
+		} catch (IOException e) {
+			log.debug("Could not settle temp file {}: {}", key, e.getMessage());
+		}
+	}
+
+	/** Deletes the file and frees its reservation. Safe to call more than once. */
+	public void release(@Nullable Path path) {
+		if (path == null) {
+			return;
+		}
+		Path key = path.toAbsolutePath();
+		try {
+			if (Files.deleteIfExists(key)) {
+				log.debug("Deleted temp file {}", key);
+			}
+		} catch (IOException e) {
+			log.warn("Failed to delete temp file {}: {}. The janitor will retry.", key, e.getMessage());
+			return;
+		}
+		forget(key);
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+
+	public long getReservedBytes() {
+		return reservedBytes.get();
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public int getTrackedFileCount() {
+		return allocations.size();
+	}
+
+	/**
+	 * Deletes untracked files older than the orphan grace period and drops
+	 * allocations whose file was removed without {@link #release}.
+	 *
+	 * @return number of orphaned files deleted
+	 */
+	public int reclaimOrphans() {
+		allocations.keySet().stream().filter(path -> !Files.exists(path)).toList().forEach(this::forget);
+
+		Instant cutoff = Instant.now().minus(orphanGrace);
+		List<Path> candidates;
+		try (Stream<Path> files = Files.walk(root, 2)) {
+			candidates = files.filter(Files::isRegularFile).filter(path -> !allocations.containsKey(path)).toList();
+		} catch (IOException e) {
+			log.warn("Temp file janitor could not scan {}: {}", root, e.getMessage());
+			return 0;
+		}
+
+		int reclaimed = 0;
+		for (Path path : candidates) {
+			try {
+				if (Files.getLastModifiedTime(path).toInstant().isAfter(cutoff)) {
+					continue;
+				}
+				long size = Files.size(path);
+				if (Files.deleteIfExists(path)) {
+					reclaimed++;
+					orphansReclaimed.increment();
+					orphanBytesReclaimed.increment(size);
+					log.info("Reclaimed orphaned temp file {} ({} bytes)", path, size);
+				}
+			} catch (IOException e) {
+				log.debug("Could not reclaim temp file {}: {}", path, e.getMessage());
+			}
+		}
+		return reclaimed;
+	}
+
+	private void runJanitorSafely() {
+		try {
+			int reclaimed = reclaimOrphans();
+			log.debug("Temp file janitor run finished: {} orphan(s) reclaimed, {} bytes tracked in {} file(s)",
+					reclaimed, reservedBytes.get(), allocations.size());
+		} catch (RuntimeException e) {
+			log.error("Temp file janitor run failed: {}", e.getMessage(), e);
+		}
+	}
+
+	private Path newPath(String prefix, @Nullable String originalFilename) {
+		String extension = originalFilename != null ? StringUtils.getFilenameExtension(originalFilename) : null;
+		return root.resolve(prefix + "-" + UUID.randomUUID() + (extension != null ? "." + extension : ""));
+	}
+
+	private void forget(Path key) {
+		Allocation allocation = allocations.remove(key);
+		if (allocation != null) {
+			reservedBytes.addAndGet(-allocation.bytes());
+		}
+	}
+
+	private TempStorageFullException reject(long requested, long current) {
+		rejections.increment();
+		log.warn("Temp storage full: requested {} bytes with {}/{} bytes reserved and {} bytes usable on disk",
+				requested, current, maxBytes, usableDiskBytes());
+		return new TempStorageFullException("Server storage is temporarily full. Please retry shortly.",
+				retryAfterSeconds);
+	}
+
+	private long usableDiskBytes() {
+		try {
+			return Files.getFileStore(root).getUsableSpace();
+		} catch (IOException e) {
+			return Long.MAX_VALUE;
+		}
+	}
+}
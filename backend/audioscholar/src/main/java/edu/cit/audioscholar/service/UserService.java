@@ -5,17 +5,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
@@ -37,28 +34,19 @@ import edu.cit.audioscholar.model.User;
 @Service
 public class UserService {
 
-	private static final String COLLECTION_NAME = "users";
-	private static final String USER_CACHE = "usersById";
+	public static final String COLLECTION_NAME = "users";
+	public static final String USER_CACHE = "usersById";
 	private static final Logger log = LoggerFactory.getLogger(UserService.class);
 
 	private final FirebaseService firebaseService;
 	private final NhostStorageService nhostStorageService;
-	private final Path tempFileDir;
+	private final TempFileStore tempFileStore;
 
 	public UserService(FirebaseService firebaseService, NhostStorageService nhostStorageService,
-			@Value("${app.temp-file-dir}") String tempFileDirStr) {
+			TempFileStore tempFileStore) {
 		this.firebaseService = firebaseService;
 		this.nhostStorageService = nhostStorageService;
-		this.tempFileDir = Paths.get(tempFileDirStr);
-		try {
-			Files.createDirectories(this.tempFileDir);
-			log.info("User service temporary file directory verified/created at: {}",
-					this.tempFileDir.toAbsolutePath());
-		} catch (IOException e) {
-			log.error("Could not create temporary file directory for user service: {}",
-					this.tempFileDir.toAbsolutePath(), e);
-			throw new RuntimeException("Failed to initialize temporary file directory for user service", e);
-		}
+		this.tempFileStore = tempFileStore;
 	}
 
 	public User registerNewUser(RegistrationRequest request)
@@ -429,10 +417,7 @@ public class UserService {
 		String originalFilename = StringUtils.cleanPath(
 				Objects.requireNonNull(avatarFile.getOriginalFilename(), "Original filename cannot be null"));
 		String contentType = avatarFile.getContentType();
-		String fileExtension = StringUtils.getFilenameExtension(originalFilename);
-		String tempFilename = "avatar-" + userId + "-" + UUID.randomUUID()
-				+ (fileExtension != null ? "." + fileExtension : "");
-		Path tempFilePath = this.tempFileDir.resolve(tempFilename);
+		Path tempFilePath = tempFileStore.reserve("avatar-" + userId, originalFilename, avatarFile.getSize());
 		File tempFile = null;
 
 		try {
@@ -465,19 +450,7 @@ public class UserService {
 					e.getMessage(), e);
 			throw new RuntimeException("Failed to process avatar upload with storage service.", e);
 		} finally {
-			if (tempFilePath != null) {
-				try {
-					boolean deleted = Files.deleteIfExists(tempFilePath);
-					if (deleted) {
-						log.debug("Successfully deleted temporary avatar file: {}", tempFilePath.toAbsolutePath());
-					} else {
-						log.debug("Temporary avatar file not found for deletion (might not have been created): {}",
-								tempFilePath.toAbsolutePath());
-					}
-				} catch (IOException e) {
-					log.warn("Could not delete temporary avatar file: {}", tempFilePath.toAbsolutePath(), e);
-				}
-			}
+			tempFileStore.release(tempFilePath);
 		}
 	}
 
@@ -0,0 +1,77 @@
+package edu.cit.audioscholar.util;
+
+import java.time.Duration;
+
+/**
+ * Concurrency limit that adapts to the backend with additive increase and
+ * multiplicative decrease.
+ * <p>
+ * Each success while the limit is in real use raises it by {@code 1/limit},
+ * which adds about one slot per round of requests. A rejection such as a 429 or
+ * 503 cuts it by {@code backoffRatio}; a success slower than
+ * {@code latencyThreshold} cuts it by a tenth, since a backend that answers
+ * that slowly is already queueing. Callers that find the limit reached are
+ * expected to go elsewhere or come back later; nothing here blocks.
+ */
+public final class AimdLimiter {
+
+	private static final double LATENCY_BACKOFF_RATIO = 0.9;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double backoffRatio;
+	private final long latencyThresholdNanos;
+	private double limit;
+	private int inFlight;
+
+	/**
+	 * @param latencyThreshold
+	 *            successes slower than this count as congestion;
+	 *            {@link Duration#ZERO} disables the latency signal
+	 */
+	public AimdLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, Duration latencyThreshold) {
+		this.minLimit = Math.max(1, minLimit);
+		this.maxLimit = Math.max(this.minLimit, maxLimit);
+		this.backoffRatio = backoffRatio;
+		this.latencyThresholdNanos = latencyThreshold.toNanos();
+		this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+	}
+
+	/** Takes a slot if one is free. Every successful call must be paired with one of the {@code on*} calls. */
+	public synchronized boolean tryAcquire() {
+		if (inFlight >= (int) limit) {
+			return false;
+		}
+		inFlight++;
+		return true;
+	}
+
+	public synchronized void onSuccess(long latencyNanos) {
+		boolean saturated = inFlight * 2 >= (int) limit;
+		inFlight--;
+		if (latencyThresholdNanos > 0 && latencyNanos > latencyThresholdNanos) {
+			limit = Math.max(minLimit, limit * LATENCY_BACKOFF_RATIO);
+		} else if (saturated) {
+			limit = Math.min(maxLimit, limit + 1 / limit);
+		}
+	}
+
+	/** The backend turned the request away because it is overloaded. */
+	public synchronized void onDropped() {
+		inFlight--;
+		limit = Math.max(minLimit, limit * backoffRatio);
+	}
+
+	/** The request ended in a way that says nothing about load, e.g. a bad request. */
+	public synchronized void onIgnored() {
+		inFlight--;
+	}
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+}
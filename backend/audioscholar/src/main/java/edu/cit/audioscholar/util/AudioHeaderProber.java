@@ -0,0 +1,600 @@
+package edu.cit.audioscholar.util;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Works out the duration and codec of an audio file from its container
+ * headers, without decoding it. Supports MP4/M4A ({@code moov/mvhd}), ADTS AAC,
+ * MP3 (Xing/Info/VBRI, else the first frame's bitrate), WAV, Ogg
+ * (Vorbis/Opus/FLAC) and FLAC.
+ * <p>
+ * The input is read forwards only; large payloads such as {@code mdat} or ID3
+ * artwork are skipped rather than read, so on a file- or disk-backed stream
+ * only the header bytes are touched. Ogg is the exception: its duration lives
+ * in the last page, so the prober skips to the final 64 KB.
+ */
+public final class AudioHeaderProber {
+
+	private static final Logger log = LoggerFactory.getLogger(AudioHeaderProber.class);
+
+	private static final int SYNC_SEARCH_LIMIT = 64 * 1024;
+	private static final int OGG_TAIL_BYTES = 64 * 1024;
+	static final int AAC_SAMPLES_PER_FRAME = 1024;
+
+	static final int[] ADTS_SAMPLE_RATES = {96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000,
+			12000, 11025, 8000, 7350};
+	private static final int[] MPEG_SAMPLE_RATES = {44100, 48000, 32000};
+	private static final int[][] MPEG_BITRATES_KBPS = {
+			{0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+			{0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+			{0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+			{0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+			{0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}};
+
+	static final Set<String> MP4_TOP_LEVEL_BOXES = Set.of("ftyp", "moov", "mdat", "free", "wide", "skip");
+	private static final Set<String> MP4_CONTAINER_BOXES = Set.of("moov", "trak", "mdia", "minf", "stbl", "mvex");
+	private static final Set<String> MP4_AUDIO_ENTRIES = Set.of("mp4a", "alac", "Opus", "fLaC", ".mp3", "samr",
+			"sawb", "ac-3", "ec-3", "ulaw", "alaw", "lpcm", "sowt", "twos");
+
+	public record ProbeResult(String container, String codec, double durationSeconds, int sampleRate,
+			int channels) {
+
+		public int roundedDurationSeconds() {
+			return (int) Math.max(1, Math.round(durationSeconds));
+		}
+	}
+
+	private AudioHeaderProber() {
+	}
+
+	public static Optional<ProbeResult> probe(Path path) throws IOException {
+		try (InputStream in = Files.newInputStream(path)) {
+			return probe(in, Files.size(path));
+		}
+	}
+
+	/**
+	 * @param totalSize size of the whole file in bytes, or a non-positive value if
+	 *                  unknown; needed for Ogg and for CBR/ADTS estimates
+	 * @return the probe result, or empty if the format is not recognised or the
+	 *         header does not carry enough information
+	 */
+	public static Optional<ProbeResult> probe(InputStream input, long totalSize) throws IOException {
+		HeaderReader in = new HeaderReader(input);
+		try {
+			ProbeResult result = probeContainer(in, totalSize);
+			if (result == null || !(result.durationSeconds() > 0) || Double.isInfinite(result.durationSeconds())) {
+				return Optional.empty();
+			}
+			return Optional.of(result);
+		} catch (EOFException e) {
+			log.debug("Audio header ended early at byte {}", in.position());
+			return Optional.empty();
+		} catch (RuntimeException e) {
+			log.debug("Malformed audio header at byte {}: {}", in.position(), e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	private static ProbeResult probeContainer(HeaderReader in, long totalSize) throws IOException {
+		byte[] head = in.peek(12);
+		if (head.length < 12) {
+			return null;
+		}
+		if (ascii(head, 0, 3).equals("ID3")) {
+			byte[] id3 = in.readBytes(10);
+			long tagSize = ((id3[6] & 0x7F) << 21) | ((id3[7] & 0x7F) << 14) | ((id3[8] & 0x7F) << 7)
+					| (id3[9] & 0x7F);
+			in.skip(tagSize + ((id3[5] & 0x10) != 0 ? 10 : 0));
+			head = in.peek(12);
+			if (head.length < 4) {
+				return null;
+			}
+		}
+
+		String magic = ascii(head, 0, 4);
+		if (magic.equals("RIFF") && head.length >= 12 && ascii(head, 8, 4).equals("WAVE")) {
+			return probeWav(in, totalSize);
+		}
+		if (magic.equals("fLaC")) {
+			return probeFlac(in);
+		}
+		if (magic.equals("OggS")) {
+			return probeOgg(in, totalSize);
+		}
+		if (MP4_TOP_LEVEL_BOXES.contains(ascii(head, 4, 4))) {
+			return probeMp4(in, totalSize);
+		}
+		return probeMpegAudio(in, totalSize);
+	}
+
+	private static ProbeResult probeWav(HeaderReader in, long totalSize) throws IOException {
+		in.skip(12);
+		int formatTag = 0;
+		int channels = 0;
+		int sampleRate = 0;
+		long byteRate = 0;
+		while (true) {
+			byte[] chunk = in.readBytes(8);
+			String id = ascii(chunk, 0, 4);
+			long size = le32(chunk, 4);
+			if (id.equals("fmt ")) {
+				int read = (int) Math.min(size, 16);
+				byte[] fmt = in.readBytes(read);
+				formatTag = le16(fmt, 0);
+				channels = le16(fmt, 2);
+				sampleRate = (int) le32(fmt, 4);
+				byteRate = le32(fmt, 8);
+				in.skip(size - read + (size & 1));
+			} else if (id.equals("data")) {
+				if (byteRate == 0) {
+					return null;
+				}
+				long dataSize = size;
+				boolean unknownSize = size == 0 || size == 0xFFFFFFFFL;
+				if (totalSize > 0 && (unknownSize || in.position() + size > totalSize)) {
+					dataSize = totalSize - in.position();
+				}
+				return new ProbeResult("wav", wavCodec(formatTag), (double) dataSize / byteRate, sampleRate,
+						channels);
+			} else {
+				in.skip(size + (size & 1));
+			}
+		}
+	}
+
+	private static String wavCodec(int formatTag) {
+		return switch (formatTag) {
+			case 0x0001, 0xFFFE -> "pcm";
+			case 0x0003 -> "pcm_float";
+			case 0x0006 -> "alaw";
+			case 0x0007 -> "mulaw";
+			case 0x0055 -> "mp3";
+			default -> String.format("wav_0x%04x", formatTag);
+		};
+	}
+
+	private static ProbeResult probeFlac(HeaderReader in) throws IOException {
+		in.skip(4);
+		boolean last = false;
+		while (!last) {
+			byte[] blockHeader = in.readBytes(4);
+			last = (blockHeader[0] & 0x80) != 0;
+			int type = blockHeader[0] & 0x7F;
+			int length = ((blockHeader[1] & 0xFF) << 16) | ((blockHeader[2] & 0xFF) << 8)
+					| (blockHeader[3] & 0xFF);
+			if (type == 0 && length >= 18) {
+				byte[] streamInfo = in.readBytes(18);
+				return flacStreamInfo("flac", streamInfo, 0);
+			}
+			in.skip(length);
+		}
+		return null;
+	}
+
+	private static ProbeResult flacStreamInfo(String container, byte[] buf, int offset) {
+		int sampleRate = ((buf[offset + 10] & 0xFF) << 12) | ((buf[offset + 11] & 0xFF) << 4)
+				| ((buf[offset + 12] & 0xFF) >> 4);
+		int channels = ((buf[offset + 12] >> 1) & 0x07) + 1;
+		long totalSamples = ((long) (buf[offset + 13] & 0x0F) << 32) | be32(buf, offset + 14);
+		if (sampleRate == 0 || totalSamples == 0) {
+			return null;
+		}
+		return new ProbeResult(container, "flac", (double) totalSamples / sampleRate, sampleRate, channels);
+	}
+
+	private static ProbeResult probeOgg(HeaderReader in, long totalSize) throws IOException {
+		byte[] pageHeader = in.readBytes(27);
+		long serial = le32(pageHeader, 14);
+		int segments = pageHeader[26] & 0xFF;
+		byte[] segmentTable = in.readBytes(segments);
+		int packetLength = 0;
+		for (byte lacing : segmentTable) {
+			packetLength += lacing & 0xFF;
+			if ((lacing & 0xFF) < 255) {
+				break;
+			}
+		}
+		byte[] packet = in.readBytes(Math.min(packetLength, 64));
+
+		String codec;
+		int sampleRate;
+		int channels;
+		long preSkip = 0;
+		if (packet.length >= 16 && packet[0] == 0x01 && ascii(packet, 1, 6).equals("vorbis")) {
+			codec = "vorbis";
+			channels = packet[11] & 0xFF;
+			sampleRate = (int) le32(packet, 12);
+		} else if (packet.length >= 19 && ascii(packet, 0, 8).equals("OpusHead")) {
+			codec = "opus";
+			channels = packet[9] & 0xFF;
+			preSkip = le16(packet, 10);
+			sampleRate = 48000;
+		} else if (packet.length >= 51 && packet[0] == 0x7F && ascii(packet, 1, 4).equals("FLAC")) {
+			ProbeResult info = flacStreamInfo("ogg", packet, 17);
+			if (info == null) {
+				return null;
+			}
+			codec = "flac";
+			channels = info.channels();
+			sampleRate = info.sampleRate();
+		} else {
+			return null;
+		}
+		if (totalSize <= 0 || sampleRate <= 0) {
+			return null;
+		}
+
+		in.skip(Math.max(0, totalSize - OGG_TAIL_BYTES - in.position()));
+		byte[] tail = in.readUpTo(OGG_TAIL_BYTES);
+		for (int i = tail.length - 27; i >= 0; i--) {
+			if (tail[i] == 'O' && tail[i + 1] == 'g' && tail[i + 2] == 'g' && tail[i + 3] == 'S'
+					&& le32(tail, i + 14) == serial) {
+				long granule = le64(tail, i + 6);
+				if (granule <= 0) {
+					continue;
+				}
+				return new ProbeResult("ogg", codec, (double) (granule - preSkip) / sampleRate, sampleRate, channels);
+			}
+		}
+		return null;
+	}
+
+	private static ProbeResult probeMp4(HeaderReader in, long totalSize) throws IOException {
+		Mp4State state = new Mp4State();
+		long end = totalSize > 0 ? totalSize : Long.MAX_VALUE;
+		while (in.position() < end) {
+			byte[] first = in.readUpTo(8);
+			if (first.length < 8) {
+				break;
+			}
+			long boxStart = in.position() - 8;
+			long size = be32(first, 0);
+			String type = ascii(first, 4, 4);
+			long headerLength = 8;
+			if (size == 1) {
+				size = be64(in.readBytes(8), 0);
+				headerLength = 16;
+			} else if (size == 0) {
+				if (!type.equals("moov")) {
+					break;
+				}
+				size = end - boxStart;
+			}
+			if (size < headerLength) {
+				return null;
+			}
+			if (type.equals("moov")) {
+				walkMp4Boxes(in, boxStart + size, state);
+				break;
+			}
+			in.skip(size - headerLength);
+		}
+		if (state.timescale <= 0 || state.duration <= 0) {
+			return null;
+		}
+		String codec = state.sampleEntry != null ? mp4Codec(state.sampleEntry) : "unknown";
+		return new ProbeResult("mp4", codec, (double) state.duration / state.timescale, state.sampleRate,
+				state.channels);
+	}
+
+	private static void walkMp4Boxes(HeaderReader in, long parentEnd, Mp4State state) throws IOException {
+		while (in.position() + 8 <= parentEnd) {
+			long boxStart = in.position();
+			byte[] header = in.readBytes(8);
+			long size = be32(header, 0);
+			String type = ascii(header, 4, 4);
+			if (size == 1) {
+				size = be64(in.readBytes(8), 0);
+			} else if (size == 0) {
+				size = parentEnd - boxStart;
+			}
+			long boxEnd = boxStart + size;
+			if (size < 8 || boxEnd > parentEnd) {
+				throw new IllegalStateException("Invalid MP4 box size for " + type);
+			}
+			if (MP4_CONTAINER_BOXES.contains(type)) {
+				walkMp4Boxes(in, boxEnd, state);
+			} else if (type.equals("mvhd") || type.equals("mehd")) {
+				readMp4Duration(in, type, state);
+			} else if (type.equals("stsd") && state.sampleEntry == null) {
+				readMp4SampleEntry(in, boxEnd, state);
+			}
+			if (state.isComplete()) {
+				return;
+			}
+			in.skip(boxEnd - in.position());
+		}
+	}
+
+	private static void readMp4Duration(HeaderReader in, String type, Mp4State state) throws IOException {
+		int version = in.readBytes(4)[0];
+		if (type.equals("mvhd")) {
+			byte[] body = in.readBytes(version == 1 ? 28 : 16);
+			state.timescale = be32(body, version == 1 ? 16 : 8);
+			long duration = version == 1 ? be64(body, 20) : be32(body, 12);
+			if (duration != 0xFFFFFFFFL && duration > 0) {
+				state.duration = duration;
+			}
+		} else if (state.duration <= 0) {
+			byte[] body = in.readBytes(version == 1 ? 8 : 4);
+			state.duration = version == 1 ? be64(body, 0) : be32(body, 0);
+		}
+	}
+
+	private static void readMp4SampleEntry(HeaderReader in, long boxEnd, Mp4State state) throws IOException {
+		if (in.position() + 16 > boxEnd) {
+			return;
+		}
+		in.skip(8);
+		byte[] entryHeader = in.readBytes(8);
+		String format = ascii(entryHeader, 4, 4);
+		if (!MP4_AUDIO_ENTRIES.contains(format) || in.position() + 28 > boxEnd) {
+			return;
+		}
+		byte[] entry = in.readBytes(28);
+		state.sampleEntry = format;
+		state.channels = be16(entry, 16);
+		state.sampleRate = (int) (be32(entry, 24) >>> 16);
+	}
+
+	private static String mp4Codec(String sampleEntry) {
+		return switch (sampleEntry) {
+			case "mp4a" -> "aac";
+			case ".mp3" -> "mp3";
+			case "samr" -> "amr_nb";
+			case "sawb" -> "amr_wb";
+			case "ac-3" -> "ac3";
+			case "ec-3" -> "eac3";
+			case "sowt", "twos", "lpcm" -> "pcm";
+			default -> sampleEntry.toLowerCase();
+		};
+	}
+
+	private static ProbeResult probeMpegAudio(HeaderReader in, long totalSize) throws IOException {
+		long windowStart = in.position();
+		byte[] window = in.readUpTo(SYNC_SEARCH_LIMIT);
+		boolean wholeFile = window.length < SYNC_SEARCH_LIMIT;
+		for (int i = 0; i + 4 <= window.length; i++) {
+			if ((window[i] & 0xFF) != 0xFF || (window[i + 1] & 0xE0) != 0xE0) {
+				continue;
+			}
+			ProbeResult result = (window[i + 1] & 0x06) == 0
+					? probeAdts(window, i, windowStart, totalSize, wholeFile)
+					: probeMp3(window, i, windowStart, totalSize);
+			if (result != null) {
+				return result;
+			}
+		}
+		return null;
+	}
+
+	private static ProbeResult probeAdts(byte[] window, int start, long windowStart, long totalSize,
+			boolean wholeFile) {
+		if ((window[start + 1] & 0xF6) != 0xF0 || start + 7 > window.length) {
+			return null;
+		}
+		int sampleRateIndex = (window[start + 2] >> 2) & 0x0F;
+		if (sampleRateIndex >= ADTS_SAMPLE_RATES.length) {
+			return null;
+		}
+		int sampleRate = ADTS_SAMPLE_RATES[sampleRateIndex];
+		int channels = ((window[start + 2] & 0x01) << 2) | ((window[start + 3] & 0xC0) >> 6);
+
+		long samples = 0;
+		int frames = 0;
+		int pos = start;
+		while (pos + 7 <= window.length && (window[pos] & 0xFF) == 0xFF && (window[pos + 1] & 0xF6) == 0xF0) {
+			int frameLength = ((window[pos + 3] & 0x03) << 11) | ((window[pos + 4] & 0xFF) << 3)
+					| ((window[pos + 5] & 0xE0) >> 5);
+			if (frameLength < 7 || pos + frameLength > window.length) {
+				break;
+			}
+			samples += (long) ((window[pos + 6] & 0x03) + 1) * AAC_SAMPLES_PER_FRAME;
+			frames++;
+			pos += frameLength;
+		}
+		if (frames < 2 && !(wholeFile && frames == 1)) {
+			return null;
+		}
+		double parsedSeconds = (double) samples / sampleRate;
+		long parsedBytes = pos - start;
+		double duration = parsedSeconds;
+		if (!(wholeFile && pos == window.length) && totalSize > 0) {
+			long audioBytes = totalSize - windowStart - start;
+			duration = parsedSeconds * audioBytes / parsedBytes;
+		}
+		return new ProbeResult("adts", "aac", duration, sampleRate, channels);
+	}
+
+	private static ProbeResult probeMp3(byte[] window, int start, long windowStart, long totalSize) {
+		MpegFrame frame = MpegFrame.parse(window, start);
+		if (frame == null) {
+			return null;
+		}
+		int next = start + frame.length;
+		if (next + 4 <= window.length && MpegFrame.parse(window, next) == null) {
+			return null;
+		}
+
+		int xingOffset = start + 4 + frame.sideInfoLength();
+		if (xingOffset + 12 <= window.length) {
+			String tag = ascii(window, xingOffset, 4);
+			if ((tag.equals("Xing") || tag.equals("Info")) && (be32(window, xingOffset + 4) & 0x1) != 0) {
+				long frames = be32(window, xingOffset + 8);
+				return frame.result(frames);
+			}
+		}
+		int vbriOffset = start + 36;
+		if (vbriOffset + 18 <= window.length && ascii(window, vbriOffset, 4).equals("VBRI")) {
+			return frame.result(be32(window, vbriOffset + 14));
+		}
+		if (totalSize <= 0) {
+			return null;
+		}
+		long audioBytes = totalSize - windowStart - start;
+		return new ProbeResult("mp3", frame.codec(), audioBytes * 8.0 / frame.bitrate, frame.sampleRate,
+				frame.channels);
+	}
+
+	record MpegFrame(int version, int layer, int bitrate, int sampleRate, int channels, int length) {
+
+		static MpegFrame parse(byte[] buf, int i) {
+			if (i + 4 > buf.length || (buf[i] & 0xFF) != 0xFF || (buf[i + 1] & 0xE0) != 0xE0) {
+				return null;
+			}
+			int versionBits = (buf[i + 1] >> 3) & 0x03;
+			int layerBits = (buf[i + 1] >> 1) & 0x03;
+			int bitrateIndex = (buf[i + 2] >> 4) & 0x0F;
+			int sampleRateIndex = (buf[i + 2] >> 2) & 0x03;
+			if (versionBits == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15
+					|| sampleRateIndex == 3) {
+				return null;
+			}
+			int version = versionBits == 3 ? 1 : versionBits == 2 ? 2 : 25;
+			int layer = 4 - layerBits;
+			int table = version == 1 ? layer - 1 : layer == 1 ? 3 : 4;
+			int bitrate = MPEG_BITRATES_KBPS[table][bitrateIndex] * 1000;
+			int sampleRate = MPEG_SAMPLE_RATES[sampleRateIndex] >> (version == 1 ? 0 : version == 2 ? 1 : 2);
+			int padding = (buf[i + 2] >> 1) & 0x01;
+			int channels = ((buf[i + 3] >> 6) & 0x03) == 3 ? 1 : 2;
+			int length;
+			if (layer == 1) {
+				length = (12 * bitrate / sampleRate + padding) * 4;
+			} else if (layer == 3 && version != 1) {
+				length = 72 * bitrate / sampleRate + padding;
+			} else {
+				length = 144 * bitrate / sampleRate + padding;
+			}
+			return new MpegFrame(version, layer, bitrate, sampleRate, channels, length);
+		}
+
+		int samplesPerFrame() {
+			if (layer == 1) {
+				return 384;
+			}
+			return layer == 3 && version != 1 ? 576 : 1152;
+		}
+
+		int sideInfoLength() {
+			if (version == 1) {
+				return channels == 1 ? 17 : 32;
+			}
+			return channels == 1 ? 9 : 17;
+		}
+
+		String codec() {
+			return "mp" + layer;
+		}
+
+		ProbeResult result(long frames) {
+			if (frames <= 0) {
+				return null;
+			}
+			return new ProbeResult("mp3", codec(), (double) frames * samplesPerFrame() / sampleRate, sampleRate,
+					channels);
+		}
+	}
+
+	private static final class Mp4State {
+		long timescale;
+		long duration;
+		String sampleEntry;
+		int sampleRate;
+		int channels;
+
+		boolean isComplete() {
+			return timescale > 0 && duration > 0 && sampleEntry != null;
+		}
+	}
+
+	/** Forward-only reader that tracks the absolute position in the file. */
+	private static final class HeaderReader {
+		private final BufferedInputStream in;
+		private long position;
+
+		HeaderReader(InputStream input) {
+			this.in = new BufferedInputStream(input, 8 * 1024);
+		}
+
+		long position() {
+			return position;
+		}
+
+		byte[] peek(int length) throws IOException {
+			in.mark(length);
+			byte[] buf = new byte[length];
+			int read = in.readNBytes(buf, 0, length);
+			in.reset();
+			return read == length ? buf : Arrays.copyOf(buf, read);
+		}
+
+		byte[] readBytes(int length) throws IOException {
+			byte[] buf = in.readNBytes(length);
+			position += buf.length;
+			if (buf.length < length) {
+				throw new EOFException();
+			}
+			return buf;
+		}
+
+		byte[] readUpTo(int length) throws IOException {
+			byte[] buf = in.readNBytes(length);
+			position += buf.length;
+			return buf;
+		}
+
+		void skip(long count) throws IOException {
+			if (count < 0) {
+				throw new IllegalStateException("Negative skip");
+			}
+			in.skipNBytes(count);
+			position += count;
+		}
+	}
+
+	private static String ascii(byte[] buf, int offset, int length) {
+		if (offset + length > buf.length) {
+			return "";
+		}
+		return new String(buf, offset, length, StandardCharsets.ISO_8859_1);
+	}
+
+	private static int be16(byte[] buf, int i) {
+		return ((buf[i] & 0xFF) << 8) | (buf[i + 1] & 0xFF);
+	}
+
+	private static long be32(byte[] buf, int i) {
+		return ((long) (buf[i] & 0xFF) << 24) | ((buf[i + 1] & 0xFF) << 16) | ((buf[i + 2] & 0xFF) << 8)
+				| (buf[i + 3] & 0xFF);
+	}
+
+	private static long be64(byte[] buf, int i) {
+		return (be32(buf, i) << 32) | be32(buf, i + 4);
+	}
+
+	private static int le16(byte[] buf, int i) {
+		return (buf[i] & 0xFF) | ((buf[i + 1] & 0xFF) << 8);
+	}
+
+	private static long le32(byte[] buf, int i) {
+		return (buf[i] & 0xFF) | ((buf[i + 1] & 0xFF) << 8) | ((buf[i + 2] & 0xFF) << 16)
+				| ((long) (buf[i + 3] & 0xFF) << 24);
+	}
+
+	private static long le64(byte[] buf, int i) {
+		return (le32(buf, i) & 0xFFFFFFFFL) | (le32(buf, i + 4) << 32);
+	}
+}
@@ -0,0 +1,625 @@
+package edu.cit.audioscholar.util;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.cit.audioscholar.util.AudioHeaderProber.MpegFrame;
+
+/**
+ * Cuts an audio file into time ranges without decoding it, so long recordings
+ * can be sent to Gemini in pieces. MP3 and ADTS AAC are cut at frame
+ * boundaries and PCM WAV at sample boundaries under a rewritten header. AAC in
+ * MP4/M4A, which is what the mobile app records, is rewritten as ADTS from the
+ * track's sample tables. Other formats (Ogg, FLAC, other MP4 codecs,
+ * fragmented MP4) are not supported: {@link #open} returns empty and callers
+ * send the file whole.
+ * <p>
+ * {@link #open} reads the frame headers, or the MP4 sample tables, once;
+ * {@link #write} then copies only the bytes of the requested range.
+ */
+public final class AudioSegmenter {
+
+	private static final Logger log = LoggerFactory.getLogger(AudioSegmenter.class);
+
+	private static final int SYNC_SEARCH_LIMIT = 64 * 1024;
+	/** Bytes after the last frame still taken for a trailing tag (ID3v1, APE) rather than lost sync. */
+	private static final int TRAILER_LIMIT = 64 * 1024;
+	private static final int MAX_MOOV_BYTES = 64 * 1024 * 1024;
+	private static final int ADTS_HEADER_LENGTH = 7;
+	private static final int MAX_ADTS_FRAME_LENGTH = 0x1FFF;
+	private static final Set<Integer> PCM_FORMAT_TAGS = Set.of(0x0001, 0x0003, 0x0006, 0x0007, 0xFFFE);
+
+	private final Path file;
+	private final Layout layout;
+
+	private AudioSegmenter(Path file, Layout layout) {
+		this.file = file;
+		this.layout = layout;
+	}
+
+	/**
+	 * @return a segmenter for {@code file}, or empty if its format cannot be cut
+	 *         without decoding
+	 */
+	public static Optional<AudioSegmenter> open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			Layout layout = readLayout(channel);
+			if (layout == null || !(layout.durationSeconds() > 0)) {
+				return Optional.empty();
+			}
+			return Optional.of(new AudioSegmenter(file, layout));
+		} catch (EOFException | RuntimeException e) {
+			log.debug("Cannot index {} for segmenting: {}", file.getFileName(), e.toString());
+			return Optional.empty();
+		}
+	}
+
+	public double durationSeconds() {
+		return layout.durationSeconds();
+	}
+
+	/** MIME type of the segments {@link #write} produces. */
+	public String mimeType() {
+		return layout.mimeType();
+	}
+
+	/** File extension of the segments {@link #write} produces, without the dot. */
+	public String extension() {
+		return layout.extension();
+	}
+
+	/**
+	 * Writes the audio from {@code startSeconds} to {@code endSeconds} to
+	 * {@code target}, replacing it. Cuts fall on the first frame (or sample)
+	 * starting at or after each bound.
+	 */
+	public void write(double startSeconds, double endSeconds, Path target) throws IOException {
+		try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			layout.write(in, startSeconds, endSeconds, out);
+		}
+	}
+
+	private static Layout readLayout(FileChannel channel) throws IOException {
+		byte[] head = read(channel, 0, 12);
+		if (head.length < 12) {
+			return null;
+		}
+		if (ascii(head, 0, 3).equals("ID3")) {
+			long tagSize = ((head[6] & 0x7F) << 21) | ((head[7] & 0x7F) << 14) | ((head[8] & 0x7F) << 7)
+					| (head[9] & 0x7F);
+			return readFrames(channel, 10 + tagSize + ((head[5] & 0x10) != 0 ? 10 : 0));
+		}
+		String magic = ascii(head, 0, 4);
+		if (magic.equals("RIFF") && ascii(head, 8, 4).equals("WAVE")) {
+			return readWav(channel);
+		}
+		if (AudioHeaderProber.MP4_TOP_LEVEL_BOXES.contains(ascii(head, 4, 4))) {
+			return readMp4(channel);
+		}
+		if (magic.equals("OggS") || magic.equals("fLaC")) {
+			return null;
+		}
+		return readFrames(channel, 0);
+	}
+
+	// ---- MP3 and ADTS ----
+
+	private static Layout readFrames(FileChannel channel, long searchStart) throws IOException {
+		byte[] window = read(channel, searchStart, SYNC_SEARCH_LIMIT);
+		int sync = -1;
+		boolean adts = false;
+		for (int i = 0; i + ADTS_HEADER_LENGTH <= window.length && sync < 0; i++) {
+			if ((window[i] & 0xFF) != 0xFF || (window[i + 1] & 0xE0) != 0xE0) {
+				continue;
+			}
+			adts = (window[i + 1] & 0x06) == 0;
+			int length = frameLength(window, i, adts);
+			if (length > 0 && (i + length + ADTS_HEADER_LENGTH > window.length
+					|| frameLength(window, i + length, adts) > 0)) {
+				sync = i;
+			}
+		}
+		if (sync < 0) {
+			return null;
+		}
+
+		long size = channel.size();
+		long position = searchStart + sync;
+		FrameTable table = new FrameTable();
+		int sampleRate = 0;
+		byte[] header = new byte[ADTS_HEADER_LENGTH];
+		// Not closed: closing the stream would close the caller's channel.
+		InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(position)), 64 * 1024);
+		while (position + ADTS_HEADER_LENGTH <= size) {
+			if (in.readNBytes(header, 0, header.length) < header.length) {
+				break;
+			}
+			int length = frameLength(header, 0, adts);
+			if (length <= 0 || position + length > size) {
+				break;
+			}
+			int rate;
+			int samples;
+			boolean infoFrame = false;
+			if (adts) {
+				rate = AudioHeaderProber.ADTS_SAMPLE_RATES[(header[2] >> 2) & 0x0F];
+				samples = ((header[6] & 0x03) + 1) * AudioHeaderProber.AAC_SAMPLES_PER_FRAME;
+			} else {
+				MpegFrame frame = MpegFrame.parse(header, 0);
+				rate = frame.sampleRate();
+				samples = frame.samplesPerFrame();
+				// The Xing/Info/VBRI frame describes the whole file; a segment must not carry it.
+				infoFrame = table.count == 0 && isInfoFrame(channel, position, frame);
+			}
+			if (sampleRate != 0 && rate != sampleRate) {
+				break;
+			}
+			if (!infoFrame) {
+				sampleRate = rate;
+				table.add(position, length, samples);
+			}
+			in.skipNBytes(length - ADTS_HEADER_LENGTH);
+			position += length;
+		}
+		if (table.count < 2 || size - position > TRAILER_LIMIT) {
+			log.debug("Frame scan stopped at byte {} of {} after {} frames.", position, size, table.count);
+			return null;
+		}
+		return adts ? table.toLayout("audio/aac", "aac", sampleRate, null)
+				: table.toLayout("audio/mp3", "mp3", sampleRate, null);
+	}
+
+	/** Length of the frame whose header starts at {@code i}, or -1 if there is no valid header. */
+	private static int frameLength(byte[] buf, int i, boolean adts) {
+		if (adts) {
+			if (i + ADTS_HEADER_LENGTH > buf.length || (buf[i] & 0xFF) != 0xFF || (buf[i + 1] & 0xF6) != 0xF0
+					|| ((buf[i + 2] >> 2) & 0x0F) >= AudioHeaderProber.ADTS_SAMPLE_RATES.length) {
+				return -1;
+			}
+			int length = ((buf[i + 3] & 0x03) << 11) | ((buf[i + 4] & 0xFF) << 3) | ((buf[i + 5] & 0xE0) >> 5);
+			return length >= ADTS_HEADER_LENGTH ? length : -1;
+		}
+		if (i + 2 > buf.length || (buf[i + 1] & 0x06) == 0) {
+			return -1;
+		}
+		MpegFrame frame = MpegFrame.parse(buf, i);
+		return frame != null && frame.length() >= ADTS_HEADER_LENGTH ? frame.length() : -1;
+	}
+
+	private static boolean isInfoFrame(FileChannel channel, long position, MpegFrame frame) throws IOException {
+		byte[] bytes = read(channel, position, frame.length());
+		String xing = ascii(bytes, 4 + frame.sideInfoLength(), 4);
+		return xing.equals("Xing") || xing.equals("Info") || ascii(bytes, 36, 4).equals("VBRI");
+	}
+
+	// ---- WAV ----
+
+	private static Layout readWav(FileChannel channel) throws IOException {
+		long size = channel.size();
+		long position = 12;
+		byte[] format = null;
+		while (position + 8 <= size) {
+			ByteBuffer header = ByteBuffer.wrap(read(channel, position, 8)).order(ByteOrder.LITTLE_ENDIAN);
+			String id = ascii(header.array(), 0, 4);
+			long chunkSize = header.getInt(4) & 0xFFFFFFFFL;
+			if (id.equals("fmt ")) {
+				if (chunkSize < 16 || chunkSize > 1024) {
+					return null;
+				}
+				format = read(channel, position + 8, (int) chunkSize);
+			} else if (id.equals("data")) {
+				if (format == null || format.length < 16) {
+					return null;
+				}
+				ByteBuffer fmt = ByteBuffer.wrap(format).order(ByteOrder.LITTLE_ENDIAN);
+				long byteRate = fmt.getInt(8) & 0xFFFFFFFFL;
+				int blockAlign = fmt.getShort(12) & 0xFFFF;
+				if (!PCM_FORMAT_TAGS.contains(fmt.getShort(0) & 0xFFFF) || byteRate == 0 || blockAlign == 0) {
+					return null;
+				}
+				long dataStart = position + 8;
+				long dataSize = chunkSize == 0 || chunkSize == 0xFFFFFFFFL || dataStart + chunkSize > size
+						? size - dataStart
+						: chunkSize;
+				return new Pcm(format, dataStart, dataSize - dataSize % blockAlign, byteRate, blockAlign);
+			}
+			position += 8 + chunkSize + (chunkSize & 1);
+		}
+		return null;
+	}
+
+	// ---- MP4 / M4A ----
+
+	private static Layout readMp4(FileChannel channel) throws IOException {
+		long size = channel.size();
+		long position = 0;
+		while (position + 8 <= size) {
+			ByteBuffer header = ByteBuffer.wrap(read(channel, position, 16));
+			long boxSize = header.getInt(0) & 0xFFFFFFFFL;
+			String type = ascii(header.array(), 4, 4);
+			int headerLength = 8;
+			if (boxSize == 1) {
+				boxSize = header.getLong(8);
+				headerLength = 16;
+			} else if (boxSize == 0) {
+				boxSize = size - position;
+			}
+			if (boxSize < headerLength) {
+				return null;
+			}
+			if (type.equals("moov")) {
+				if (boxSize - headerLength > MAX_MOOV_BYTES) {
+					return null;
+				}
+				byte[] moov = read(channel, position + headerLength, (int) (boxSize - headerLength));
+				for (ByteBuffer trak : children(ByteBuffer.wrap(moov), "trak")) {
+					Layout layout = readAacTrack(trak, size);
+					if (layout != null) {
+						return layout;
+					}
+				}
+				return null;
+			}
+			position += boxSize;
+		}
+		return null;
+	}
+
+	private static Layout readAacTrack(ByteBuffer trak, long fileSize) {
+		ByteBuffer mdia = child(trak, "mdia");
+		ByteBuffer hdlr = mdia != null ? child(mdia, "hdlr") : null;
+		if (hdlr == null || !ascii(hdlr, 8, 4).equals("soun")) {
+			return null;
+		}
+		ByteBuffer stbl = child(child(mdia, "minf"), "stbl");
+		ByteBuffer stsd = child(stbl, "stsd");
+		if (stsd == null || !ascii(stsd, 12, 4).equals("mp4a")) {
+			return null;
+		}
+		ByteBuffer entry = stsd.slice(16, stsd.getInt(8) - 8);
+		int version = entry.getShort(8);
+		int childrenStart = 28 + (version == 1 ? 16 : version == 2 ? 36 : 0);
+		ByteBuffer esds = child(entry.slice(childrenStart, entry.limit() - childrenStart), "esds");
+		byte[] config = esds != null ? decoderSpecificInfo(esds) : null;
+		if (config == null || config.length < 2) {
+			return null;
+		}
+		int objectType = (config[0] & 0xFF) >> 3;
+		int frequencyIndex = ((config[0] & 0x07) << 1) | ((config[1] & 0xFF) >> 7);
+		int channelConfig = (config[1] >> 3) & 0x0F;
+		boolean shortFrames = ((config[1] >> 2) & 0x01) != 0;
+		// ADTS can only describe the original AAC object types with a channel layout and sample rate index.
+		if (objectType < 1 || objectType > 4 || frequencyIndex >= AudioHeaderProber.ADTS_SAMPLE_RATES.length
+				|| channelConfig < 1 || channelConfig > 7 || shortFrames) {
+			return null;
+		}
+
+		ByteBuffer stsz = child(stbl, "stsz");
+		ByteBuffer stsc = child(stbl, "stsc");
+		long[] chunkOffsets = chunkOffsets(stbl);
+		if (stsz == null || stsc == null || chunkOffsets == null) {
+			return null;
+		}
+		int fixedSize = stsz.getInt(4);
+		int sampleCount = stsz.getInt(8);
+		int runs = stsc.getInt(4);
+		FrameTable table = new FrameTable();
+		int sample = 0;
+		for (int run = 0; run < runs && sample < sampleCount; run++) {
+			int firstChunk = stsc.getInt(8 + run * 12) - 1;
+			int samplesPerChunk = stsc.getInt(12 + run * 12);
+			int endChunk = run + 1 < runs ? stsc.getInt(8 + (run + 1) * 12) - 1 : chunkOffsets.length;
+			for (int chunk = firstChunk; chunk < endChunk && sample < sampleCount; chunk++) {
+				long offset = chunkOffsets[chunk];
+				for (int i = 0; i < samplesPerChunk && sample < sampleCount; i++, sample++) {
+					int sampleSize = fixedSize != 0 ? fixedSize : stsz.getInt(12 + sample * 4);
+					if (sampleSize <= 0 || sampleSize + ADTS_HEADER_LENGTH > MAX_ADTS_FRAME_LENGTH
+							|| offset + sampleSize > fileSize) {
+						return null;
+					}
+					table.add(offset, sampleSize, AudioHeaderProber.AAC_SAMPLES_PER_FRAME);
+					offset += sampleSize;
+				}
+			}
+		}
+		if (sampleCount <= 0 || sample < sampleCount) {
+			return null;
+		}
+		byte[] adtsHeader = {(byte) 0xFF, (byte) 0xF1,
+				(byte) (((objectType - 1) << 6) | (frequencyIndex << 2) | (channelConfig >> 2)),
+				(byte) ((channelConfig & 0x03) << 6), 0, 0x1F, (byte) 0xFC};
+		return table.toLayout("audio/aac", "aac", AudioHeaderProber.ADTS_SAMPLE_RATES[frequencyIndex],
+				adtsHeader);
+	}
+
+	private static long[] chunkOffsets(ByteBuffer stbl) {
+		ByteBuffer stco = child(stbl, "stco");
+		if (stco != null) {
+			long[] offsets = new long[stco.getInt(4)];
+			for (int i = 0; i < offsets.length; i++) {
+				offsets[i] = stco.getInt(8 + i * 4) & 0xFFFFFFFFL;
+			}
+			return offsets;
+		}
+		ByteBuffer co64 = child(stbl, "co64");
+		if (co64 != null) {
+			long[] offsets = new long[co64.getInt(4)];
+			for (int i = 0; i < offsets.length; i++) {
+				offsets[i] = co64.getLong(8 + i * 8);
+			}
+			return offsets;
+		}
+		return null;
+	}
+
+	/** The AudioSpecificConfig inside an {@code esds} box, or null. */
+	private static byte[] decoderSpecificInfo(ByteBuffer esds) {
+		int position = 4;
+		while (position < esds.limit()) {
+			int tag = esds.get(position++) & 0xFF;
+			int length = 0;
+			for (int i = 0; i < 4; i++) {
+				int b = esds.get(position++) & 0xFF;
+				length = (length << 7) | (b & 0x7F);
+				if ((b & 0x80) == 0) {
+					break;
+				}
+			}
+			switch (tag) {
+				case 0x03 -> {
+					int flags = esds.get(position + 2) & 0xFF;
+					position += 3;
+					if ((flags & 0x80) != 0) {
+						position += 2;
+					}
+					if ((flags & 0x40) != 0) {
+						position += 1 + (esds.get(position) & 0xFF);
+					}
+					if ((flags & 0x20) != 0) {
+						position += 2;
+					}
+				}
+				case 0x04 -> position += 13;
+				case 0x05 -> {
+					byte[] info = new byte[length];
+					esds.get(position, info);
+					return info;
+				}
+				default -> position += length;
+			}
+		}
+		return null;
+	}
+
+	/** Payloads of the direct children of {@code parent} with the given type. */
+	private static List<ByteBuffer> children(ByteBuffer parent, String type) {
+		List<ByteBuffer> found = new ArrayList<>();
+		int position = 0;
+		while (position + 8 <= parent.limit()) {
+			long size = parent.getInt(position) & 0xFFFFFFFFL;
+			int headerLength = 8;
+			if (size == 1) {
+				size = parent.getLong(position + 8);
+				headerLength = 16;
+			} else if (size == 0) {
+				size = parent.limit() - position;
+			}
+			if (size < headerLength || position + size > parent.limit()) {
+				break;
+			}
+			if (ascii(parent, position + 4, 4).equals(type)) {
+				found.add(parent.slice(position + headerLength, (int) size - headerLength));
+			}
+			position += (int) size;
+		}
+		return found;
+	}
+
+	private static ByteBuffer child(ByteBuffer parent, String type) {
+		if (parent == null) {
+			return null;
+		}
+		List<ByteBuffer> found = children(parent, type);
+		return found.isEmpty() ? null : found.get(0);
+	}
+
+	// ---- Layouts ----
+
+	private interface Layout {
+		double durationSeconds();
+
+		String mimeType();
+
+		String extension();
+
+		void write(FileChannel in, double startSeconds, double endSeconds, FileChannel out) throws IOException;
+	}
+
+	/** Frames located while indexing; filled in file order. */
+	private static final class FrameTable {
+		private long[] offsets = new long[1024];
+		private int[] sizes = new int[1024];
+		private long[] startSamples = new long[1025];
+		private int count;
+
+		private void add(long offset, int size, int samples) {
+			if (count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, count * 2);
+				sizes = Arrays.copyOf(sizes, count * 2);
+				startSamples = Arrays.copyOf(startSamples, count * 2 + 1);
+			}
+			offsets[count] = offset;
+			sizes[count] = size;
+			startSamples[count + 1] = startSamples[count] + samples;
+			count++;
+		}
+
+		private Frames toLayout(String mimeType, String extension, int sampleRate, byte[] adtsHeader) {
+			return new Frames(mimeType, extension, sampleRate, offsets, sizes, startSamples, count, adtsHeader);
+		}
+	}
+
+	/**
+	 * Frame-based audio. Frames are copied as they are, or, when
+	 * {@code adtsHeader} is set, each raw AAC frame gets an ADTS header.
+	 */
+	private record Frames(String mimeType, String extension, int sampleRate, long[] offsets, int[] sizes,
+			long[] startSamples, int count, byte[] adtsHeader) implements Layout {
+
+		@Override
+		public double durationSeconds() {
+			return (double) startSamples[count] / sampleRate;
+		}
+
+		@Override
+		public void write(FileChannel in, double startSeconds, double endSeconds, FileChannel out)
+				throws IOException {
+			int first = frameAt(startSeconds);
+			int end = Math.max(frameAt(endSeconds), Math.min(first + 1, count));
+			if (first >= end) {
+				return;
+			}
+			if (adtsHeader == null) {
+				long from = offsets[first];
+				copy(in, from, offsets[end - 1] + sizes[end - 1] - from, out);
+				return;
+			}
+			ByteBuffer frame = ByteBuffer.allocate(MAX_ADTS_FRAME_LENGTH);
+			for (int i = first; i < end; i++) {
+				int frameLength = ADTS_HEADER_LENGTH + sizes[i];
+				frame.clear();
+				frame.put(adtsHeader);
+				frame.put(3, (byte) ((adtsHeader[3] & 0xC0) | (frameLength >> 11)));
+				frame.put(4, (byte) (frameLength >> 3));
+				frame.put(5, (byte) (((frameLength & 0x07) << 5) | 0x1F));
+				frame.limit(frameLength);
+				readFully(in, frame, offsets[i]);
+				frame.flip();
+				while (frame.hasRemaining()) {
+					out.write(frame);
+				}
+			}
+		}
+
+		private int frameAt(double seconds) {
+			long sample = Math.round(Math.max(0, seconds) * sampleRate);
+			int index = Arrays.binarySearch(startSamples, 0, count, sample);
+			return index >= 0 ? index : -index - 1;
+		}
+	}
+
+	/** PCM WAV; segments get a copy of the original {@code fmt } chunk. */
+	private record Pcm(byte[] format, long dataStart, long dataSize, long byteRate, int blockAlign)
+			implements Layout {
+
+		@Override
+		public double durationSeconds() {
+			return (double) dataSize / byteRate;
+		}
+
+		@Override
+		public String mimeType() {
+			return "audio/wav";
+		}
+
+		@Override
+		public String extension() {
+			return "wav";
+		}
+
+		@Override
+		public void write(FileChannel in, double startSeconds, double endSeconds, FileChannel out)
+				throws IOException {
+			long from = Math.min(dataSize, align(startSeconds));
+			long length = Math.max(0, Math.min(dataSize, align(endSeconds)) - from);
+			int formatLength = format.length + (format.length & 1);
+			ByteBuffer header = ByteBuffer.allocate(28 + formatLength).order(ByteOrder.LITTLE_ENDIAN)
+					.put(ascii("RIFF")).putInt((int) (20 + formatLength + length)).put(ascii("WAVE"))
+					.put(ascii("fmt ")).putInt(format.length).put(format);
+			header.position(20 + formatLength);
+			header.put(ascii("data")).putInt((int) length).flip();
+			while (header.hasRemaining()) {
+				out.write(header);
+			}
+			copy(in, dataStart + from, length, out);
+		}
+
+		private long align(double seconds) {
+			long bytes = (long) (Math.max(0, seconds) * byteRate);
+			return bytes - bytes % blockAlign;
+		}
+	}
+
+	// ---- I/O helpers ----
+
+	private static void copy(FileChannel in, long position, long count, FileChannel out) throws IOException {
+		while (count > 0) {
+			long copied = in.transferTo(position, count, out);
+			if (copied <= 0) {
+				throw new EOFException("Audio ended at byte " + position);
+			}
+			position += copied;
+			count -= copied;
+		}
+	}
+
+	private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = in.read(buffer, position);
+			if (read < 0) {
+				throw new EOFException("Audio ended at byte " + position);
+			}
+			position += read;
+		}
+	}
+
+	/** Reads up to {@code length} bytes at {@code position}; fewer at the end of the file. */
+	private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				break;
+			}
+		}
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static String ascii(byte[] buf, int offset, int length) {
+		if (offset < 0 || offset + length > buf.length) {
+			return "";
+		}
+		return new String(buf, offset, length, StandardCharsets.ISO_8859_1);
+	}
+
+	private static String ascii(ByteBuffer buf, int offset, int length) {
+		if (offset < 0 || offset + length > buf.limit()) {
+			return "";
+		}
+		byte[] bytes = new byte[length];
+		buf.get(offset, bytes);
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,88 @@
+package edu.cit.audioscholar.util;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker with half-open probing.
+ * <p>
+ * After {@code failureThreshold} failures in a row the breaker opens and turns
+ * every call away for {@code openDuration}. It then lets a single probe call
+ * through: if the probe succeeds the breaker closes, if it fails the breaker
+ * opens again. Calls that end without saying anything about the backend's
+ * health release their permission through {@link #onIgnored()}.
+ */
+public final class CircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openNanos;
+	private final LongSupplier nanoClock;
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openUntil;
+	private boolean probeInFlight;
+
+	public CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+		this.failureThreshold = Math.max(1, failureThreshold);
+		this.openNanos = openDuration.toNanos();
+		this.nanoClock = nanoClock;
+	}
+
+	/** Whether a call may go through now. Half-open breakers let one probe through at a time. */
+	public synchronized boolean tryAcquirePermission() {
+		if (state == State.OPEN && nanoClock.getAsLong() - openUntil >= 0) {
+			state = State.HALF_OPEN;
+			probeInFlight = false;
+		}
+		return switch (state) {
+			case CLOSED -> true;
+			case HALF_OPEN -> {
+				if (probeInFlight) {
+					yield false;
+				}
+				probeInFlight = true;
+				yield true;
+			}
+			case OPEN -> false;
+		};
+	}
+
+	public synchronized void onSuccess() {
+		consecutiveFailures = 0;
+		if (state == State.HALF_OPEN) {
+			state = State.CLOSED;
+			probeInFlight = false;
+		}
+	}
+
+	public synchronized void onFailure() {
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+			state = State.OPEN;
+			openUntil = nanoClock.getAsLong() + openNanos;
+			probeInFlight = false;
+		}
+	}
+
+	public synchronized void onIgnored() {
+		if (state == State.HALF_OPEN) {
+			probeInFlight = false;
+		}
+	}
+
+	public synchronized State getState() {
+		if (state == State.OPEN && nanoClock.getAsLong() - openUntil >= 0) {
+			return State.HALF_OPEN;
+		}
+		return state;
+	}
+
+	/** Nanoseconds until an open breaker lets a probe through, 0 if it is not open. */
+	public synchronized long nanosUntilProbe() {
+		return state == State.OPEN ? Math.max(0, openUntil - nanoClock.getAsLong()) : 0;
+	}
+}
@@ -0,0 +1,60 @@
+package edu.cit.audioscholar.util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import edu.cit.audioscholar.exception.InvalidAudioFileException;
+
+/**
+ * Decides whether a failed pipeline job is worth retrying.
+ * <p>
+ * Listeners wrap whatever went wrong in a plain {@link RuntimeException}, so
+ * the cause chain is walked and the first exception of a known kind decides.
+ * I/O problems, timeouts, server errors and rate limits are transient. Bad
+ * input, rejected requests and programming errors will fail the same way on
+ * every attempt, so they are fatal. Anything unrecognised is retried; the
+ * stage's attempt and time budget still bound it.
+ */
+public final class FailureClassifier {
+
+	private static final int MAX_CAUSE_DEPTH = 16;
+
+	private FailureClassifier() {
+	}
+
+	public static boolean isRetryable(Throwable error) {
+		Throwable current = error;
+		for (int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++) {
+			Boolean verdict = classify(current);
+			if (verdict != null) {
+				return verdict;
+			}
+			if (current.getCause() == current) {
+				break;
+			}
+			current = current.getCause();
+		}
+		return true;
+	}
+
+	/** @return the verdict for a known kind of exception, {@code null} to look at its cause */
+	private static Boolean classify(Throwable error) {
+		if (error instanceof InvalidAudioFileException || error instanceof IllegalArgumentException
+				|| error instanceof NullPointerException || error instanceof ClassCastException
+				|| error instanceof UnsupportedOperationException) {
+			return false;
+		}
+		if (error instanceof HttpClientErrorException clientError) {
+			int status = clientError.getStatusCode().value();
+			return status == 408 || status == 429;
+		}
+		if (error instanceof HttpServerErrorException || error instanceof IOException
+				|| error instanceof TimeoutException || error instanceof InterruptedException) {
+			return true;
+		}
+		return null;
+	}
+}
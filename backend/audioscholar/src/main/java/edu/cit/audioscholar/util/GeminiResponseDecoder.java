@@ -0,0 +1,530 @@
+package edu.cit.audioscholar.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.lang.Nullable;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Decodes {@code generateContent} responses of the Gemini API into typed
+ * results.
+ * <p>
+ * Output requested with a response schema arrives as a JSON document escaped
+ * inside {@code candidates[0].content.parts[].text}. The envelope and that inner
+ * document are both read with Jackson's streaming parser straight into records,
+ * so neither is ever built as a tree. Bodies that already are the inner
+ * document, as handed on by some {@code GeminiService} paths and the result
+ * cache, are accepted too.
+ */
+public final class GeminiResponseDecoder {
+
+	// Root fields that mark a body as the API envelope rather than the inner document.
+	private static final Set<String> ENVELOPE_FIELDS = Set.of("candidates", "promptFeedback", "usageMetadata",
+			"modelVersion", "responseId", "createTime", "error");
+	private static final Set<String> BLOCKING_FINISH_REASONS = Set.of("SAFETY", "RECITATION", "OTHER");
+
+	/**
+	 * Text of the first candidate and why generation stopped.
+	 *
+	 * @param finishReason
+	 *            e.g. {@code STOP} or {@code MAX_TOKENS}; {@code null} if the API
+	 *            gave none
+	 * @param usage
+	 *            token counts from {@code usageMetadata}, if the response had them
+	 */
+	public record CandidateText(String text, @Nullable String finishReason, @Nullable UsageMetadata usage) {
+
+		public CandidateText(String text, @Nullable String finishReason) {
+			this(text, finishReason, null);
+		}
+
+		public boolean truncated() {
+			return "MAX_TOKENS".equals(finishReason);
+		}
+	}
+
+	/**
+	 * Tokens a call was billed for. Thinking models spend part of the output
+	 * budget on {@code thoughtsTokens}, which count against
+	 * {@code maxOutputTokens} like the answer itself.
+	 */
+	public record UsageMetadata(int promptTokens, int candidatesTokens, int thoughtsTokens) {
+
+		public int outputTokens() {
+			return candidatesTokens + thoughtsTokens;
+		}
+	}
+
+	public record GlossaryEntry(String term, String definition) {
+	}
+
+	/** @param summaryText {@code null} if the response had none */
+	public record SummaryResult(@Nullable String summaryText, List<String> keyPoints, List<String> topics,
+			List<GlossaryEntry> glossary) {
+	}
+
+	/** @param truncated whether the transcript was cut off, e.g. by the output token limit */
+	public record TranscriptResult(String transcript, @Nullable Double confidenceScore, boolean truncated) {
+	}
+
+	public record Recommendation(@Nullable String title, @Nullable String description, @Nullable String url,
+			@Nullable String type, @Nullable String audience) {
+	}
+
+	public record RecommendationResult(List<Recommendation> recommendations) {
+	}
+
+	/** The API answered with an error, or withheld the content. */
+	public static final class GeminiResponseException extends IOException {
+
+		public GeminiResponseException(String message) {
+			super(message);
+		}
+	}
+
+	@FunctionalInterface
+	private interface PayloadReader<T> {
+		/** Reads the document whose first token is the parser's current token. */
+		T read(JsonParser parser) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface FieldHandler {
+		/**
+		 * Called with the parser on the first token of the field's value; must leave
+		 * it on the value's last token.
+		 */
+		void accept(String name, JsonParser parser) throws IOException;
+	}
+
+	private final JsonFactory jsonFactory;
+
+	public GeminiResponseDecoder(JsonFactory jsonFactory) {
+		this.jsonFactory = jsonFactory;
+	}
+
+	/**
+	 * Text of the first candidate of an envelope, e.g. a summary document to hand
+	 * on unparsed.
+	 */
+	public CandidateText decodeText(String body) throws IOException {
+		try (JsonParser parser = jsonFactory.createParser(body)) {
+			if (!atEnvelope(parser)) {
+				throw new GeminiResponseException("No valid candidates found in Gemini response.");
+			}
+			return readEnvelope(parser);
+		}
+	}
+
+	public SummaryResult decodeSummary(String body) throws IOException {
+		return decode(jsonFactory.createParser(body), GeminiResponseDecoder::readSummary);
+	}
+
+	public SummaryResult decodeSummary(InputStream body) throws IOException {
+		return decode(jsonFactory.createParser(body), GeminiResponseDecoder::readSummary);
+	}
+
+	public RecommendationResult decodeRecommendations(String body) throws IOException {
+		return decode(jsonFactory.createParser(body), GeminiResponseDecoder::readRecommendations);
+	}
+
+	/**
+	 * @throws GeminiResponseException
+	 *             also when the response holds no transcript
+	 */
+	public TranscriptResult decodeTranscript(String body) throws IOException {
+		TranscriptResult transcript = findTranscript(decodeText(body));
+		if (transcript == null) {
+			throw new GeminiResponseException("Gemini response contains no transcript.");
+		}
+		return transcript;
+	}
+
+	/**
+	 * The transcript in a candidate's text, or {@code null} if the text is not a
+	 * transcript document. What can be read of a document cut off mid-transcript
+	 * is returned as a truncated transcript.
+	 */
+	@Nullable
+	public TranscriptResult findTranscript(CandidateText candidate) {
+		try (JsonParser parser = jsonFactory.createParser(candidate.text())) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return null;
+			}
+			return readTranscript(parser, candidate.truncated());
+		} catch (IOException e) {
+			String partial = partialTranscript(candidate.text());
+			return partial != null ? new TranscriptResult(partial, null, true) : null;
+		}
+	}
+
+	private <T> T decode(JsonParser parser, PayloadReader<T> payloadReader) throws IOException {
+		try (parser) {
+			if (!atEnvelope(parser)) {
+				return payloadReader.read(parser);
+			}
+			CandidateText candidate = readEnvelope(parser);
+			try (JsonParser inner = jsonFactory.createParser(candidate.text())) {
+				inner.nextToken();
+				return payloadReader.read(inner);
+			}
+		}
+	}
+
+	/**
+	 * Moves to the first field of the root object and tells whether it is an
+	 * envelope field. Otherwise the parser is left where the inner document
+	 * reader can pick it up.
+	 */
+	private static boolean atEnvelope(JsonParser parser) throws IOException {
+		JsonToken token = parser.nextToken();
+		if (token == null) {
+			throw new GeminiResponseException("Gemini response is empty.");
+		}
+		if (token != JsonToken.START_OBJECT) {
+			return false;
+		}
+		return parser.nextToken() == JsonToken.FIELD_NAME && ENVELOPE_FIELDS.contains(parser.currentName());
+	}
+
+	private static CandidateText readEnvelope(JsonParser parser) throws IOException {
+		EnvelopeState state = new EnvelopeState();
+		forEachField(parser, (name, value) -> {
+			switch (name) {
+				case "error" -> state.error = readErrorMessage(value);
+				// Error responses built by GeminiService carry their message here.
+				case "details" -> state.details = scalarOrSkip(value);
+				case "promptFeedback" -> forEachField(value, (field, feedback) -> {
+					if ("blockReason".equals(field)) {
+						state.blockReason = scalarOrSkip(feedback);
+					} else {
+						feedback.skipChildren();
+					}
+				});
+				case "candidates" -> readCandidates(value, state);
+				case "usageMetadata" -> state.usage = readUsage(value);
+				default -> value.skipChildren();
+			}
+		});
+
+		if (state.error != null) {
+			throw new GeminiResponseException(
+					"Gemini API Error: " + state.error + (state.details != null ? " - " + state.details : ""));
+		}
+		if (state.blockReason != null) {
+			throw new GeminiResponseException(
+					"Gemini API Error: Content Blocked (Prompt Feedback) - " + state.blockReason);
+		}
+		if (!state.sawCandidate) {
+			throw new GeminiResponseException("No valid candidates found in Gemini response.");
+		}
+		if (state.finishReason != null && BLOCKING_FINISH_REASONS.contains(state.finishReason)) {
+			throw new GeminiResponseException(
+					"Gemini API Error: Content Blocked (Finish Reason) - " + state.finishReason);
+		}
+		if (state.text == null) {
+			throw new GeminiResponseException(
+					"Invalid response structure: Missing 'content' or 'parts' in candidate.");
+		}
+		return new CandidateText(state.text.toString(), state.finishReason, state.usage);
+	}
+
+	@Nullable
+	private static UsageMetadata readUsage(JsonParser parser) throws IOException {
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			parser.skipChildren();
+			return null;
+		}
+		int[] counts = new int[3];
+		forEachField(parser, (name, value) -> {
+			int index = switch (name) {
+				case "promptTokenCount" -> 0;
+				case "candidatesTokenCount" -> 1;
+				case "thoughtsTokenCount" -> 2;
+				default -> -1;
+			};
+			if (index >= 0 && value.currentToken().isNumeric()) {
+				counts[index] = value.getIntValue();
+			} else {
+				value.skipChildren();
+			}
+		});
+		return new UsageMetadata(counts[0], counts[1], counts[2]);
+	}
+
+	private static void readCandidates(JsonParser parser, EnvelopeState state) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return;
+		}
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			if (state.sawCandidate || parser.currentToken() != JsonToken.START_OBJECT) {
+				// Only the first candidate is used.
+				parser.skipChildren();
+				continue;
+			}
+			state.sawCandidate = true;
+			forEachField(parser, (name, value) -> {
+				if ("finishReason".equals(name)) {
+					state.finishReason = scalarOrSkip(value);
+				} else if ("content".equals(name) && value.currentToken() == JsonToken.START_OBJECT) {
+					forEachField(value, (field, content) -> {
+						if ("parts".equals(field)) {
+							readParts(content, state);
+						} else {
+							content.skipChildren();
+						}
+					});
+				} else {
+					value.skipChildren();
+				}
+			});
+		}
+	}
+
+	private static void readParts(JsonParser parser, EnvelopeState state) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return;
+		}
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			if (parser.currentToken() != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+			forEachField(parser, (name, value) -> {
+				if ("text".equals(name) && value.currentToken() == JsonToken.VALUE_STRING) {
+					if (state.text == null) {
+						state.text = new StringBuilder(value.getTextLength());
+					}
+					state.text.append(value.getTextCharacters(), value.getTextOffset(), value.getTextLength());
+				} else {
+					value.skipChildren();
+				}
+			});
+		}
+	}
+
+	private static String readErrorMessage(JsonParser parser) throws IOException {
+		if (parser.currentToken() != JsonToken.START_OBJECT) {
+			String message = scalarOrSkip(parser);
+			return message != null ? message : "Unknown API error";
+		}
+		String[] message = {"Unknown API error"};
+		forEachField(parser, (name, value) -> {
+			if ("message".equals(name) && value.currentToken().isScalarValue()) {
+				message[0] = value.getText();
+			} else {
+				value.skipChildren();
+			}
+		});
+		return message[0];
+	}
+
+	private static SummaryResult readSummary(JsonParser parser) throws IOException {
+		String[] summaryText = {null};
+		List<String> keyPoints = new ArrayList<>();
+		List<String> topics = new ArrayList<>();
+		List<GlossaryEntry> glossary = new ArrayList<>();
+		forEachField(parser, (name, value) -> {
+			switch (name) {
+				case "summaryText" -> summaryText[0] = scalarOrSkip(value);
+				case "keyPoints" -> readStrings(value, keyPoints);
+				case "topics" -> readStrings(value, topics);
+				case "glossary" -> readGlossary(value, glossary);
+				default -> value.skipChildren();
+			}
+		});
+		return new SummaryResult(summaryText[0], keyPoints, topics, glossary);
+	}
+
+	private static void readGlossary(JsonParser parser, List<GlossaryEntry> glossary) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return;
+		}
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			if (parser.currentToken() != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+			String[] entry = new String[2];
+			forEachField(parser, (name, value) -> {
+				if ("term".equals(name)) {
+					entry[0] = scalarOrSkip(value);
+				} else if ("definition".equals(name)) {
+					entry[1] = scalarOrSkip(value);
+				} else {
+					value.skipChildren();
+				}
+			});
+			if (entry[0] != null && entry[1] != null) {
+				glossary.add(new GlossaryEntry(entry[0], entry[1]));
+			}
+		}
+	}
+
+	@Nullable
+	private static TranscriptResult readTranscript(JsonParser parser, boolean truncated) throws IOException {
+		String[] transcript = {null};
+		Double[] confidenceScore = {null};
+		forEachField(parser, (name, value) -> {
+			if ("transcript".equals(name)) {
+				transcript[0] = scalarOrSkip(value);
+			} else if ("confidenceScore".equals(name) && value.currentToken().isNumeric()) {
+				confidenceScore[0] = value.getDoubleValue();
+			} else {
+				value.skipChildren();
+			}
+		});
+		return transcript[0] != null ? new TranscriptResult(transcript[0], confidenceScore[0], truncated) : null;
+	}
+
+	private static RecommendationResult readRecommendations(JsonParser parser) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			throw new JsonParseException(parser, "Expected an array of recommendations");
+		}
+		List<Recommendation> recommendations = new ArrayList<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			if (parser.currentToken() != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+			String[] fields = new String[5];
+			forEachField(parser, (name, value) -> {
+				int index = switch (name) {
+					case "title" -> 0;
+					case "description" -> 1;
+					case "url" -> 2;
+					case "type" -> 3;
+					case "audience" -> 4;
+					default -> -1;
+				};
+				if (index >= 0) {
+					fields[index] = scalarOrSkip(value);
+				} else {
+					value.skipChildren();
+				}
+			});
+			recommendations.add(new Recommendation(fields[0], fields[1], fields[2], fields[3], fields[4]));
+		}
+		return new RecommendationResult(recommendations);
+	}
+
+	private static void readStrings(JsonParser parser, List<String> target) throws IOException {
+		if (parser.currentToken() != JsonToken.START_ARRAY) {
+			parser.skipChildren();
+			return;
+		}
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			String value = scalarOrSkip(parser);
+			if (value != null) {
+				target.add(value);
+			}
+		}
+	}
+
+	/** Text of a scalar value; containers are skipped and give {@code null}. */
+	@Nullable
+	private static String scalarOrSkip(JsonParser parser) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (token.isScalarValue()) {
+			return parser.getText();
+		}
+		parser.skipChildren();
+		return null;
+	}
+
+	/**
+	 * Calls {@code handler} for each field of the object whose start, or one of
+	 * whose field names, is the current token.
+	 */
+	private static void forEachField(JsonParser parser, FieldHandler handler) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = parser.nextToken();
+		}
+		while (token == JsonToken.FIELD_NAME) {
+			String name = parser.currentName();
+			parser.nextToken();
+			handler.accept(name, parser);
+			token = parser.nextToken();
+		}
+		if (token != JsonToken.END_OBJECT) {
+			throw new JsonParseException(parser, "Expected a JSON object");
+		}
+	}
+
+	/**
+	 * Reads what there is of the {@code transcript} string in a document cut off
+	 * before the string was closed.
+	 */
+	@Nullable
+	static String partialTranscript(String text) {
+		int key = text.indexOf("\"transcript\"");
+		if (key == -1) {
+			return null;
+		}
+		int colon = text.indexOf(':', key);
+		int open = colon == -1 ? -1 : text.indexOf('"', colon);
+		if (open == -1) {
+			return null;
+		}
+		StringBuilder out = new StringBuilder(text.length() - open);
+		for (int i = open + 1; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				break;
+			}
+			if (c != '\\') {
+				out.append(c);
+				continue;
+			}
+			if (++i >= text.length()) {
+				break;
+			}
+			char escaped = text.charAt(i);
+			switch (escaped) {
+				case 'n' -> out.append('\n');
+				case 't' -> out.append('\t');
+				case 'r' -> out.append('\r');
+				case 'b' -> out.append('\b');
+				case 'f' -> out.append('\f');
+				case 'u' -> {
+					if (i + 5 > text.length()) {
+						return out.toString();
+					}
+					try {
+						out.append((char) Integer.parseInt(text, i + 1, i + 5, 16));
+					} catch (NumberFormatException e) {
+						return out.toString();
+					}
+					i += 4;
+				}
+				default -> out.append(escaped);
+			}
+		}
+		return out.toString();
+	}
+
+	private static final class EnvelopeState {
+		private String error;
+		private String details;
+		private String blockReason;
+		private boolean sawCandidate;
+		private String finishReason;
+		private StringBuilder text;
+		private UsageMetadata usage;
+	}
+}
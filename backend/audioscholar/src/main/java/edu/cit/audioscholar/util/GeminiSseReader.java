@@ -0,0 +1,142 @@
+package edu.cit.audioscholar.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import org.springframework.lang.Nullable;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads a {@code streamGenerateContent?alt=sse} response from the Gemini API.
+ * <p>
+ * Every server-sent event carries one partial {@code GenerateContentResponse}.
+ * Each event is walked with Jackson's streaming parser and only the text parts,
+ * the finish reason and the token counts are picked out, so no tree is built and
+ * the response is never held as a whole. Text is handed to the caller as it
+ * arrives.
+ */
+public final class GeminiSseReader {
+
+	private static final String DATA_PREFIX = "data:";
+
+	/**
+	 * @param finishReason
+	 *            finish reason of the last candidate that reported one, e.g.
+	 *            {@code STOP} or {@code MAX_TOKENS}
+	 */
+	public record StreamSummary(@Nullable String finishReason, int promptTokens, int outputTokens, int events) {
+
+		public boolean truncated() {
+			return "MAX_TOKENS".equals(finishReason);
+		}
+	}
+
+	private GeminiSseReader() {
+	}
+
+	/**
+	 * Reads events until the stream ends, passing each text part to
+	 * {@code onText}.
+	 *
+	 * @throws IOException
+	 *             if the stream breaks off or the API reports an error inside
+	 *             the stream
+	 */
+	public static StreamSummary read(InputStream body, JsonFactory jsonFactory, Consumer<String> onText)
+			throws IOException {
+		EventState state = new EventState();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+		StringBuilder data = new StringBuilder();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.isEmpty()) {
+				dispatch(data, jsonFactory, onText, state);
+			} else if (line.startsWith(DATA_PREFIX)) {
+				if (!data.isEmpty()) {
+					data.append('\n');
+				}
+				int valueStart = line.startsWith(DATA_PREFIX + " ") ? DATA_PREFIX.length() + 1 : DATA_PREFIX.length();
+				data.append(line, valueStart, line.length());
+			}
+			// Comments, event names and ids carry nothing we need.
+		}
+		dispatch(data, jsonFactory, onText, state);
+		return new StreamSummary(state.finishReason, state.promptTokens, state.outputTokens, state.events);
+	}
+
+	private static void dispatch(StringBuilder data, JsonFactory jsonFactory, Consumer<String> onText,
+			EventState state) throws IOException {
+		if (data.isEmpty()) {
+			return;
+		}
+		String payload = data.toString();
+		data.setLength(0);
+		state.events++;
+
+		String errorMessage = null;
+		boolean inError = false;
+		try (JsonParser parser = jsonFactory.createParser(payload)) {
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				if (token != JsonToken.FIELD_NAME) {
+					continue;
+				}
+				String field = parser.currentName();
+				JsonStreamContext context = parser.getParsingContext();
+				if ("error".equals(field) && context.getParent().inRoot()) {
+					inError = true;
+				} else if ("text".equals(field) && isInside(context, "parts")) {
+					if (parser.nextToken() == JsonToken.VALUE_STRING) {
+						onText.accept(parser.getText());
+					}
+				} else if ("finishReason".equals(field)) {
+					parser.nextToken();
+					state.finishReason = parser.getText();
+				} else if ("promptTokenCount".equals(field) && isInside(context, "usageMetadata")) {
+					parser.nextToken();
+					state.promptTokens = parser.getIntValue();
+				} else if ("candidatesTokenCount".equals(field) && isInside(context, "usageMetadata")) {
+					parser.nextToken();
+					state.outputTokens = parser.getIntValue();
+				} else if (inError && "message".equals(field)) {
+					parser.nextToken();
+					errorMessage = parser.getText();
+				}
+			}
+		}
+		if (inError) {
+			throw new IOException(
+					"Gemini stream reported an error: " + (errorMessage != null ? errorMessage : payload));
+		}
+	}
+
+	/**
+	 * Whether the object holding the current field is, or is an element of, the
+	 * value of a field named {@code name}.
+	 */
+	private static boolean isInside(JsonStreamContext objectContext, String name) {
+		JsonStreamContext parent = objectContext.getParent();
+		if (parent == null) {
+			return false;
+		}
+		if (parent.inArray()) {
+			parent = parent.getParent();
+		}
+		return parent != null && name.equals(parent.getCurrentName());
+	}
+
+	private static final class EventState {
+		private String finishReason;
+		private int promptTokens;
+		private int outputTokens;
+		private int events;
+	}
+}
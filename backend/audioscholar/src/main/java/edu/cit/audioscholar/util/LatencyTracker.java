@@ -0,0 +1,46 @@
+package edu.cit.audioscholar.util;
+
+import java.util.Arrays;
+
+/**
+ * Rolling window of the most recent latencies, in nanoseconds, from which
+ * percentiles are read. Old samples drop out as new ones arrive, so the
+ * percentiles follow the backend as it speeds up or slows down.
+ */
+public final class LatencyTracker {
+
+	private final long[] samples;
+	private int count;
+	private int next;
+
+	public LatencyTracker(int windowSize) {
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("windowSize must be positive: " + windowSize);
+		}
+		this.samples = new long[windowSize];
+	}
+
+	public synchronized void record(long latencyNanos) {
+		samples[next] = latencyNanos;
+		next = (next + 1) % samples.length;
+		count = Math.min(count + 1, samples.length);
+	}
+
+	public synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * The latency that {@code quantile} (between 0 and 1) of the recorded samples
+	 * did not exceed, or -1 while fewer than {@code minSamples} are recorded.
+	 */
+	public synchronized long percentile(double quantile, int minSamples) {
+		if (count == 0 || count < minSamples) {
+			return -1;
+		}
+		long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(quantile * count) - 1;
+		return sorted[Math.max(0, Math.min(count - 1, index))];
+	}
+}
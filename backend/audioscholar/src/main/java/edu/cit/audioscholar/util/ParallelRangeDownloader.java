@@ -0,0 +1,191 @@
+package edu.cit.audioscholar.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Downloads a large file as several HTTP byte ranges fetched concurrently,
+ * each written straight to its offset in the target file with positional
+ * {@link FileChannel} writes.
+ * <p>
+ * The file size is probed with a HEAD request first. Files below the size
+ * threshold, servers that report {@code Accept-Ranges: none} and servers that
+ * answer a range request with a full {@code 200} body are left to the caller's
+ * single-stream download, signalled by {@link #download} returning
+ * {@code false}. A range that breaks off mid-transfer is resumed from the last
+ * byte written.
+ */
+public class ParallelRangeDownloader {
+
+	private static final Logger log = LoggerFactory.getLogger(ParallelRangeDownloader.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_ATTEMPTS_PER_RANGE = 3;
+
+	private final RestTemplate restTemplate;
+	private final int parts;
+	private final long minSizeBytes;
+
+	/** Thrown from a range extractor when the server ignored the Range header. */
+	private static final class RangeNotHonouredException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		RangeNotHonouredException(String message) {
+			super(message);
+		}
+	}
+
+	public ParallelRangeDownloader(RestTemplate restTemplate, int parts, long minSizeBytes) {
+		this.restTemplate = restTemplate;
+		this.parts = parts;
+		this.minSizeBytes = minSizeBytes;
+	}
+
+	/**
+	 * Downloads {@code uri} to {@code target} in parallel ranges.
+	 *
+	 * @return {@code false} if the file is too small or the server does not
+	 *         support ranges, in which case the caller should download it as a
+	 *         single stream; {@code target} may have been partially written
+	 */
+	public boolean download(URI uri, Path target) throws IOException {
+		if (parts < 2) {
+			return false;
+		}
+		long size;
+		try {
+			HttpHeaders headers = restTemplate.headForHeaders(uri);
+			if ("none".equalsIgnoreCase(headers.getFirst(HttpHeaders.ACCEPT_RANGES))) {
+				return false;
+			}
+			size = headers.getContentLength();
+		} catch (RestClientException e) {
+			log.debug("HEAD probe for {} failed, using a single stream: {}", uri, e.getMessage());
+			return false;
+		}
+		if (size < minSizeBytes || size <= 0) {
+			return false;
+		}
+
+		long rangeSize = (size + parts - 1) / parts;
+		long startedAt = System.nanoTime();
+		log.info("Downloading {} bytes from {} in {} parallel ranges", size, uri, parts);
+
+		try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+				ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<?>> ranges = new ArrayList<>();
+			for (long start = 0; start < size; start += rangeSize) {
+				long first = start;
+				long last = Math.min(size, start + rangeSize) - 1;
+				ranges.add(executor.submit(() -> {
+					fetchRange(uri, channel, first, last);
+					return null;
+				}));
+			}
+			try {
+				for (Future<?> range : ranges) {
+					range.get();
+				}
+			} catch (ExecutionException e) {
+				executor.shutdownNow();
+				Throwable cause = e.getCause();
+				if (cause instanceof RangeNotHonouredException) {
+					log.info("{} does not honour range requests, using a single stream", uri);
+					return false;
+				}
+				if (cause instanceof IOException ioException) {
+					throw ioException;
+				}
+				if (cause instanceof RuntimeException runtimeException) {
+					throw runtimeException;
+				}
+				throw new IOException("Ranged download of " + uri + " failed", cause);
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted during ranged download of " + uri, e);
+			}
+			if (channel.size() != size) {
+				throw new IOException("Ranged download of " + uri + " produced " + channel.size()
+						+ " bytes, expected " + size);
+			}
+		}
+		log.info("Downloaded {} bytes from {} in {} ms", size, uri, (System.nanoTime() - startedAt) / 1_000_000);
+		return true;
+	}
+
+	private void fetchRange(URI uri, FileChannel channel, long first, long last) throws IOException {
+		AtomicLong position = new AtomicLong(first);
+		for (int attempt = 1;; attempt++) {
+			long from = position.get();
+			try {
+				restTemplate.execute(uri, HttpMethod.GET,
+						request -> request.getHeaders().set(HttpHeaders.RANGE, "bytes=" + from + "-" + last),
+						response -> {
+							if (response.getStatusCode().value() != HttpStatus.PARTIAL_CONTENT.value()) {
+								throw new RangeNotHonouredException("Expected 206 for range " + from + "-" + last
+										+ ", got " + response.getStatusCode());
+							}
+							copyTo(response.getBody(), channel, position, last);
+							return null;
+						});
+			} catch (ResourceAccessException e) {
+				if (attempt >= MAX_ATTEMPTS_PER_RANGE) {
+					throw new IOException("Range " + first + "-" + last + " of " + uri + " failed after " + attempt
+							+ " attempts", e);
+				}
+				log.warn("Range {}-{} of {} broke off at byte {} (attempt {}), resuming: {}", first, last, uri,
+						position.get(), attempt, e.getMessage());
+				continue;
+			}
+			if (position.get() == last + 1) {
+				return;
+			}
+			if (attempt >= MAX_ATTEMPTS_PER_RANGE) {
+				throw new IOException(
+						"Range " + first + "-" + last + " of " + uri + " ended early at byte " + position.get());
+			}
+		}
+	}
+
+	private static void copyTo(InputStream body, FileChannel channel, AtomicLong position, long last)
+			throws IOException {
+		try (ReadableByteChannel source = Channels.newChannel(body)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			while (position.get() <= last && source.read(buffer) != -1) {
+				buffer.flip();
+				if (buffer.remaining() > last + 1 - position.get()) {
+					buffer.limit((int) (last + 1 - position.get()));
+				}
+				while (buffer.hasRemaining()) {
+					position.addAndGet(channel.write(buffer, position.get()));
+				}
+				buffer.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package edu.cit.audioscholar.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Caps the number of concurrent exchanges per host on top of another request
+ * factory. A slot is taken when the request is executed and returned when the
+ * response is closed, so streamed downloads hold it for as long as the body is
+ * being read. Callers that cannot get a slot within the acquire timeout fail
+ * with a {@link ResourceAccessException}, the same exception RestTemplate
+ * raises for connect failures. Hosts can be given their own limit; the rest
+ * share the default.
+ * <p>
+ * This is a factory decorator rather than a {@code ClientHttpRequestInterceptor}
+ * because interceptors make RestTemplate buffer the whole request body, which
+ * would pull multi-hundred-MB uploads into memory.
+ */
+public class PerHostLimitingRequestFactory implements ClientHttpRequestFactory {
+
+	private static final String METRIC_PREFIX = "audioscholar.http.client.";
+
+	private final ClientHttpRequestFactory delegate;
+	private final int maxPerHost;
+	private final Map<String, Integer> hostLimits;
+	private final Duration acquireTimeout;
+	private final MeterRegistry meterRegistry;
+	private final Map<String, HostSlots> hosts = new ConcurrentHashMap<>();
+
+	public PerHostLimitingRequestFactory(ClientHttpRequestFactory delegate, int maxPerHost, Duration acquireTimeout,
+			MeterRegistry meterRegistry) {
+		this(delegate, maxPerHost, Map.of(), acquireTimeout, meterRegistry);
+	}
+
+	/**
+	 * @param hostLimits
+	 *            per-host limits that replace {@code maxPerHost} for those hosts
+	 */
+	public PerHostLimitingRequestFactory(ClientHttpRequestFactory delegate, int maxPerHost,
+			Map<String, Integer> hostLimits, Duration acquireTimeout, MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.maxPerHost = maxPerHost;
+		this.hostLimits = Map.copyOf(hostLimits);
+		this.acquireTimeout = acquireTimeout;
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+		String host = uri.getHost() != null ? uri.getHost() : "unknown";
+		HostSlots slots = hosts.computeIfAbsent(host, HostSlots::new);
+		return new LimitedRequest(delegate.createRequest(uri, httpMethod), slots);
+	}
+
+	/** Number of exchanges currently holding a slot for {@code host}. */
+	public int inFlight(String host) {
+		HostSlots slots = hosts.get(host);
+		return slots != null ? slots.limit - slots.semaphore.availablePermits() : 0;
+	}
+
+	private final class HostSlots {
+		private final String host;
+		private final int limit;
+		private final Semaphore semaphore;
+		private final Timer acquireTimer;
+		private final Counter acquireTimeouts;
+
+		HostSlots(String host) {
+			this.host = host;
+			this.limit = hostLimits.getOrDefault(host, maxPerHost);
+			this.semaphore = new Semaphore(limit, true);
+			Gauge.builder(METRIC_PREFIX + "in_flight", semaphore, s -> limit - s.availablePermits())
+					.tag("host", host).description("Exchanges currently holding a per-host slot")
+					.register(meterRegistry);
+			Gauge.builder(METRIC_PREFIX + "pending", semaphore, Semaphore::getQueueLength).tag("host", host)
+					.description("Requests waiting for a per-host slot").register(meterRegistry);
+			Gauge.builder(METRIC_PREFIX + "max_per_host", () -> limit).tag("host", host)
+					.description("Configured per-host concurrency limit").register(meterRegistry);
+			this.acquireTimer = Timer.builder(METRIC_PREFIX + "acquire").tag("host", host)
+					.description("Time spent waiting for a per-host slot").register(meterRegistry);
+			this.acquireTimeouts = Counter.builder(METRIC_PREFIX + "acquire.timeouts").tag("host", host)
+					.description("Requests that gave up waiting for a per-host slot").register(meterRegistry);
+		}
+
+		void acquire() {
+			long start = System.nanoTime();
+			boolean acquired;
+			try {
+				acquired = semaphore.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ResourceAccessException("Interrupted while waiting for a connection slot to " + host);
+			} finally {
+				acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+			if (!acquired) {
+				acquireTimeouts.increment();
+				throw new ResourceAccessException("Timed out after " + acquireTimeout + " waiting for one of "
+						+ limit + " connection slots to " + host);
+			}
+		}
+	}
+
+	private static final class LimitedRequest extends HttpRequestWrapper
+			implements ClientHttpRequest, StreamingHttpOutputMessage {
+
+		private final ClientHttpRequest request;
+		private final HostSlots slots;
+
+		LimitedRequest(ClientHttpRequest request, HostSlots slots) {
+			super(request);
+			this.request = request;
+			this.slots = slots;
+		}
+
+		@Override
+		public OutputStream getBody() throws IOException {
+			return request.getBody();
+		}
+
+		@Override
+		public void setBody(Body body) {
+			if (request instanceof StreamingHttpOutputMessage streaming) {
+				streaming.setBody(body);
+			} else {
+				try {
+					body.writeTo(request.getBody());
+				} catch (IOException e) {
+					throw new ResourceAccessException("Failed to write request body: " + e.getMessage(), e);
+				}
+			}
+		}
+
+		@Override
+		public ClientHttpResponse execute() throws IOException {
+			slots.acquire();
+			try {
+				return new LimitedResponse(request.execute(), slots.semaphore);
+			} catch (IOException | RuntimeException e) {
+				slots.semaphore.release();
+				throw e;
+			}
+		}
+	}
+
+	private static final class LimitedResponse implements ClientHttpResponse {
+
+		private final ClientHttpResponse response;
+		private final Semaphore semaphore;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		LimitedResponse(ClientHttpResponse response, Semaphore semaphore) {
+			this.response = response;
+			this.semaphore = semaphore;
+		}
+
+		@Override
+		public HttpStatusCode getStatusCode() throws IOException {
+			return response.getStatusCode();
+		}
+
+		@Override
+		public String getStatusText() throws IOException {
+			return response.getStatusText();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return response.getHeaders();
+		}
+
+		@Override
+		public InputStream getBody() throws IOException {
+			return response.getBody();
+		}
+
+		@Override
+		public void close() {
+			try {
+				response.close();
+			} finally {
+				if (released.compareAndSet(false, true)) {
+					semaphore.release();
+				}
+			}
+		}
+	}
+}
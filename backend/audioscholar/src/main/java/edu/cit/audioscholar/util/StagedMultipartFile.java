@@ -0,0 +1,113 @@
+package edu.cit.audioscholar.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.springframework.lang.Nullable;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * A {@link MultipartFile} backed by a file that has already been assembled on
+ * local disk, e.g. by a chunked upload session. {@link #transferTo(Path)} hard
+ * links the file instead of copying it, so handing it to the upload pipeline
+ * does not re-read the content and the staged file survives until the stager
+ * discards it. Where links are not supported the file is moved.
+ */
+public class StagedMultipartFile implements MultipartFile {
+
+	private final String name;
+	private final String originalFilename;
+	private final String contentType;
+	private final Path path;
+	private final long size;
+	private final String contentHash;
+
+	public StagedMultipartFile(String name, String originalFilename, String contentType, Path path, long size) {
+		this(name, originalFilename, contentType, path, size, null);
+	}
+
+	public StagedMultipartFile(String name, String originalFilename, String contentType, Path path, long size,
+			@Nullable String contentHash) {
+		this.name = name;
+		this.originalFilename = originalFilename;
+		this.contentType = contentType;
+		this.path = path;
+		this.size = size;
+		this.contentHash = contentHash;
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * SHA-256 of the content computed while it was being staged, or {@code null}
+	 * if the stager did not hash it.
+	 */
+	@Nullable
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String getOriginalFilename() {
+		return originalFilename;
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public long getSize() {
+		return size;
+	}
+
+	@Override
+	public byte[] getBytes() throws IOException {
+		return Files.readAllBytes(path);
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return Files.newInputStream(path);
+	}
+
+	@Override
+	public void transferTo(File dest) throws IOException {
+		transferTo(dest.toPath());
+	}
+
+	@Override
+	public void transferTo(Path dest) throws IOException {
+		try {
+			Files.deleteIfExists(dest);
+			Files.createLink(dest, path);
+			return;
+		} catch (UnsupportedOperationException | FileSystemException e) {
+			// Different file store or no link support; fall back to a move.
+		}
+		try {
+			Files.move(path, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(path, dest, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package edu.cit.audioscholar.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.cit.audioscholar.util.AudioHeaderProber.ProbeResult;
+
+/**
+ * Runs {@link AudioHeaderProber} on the bytes another consumer is reading, so
+ * the header is probed in the same pass that uploads the file instead of
+ * reading it again. Everything read through {@link #tap} is handed to the
+ * prober on a separate thread; once the prober has its answer the copies stop.
+ * <p>
+ * The prober only reads forwards and discards what it skips, so it keeps up
+ * with the upload. If it falls more than a few hundred kilobytes behind, the
+ * reader waits for it.
+ */
+public final class StreamingHeaderProbe {
+
+	private static final Logger log = LoggerFactory.getLogger(StreamingHeaderProbe.class);
+
+	private static final byte[] END = new byte[0];
+	private static final int QUEUED_CHUNKS = 64;
+	private static final long FINISH_TIMEOUT_SECONDS = 10;
+
+	private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+	private final CompletableFuture<Optional<ProbeResult>> result;
+	private volatile boolean done;
+
+	/**
+	 * @param totalSize size of the whole file in bytes, see
+	 *                  {@link AudioHeaderProber#probe(InputStream, long)}
+	 */
+	public StreamingHeaderProbe(long totalSize, Executor executor) {
+		this.result = CompletableFuture.supplyAsync(() -> {
+			try {
+				return AudioHeaderProber.probe(new ChunkInputStream(), totalSize);
+			} catch (IOException e) {
+				log.debug("Streaming header probe failed: {}", e.getMessage());
+				return Optional.empty();
+			} finally {
+				done = true;
+				chunks.clear();
+			}
+		}, executor);
+	}
+
+	/** Wraps {@code source} so that every byte read from it is also probed. */
+	public InputStream tap(InputStream source) {
+		return new FilterInputStream(source) {
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				offer(b >= 0 ? new byte[]{(byte) b} : END);
+				return b;
+			}
+
+			@Override
+			public int read(byte[] buffer, int off, int len) throws IOException {
+				int read = super.read(buffer, off, len);
+				if (read > 0 && !done) {
+					offer(Arrays.copyOfRange(buffer, off, off + read));
+				} else if (read < 0) {
+					offer(END);
+				}
+				return read;
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				// Skipped bytes still have to reach the prober.
+				byte[] scratch = new byte[(int) Math.min(n, 8192)];
+				int read = read(scratch, 0, scratch.length);
+				return Math.max(read, 0);
+			}
+		};
+	}
+
+	/**
+	 * Ends the probe, whether or not the tapped stream was read to the end, and
+	 * returns what it found.
+	 */
+	public Optional<ProbeResult> finish() {
+		offer(END);
+		try {
+			return result.get(FINISH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Optional.empty();
+		} catch (ExecutionException | TimeoutException e) {
+			log.debug("Streaming header probe did not finish: {}", e.toString());
+			return Optional.empty();
+		}
+	}
+
+	private void offer(byte[] chunk) {
+		while (!done) {
+			try {
+				if (chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+					return;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/** The prober's side of the queue. */
+	private final class ChunkInputStream extends InputStream {
+		private byte[] current = new byte[0];
+		private int position;
+		private boolean ended;
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] buffer, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			while (position >= current.length) {
+				if (ended) {
+					return -1;
+				}
+				try {
+					byte[] next = chunks.take();
+					if (next == END) {
+						ended = true;
+					} else {
+						current = next;
+						position = 0;
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while probing", e);
+				}
+			}
+			int count = Math.min(len, current.length - position);
+			System.arraycopy(current, position, buffer, off, count);
+			position += count;
+			return count;
+		}
+	}
+}
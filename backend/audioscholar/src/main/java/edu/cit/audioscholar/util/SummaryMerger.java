@@ -0,0 +1,99 @@
+package edu.cit.audioscholar.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.springframework.lang.Nullable;
+
+import edu.cit.audioscholar.util.GeminiResponseDecoder.GlossaryEntry;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.SummaryResult;
+
+/**
+ * Combines the summaries of consecutive parts of one transcript into a summary
+ * of the whole.
+ * <p>
+ * The reduce pass asks Gemini to rewrite the partial summaries as one; its
+ * answer is taken for the summary text, key points and topics. The glossary is
+ * merged here instead, so that the reduce pass does not spend output tokens
+ * copying every term back. Whatever the reduce pass did not return, because it
+ * failed or left a field empty, is filled in from the parts: their texts in
+ * order, their key points without repeats and the first
+ * {@value #MAX_TOPICS} distinct topics.
+ */
+public final class SummaryMerger {
+
+	static final int MAX_TOPICS = 3;
+	private static final Pattern SPACES = Pattern.compile("\\s+");
+	private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\p{Punct}\\s]+$");
+
+	private SummaryMerger() {
+	}
+
+	/**
+	 * @param reduced
+	 *            the reduce pass's summary, or {@code null} if there is none
+	 * @param parts
+	 *            summaries of the transcript's parts, in order
+	 */
+	public static SummaryResult merge(@Nullable SummaryResult reduced, List<SummaryResult> parts) {
+		String summaryText = reduced != null ? reduced.summaryText() : null;
+		if (summaryText == null || summaryText.isBlank()) {
+			List<String> texts = new ArrayList<>();
+			for (SummaryResult part : parts) {
+				if (part.summaryText() != null && !part.summaryText().isBlank()) {
+					texts.add(part.summaryText().strip());
+				}
+			}
+			summaryText = String.join("\n\n", texts);
+		}
+
+		List<String> keyPoints = reduced != null ? reduced.keyPoints() : List.of();
+		if (keyPoints.isEmpty()) {
+			keyPoints = distinct(parts.stream().flatMap(part -> part.keyPoints().stream()).toList(),
+					Function.identity(), Integer.MAX_VALUE);
+		}
+
+		List<String> topics = reduced != null ? reduced.topics() : List.of();
+		if (topics.isEmpty()) {
+			topics = distinct(parts.stream().flatMap(part -> part.topics().stream()).toList(), Function.identity(),
+					MAX_TOPICS);
+		}
+
+		List<GlossaryEntry> glossary = new ArrayList<>();
+		parts.forEach(part -> glossary.addAll(part.glossary()));
+		if (reduced != null) {
+			glossary.addAll(reduced.glossary());
+		}
+
+		return new SummaryResult(summaryText, keyPoints, topics,
+				distinct(glossary, GlossaryEntry::term, Integer.MAX_VALUE));
+	}
+
+	/** The first {@code limit} items whose keys differ only in case, spacing or trailing punctuation. */
+	private static <T> List<T> distinct(List<T> items, Function<T, String> key, int limit) {
+		Map<String, T> seen = new LinkedHashMap<>();
+		for (T item : items) {
+			if (seen.size() >= limit) {
+				break;
+			}
+			String normalized = normalize(key.apply(item));
+			if (!normalized.isEmpty()) {
+				seen.putIfAbsent(normalized, item);
+			}
+		}
+		return List.copyOf(seen.values());
+	}
+
+	private static String normalize(@Nullable String value) {
+		if (value == null) {
+			return "";
+		}
+		String collapsed = SPACES.matcher(value.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+		return TRAILING_PUNCTUATION.matcher(collapsed).replaceAll("");
+	}
+}
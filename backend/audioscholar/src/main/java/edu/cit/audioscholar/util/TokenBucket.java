@@ -0,0 +1,78 @@
+package edu.cit.audioscholar.util;
+
+import java.time.Duration;
+
+/**
+ * Token bucket that holds up to {@code capacity} tokens and refills
+ * continuously at {@code capacity} tokens per {@code period}, so a full bucket
+ * allows a burst of the whole budget and an empty one recovers evenly.
+ * <p>
+ * Time is passed in by the caller as {@link System#nanoTime()}-style readings.
+ * Not thread-safe; callers synchronize.
+ */
+public final class TokenBucket {
+
+	private final double capacity;
+	private final double refillPerNano;
+	private double available;
+	private long updatedAt;
+
+	public TokenBucket(long capacity, Duration period, long now) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.refillPerNano = capacity / (double) period.toNanos();
+		this.available = capacity;
+		this.updatedAt = now;
+	}
+
+	public double getCapacity() {
+		return capacity;
+	}
+
+	public double available(long now) {
+		refill(now);
+		return available;
+	}
+
+	/** Takes {@code tokens}, whether or not that many are available. */
+	public void take(double tokens, long now) {
+		refill(now);
+		available -= tokens;
+	}
+
+	/** Puts back {@code tokens} taken earlier, never filling past the capacity. */
+	public void refund(double tokens, long now) {
+		refill(now);
+		available = Math.min(capacity, available + tokens);
+	}
+
+	/** Empties the bucket, e.g. after the server reported the budget as spent. */
+	public void drain(long now) {
+		refill(now);
+		available = Math.min(available, 0);
+	}
+
+	/** Nanoseconds until {@code tokens} are available, 0 if they already are. */
+	public long nanosUntil(double tokens, long now) {
+		refill(now);
+		if (available >= tokens) {
+			return 0;
+		}
+		return (long) Math.ceil((tokens - available) / refillPerNano);
+	}
+
+	/** Share of the budget currently spent, between 0 and 1. */
+	public double utilization(long now) {
+		refill(now);
+		return Math.max(0, Math.min(1, 1 - available / capacity));
+	}
+
+	private void refill(long now) {
+		if (now > updatedAt) {
+			available = Math.min(capacity, available + (now - updatedAt) * refillPerNano);
+			updatedAt = now;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package edu.cit.audioscholar.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a long transcript into consecutive parts that can be summarized on
+ * their own.
+ * <p>
+ * Transcripts carry no timestamps once stitched, so the speaker's own
+ * structure is used instead: parts end at a paragraph break where one is near,
+ * otherwise at the end of a sentence, otherwise between words. Parts are kept
+ * close to equal in length, so that a transcript just over the limit becomes
+ * two halves rather than one full part and a sliver.
+ */
+public final class TranscriptChunker {
+
+	private TranscriptChunker() {
+	}
+
+	/**
+	 * @param transcript
+	 *            the full transcript
+	 * @param maxChars
+	 *            the longest part to return; parts are cut shorter to end on a
+	 *            boundary, never longer
+	 * @return the parts in order, stripped; a single part if the transcript
+	 *         already fits
+	 */
+	public static List<String> split(String transcript, int maxChars) {
+		if (maxChars <= 0) {
+			throw new IllegalArgumentException("maxChars must be positive: " + maxChars);
+		}
+		List<String> parts = new ArrayList<>();
+		int start = 0;
+		int length = transcript.length();
+		while (length - start > maxChars) {
+			int remaining = length - start;
+			int partsLeft = (remaining + maxChars - 1) / maxChars;
+			int target = start + remaining / partsLeft;
+			// Accept a boundary up to a quarter of a part either side of the even split.
+			int lowest = Math.max(start + 1, target - maxChars / 4);
+			int highest = Math.min(start + maxChars, target + maxChars / 4);
+			int end = boundaryBefore(transcript, lowest, highest);
+			addPart(parts, transcript.substring(start, end));
+			start = end;
+		}
+		addPart(parts, transcript.substring(start));
+		return parts;
+	}
+
+	/** The latest cut point in {@code [lowest, highest]}, preferring the strongest boundary. */
+	private static int boundaryBefore(String text, int lowest, int highest) {
+		int paragraph = text.lastIndexOf("\n\n", highest - 2);
+		if (paragraph >= lowest) {
+			return paragraph + 2;
+		}
+		for (int i = highest; i >= lowest; i--) {
+			char c = text.charAt(i - 1);
+			if ((c == '.' || c == '?' || c == '!') && Character.isWhitespace(text.charAt(i))) {
+				return i;
+			}
+		}
+		for (int i = highest; i >= lowest; i--) {
+			if (Character.isWhitespace(text.charAt(i))) {
+				return i;
+			}
+		}
+		return highest;
+	}
+
+	private static void addPart(List<String> parts, String part) {
+		String stripped = part.strip();
+		if (!stripped.isEmpty()) {
+			parts.add(stripped);
+		}
+	}
+}
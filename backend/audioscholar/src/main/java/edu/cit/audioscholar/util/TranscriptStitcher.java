@@ -0,0 +1,100 @@
+package edu.cit.audioscholar.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Joins transcripts of overlapping audio windows into one transcript.
+ * <p>
+ * Neighbouring windows share a few seconds of audio, so the end of one
+ * transcript and the start of the next contain the same words. The longest run
+ * of matching words between the tail of the earlier transcript and the head of
+ * the later one is taken as the overlap: the earlier transcript is kept up to
+ * the end of that run and the later one continues right after it. Words are
+ * compared case-insensitively and without punctuation, since the two
+ * transcriptions of the shared audio rarely agree on either. If no run of at
+ * least {@link #MIN_MATCH_WORDS} words is found, the transcripts are joined
+ * with a paragraph break.
+ */
+public final class TranscriptStitcher {
+
+	public static final String NO_SPEECH_MARKER = "[NO SPEECH DETECTED]";
+
+	static final int MIN_MATCH_WORDS = 4;
+	private static final Pattern WORD = Pattern.compile("\\S+");
+	private static final Pattern NON_WORD_CHARS = Pattern.compile("[^\\p{L}\\p{N}]");
+
+	private TranscriptStitcher() {
+	}
+
+	/**
+	 * @param segments
+	 *            transcripts in window order
+	 * @param overlapWords
+	 *            how many words at each edge to search for the overlap; should
+	 *            comfortably exceed the words spoken during the overlap
+	 */
+	public static String stitch(List<String> segments, int overlapWords) {
+		String result = null;
+		for (String segment : segments) {
+			if (segment == null || segment.isBlank() || NO_SPEECH_MARKER.equals(segment.strip())) {
+				continue;
+			}
+			result = result == null ? segment.strip() : join(result, segment.strip(), overlapWords);
+		}
+		return result != null ? result : NO_SPEECH_MARKER;
+	}
+
+	private static String join(String earlier, String later, int overlapWords) {
+		List<Token> tail = tokens(earlier);
+		tail = tail.subList(Math.max(0, tail.size() - overlapWords), tail.size());
+		List<Token> head = tokens(later);
+		head = head.subList(0, Math.min(head.size(), overlapWords));
+
+		// Longest common run of words, by dynamic programming over the two edges.
+		int bestLength = 0;
+		int bestTailEnd = -1;
+		int bestHeadEnd = -1;
+		int[] previous = new int[head.size() + 1];
+		for (int i = 1; i <= tail.size(); i++) {
+			int[] current = new int[head.size() + 1];
+			for (int j = 1; j <= head.size(); j++) {
+				String word = tail.get(i - 1).normalized;
+				if (!word.isEmpty() && word.equals(head.get(j - 1).normalized)) {
+					current[j] = previous[j - 1] + 1;
+					if (current[j] > bestLength) {
+						bestLength = current[j];
+						bestTailEnd = i - 1;
+						bestHeadEnd = j - 1;
+					}
+				}
+			}
+			previous = current;
+		}
+
+		if (bestLength < MIN_MATCH_WORDS) {
+			return earlier + "\n\n" + later;
+		}
+		String kept = earlier.substring(0, tail.get(bestTailEnd).end);
+		int resumeAt = bestHeadEnd + 1 < head.size() ? head.get(bestHeadEnd + 1).start
+				: head.get(bestHeadEnd).end;
+		String rest = later.substring(resumeAt).strip();
+		return rest.isEmpty() ? kept : kept + " " + rest;
+	}
+
+	private static List<Token> tokens(String text) {
+		List<Token> tokens = new ArrayList<>();
+		Matcher matcher = WORD.matcher(text);
+		while (matcher.find()) {
+			String normalized = NON_WORD_CHARS.matcher(matcher.group()).replaceAll("").toLowerCase(Locale.ROOT);
+			tokens.add(new Token(matcher.start(), matcher.end(), normalized));
+		}
+		return tokens;
+	}
+
+	private record Token(int start, int end, String normalized) {
+	}
+}
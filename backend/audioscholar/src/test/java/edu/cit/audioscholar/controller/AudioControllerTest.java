@@ -1,7 +1,13 @@
 package edu.cit.audioscholar.controller;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -20,9 +26,13 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import edu.cit.audioscholar.dto.UpdateRecordingRequest;
+import edu.cit.audioscholar.model.AudioMetadata;
+import edu.cit.audioscholar.model.DeletionJob;
+import edu.cit.audioscholar.model.ProcessingStatus;
 import edu.cit.audioscholar.model.Recording;
 import edu.cit.audioscholar.service.AudioProcessingService;
 import edu.cit.audioscholar.service.FirebaseService;
+import edu.cit.audioscholar.service.RecordingDeletionService;
 import edu.cit.audioscholar.service.RecordingService;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +50,9 @@ public class AudioControllerTest {
 	@Mock
 	private AudioProcessingService audioProcessingService;
 
+	@Mock
+	private RecordingDeletionService recordingDeletionService;
+
 	@InjectMocks
 	private AudioController audioController;
 
@@ -96,4 +109,39 @@ public class AudioControllerTest {
 				.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(request)))
 				.andExpect(status().isNotFound());
 	}
+
+	@Test
+	void deleteMetadata_AcceptedWithStatusLocation() throws Exception {
+		AudioMetadata metadata = new AudioMetadata();
+		metadata.setId("meta123");
+		metadata.setUserId(TEST_USER_ID);
+
+		when(audioProcessingService.getAudioMetadataById("meta123")).thenReturn(metadata);
+		when(recordingDeletionService.requestDeletion(metadata)).thenReturn(new DeletionJob("meta123", TEST_USER_ID));
+
+		mockMvc.perform(delete("/api/audio/metadata/{id}", "meta123")).andExpect(status().isAccepted())
+				.andExpect(header().string("Location", "/api/audio/metadata/meta123/deletion"))
+				.andExpect(jsonPath("$.state").value("QUEUED"));
+	}
+
+	@Test
+	void getDeletionStatus_ReportsStoredDeletingStateWithoutStartingADeletion() throws Exception {
+		AudioMetadata metadata = new AudioMetadata();
+		metadata.setId("meta123");
+		metadata.setUserId(TEST_USER_ID);
+		metadata.setStatus(ProcessingStatus.DELETING);
+
+		when(audioProcessingService.getAudioMetadataById("meta123")).thenReturn(metadata);
+
+		mockMvc.perform(get("/api/audio/metadata/{id}/deletion", "meta123")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.state").value("PENDING"));
+		verify(recordingDeletionService, never()).requestDeletion(any());
+	}
+
+	@Test
+	void getDeletionStatus_ForbiddenForOtherUser() throws Exception {
+		when(recordingDeletionService.getJob("meta123")).thenReturn(new DeletionJob("meta123", OTHER_USER_ID));
+
+		mockMvc.perform(get("/api/audio/metadata/{id}/deletion", "meta123")).andExpect(status().isForbidden());
+	}
 }
@@ -0,0 +1,163 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import edu.cit.audioscholar.exception.AdmissionRejectedException;
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class AdmissionControlServiceTest {
+
+	private static final String USER_ID = "user-1";
+
+	@Mock
+	private FirebaseService firebaseService;
+
+	private AdmissionControlService admissionControlService;
+
+	@BeforeEach
+	void setUp() {
+		admissionControlService = new AdmissionControlService(firebaseService, true, 2, 10, 300, 1, 1, 60, 360,
+				new SimpleMeterRegistry());
+	}
+
+	@Test
+	void admit_RejectsUserAtLimitWithEstimatedWait() {
+		when(firebaseService.countAudioMetadataByStatus(eq(USER_ID), any(), any())).thenReturn(2L);
+		when(firebaseService.countAudioMetadataByStatus(isNull(), any(), any())).thenReturn(4L);
+
+		AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class,
+				() -> admissionControlService.admit(USER_ID));
+
+		assertEquals(AdmissionControlService.REASON_USER_LIMIT, ex.getReason());
+		assertEquals(2, ex.getInFlight());
+		assertEquals(300, ex.getEstimatedWaitSeconds());
+		verify(firebaseService).countAudioMetadataByStatus(eq(USER_ID), any(), notNull());
+	}
+
+	@Test
+	void admit_RejectsWhenPipelineIsFull() {
+		when(firebaseService.countAudioMetadataByStatus(eq(USER_ID), any(), any())).thenReturn(0L);
+		when(firebaseService.countAudioMetadataByStatus(isNull(), any(), any())).thenReturn(12L);
+
+		AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class,
+				() -> admissionControlService.admit(USER_ID));
+
+		assertEquals(AdmissionControlService.REASON_QUEUE_FULL, ex.getReason());
+		assertEquals(3 * 300, ex.getEstimatedWaitSeconds());
+	}
+
+	@Test
+	void admit_CountsPermitsNotYetVisibleInFirestore() {
+		when(firebaseService.countAudioMetadataByStatus(eq(USER_ID), any(), any())).thenReturn(1L);
+		when(firebaseService.countAudioMetadataByStatus(isNull(), any(), any())).thenReturn(1L);
+
+		AdmissionControlService.Permit permit = admissionControlService.admit(USER_ID);
+
+		assertThrows(AdmissionRejectedException.class, () -> admissionControlService.admit(USER_ID));
+		permit.close();
+		permit.close();
+		admissionControlService.admit(USER_ID).close();
+	}
+
+	@Test
+	void admit_RecordedPermitHoldsSlotUntilCountRefreshes() {
+		when(firebaseService.countAudioMetadataByStatus(eq(USER_ID), any(), any())).thenReturn(0L);
+		when(firebaseService.countAudioMetadataByStatus(isNull(), any(), any())).thenReturn(1L);
+		AdmissionControlService cached = new AdmissionControlService(firebaseService, true, 2, 2, 300, 1, 1, 60, 360,
+				new SimpleMeterRegistry());
+		AdmissionControlService uncached = new AdmissionControlService(firebaseService, true, 2, 2, 300, 1, 1, 0,
+				360, new SimpleMeterRegistry());
+
+		try (AdmissionControlService.Permit permit = cached.admit(USER_ID)) {
+			permit.recorded();
+		}
+		AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class,
+				() -> cached.admit(USER_ID));
+		assertEquals(AdmissionControlService.REASON_QUEUE_FULL, ex.getReason());
+
+		try (AdmissionControlService.Permit permit = uncached.admit(USER_ID)) {
+			permit.recorded();
+		}
+		uncached.admit(USER_ID).close();
+	}
+
+	@Test
+	void admit_ConcurrentUploadsTakeTheLastSlotOnce() throws Exception {
+		when(firebaseService.countAudioMetadataByStatus(eq(USER_ID), any(), any())).thenReturn(1L);
+		when(firebaseService.countAudioMetadataByStatus(isNull(), any(), any())).thenReturn(1L);
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> attempts = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				attempts.add(executor.submit(() -> {
+					start.await();
+					try {
+						admissionControlService.admit(USER_ID);
+						return true;
+					} catch (AdmissionRejectedException e) {
+						return false;
+					}
+				}));
+			}
+			start.countDown();
+			int admitted = 0;
+			for (Future<Boolean> attempt : attempts) {
+				admitted += attempt.get() ? 1 : 0;
+			}
+			assertEquals(1, admitted);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void admit_CachesGlobalCount() {
+		when(firebaseService.countAudioMetadataByStatus(eq(USER_ID), any(), any())).thenReturn(0L);
+		when(firebaseService.countAudioMetadataByStatus(isNull(), any(), any())).thenReturn(0L);
+
+		admissionControlService.admit(USER_ID).close();
+		admissionControlService.admit(USER_ID).close();
+
+		verify(firebaseService, times(1)).countAudioMetadataByStatus(isNull(), any(), any());
+	}
+
+	@Test
+	void admit_AdmitsWhenFirestoreIsUnavailable() {
+		when(firebaseService.countAudioMetadataByStatus(eq(USER_ID), any(), any()))
+				.thenThrow(new FirestoreInteractionException("unavailable"));
+
+		admissionControlService.admit(USER_ID).close();
+	}
+
+	@Test
+	void estimateWaitSeconds_SpreadsAcrossListenerConcurrency() {
+		AdmissionControlService concurrent = new AdmissionControlService(firebaseService, true, 2, 10, 300, 4, 8, 60,
+				360, new SimpleMeterRegistry());
+
+		assertEquals(150, concurrent.estimateWaitSeconds(2));
+	}
+}
@@ -0,0 +1,214 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.multipart.MultipartFile;
+
+import edu.cit.audioscholar.exception.AdmissionRejectedException;
+import edu.cit.audioscholar.exception.InvalidAudioFileException;
+import edu.cit.audioscholar.exception.TempStorageFullException;
+import edu.cit.audioscholar.exception.UploadOffsetMismatchException;
+import edu.cit.audioscholar.model.AudioMetadata;
+import edu.cit.audioscholar.model.UploadSession;
+import edu.cit.audioscholar.util.StagedMultipartFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedUploadServiceTest {
+
+	private static final String USER_ID = "user-1";
+
+	@Mock
+	private AudioProcessingService audioProcessingService;
+
+	@Mock
+	private AdmissionControlService admissionControlService;
+
+	@TempDir
+	Path tempDir;
+
+	private TempFileStore tempFileStore;
+	private ChunkedUploadService chunkedUploadService;
+
+	@BeforeEach
+	void setUp() {
+		tempFileStore = new TempFileStore(tempDir.toString(), "10MB", "0B", 360, 15, 60, new SimpleMeterRegistry());
+		chunkedUploadService = new ChunkedUploadService(audioProcessingService, tempFileStore,
+				admissionControlService, "1MB", 24, 2, "1MB", 15);
+	}
+
+	@Test
+	void appendChunk_WritesAtOffsetAndAdvances() throws IOException {
+		UploadSession session = chunkedUploadService.createSession(USER_ID, "audio", "lecture.mp3", "audio/mpeg", 6);
+
+		chunkedUploadService.appendChunk(session.getSessionId(), USER_ID, 0, stream("abc"));
+		UploadSession updated = chunkedUploadService.appendChunk(session.getSessionId(), USER_ID, 3, stream("def"));
+
+		assertEquals(6, updated.getOffset());
+		assertArrayEquals("abcdef".getBytes(), Files.readAllBytes(updated.getStagingPath()));
+	}
+
+	@Test
+	void appendChunk_OffsetMismatchReportsCurrentOffset() throws IOException {
+		UploadSession session = chunkedUploadService.createSession(USER_ID, "audio", "lecture.mp3", "audio/mpeg", 6);
+		chunkedUploadService.appendChunk(session.getSessionId(), USER_ID, 0, stream("abc"));
+
+		UploadOffsetMismatchException ex = assertThrows(UploadOffsetMismatchException.class,
+				() -> chunkedUploadService.appendChunk(session.getSessionId(), USER_ID, 1, stream("bcd")));
+		assertEquals(3, ex.getCurrentOffset());
+	}
+
+	@Test
+	void appendChunk_RejectsBytesBeyondDeclaredSize() throws IOException {
+		UploadSession session = chunkedUploadService.createSession(USER_ID, "audio", "lecture.mp3", "audio/mpeg", 2);
+
+		assertThrows(InvalidAudioFileException.class,
+				() -> chunkedUploadService.appendChunk(session.getSessionId(), USER_ID, 0, stream("abc")));
+	}
+
+	@Test
+	void appendChunk_KeepsPartialProgressWhenStreamBreaks() throws IOException {
+		UploadSession session = chunkedUploadService.createSession(USER_ID, "audio", "lecture.mp3", "audio/mpeg", 6);
+		InputStream broken = new InputStream() {
+			private int served = 0;
+
+			@Override
+			public int read() throws IOException {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public int read(byte[] b) throws IOException {
+				if (served++ == 0) {
+					b[0] = 'a';
+					b[1] = 'b';
+					return 2;
+				}
+				throw new IOException("connection reset");
+			}
+		};
+
+		assertThrows(IOException.class,
+				() -> chunkedUploadService.appendChunk(session.getSessionId(), USER_ID, 0, broken));
+		assertEquals(2, chunkedUploadService.getSession(session.getSessionId(), USER_ID).getOffset());
+	}
+
+	@Test
+	void getSession_HiddenFromOtherUsers() throws IOException {
+		UploadSession session = chunkedUploadService.createSession(USER_ID, "audio", "lecture.mp3", "audio/mpeg", 6);
+
+		assertNull(chunkedUploadService.getSession(session.getSessionId(), "someone-else"));
+	}
+
+	@Test
+	void finalizeUpload_RequiresCompleteSession() throws IOException {
+		UploadSession session = chunkedUploadService.createSession(USER_ID, "audio", "lecture.mp3", "audio/mpeg", 6);
+		chunkedUploadService.appendChunk(session.getSessionId(), USER_ID, 0, stream("abc"));
+
+		assertThrows(UploadOffsetMismatchException.class,
+				() -> chunkedUploadService.finalizeUpload(session.getSessionId(), null, USER_ID, null, null));
+	}
+
+	@Test
+	void finalizeUpload_HandsStagedFileToPipeline() throws IOException {
+		UploadSession session = chunkedUploadService.createSession(USER_ID, "audio", "lecture.mp3", "audio/mpeg", 3);
+		chunkedUploadService.appendChunk(session.getSessionId(), USER_ID, 0, stream("abc"));
+		AudioMetadata metadata = new AudioMetadata();
+		metadata.setId("meta-1");
+		when(audioProcessingService.queueFilesForUpload(any(), isNull(), eq("Title"), isNull(), eq(USER_ID)))
+				.thenReturn(metadata);
+
+		AudioMetadata result = chunkedUploadService.finalizeUpload(session.getSessionId(), null, USER_ID, "Title",
+				null);
+
+		ArgumentCaptor<MultipartFile> fileCaptor = ArgumentCaptor.forClass(MultipartFile.class);
+		verify(audioProcessingService).queueFilesForUpload(fileCaptor.capture(), isNull(), eq("Title"), isNull(),
+				eq(USER_ID));
+		assertEquals("meta-1", result.getId());
+		assertEquals("lecture.mp3", fileCaptor.getValue().getOriginalFilename());
+		assertEquals(3, fileCaptor.getValue().getSize());
+		assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+				((StagedMultipartFile) fileCaptor.getValue()).getContentHash());
+		assertNull(chunkedUploadService.getSession(session.getSessionId(), USER_ID));
+		assertFalse(Files.exists(session.getStagingPath()));
+		assertEquals(0, tempFileStore.getReservedBytes());
+	}
+
+	@Test
+	void finalizeUpload_KeepsSessionWhenQueueingFails() throws IOException {
+		UploadSession session = chunkedUploadService.createSession(USER_ID, "audio", "lecture.mp3", "audio/mpeg", 3);
+		chunkedUploadService.appendChunk(session.getSessionId(), USER_ID, 0, stream("abc"));
+		AudioMetadata metadata = new AudioMetadata();
+		metadata.setId("meta-1");
+		when(audioProcessingService.queueFilesForUpload(any(), isNull(), isNull(), isNull(), eq(USER_ID)))
+				.thenThrow(new TempStorageFullException("Temporary storage is full.", 60))
+				.thenReturn(metadata);
+
+		assertThrows(TempStorageFullException.class,
+				() -> chunkedUploadService.finalizeUpload(session.getSessionId(), null, USER_ID, null, null));
+		assertNotNull(chunkedUploadService.getSession(session.getSessionId(), USER_ID));
+		assertTrue(Files.exists(session.getStagingPath()));
+
+		chunkedUploadService.finalizeUpload(session.getSessionId(), null, USER_ID, null, null);
+
+		ArgumentCaptor<MultipartFile> fileCaptor = ArgumentCaptor.forClass(MultipartFile.class);
+		verify(audioProcessingService, times(2)).queueFilesForUpload(fileCaptor.capture(), isNull(), isNull(),
+				isNull(), eq(USER_ID));
+		assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+				((StagedMultipartFile) fileCaptor.getValue()).getContentHash());
+		assertNull(chunkedUploadService.getSession(session.getSessionId(), USER_ID));
+	}
+
+	@Test
+	void createSession_ReservesSpaceOnlyAsChunksArrive() throws IOException {
+		UploadSession session = chunkedUploadService.createSession(USER_ID, "audio", "lecture.mp3", "audio/mpeg", 6);
+
+		assertEquals(0, tempFileStore.getReservedBytes());
+		chunkedUploadService.appendChunk(session.getSessionId(), USER_ID, 0, stream("abc"));
+		assertEquals(6, tempFileStore.getReservedBytes());
+		chunkedUploadService.cancelSession(session.getSessionId(), USER_ID);
+		assertEquals(0, tempFileStore.getReservedBytes());
+	}
+
+	@Test
+	void createSession_CapsOpenSessionsPerUser() throws IOException {
+		chunkedUploadService.createSession(USER_ID, "audio", "a.mp3", "audio/mpeg", 6);
+		chunkedUploadService.createSession(USER_ID, "powerpoint", "a.pptx", "application/vnd.ms-powerpoint", 6);
+
+		AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class,
+				() -> chunkedUploadService.createSession(USER_ID, "audio", "b.mp3", "audio/mpeg", 6));
+
+		assertEquals(ChunkedUploadService.REASON_SESSION_LIMIT, ex.getReason());
+		assertNotNull(chunkedUploadService.createSession("user-2", "audio", "c.mp3", "audio/mpeg", 6));
+		verify(admissionControlService, times(4)).checkAdmission(any());
+	}
+
+	private InputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes());
+	}
+}
@@ -0,0 +1,165 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Transaction;
+
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
+import edu.cit.audioscholar.model.ContentIndexEntry;
+
+@ExtendWith(MockitoExtension.class)
+class ContentDedupServiceTest {
+
+	private static final String HASH = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+	@Mock
+	private FirebaseService firebaseService;
+	@Mock
+	private Transaction transaction;
+	@Mock
+	private DocumentReference entryReference;
+	@Mock
+	private DocumentReference ownerReference;
+	@Mock
+	private DocumentSnapshot entrySnapshot;
+	@Mock
+	private DocumentSnapshot ownerSnapshot;
+
+	private ContentDedupService contentDedupService;
+
+	@BeforeEach
+	void setUp() {
+		contentDedupService = new ContentDedupService(firebaseService, "content_index", true, 120);
+	}
+
+	@Test
+	void toHex_MatchesKnownSha256() {
+		var digest = ContentDedupService.newDigest();
+		digest.update("abc".getBytes());
+
+		assertEquals(HASH, ContentDedupService.toHex(digest));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void recordTranscript_StoresTranscriptOnEntry() {
+		contentDedupService.recordTranscript(HASH, "Hello class");
+
+		ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
+		verify(firebaseService).updateDataWithMap(eq("content_index"), eq(HASH), captor.capture());
+		assertEquals("Hello class", captor.getValue().get("transcriptText"));
+	}
+
+	@Test
+	void recordTranscript_SkipsErrorPayloads() {
+		contentDedupService.recordTranscript(HASH, "{\"error\":\"Transcription failed\",\"details\":\"quota\"}");
+
+		verify(firebaseService, never()).updateDataWithMap(anyString(), anyString(), anyMap());
+	}
+
+	@Test
+	void isPdfReusable_RespectsTtl() {
+		ContentIndexEntry fresh = new ContentIndexEntry(HASH, "powerpoint", "file-1", 10, "application/pptx");
+		fresh.setPdfUrl("https://v2.convertapi.com/d/abc/slides.pdf");
+		fresh.setPdfIndexedAt(Timestamp.now());
+		ContentIndexEntry stale = new ContentIndexEntry(HASH, "powerpoint", "file-1", 10, "application/pptx");
+		stale.setPdfUrl("https://v2.convertapi.com/d/abc/slides.pdf");
+		stale.setPdfIndexedAt(Timestamp.of(Date.from(Instant.now().minus(3, ChronoUnit.HOURS))));
+
+		assertTrue(contentDedupService.isPdfReusable(fresh));
+		assertFalse(contentDedupService.isPdfReusable(stale));
+	}
+
+	@Test
+	void acquireAndRelease_WithoutHashNeverTouchIndex() {
+		assertNull(contentDedupService.acquire(null, "audio"));
+		assertTrue(contentDedupService.release(null, "file-1"));
+		verifyNoInteractions(firebaseService);
+	}
+
+	@Test
+	void acquire_DisabledSkipsLookup() {
+		ContentDedupService disabled = new ContentDedupService(firebaseService, "content_index", false, 120);
+
+		assertNull(disabled.acquire(HASH, "audio"));
+		verify(firebaseService, never()).runTransaction(any());
+	}
+
+	@Test
+	void release_WithMarkerReturnsEarlierOutcomeWithoutDroppingAgain() {
+		stubTransaction();
+		when(ownerSnapshot.exists()).thenReturn(true);
+		when(ownerSnapshot.get("deletionSteps")).thenReturn(List.of("audio:released"));
+
+		assertTrue(contentDedupService.release(HASH, "file-1", marker()));
+		verify(transaction, never()).get(entryReference);
+		verify(transaction, never()).update(any(DocumentReference.class), anyString(), any());
+	}
+
+	@Test
+	void release_WithMarkerDecrementsAndRecordsOutcome() {
+		stubTransaction();
+		when(ownerSnapshot.exists()).thenReturn(true);
+		when(transaction.get(entryReference)).thenAnswer(invocation -> ApiFutures.immediateFuture(entrySnapshot));
+		when(entrySnapshot.exists()).thenReturn(true);
+		when(entrySnapshot.getString("nhostFileId")).thenReturn("file-1");
+		when(entrySnapshot.getLong("refCount")).thenReturn(2L);
+
+		assertFalse(contentDedupService.release(HASH, "file-1", marker()));
+		verify(transaction).update(eq(entryReference), eq("refCount"), any(FieldValue.class));
+		verify(transaction).update(eq(ownerReference), eq("deletionSteps"), any(FieldValue.class));
+	}
+
+	@Test
+	void release_WithMarkerPropagatesFirestoreFailure() {
+		when(firebaseService.getDocumentReference("content_index", HASH)).thenReturn(entryReference);
+		when(firebaseService.runTransaction(any())).thenThrow(new FirestoreInteractionException("unavailable"));
+
+		assertThrows(FirestoreInteractionException.class,
+				() -> contentDedupService.release(HASH, "file-1", marker()));
+		assertFalse(contentDedupService.release(HASH, "file-1"));
+	}
+
+	private ContentDedupService.ReleaseMarker marker() {
+		return new ContentDedupService.ReleaseMarker(ownerReference, "deletionSteps", "audio:released", "audio:kept");
+	}
+
+	private void stubTransaction() {
+		when(firebaseService.getDocumentReference("content_index", HASH)).thenReturn(entryReference);
+		when(firebaseService.runTransaction(any())).thenAnswer(invocation -> {
+			Transaction.Function<?> function = invocation.getArgument(0);
+			return function.updateCallback(transaction);
+		});
+		when(transaction.get(ownerReference)).thenAnswer(invocation -> ApiFutures.immediateFuture(ownerSnapshot));
+	}
+}
@@ -0,0 +1,99 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import edu.cit.audioscholar.config.RabbitMQConfig;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class DelayedRequeueServiceTest {
+
+	private static final Map<String, String> PAYLOAD = Map.of("metadataId", "rec-1", "messageId", "msg-1");
+
+	@Mock
+	private RabbitTemplate rabbitTemplate;
+
+	private SimpleMeterRegistry meterRegistry;
+	private DelayedRequeueService delayedRequeueService;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		delayedRequeueService = new DelayedRequeueService(rabbitTemplate, 3, 3, 3, 2, meterRegistry);
+	}
+
+	@Test
+	void defer_PublishesToDelayExchangeAndCountsDeferrals() throws Exception {
+		Map<String, Object> headers = Map.of(PipelineHeaders.DEFERRALS, 1, PipelineHeaders.FAILED_ATTEMPTS, 2,
+				"amqp_receivedRoutingKey", RabbitMQConfig.SUMMARIZATION_ROUTING_KEY);
+
+		assertTrue(delayedRequeueService.defer(PipelineStage.SUMMARIZATION, "rec-1", PAYLOAD, headers,
+				"waiting for PDF"));
+
+		ArgumentCaptor<MessagePostProcessor> captor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+		verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.DELAY_EXCHANGE_NAME),
+				eq(RabbitMQConfig.SUMMARIZATION_ROUTING_KEY), eq(PAYLOAD), captor.capture());
+		Message message = captor.getValue().postProcessMessage(new Message(new byte[0], new MessageProperties()));
+		Map<String, Object> sent = message.getMessageProperties().getHeaders();
+		// Retry counters travel along; broker-set headers do not.
+		assertEquals(Map.of(PipelineHeaders.DEFERRALS, 2, PipelineHeaders.FAILED_ATTEMPTS, 2), sent);
+		assertEquals(1.0,
+				meterRegistry.get("audioscholar.pipeline.deferred").tag("stage", "summarization").counter().count());
+	}
+
+	@Test
+	void defer_FirstDeferralStartsAtOne() throws Exception {
+		assertTrue(delayedRequeueService.defer(PipelineStage.TRANSCRIPTION, "rec-1", PAYLOAD, Map.of(),
+				"audio uploading"));
+
+		ArgumentCaptor<MessagePostProcessor> captor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+		verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.DELAY_EXCHANGE_NAME),
+				eq(RabbitMQConfig.TRANSCRIPTION_ROUTING_KEY), eq(PAYLOAD), captor.capture());
+		Message message = captor.getValue().postProcessMessage(new Message(new byte[0], new MessageProperties()));
+		assertEquals(1, (Integer) message.getMessageProperties().getHeader(PipelineHeaders.DEFERRALS));
+	}
+
+	@Test
+	void defer_GivesUpAfterMaxDeferrals() {
+		assertFalse(delayedRequeueService.defer(PipelineStage.SUMMARIZATION, "rec-1", PAYLOAD,
+				Map.of(PipelineHeaders.DEFERRALS, 2), "waiting for PDF"));
+
+		verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class),
+				any(MessagePostProcessor.class));
+	}
+
+	@Test
+	void redeliverLater_DoesNotChargeTheDeferralBudget() throws Exception {
+		Map<String, Object> headers = Map.of(PipelineHeaders.DEFERRALS, 2);
+
+		delayedRequeueService.redeliverLater(PipelineStage.PDF_CONVERSION, "rec-1", PAYLOAD, headers,
+				"lease store unavailable");
+
+		ArgumentCaptor<MessagePostProcessor> captor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+		verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.DELAY_EXCHANGE_NAME),
+				eq(RabbitMQConfig.PPTX_CONVERSION_ROUTING_KEY), eq(PAYLOAD), captor.capture());
+		Message message = captor.getValue().postProcessMessage(new Message(new byte[0], new MessageProperties()));
+		assertEquals(2, (Integer) message.getMessageProperties().getHeader(PipelineHeaders.DEFERRALS));
+	}
+}
@@ -0,0 +1,132 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import edu.cit.audioscholar.service.GeminiFileUriCache.CachedUpload;
+import edu.cit.audioscholar.service.GeminiFileUriCache.UploadedFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GeminiFileUriCacheTest {
+
+	private static final String LECTURE = "3f79bb7b435b05321651daefd374cdc681dc06faa65e374e38337b88ca046dea";
+
+	private GeminiFileUriCache cache = newCache(false);
+	private final AtomicInteger uploads = new AtomicInteger();
+
+	@Test
+	void getOrUpload_ReusesUploadOfSameContent() throws IOException {
+		String first = cache.getOrUpload(LECTURE, "key-a", uploader(Instant.now().plus(Duration.ofHours(48))));
+		String second = cache.getOrUpload(LECTURE, "key-a", uploader(Instant.now().plus(Duration.ofHours(48))));
+
+		assertEquals(first, second);
+		assertEquals(1, uploads.get());
+	}
+
+	@Test
+	void getOrUpload_DoesNotCacheContentWithoutHash() throws IOException {
+		cache.getOrUpload(null, "key-a", uploader(null));
+		cache.getOrUpload(null, "key-a", uploader(null));
+
+		assertEquals(2, uploads.get());
+	}
+
+	@Test
+	void find_ReturnsUploadsWithTheKeysThatMadeThem() throws IOException {
+		String shortLived = cache.getOrUpload(LECTURE, "key-a", uploader(Instant.now().plus(Duration.ofHours(5))));
+		String longLived = cache.getOrUpload(LECTURE, "key-b", uploader(Instant.now().plus(Duration.ofHours(40))));
+
+		List<CachedUpload> found = cache.find(LECTURE);
+
+		assertEquals(List.of(new CachedUpload(longLived, "key-b"), new CachedUpload(shortLived, "key-a")), found);
+		assertTrue(cache.find("0".repeat(64)).isEmpty());
+		assertTrue(cache.find(null).isEmpty());
+	}
+
+	@Test
+	void getOrUpload_UploadsAgainForKeyOfAnotherProject() throws IOException {
+		cache.getOrUpload(LECTURE, "key-a", uploader(null));
+		cache.getOrUpload(LECTURE, "key-b", uploader(null));
+
+		assertEquals(2, uploads.get());
+	}
+
+	@Test
+	void getOrUpload_SharesEntriesAcrossKeysOfOneProject() throws IOException {
+		cache = newCache(true);
+
+		cache.getOrUpload(LECTURE, "key-a", uploader(null));
+		cache.getOrUpload(LECTURE, "key-b", uploader(null));
+
+		assertEquals(1, uploads.get());
+	}
+
+	@Test
+	void getOrUpload_UploadsAgainWhenCloseToExpiry() throws IOException {
+		cache.getOrUpload(LECTURE, "key-a", uploader(Instant.now().plus(Duration.ofMinutes(30))));
+		cache.getOrUpload(LECTURE, "key-a", uploader(Instant.now().plus(Duration.ofHours(48))));
+
+		assertEquals(2, uploads.get());
+	}
+
+	@Test
+	void evict_ForcesNewUpload() throws IOException {
+		String uri = cache.getOrUpload(LECTURE, "key-a", uploader(null));
+		cache.evict(uri);
+		cache.getOrUpload(LECTURE, "key-a", uploader(null));
+
+		assertEquals(2, uploads.get());
+	}
+
+	@Test
+	void getOrUpload_ConcurrentCallersShareOneUpload() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		GeminiFileUriCache.Uploader<RuntimeException> slowUploader = () -> {
+			uploads.incrementAndGet();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new UploadedFile("files/shared", null);
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			Future<String> first = executor.submit(() -> cache.getOrUpload(LECTURE, "key-a", slowUploader));
+			Future<String> second = executor.submit(() -> cache.getOrUpload(LECTURE, "key-a", slowUploader));
+			Future<String> third = executor.submit(() -> cache.getOrUpload(LECTURE, "key-a", slowUploader));
+			Thread.sleep(200);
+			release.countDown();
+
+			assertEquals("files/shared", first.get(5, TimeUnit.SECONDS));
+			assertEquals("files/shared", second.get(5, TimeUnit.SECONDS));
+			assertEquals("files/shared", third.get(5, TimeUnit.SECONDS));
+			assertEquals(1, uploads.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private GeminiFileUriCache newCache(boolean sharedProject) {
+		return new GeminiFileUriCache(true, Duration.ofHours(47), Duration.ofHours(2), sharedProject,
+				new SimpleMeterRegistry());
+	}
+
+	private GeminiFileUriCache.Uploader<RuntimeException> uploader(Instant expiresAt) {
+		return () -> new UploadedFile("files/upload-" + uploads.incrementAndGet(), expiresAt);
+	}
+}
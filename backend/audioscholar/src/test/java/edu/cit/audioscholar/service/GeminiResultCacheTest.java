@@ -0,0 +1,124 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.cloud.Timestamp;
+
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
+import edu.cit.audioscholar.service.GeminiResultCache.ResultKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GeminiResultCacheTest {
+
+	private static final String SUMMARY = "{\"summaryText\": \"Summary\"}";
+	private static final String ERROR = "{\"error\": \"API Error\", \"details\": \"quota\"}";
+
+	private FirebaseService firebaseService;
+	private GeminiResultCache cache;
+	private final AtomicInteger calls = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		firebaseService = mock(FirebaseService.class);
+		cache = newCache();
+	}
+
+	@Test
+	void getOrCompute_ReusesResultFromMemory() {
+		ResultKey key = GeminiResultCache.key("summary-transcript", "prompt", "transcript");
+
+		String first = cache.getOrCompute(key, () -> compute(SUMMARY), result -> true);
+		String second = cache.getOrCompute(key, () -> compute(SUMMARY), result -> true);
+
+		assertEquals(SUMMARY, first);
+		assertEquals(SUMMARY, second);
+		assertEquals(1, calls.get());
+		verify(firebaseService).saveData(eq("gemini_results"), eq(key.hash()), anyMap());
+	}
+
+	@Test
+	void getOrCompute_ReadsResultStoredByAnotherInstance() {
+		ResultKey key = GeminiResultCache.key("summary-transcript", "prompt", "transcript");
+		when(firebaseService.getData("gemini_results", key.hash())).thenReturn(Map.of("result", SUMMARY,
+				"expiresAt", Timestamp.ofTimeSecondsAndNanos(Timestamp.now().getSeconds() + 3600, 0)));
+
+		String result = cache.getOrCompute(key, () -> compute(SUMMARY), value -> true);
+
+		assertEquals(SUMMARY, result);
+		assertEquals(0, calls.get());
+	}
+
+	@Test
+	void getOrCompute_IgnoresExpiredStoredResult() {
+		ResultKey key = GeminiResultCache.key("summary-transcript", "prompt", "transcript");
+		when(firebaseService.getData("gemini_results", key.hash())).thenReturn(Map.of("result", "{\"old\": true}",
+				"expiresAt", Timestamp.ofTimeSecondsAndNanos(Timestamp.now().getSeconds() - 60, 0)));
+
+		assertEquals(SUMMARY, cache.getOrCompute(key, () -> compute(SUMMARY), value -> true));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void getOrCompute_DoesNotCacheRejectedResults() {
+		ResultKey key = GeminiResultCache.key("summary-transcript", "prompt", "transcript");
+
+		cache.getOrCompute(key, () -> compute(ERROR), result -> !result.contains("\"error\""));
+		cache.getOrCompute(key, () -> compute(ERROR), result -> !result.contains("\"error\""));
+
+		assertEquals(2, calls.get());
+		verify(firebaseService, never()).saveData(anyString(), anyString(), any());
+	}
+
+	@Test
+	void getOrCompute_ComputesWhenFirestoreIsUnavailable() {
+		ResultKey key = GeminiResultCache.key("summary-transcript", "prompt", "transcript");
+		when(firebaseService.getData(anyString(), anyString()))
+				.thenThrow(new FirestoreInteractionException("unavailable"));
+
+		assertEquals(SUMMARY, cache.getOrCompute(key, () -> compute(SUMMARY), result -> true));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void key_ChangesWithPromptAndIgnoresSchemaMapOrder() {
+		Map<String, Object> schema = new LinkedHashMap<>();
+		schema.put("type", "OBJECT");
+		schema.put("required", "summaryText");
+		Map<String, Object> reordered = new LinkedHashMap<>();
+		reordered.put("required", "summaryText");
+		reordered.put("type", "OBJECT");
+
+		ResultKey original = GeminiResultCache.key("summary-transcript", "prompt v1", schema, "transcript");
+
+		assertEquals(original, GeminiResultCache.key("summary-transcript", "prompt v1", reordered, "transcript"));
+		assertNotEquals(original, GeminiResultCache.key("summary-transcript", "prompt v2", schema, "transcript"));
+		assertNotEquals(GeminiResultCache.key("op", "ab", "c"), GeminiResultCache.key("op", "a", "bc"));
+	}
+
+	private String compute(String result) {
+		calls.incrementAndGet();
+		return result;
+	}
+
+	private GeminiResultCache newCache() {
+		return new GeminiResultCache(firebaseService, "gemini_results", true, Duration.ofDays(30), 200,
+				new SimpleMeterRegistry());
+	}
+}
@@ -4,8 +4,16 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -14,7 +22,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -24,7 +34,11 @@ import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import edu.cit.audioscholar.model.KeyProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(MockitoExtension.class)
 class GeminiServiceTest {
@@ -38,6 +52,18 @@ class GeminiServiceTest {
 	@Mock
 	private GeminiSmartRotationService rotationService;
 
+	@Spy
+	private GeminiFileUriCache fileUriCache = new GeminiFileUriCache(false, Duration.ofHours(47), Duration.ofHours(2),
+			false, new SimpleMeterRegistry());
+
+	@Spy
+	private GeminiResultCache resultCache = new GeminiResultCache(null, "gemini_results", false, Duration.ofDays(30),
+			200, new SimpleMeterRegistry());
+
+	@Spy
+	private GeminiTokenEstimator tokenEstimator = new GeminiTokenEstimator("", 250_000, 0.2,
+			new SimpleMeterRegistry());
+
 	@InjectMocks
 	private GeminiService geminiService;
 
@@ -78,8 +104,8 @@ class GeminiServiceTest {
 					.thenReturn(uploadResponse);
 
 			// Mock Rotation Service
-			when(rotationService.executeWithInfiniteRotation(any())).thenAnswer(invocation -> {
-				Function<String, String> apiCallFunction = invocation.getArgument(0);
+			when(rotationService.executeHedged(anyString(), any())).thenAnswer(invocation -> {
+				Function<String, String> apiCallFunction = invocation.getArgument(1);
 				return apiCallFunction.apply("gemini-2.0-flash");
 			});
 
@@ -120,8 +146,8 @@ class GeminiServiceTest {
 		ResponseEntity<String> successResponse = new ResponseEntity<>(createFullApiResponse(), HttpStatus.OK);
 
 		// Mock the rotation service to execute the lambda immediately
-		when(rotationService.executeWithInfiniteRotation(any())).thenAnswer(invocation -> {
-			Function<String, String> apiCallFunction = invocation.getArgument(0);
+		when(rotationService.executeHedged(anyString(), any())).thenAnswer(invocation -> {
+			Function<String, String> apiCallFunction = invocation.getArgument(1);
 			// The lambda will be called with a test model name
 			return apiCallFunction.apply("gemini-pro");
 		});
@@ -135,7 +161,7 @@ class GeminiServiceTest {
 
 		// Then
 		assertEquals(expectedExtractedText, result);
-		verify(rotationService, times(1)).executeWithInfiniteRotation(any());
+		verify(rotationService, times(1)).executeHedged(anyString(), any());
 		verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.POST), any(), eq(String.class));
 		verify(keyRotationManager, times(1)).reportSuccess(KeyProvider.GEMINI, API_KEY);
 	}
@@ -147,7 +173,7 @@ class GeminiServiceTest {
 	void testCallGeminiSummarizationAPIWithFallback_RotationServiceThrowsException() {
 		// Given
 		// Mock the rotation service to throw an exception after its internal retries
-		when(rotationService.executeWithInfiniteRotation(any())).thenThrow(new RuntimeException("All models failed"));
+		when(rotationService.executeHedged(anyString(), any())).thenThrow(new RuntimeException("All models failed"));
 
 		// When
 		String result = geminiService.callGeminiSummarizationAPIWithFallback(PROMPT_TEXT, TRANSCRIPT_TEXT);
@@ -161,8 +187,8 @@ class GeminiServiceTest {
 	void testCallGeminiSummarizationAPIWithFallback_LambdaThrowsRateLimitException() {
 		// Given
 		when(keyRotationManager.getKey(any(KeyProvider.class))).thenReturn(API_KEY);
-		when(rotationService.executeWithInfiniteRotation(any())).thenAnswer(invocation -> {
-			Function<String, String> apiCallFunction = invocation.getArgument(0);
+		when(rotationService.executeHedged(anyString(), any())).thenAnswer(invocation -> {
+			Function<String, String> apiCallFunction = invocation.getArgument(1);
 			// This will throw the HttpClientErrorException which is caught by the outer
 			// try-catch in the service
 			try {
@@ -191,7 +217,7 @@ class GeminiServiceTest {
 	void testGenerateTranscriptOnlySummary_Success() {
 		// Given
 		String metadataId = "test-metadata-id";
-		when(keyRotationManager.getKey(any(KeyProvider.class))).thenReturn(API_KEY);
+		when(keyRotationManager.getKey(eq(KeyProvider.GEMINI), anyLong())).thenReturn(API_KEY);
 		String expectedExtractedText = "{\"summaryText\": \"Audio only summary\", \"keyPoints\": [], \"topics\": [], \"glossary\": []}";
 		ResponseEntity<String> successResponse = new ResponseEntity<>(
 				"{\"candidates\": [{\"content\": {\"parts\": [{\"text\": "
@@ -199,8 +225,8 @@ class GeminiServiceTest {
 				HttpStatus.OK);
 
 		// Mock the rotation service to execute the lambda immediately
-		when(rotationService.executeWithInfiniteRotation(any())).thenAnswer(invocation -> {
-			Function<String, String> apiCallFunction = invocation.getArgument(0);
+		when(rotationService.executeHedged(anyString(), any())).thenAnswer(invocation -> {
+			Function<String, String> apiCallFunction = invocation.getArgument(1);
 			return apiCallFunction.apply("gemini-2.5-flash");
 		});
 
@@ -213,11 +239,164 @@ class GeminiServiceTest {
 
 		// Then
 		assertEquals(expectedExtractedText, result);
-		verify(rotationService, times(1)).executeWithInfiniteRotation(any());
+		verify(rotationService, times(1)).executeHedged(anyString(), any());
 		verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.POST), any(), eq(String.class));
 		verify(keyRotationManager, times(1)).reportSuccess(KeyProvider.GEMINI, API_KEY);
 	}
 
+	@Test
+	void testTranscriptionWindows_OverlapAndCoverWholeRecording() {
+		var windows = GeminiService.transcriptionWindows(1250, 600, 20);
+
+		assertEquals(List.of(new GeminiService.TranscriptionWindow(0, 600),
+				new GeminiService.TranscriptionWindow(580, 1180), new GeminiService.TranscriptionWindow(1160, 1250)),
+				windows);
+	}
+
+	@Test
+	void testCallGeminiTranscriptionAPI_LongRecordingIsTranscribedInStitchedWindows() throws Exception {
+		ReflectionTestUtils.setField(geminiService, "segmentedTranscriptionEnabled", true);
+		ReflectionTestUtils.setField(geminiService, "segmentedMinDurationSeconds", 1200);
+		ReflectionTestUtils.setField(geminiService, "segmentSeconds", 600);
+		ReflectionTestUtils.setField(geminiService, "segmentOverlapSeconds", 20);
+		ReflectionTestUtils.setField(geminiService, "segmentMaxParallel", 8);
+		ReflectionTestUtils.setField(geminiService, "maxKeyWait", Duration.ofSeconds(30));
+		// 1250s of 8-bit mono PCM at 100 Hz, so 100 bytes per second.
+		Path tempFile = Files.createTempFile("test-audio", ".wav");
+		Files.write(tempFile, wav(100, 125_000));
+		Map<String, Long> uploadedBytes = new ConcurrentHashMap<>();
+		try {
+			when(keyRotationManager.awaitKey(eq(KeyProvider.GEMINI), anyLong(), any())).thenReturn(API_KEY);
+			when(keyRotationManager.getKeyCount(KeyProvider.GEMINI)).thenReturn(3);
+
+			HttpHeaders initiateHeaders = new HttpHeaders();
+			initiateHeaders.add("X-Goog-Upload-Url", "http://upload-url");
+			when(restTemplate.exchange(contains("/upload/v1beta/files"), eq(HttpMethod.POST), any(), eq(String.class)))
+					.thenReturn(new ResponseEntity<>(null, initiateHeaders, HttpStatus.OK));
+			when(restTemplate.exchange(eq("http://upload-url"), eq(HttpMethod.POST), any(), eq(String.class)))
+					.thenAnswer(invocation -> {
+						FileSystemResource segment = (FileSystemResource) ((HttpEntity<?>) invocation.getArgument(2))
+								.getBody();
+						uploadedBytes.put(segment.getFilename(), segment.contentLength());
+						return new ResponseEntity<>("{\"file\": {\"uri\": \"files/" + segment.getFilename() + "\"}}",
+								HttpStatus.OK);
+					});
+			when(restTemplate.exchange(contains(":generateContent"), eq(HttpMethod.POST), any(), eq(String.class)))
+					.thenAnswer(invocation -> {
+						String request = String.valueOf(((HttpEntity<?>) invocation.getArgument(2)).getBody());
+						String transcript;
+						if (request.contains("files/segment-00000.wav")) {
+							transcript = "Good morning everyone. Today we look at graphs and how to search them.";
+						} else if (request.contains("files/segment-00580.wav")) {
+							transcript = "how to search them. Breadth first search visits neighbours level by level.";
+						} else if (request.contains("files/segment-01160.wav")) {
+							transcript = "visits neighbours level by level. That is all for today.";
+						} else {
+							throw new AssertionError("Unexpected request: " + request);
+						}
+						return new ResponseEntity<>(transcriptResponse(transcript), HttpStatus.OK);
+					});
+
+			String result = geminiService.callGeminiTranscriptionAPI(tempFile, "lecture.wav", 1250);
+
+			assertEquals("Good morning everyone. Today we look at graphs and how to search them."
+					+ " Breadth first search visits neighbours level by level. That is all for today.", result);
+			// Each segment carries only its own window of audio under a fresh 44-byte header.
+			assertEquals(Map.of("segment-00000.wav", 44L + 60_000, "segment-00580.wav", 44L + 60_000,
+					"segment-01160.wav", 44L + 9_000), uploadedBytes);
+			verify(restTemplate, times(3)).exchange(contains(":generateContent"), eq(HttpMethod.POST), any(),
+					eq(String.class));
+			verify(keyRotationManager, times(3)).reportSuccess(KeyProvider.GEMINI, API_KEY);
+			// Each window is charged for its own audio at 32 tokens per second, plus the prompt.
+			verify(keyRotationManager, times(2)).awaitKey(eq(KeyProvider.GEMINI), eq(19_500L), any());
+			verify(keyRotationManager).awaitKey(eq(KeyProvider.GEMINI), eq(3_180L), any());
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	@Test
+	void testCallGeminiTranscriptionAPI_LongRecordingThatCannotBeCutIsSentWhole() throws Exception {
+		ReflectionTestUtils.setField(geminiService, "segmentedTranscriptionEnabled", true);
+		ReflectionTestUtils.setField(geminiService, "segmentedMinDurationSeconds", 1200);
+		ReflectionTestUtils.setField(geminiService, "segmentSeconds", 600);
+		Path tempFile = Files.createTempFile("test-audio", ".ogg");
+		Files.writeString(tempFile, "OggS dummy content");
+		try {
+			when(keyRotationManager.getKey(KeyProvider.GEMINI)).thenReturn(API_KEY);
+
+			HttpHeaders initiateHeaders = new HttpHeaders();
+			initiateHeaders.add("X-Goog-Upload-Url", "http://upload-url");
+			when(restTemplate.exchange(contains("/upload/v1beta/files"), eq(HttpMethod.POST), any(), eq(String.class)))
+					.thenReturn(new ResponseEntity<>(null, initiateHeaders, HttpStatus.OK));
+			when(restTemplate.exchange(eq("http://upload-url"), eq(HttpMethod.POST), any(), eq(String.class)))
+					.thenReturn(new ResponseEntity<>("{\"file\": {\"uri\": \"http://file-uri\"}}", HttpStatus.OK));
+			when(restTemplate.exchange(contains(":generateContent"), eq(HttpMethod.POST), any(), eq(String.class)))
+					.thenReturn(new ResponseEntity<>(transcriptResponse("The whole lecture."), HttpStatus.OK));
+
+			String result = geminiService.callGeminiTranscriptionAPI(tempFile, "lecture.ogg", 1250);
+
+			assertEquals("The whole lecture.", result);
+			verify(restTemplate).exchange(contains(":generateContent"), eq(HttpMethod.POST), any(), eq(String.class));
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	@Test
+	void testGenerateTranscriptOnlySummary_LongTranscriptIsSummarizedInPartsAndMerged() throws Exception {
+		ReflectionTestUtils.setField(geminiService, "mapReduceEnabled", true);
+		ReflectionTestUtils.setField(geminiService, "mapReduceMinTranscriptChars", 100);
+		ReflectionTestUtils.setField(geminiService, "mapReducePartChars", 60);
+		ReflectionTestUtils.setField(geminiService, "mapReduceMaxParallel", 4);
+		String transcript = "Today we look at graphs and their vertices.\n\n"
+				+ "Breadth first search visits neighbours level by level.\n\n"
+				+ "Depth first search follows one path as far as it goes.";
+		List<String> terms = List.of("Vertex", "BFS", "DFS");
+		when(keyRotationManager.getKey(eq(KeyProvider.GEMINI), anyLong())).thenReturn(API_KEY);
+		when(keyRotationManager.awaitKey(eq(KeyProvider.GEMINI), anyLong(), any())).thenReturn(API_KEY);
+		when(keyRotationManager.getKeyCount(KeyProvider.GEMINI)).thenReturn(3);
+		when(rotationService.executeHedged(anyString(), any())).thenAnswer(invocation -> {
+			Function<String, ?> apiCallFunction = invocation.getArgument(1);
+			return apiCallFunction.apply("gemini-2.5-flash");
+		});
+		when(rotationService.executeHedgedAsync(anyString(), any())).thenAnswer(invocation -> {
+			Function<String, ?> apiCallFunction = invocation.getArgument(1);
+			return CompletableFuture.supplyAsync(() -> apiCallFunction.apply("gemini-2.5-flash"));
+		});
+		when(restTemplate.exchange(contains(":generateContent"), eq(HttpMethod.POST), any(), eq(String.class)))
+				.thenAnswer(invocation -> {
+					String request = String.valueOf(((HttpEntity<?>) invocation.getArgument(2)).getBody());
+					if (request.contains("TERMS ALREADY IN THE GLOSSARY: Vertex; BFS; DFS")) {
+						return new ResponseEntity<>(summaryResponse("## Graph search", List.of("BFS and DFS"),
+								List.of("graph search"), List.of()), HttpStatus.OK);
+					}
+					for (int part = 1; part <= terms.size(); part++) {
+						if (request.contains("part " + part + " of 3")) {
+							String term = terms.get(part - 1);
+							return new ResponseEntity<>(summaryResponse("## " + term, List.of(term),
+									List.of(term + " tutorial"), List.of(Map.of("term", term, "definition", term))),
+									HttpStatus.OK);
+						}
+					}
+					throw new AssertionError("Unexpected request: " + request);
+				});
+
+		String result = geminiService.generateTranscriptOnlySummary(transcript, "long-lecture");
+
+		// The reduce pass's text and key points, with the glossary of every part.
+		JsonNode summary = new ObjectMapper().readTree(result);
+		assertEquals("## Graph search", summary.path("summaryText").asText());
+		assertEquals("BFS and DFS", summary.path("keyPoints").path(0).asText());
+		assertEquals(3, summary.path("glossary").size());
+		verify(keyRotationManager, times(3)).awaitKey(eq(KeyProvider.GEMINI), anyLong(), any());
+		// The parts are started through the asynchronous rotation; only the reduce pass waits for its result.
+		verify(rotationService, times(3)).executeHedgedAsync(anyString(), any());
+		verify(rotationService).executeHedged(anyString(), any());
+		verify(restTemplate, times(4)).exchange(contains(":generateContent"), eq(HttpMethod.POST), any(),
+				eq(String.class));
+	}
+
 	// ==================== LEGACY METHOD TESTS ====================
 
 	// All legacy tests are removed as the retry logic is now handled by
@@ -225,6 +404,34 @@ class GeminiServiceTest {
 
 	// ==================== HELPER METHODS ====================
 
+	private String summaryResponse(String summaryText, List<String> keyPoints, List<String> topics,
+			List<Map<String, String>> glossary) throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		String text = mapper.writeValueAsString(
+				Map.of("summaryText", summaryText, "keyPoints", keyPoints, "topics", topics, "glossary", glossary));
+		return mapper.writeValueAsString(
+				Map.of("candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text)))))));
+	}
+
+	private String transcriptResponse(String transcript) throws Exception {
+		ObjectMapper mapper = new ObjectMapper();
+		String text = mapper.writeValueAsString(Map.of("transcript", transcript));
+		return mapper.writeValueAsString(
+				Map.of("candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text)))))));
+	}
+
+	private static byte[] wav(int sampleRate, int dataBytes) {
+		ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN)
+				.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + dataBytes)
+				.put("WAVE".getBytes(StandardCharsets.US_ASCII)).put("fmt ".getBytes(StandardCharsets.US_ASCII))
+				.putInt(16).putShort((short) 1).putShort((short) 1).putInt(sampleRate).putInt(sampleRate)
+				.putShort((short) 1).putShort((short) 8).put("data".getBytes(StandardCharsets.US_ASCII))
+				.putInt(dataBytes);
+		byte[] file = new byte[44 + dataBytes];
+		System.arraycopy(header.array(), 0, file, 0, 44);
+		return file;
+	}
+
 	private String createFullApiResponse() {
 		return "{" + "    \"candidates\": [" + "        {" + "            \"content\": {"
 				+ "                \"parts\": [" + "                    {"
@@ -0,0 +1,102 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.cit.audioscholar.service.GeminiTokenEstimator.ContextPlan;
+import edu.cit.audioscholar.service.GeminiTokenEstimator.ContextStrategy;
+import edu.cit.audioscholar.service.GeminiTokenEstimator.TokenEstimate;
+import edu.cit.audioscholar.service.GeminiTokenEstimator.Workload;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.UsageMetadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GeminiTokenEstimatorTest {
+
+	private static final List<String> MODELS = List.of("large", "small");
+
+	private final GeminiTokenEstimator estimator = new GeminiTokenEstimator(
+			"small:1048576:8192, large:1048576:65536", 250_000, 0.5, new SimpleMeterRegistry());
+
+	@Test
+	void estimate_CountsAudioSecondsAndPrompt() {
+		TokenEstimate estimate = estimator.estimate("transcription", Workload.transcription(600));
+
+		assertEquals(19_500, estimate.inputTokens());
+		assertEquals(2_400, estimate.outputTokens());
+	}
+
+	@Test
+	void plan_SendsSmallRequestsToEveryModel() {
+		ContextPlan plan = estimator.plan("summarization", Workload.summary(400, 40_000), MODELS);
+
+		assertEquals(ContextStrategy.SINGLE_SHOT, plan.strategy());
+		assertEquals(MODELS, plan.models());
+		assertEquals(10_100, plan.estimate().inputTokens());
+		assertEquals(3_311, plan.estimate().outputTokens());
+	}
+
+	@Test
+	void plan_SkipsModelsWhoseOutputLimitIsTooSmall() {
+		ContextPlan plan = estimator.plan("summarization", Workload.summary(0, 400_000), MODELS);
+
+		assertEquals(ContextStrategy.LARGER_CONTEXT_MODEL, plan.strategy());
+		assertEquals(List.of("large"), plan.models());
+	}
+
+	@Test
+	void plan_SendsPdfTextWhenPagesMakeTheRequestTooLarge() {
+		// 1000 pages at 258 tokens each, against 50000 tokens of text.
+		ContextPlan plan = estimator.plan("summarization", Workload.summary(0, 400_000).withPdf(1_000, 200_000),
+				MODELS);
+
+		assertEquals(ContextStrategy.PDF_AS_TEXT, plan.strategy());
+		assertEquals(150_000, plan.estimate().inputTokens());
+		assertEquals(List.of("large"), plan.models());
+	}
+
+	@Test
+	void plan_SplitsTranscriptsTooLargeForOneRequest() {
+		ContextPlan plan = estimator.plan("summarization", Workload.summary(0, 2_000_000), MODELS);
+
+		assertEquals(ContextStrategy.MAP_REDUCE, plan.strategy());
+		assertEquals(List.of("large"), plan.models());
+	}
+
+	@Test
+	void recordUsage_CorrectsLaterEstimatesAndForecastsLatency() {
+		TokenEstimate first = estimator.estimate("recommendations", Workload.recommendations(0, 4_000));
+		assertNull(estimator.forecast(first).latency());
+
+		// Twice the input tokens estimated, output as estimated, in 3 seconds.
+		estimator.recordUsage(first, new UsageMetadata(2_000, 1_000, 500), Duration.ofSeconds(3).toNanos());
+		TokenEstimate second = estimator.estimate("recommendations", Workload.recommendations(0, 4_000));
+
+		assertEquals(1_000, first.inputTokens());
+		assertEquals(1_500, second.inputTokens());
+		assertEquals(1_500, second.outputTokens());
+		assertEquals(Duration.ofSeconds(3), estimator.forecast(second).latency());
+		// Other operations are not affected.
+		assertEquals(1_000, estimator.estimate("summarization", Workload.recommendations(0, 4_000)).inputTokens());
+	}
+
+	@Test
+	void recordUsage_IgnoresCallsWithoutUsageMetadata() {
+		TokenEstimate estimate = estimator.estimate("recommendations", Workload.recommendations(0, 4_000));
+
+		estimator.recordUsage(estimate, null, 1_000);
+
+		assertEquals(estimate, estimator.estimate("recommendations", Workload.recommendations(0, 4_000)));
+	}
+
+	@Test
+	void parseModelLimits_RejectsMalformedEntries() {
+		assertThrows(IllegalArgumentException.class, () -> GeminiTokenEstimator.parseModelLimits("model:1048576"));
+		assertEquals(8_192, estimator.limitsOf("unlisted").outputTokens());
+	}
+}
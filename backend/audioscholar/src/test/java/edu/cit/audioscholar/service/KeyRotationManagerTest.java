@@ -1,11 +1,14 @@
 package edu.cit.audioscholar.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,14 +16,18 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import edu.cit.audioscholar.exception.KeysExhaustedException;
 import edu.cit.audioscholar.model.KeyProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 class KeyRotationManagerTest {
 
 	private KeyRotationManagerImpl keyRotationManager;
+	private SimpleMeterRegistry meterRegistry;
+	private final long[] clock = new long[1];
 
 	@BeforeEach
 	void setUp() {
-		keyRotationManager = new KeyRotationManagerImpl();
+		meterRegistry = new SimpleMeterRegistry();
+		keyRotationManager = new KeyRotationManagerImpl(meterRegistry);
 	}
 
 	@Test
@@ -153,4 +160,111 @@ class KeyRotationManagerTest {
 		String key = keyRotationManager.getKey(KeyProvider.CONVERTAPI);
 		assertEquals("convertapi_legacy_secret", key);
 	}
+
+	@Test
+	void testQuota_PrefersKeyWithMostHeadroom() {
+		useFakeClock();
+		configureGemini("keyA,keyB");
+		ReflectionTestUtils.setField(keyRotationManager, "geminiTokensPerMinute", 100_000L);
+		keyRotationManager.init();
+
+		assertEquals("keyA", keyRotationManager.getKey(KeyProvider.GEMINI, 60_000));
+		assertEquals("keyB", keyRotationManager.getKey(KeyProvider.GEMINI, 1_000));
+		// Round-robin would go back to keyA, which has far less of its token budget left.
+		assertEquals("keyB", keyRotationManager.getKey(KeyProvider.GEMINI, 1_000));
+	}
+
+	@Test
+	void testQuota_RequestsPerMinuteRefill() {
+		useFakeClock();
+		configureGemini("keyA");
+		ReflectionTestUtils.setField(keyRotationManager, "geminiRequestsPerMinute", 2L);
+		keyRotationManager.init();
+
+		keyRotationManager.getKey(KeyProvider.GEMINI);
+		keyRotationManager.getKey(KeyProvider.GEMINI);
+		assertThrows(KeysExhaustedException.class, () -> keyRotationManager.getKey(KeyProvider.GEMINI));
+
+		clock[0] += TimeUnit.SECONDS.toNanos(30);
+		assertEquals("keyA", keyRotationManager.getKey(KeyProvider.GEMINI));
+	}
+
+	@Test
+	void testQuota_UtilizationMetric() {
+		useFakeClock();
+		configureGemini("keyA");
+		ReflectionTestUtils.setField(keyRotationManager, "geminiRequestsPerMinute", 10L);
+		keyRotationManager.init();
+
+		for (int i = 0; i < 5; i++) {
+			keyRotationManager.getKey(KeyProvider.GEMINI);
+		}
+
+		double utilization = meterRegistry.get("audioscholar.api.keys.utilization").tag("provider", "GEMINI")
+				.tag("key", "0").tag("limit", "requests_per_minute").gauge().value();
+		assertEquals(0.5, utilization, 0.001);
+	}
+
+	@Test
+	void testTryKey_ChargesOnlyTheNamedKey() {
+		useFakeClock();
+		configureGemini("keyA", "keyB");
+		ReflectionTestUtils.setField(keyRotationManager, "geminiRequestsPerMinute", 1L);
+		keyRotationManager.init();
+
+		assertTrue(keyRotationManager.tryKey(KeyProvider.GEMINI, "keyB", 0));
+		assertFalse(keyRotationManager.tryKey(KeyProvider.GEMINI, "keyB", 0));
+		assertFalse(keyRotationManager.tryKey(KeyProvider.GEMINI, "unknown", 0));
+		assertEquals("keyA", keyRotationManager.getKey(KeyProvider.GEMINI));
+	}
+
+	@Test
+	void testReportUsage_RefundsOverestimatedTokens() {
+		useFakeClock();
+		configureGemini("keyA");
+		ReflectionTestUtils.setField(keyRotationManager, "geminiTokensPerMinute", 100_000L);
+		keyRotationManager.init();
+
+		keyRotationManager.getKey(KeyProvider.GEMINI, 80_000);
+		assertThrows(KeysExhaustedException.class, () -> keyRotationManager.getKey(KeyProvider.GEMINI, 50_000));
+
+		keyRotationManager.reportUsage(KeyProvider.GEMINI, "keyA", 80_000, 20_000);
+		assertEquals("keyA", keyRotationManager.getKey(KeyProvider.GEMINI, 50_000));
+	}
+
+	@Test
+	void testAwaitKey_WaitsForCooldownToEnd() {
+		configureGemini("keyA");
+		ReflectionTestUtils.setField(keyRotationManager, "cooldownInitial", Duration.ofMillis(200));
+		keyRotationManager.init();
+		keyRotationManager.reportError(KeyProvider.GEMINI, "keyA", 429);
+
+		long startedAt = System.nanoTime();
+		String key = keyRotationManager.awaitKey(KeyProvider.GEMINI, 0, Duration.ofSeconds(5));
+
+		assertEquals("keyA", key);
+		assertTrue(System.nanoTime() - startedAt >= TimeUnit.MILLISECONDS.toNanos(150));
+	}
+
+	@Test
+	void testAwaitKey_GivesUpAfterMaxWait() {
+		configureGemini("keyA");
+		keyRotationManager.init();
+		keyRotationManager.reportError(KeyProvider.GEMINI, "keyA", 429);
+
+		assertThrows(KeysExhaustedException.class,
+				() -> keyRotationManager.awaitKey(KeyProvider.GEMINI, 0, Duration.ofMillis(50)));
+	}
+
+	private void useFakeClock() {
+		meterRegistry = new SimpleMeterRegistry();
+		keyRotationManager = new KeyRotationManagerImpl(meterRegistry, () -> clock[0]);
+	}
+
+	private void configureGemini(String keys) {
+		ReflectionTestUtils.setField(keyRotationManager, "geminiKeysRaw", keys);
+		ReflectionTestUtils.setField(keyRotationManager, "geminiKeyLegacy", "");
+		ReflectionTestUtils.setField(keyRotationManager, "convertApiSecretsRaw", "");
+		ReflectionTestUtils.setField(keyRotationManager, "convertApiSecretLegacy", "");
+	}
 }
@@ -0,0 +1,155 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class NhostFileCacheTest {
+
+	@TempDir
+	Path tempDir;
+
+	private Path cacheDir;
+	private Path workDir;
+	private NhostFileCache cache;
+	private final AtomicInteger downloads = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() throws IOException {
+		cacheDir = tempDir.resolve("cache");
+		workDir = Files.createDirectories(tempDir.resolve("work"));
+		cache = newCache("100B");
+	}
+
+	@Test
+	void materialize_DownloadsOnceAndServesRepeatsFromCache() throws IOException {
+		Path first = workDir.resolve("first.mp3");
+		Path second = workDir.resolve("second.mp3");
+
+		cache.materialize("file-1", first, fetcher("lecture audio"));
+		Files.delete(first);
+		cache.materialize("file-1", second, fetcher("lecture audio"));
+
+		assertEquals(1, downloads.get());
+		assertEquals("lecture audio", Files.readString(second));
+		assertEquals(1, cache.getEntryCount());
+	}
+
+	@Test
+	void materialize_EvictsLeastRecentlyUsedBeyondBudget() throws IOException {
+		cache.materialize("a", workDir.resolve("a"), fetcher("x".repeat(40)));
+		cache.materialize("b", workDir.resolve("b"), fetcher("y".repeat(40)));
+		cache.materialize("a", workDir.resolve("a2"), fetcher("x".repeat(40)));
+		cache.materialize("c", workDir.resolve("c"), fetcher("z".repeat(40)));
+
+		assertEquals(3, downloads.get());
+		assertEquals(80, cache.getCachedBytes());
+		cache.materialize("a", workDir.resolve("a3"), fetcher("x".repeat(40)));
+		assertEquals(3, downloads.get());
+		cache.materialize("b", workDir.resolve("b2"), fetcher("y".repeat(40)));
+		assertEquals(4, downloads.get());
+	}
+
+	@Test
+	void materialize_RefetchesEntryThatFailsVerification() throws IOException {
+		cache.materialize("file-1", workDir.resolve("first"), fetcher("original"));
+		Files.writeString(cacheDir.resolve("file-1.bin"), "truncated-and-longer");
+
+		Path target = workDir.resolve("second");
+		cache.materialize("file-1", target, fetcher("original"));
+
+		assertEquals(2, downloads.get());
+		assertEquals("original", Files.readString(target));
+	}
+
+	@Test
+	void materialize_PassesOversizedFilesThroughWithoutCaching() throws IOException {
+		Path target = workDir.resolve("big");
+
+		cache.materialize("big", target, fetcher("b".repeat(200)));
+
+		assertEquals(200, Files.size(target));
+		assertEquals(0, cache.getEntryCount());
+	}
+
+	@Test
+	void materialize_SharesConcurrentDownloadOfSameFile() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		NhostFileCache.Fetcher slow = path -> {
+			downloads.incrementAndGet();
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			Files.writeString(path, "shared");
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> owner = executor.submit(() -> {
+				cache.materialize("file-1", workDir.resolve("owner"), slow);
+				return null;
+			});
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			Future<?> waiter = executor.submit(() -> {
+				cache.materialize("file-1", workDir.resolve("waiter"), slow);
+				return null;
+			});
+			Thread.sleep(100);
+			release.countDown();
+			owner.get(5, TimeUnit.SECONDS);
+			waiter.get(5, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(1, downloads.get());
+		assertEquals("shared", Files.readString(workDir.resolve("waiter")));
+	}
+
+	@Test
+	void loadIndex_RestoresEntriesAfterRestartAndEvictRemovesThem() throws IOException {
+		cache.materialize("file-1", workDir.resolve("first"), fetcher("persisted"));
+
+		NhostFileCache restarted = newCache("100B");
+		restarted.materialize("file-1", workDir.resolve("second"), fetcher("persisted"));
+		assertEquals(1, downloads.get());
+
+		restarted.evict("file-1");
+		assertEquals(0, restarted.getEntryCount());
+		assertFalse(Files.exists(cacheDir.resolve("file-1.bin")));
+	}
+
+	private NhostFileCache newCache(String maxSize) {
+		NhostFileCache fileCache = new NhostFileCache(true, cacheDir.toString(), maxSize, false,
+				new SimpleMeterRegistry());
+		fileCache.loadIndex();
+		return fileCache;
+	}
+
+	private NhostFileCache.Fetcher fetcher(String content) {
+		return path -> {
+			downloads.incrementAndGet();
+			Files.writeString(path, content);
+		};
+	}
+}
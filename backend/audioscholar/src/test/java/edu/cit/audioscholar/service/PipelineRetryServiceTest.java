@@ -0,0 +1,156 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import edu.cit.audioscholar.config.RabbitMQConfig;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class PipelineRetryServiceTest {
+
+	private static final Map<String, String> PAYLOAD = Map.of("metadataId", "rec-1", "messageId", "msg-1");
+
+	@Mock
+	private RabbitTemplate rabbitTemplate;
+
+	@Mock
+	private FirebaseService firebaseService;
+
+	private SimpleMeterRegistry meterRegistry;
+	private PipelineRetryService retryService;
+	private final AtomicReference<RuntimeException> parked = new AtomicReference<>();
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		retryService = new PipelineRetryService(rabbitTemplate, firebaseService, 10, 50, 3, 120, 3, 60,
+				meterRegistry);
+	}
+
+	@Test
+	void run_ReturnsSucceededWithoutTouchingTheBroker() {
+		PipelineRetryService.Outcome outcome = retryService.run(PipelineStage.SUMMARIZATION, "rec-1", PAYLOAD,
+				Map.of(), () -> {
+				}, parked::set);
+
+		assertEquals(PipelineRetryService.Outcome.SUCCEEDED, outcome);
+		verifyNoInteractions(rabbitTemplate);
+	}
+
+	@Test
+	void run_PublishesRetryToDurableRetryQueueWithUpdatedHeaders() throws Exception {
+		PipelineRetryService.Outcome outcome = retryService.run(PipelineStage.SUMMARIZATION, "rec-1", PAYLOAD,
+				Map.of(PipelineHeaders.DEFERRALS, 4), () -> {
+					throw new RuntimeException("Gemini call failed", new IOException("Connection reset"));
+				}, parked::set);
+
+		assertEquals(PipelineRetryService.Outcome.RETRY_SCHEDULED, outcome);
+		assertNull(parked.get());
+		MessageProperties properties = published(RabbitMQConfig.RETRY_EXCHANGE_NAME,
+				RabbitMQConfig.SUMMARIZATION_ROUTING_KEY);
+		Map<String, Object> headers = properties.getHeaders();
+		assertEquals(1, headers.get(PipelineHeaders.FAILED_ATTEMPTS));
+		assertEquals(4, headers.get(PipelineHeaders.DEFERRALS));
+		long delay = (Long) headers.get(PipelineHeaders.RETRY_DELAY_MS);
+		assertTrue(delay >= 10 && delay <= 50, "delay " + delay);
+		assertEquals(String.valueOf(delay), properties.getExpiration());
+		assertEquals("10s", headers.get(RabbitMQConfig.RETRY_TIER_HEADER));
+		assertEquals("IOException: Connection reset", headers.get(PipelineHeaders.LAST_ERROR));
+	}
+
+	@Test
+	void run_ParksFatalFailureAtOnce() throws Exception {
+		IllegalArgumentException fatal = new IllegalArgumentException("Unsupported content type");
+
+		PipelineRetryService.Outcome outcome = retryService.run(PipelineStage.TRANSCRIPTION, "rec-1", PAYLOAD,
+				Map.of(), () -> {
+					throw fatal;
+				}, parked::set);
+
+		assertEquals(PipelineRetryService.Outcome.PARKED, outcome);
+		assertSame(fatal, parked.get());
+		Map<String, Object> headers = parkedHeaders();
+		assertEquals(PipelineStage.TRANSCRIPTION.name(), headers.get(PipelineHeaders.STAGE));
+		assertEquals("rec-1", headers.get(PipelineHeaders.METADATA_ID));
+		assertEquals(1.0, meterRegistry.get("audioscholar.pipeline.retries").tag("stage", "transcription")
+				.tag("outcome", "parked").counter().count());
+	}
+
+	@Test
+	void run_ParksWhenAttemptBudgetIsSpent() throws Exception {
+		PipelineRetryService.Outcome outcome = retryService.run(PipelineStage.SUMMARIZATION, "rec-1", PAYLOAD,
+				Map.of(PipelineHeaders.FAILED_ATTEMPTS, 2), () -> {
+					throw new RuntimeException("Transcript text is missing");
+				}, parked::set);
+
+		assertEquals(PipelineRetryService.Outcome.PARKED, outcome);
+		assertEquals(3, parkedHeaders().get(PipelineHeaders.FAILED_ATTEMPTS));
+	}
+
+	@Test
+	void run_ParksWhenTimeBudgetIsSpent() {
+		long twoHoursAgo = System.currentTimeMillis() - 2 * 60 * 60 * 1000L;
+
+		PipelineRetryService.Outcome outcome = retryService.run(PipelineStage.SUMMARIZATION, "rec-1", PAYLOAD,
+				Map.of(PipelineHeaders.FAILED_ATTEMPTS, 1, PipelineHeaders.FIRST_FAILURE_AT, twoHoursAgo), () -> {
+					throw new RuntimeException("Transcript text is missing");
+				}, parked::set);
+
+		assertEquals(PipelineRetryService.Outcome.PARKED, outcome);
+	}
+
+	@Test
+	void nextDelayMs_StaysBetweenBaseAndCap() {
+		Random random = new Random(42);
+		long previous = 100;
+		for (int i = 0; i < 1_000; i++) {
+			long next = PipelineRetryService.nextDelayMs(100, 5_000, previous, random);
+			assertTrue(next >= 100 && next <= Math.min(5_000, previous * 3), previous + " -> " + next);
+			previous = next;
+		}
+		assertEquals(100, PipelineRetryService.nextDelayMs(100, 100, 100, random));
+	}
+
+	@Test
+	void retryTierFor_PicksSmallestTierCoveringTheDelay() {
+		assertEquals("10s", RabbitMQConfig.retryTierFor(2_000));
+		assertEquals("60s", RabbitMQConfig.retryTierFor(10_001));
+		assertEquals("300s", RabbitMQConfig.retryTierFor(300_000));
+		assertEquals("300s", RabbitMQConfig.retryTierFor(900_000));
+	}
+
+	private Map<String, Object> parkedHeaders() throws Exception {
+		return published(RabbitMQConfig.PROCESSING_EXCHANGE_NAME, RabbitMQConfig.PARKING_LOT_ROUTING_KEY)
+				.getHeaders();
+	}
+
+	private MessageProperties published(String exchange, String routingKey) throws Exception {
+		ArgumentCaptor<MessagePostProcessor> captor = ArgumentCaptor.forClass(MessagePostProcessor.class);
+		verify(rabbitTemplate).convertAndSend(eq(exchange), eq(routingKey), eq(PAYLOAD), captor.capture());
+		Message message = captor.getValue().postProcessMessage(new Message(new byte[0], new MessageProperties()));
+		return message.getMessageProperties();
+	}
+}
@@ -0,0 +1,198 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Transaction;
+
+import edu.cit.audioscholar.config.RabbitMQConfig;
+import edu.cit.audioscholar.model.ProcessingStatus;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ProcessingPipelineServiceTest {
+
+	private static final String METADATA_ID = "rec-1";
+
+	@Mock
+	private FirebaseService firebaseService;
+	@Mock
+	private RabbitTemplate rabbitTemplate;
+	@Mock
+	private Transaction transaction;
+	@Mock
+	private DocumentReference documentReference;
+	@Mock
+	private DocumentSnapshot snapshot;
+
+	private ProcessingPipelineService pipeline;
+	private final Map<String, Object> document = new HashMap<>();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		pipeline = new ProcessingPipelineService(firebaseService, rabbitTemplate);
+
+		when(firebaseService.getAudioMetadataCollectionName()).thenReturn("audio_metadata");
+		when(firebaseService.getDocumentReference("audio_metadata", METADATA_ID)).thenReturn(documentReference);
+		when(firebaseService.runTransaction(any())).thenAnswer(invocation -> {
+			Transaction.Function<?> function = invocation.getArgument(0);
+			return function.updateCallback(transaction);
+		});
+		when(transaction.get(documentReference)).thenAnswer(invocation -> ApiFutures.immediateFuture(snapshot));
+		when(snapshot.exists()).thenReturn(true);
+		when(snapshot.getId()).thenReturn(METADATA_ID);
+		when(snapshot.getData()).thenAnswer(invocation -> new HashMap<>(document));
+		when(snapshot.getString(anyString()))
+				.thenAnswer(invocation -> (String) document.get(invocation.getArgument(0)));
+		// Writes land in the document so the next transaction sees them, as Firestore would.
+		when(transaction.update(eq(documentReference), anyMap())).thenAnswer(invocation -> {
+			Map<String, Object> updates = invocation.getArgument(1);
+			updates.forEach((field, value) -> {
+				if (FieldValue.delete().equals(value)) {
+					document.remove(field);
+				} else {
+					document.put(field, value);
+				}
+			});
+			return transaction;
+		});
+	}
+
+	@Test
+	void completeTranscription_AudioOnlyQueuesSummarizationOnce() {
+		document.put("status", ProcessingStatus.TRANSCRIBING.name());
+		document.put("audioOnly", true);
+
+		ProcessingPipelineService.Transition first = pipeline.completeTranscription(METADATA_ID, "Hello class");
+		ProcessingPipelineService.Transition second = pipeline.completeTranscription(METADATA_ID, "Hello class");
+
+		assertTrue(first.applied());
+		assertTrue(first.summarizationQueued());
+		assertEquals(ProcessingStatus.SUMMARIZATION_QUEUED, first.metadata().getStatus());
+		assertEquals("Hello class", document.get("transcriptText"));
+		assertFalse(second.applied());
+		assertFalse(second.summarizationQueued());
+		verify(rabbitTemplate, times(1)).convertAndSend(eq(RabbitMQConfig.PROCESSING_EXCHANGE_NAME),
+				eq(RabbitMQConfig.SUMMARIZATION_ROUTING_KEY), any(Object.class));
+	}
+
+	@Test
+	void completeTranscription_WaitsForSlidesStillUploading() {
+		document.put("status", ProcessingStatus.TRANSCRIBING.name());
+		document.put("originalPptxFileName", "week1.pptx");
+
+		ProcessingPipelineService.Transition transition = pipeline.completeTranscription(METADATA_ID, "Hello class");
+
+		assertTrue(transition.applied());
+		assertFalse(transition.summarizationQueued());
+		assertEquals(ProcessingStatus.TRANSCRIPTION_COMPLETE.name(), document.get("status"));
+		verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+	}
+
+	@Test
+	void completeTranscription_RefusedWhenLeaseWasTakenOver() throws Exception {
+		document.put("status", ProcessingStatus.TRANSCRIBING.name());
+		document.put("audioOnly", true);
+		RecordingLeaseService.Lease staleLease = mock(RecordingLeaseService.Lease.class);
+		when(staleLease.isCurrent(transaction)).thenReturn(false);
+
+		ProcessingPipelineService.Transition transition = pipeline.completeTranscription(METADATA_ID, "Hello class",
+				staleLease);
+
+		assertFalse(transition.applied());
+		assertFalse(document.containsKey("transcriptText"));
+		verify(transaction, never()).update(eq(documentReference), anyMap());
+		verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void completePdfConversion_FiresJoinWithMessageIdStoredOnDocument() {
+		document.put("status", ProcessingStatus.TRANSCRIPTION_COMPLETE.name());
+		document.put("originalPptxFileName", "week1.pptx");
+		document.put("transcriptionComplete", true);
+
+		ProcessingPipelineService.Transition transition = pipeline.completePdfConversion(METADATA_ID,
+				"https://v2.convertapi.com/d/abc/week1.pdf");
+
+		assertTrue(transition.summarizationQueued());
+		ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+		verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.PROCESSING_EXCHANGE_NAME),
+				eq(RabbitMQConfig.SUMMARIZATION_ROUTING_KEY), captor.capture());
+		Map<String, String> payload = (Map<String, String>) captor.getValue();
+		assertEquals(METADATA_ID, payload.get("metadataId"));
+		assertEquals(document.get("summarizationMessageId"), payload.get("messageId"));
+	}
+
+	@Test
+	void completePdfConversion_KeepsQueuedStatusForWaitingSummarizer() {
+		document.put("status", ProcessingStatus.SUMMARIZATION_QUEUED.name());
+		document.put("transcriptionComplete", true);
+
+		ProcessingPipelineService.Transition transition = pipeline.completePdfConversion(METADATA_ID,
+				"https://v2.convertapi.com/d/abc/week1.pdf");
+
+		assertTrue(transition.applied());
+		assertFalse(transition.summarizationQueued());
+		assertEquals(ProcessingStatus.SUMMARIZATION_QUEUED.name(), document.get("status"));
+		assertEquals(true, document.get("pdfConversionComplete"));
+	}
+
+	@Test
+	void beginPdfConversion_SkipsStoppedRecordings() {
+		for (ProcessingStatus status : List.of(ProcessingStatus.DELETING, ProcessingStatus.FAILED,
+				ProcessingStatus.SUMMARIZING)) {
+			document.put("status", status.name());
+
+			assertFalse(pipeline.beginPdfConversion(METADATA_ID).applied(), status.name());
+		}
+		verify(transaction, never()).update(eq(documentReference), anyMap());
+	}
+
+	@Test
+	void failedPublish_ReleasesClaimSoTheJoinCanFireAgain() {
+		document.put("status", ProcessingStatus.TRANSCRIBING.name());
+		document.put("audioOnly", true);
+		doThrow(new AmqpException("broker down")).when(rabbitTemplate).convertAndSend(anyString(), anyString(),
+				any(Object.class));
+
+		assertThrows(AmqpException.class, () -> pipeline.completeTranscription(METADATA_ID, "Hello class"));
+		assertEquals(ProcessingStatus.TRANSCRIPTION_COMPLETE.name(), document.get("status"));
+
+		RabbitTemplate healthy = mock(RabbitTemplate.class);
+		pipeline = new ProcessingPipelineService(firebaseService, healthy);
+		assertTrue(pipeline.triggerSummarizationIfReady(METADATA_ID).summarizationQueued());
+		verify(healthy).convertAndSend(anyString(), anyString(), any(Object.class));
+	}
+}
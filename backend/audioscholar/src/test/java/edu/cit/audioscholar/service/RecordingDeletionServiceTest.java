@@ -0,0 +1,202 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.WriteBatch;
+
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
+import edu.cit.audioscholar.model.AudioMetadata;
+import edu.cit.audioscholar.model.DeletionJob;
+import edu.cit.audioscholar.model.ProcessingStatus;
+import edu.cit.audioscholar.model.Recording;
+
+@ExtendWith(MockitoExtension.class)
+class RecordingDeletionServiceTest {
+
+	private static final String METADATA_COLLECTION = "audio_metadata";
+
+	@Mock
+	private FirebaseService firebaseService;
+	@Mock
+	private NhostStorageService nhostStorageService;
+	@Mock
+	private ContentDedupService contentDedupService;
+	@Mock
+	private LearningMaterialRecommenderService learningMaterialRecommenderService;
+	@Mock
+	private RecordingService recordingService;
+	@Mock
+	private TempFileStore tempFileStore;
+	@Mock
+	private CacheManager cacheManager;
+	@Mock
+	private WriteBatch batch;
+	@Mock
+	private DocumentReference documentReference;
+	@Mock
+	private DocumentReference recommendationReference;
+
+	private RecordingDeletionService deletionService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		deletionService = new RecordingDeletionService(firebaseService, nhostStorageService, contentDedupService,
+				learningMaterialRecommenderService, recordingService, tempFileStore, cacheManager, 3, 0, 60, 10);
+		deletionService.start();
+
+		Recording recording = new Recording();
+		recording.setRecordingId("rec-1");
+		recording.setUserId("user-1");
+		recording.setSummaryId("sum-1");
+
+		when(firebaseService.getAudioMetadataCollectionName()).thenReturn(METADATA_COLLECTION);
+		when(firebaseService.getDocumentReference(anyString(), anyString())).thenReturn(documentReference);
+		when(firebaseService.getData(UserService.COLLECTION_NAME, "user-1")).thenReturn(Map.of("id", "user-1"));
+		when(firebaseService.newBatch()).thenReturn(batch);
+		when(learningMaterialRecommenderService.getRecommendationReferences("rec-1"))
+				.thenReturn(List.of(recommendationReference));
+		when(recordingService.getRecordingById("rec-1")).thenReturn(recording);
+	}
+
+	@AfterEach
+	void tearDown() {
+		deletionService.stop();
+	}
+
+	@Test
+	void requestDeletion_DeletesFilesAndDocumentsInOneBatch() throws Exception {
+		when(firebaseService.getData(METADATA_COLLECTION, "meta-1")).thenReturn(metadataData());
+		when(contentDedupService.release(eq("hash-a"), eq("file-a"), any())).thenReturn(true);
+		when(contentDedupService.release(isNull(), eq("pdf-1"), any())).thenReturn(true);
+
+		DeletionJob job = deletionService.requestDeletion(AudioMetadata.fromMap(metadataData()));
+
+		awaitFinished(job);
+		assertEquals(DeletionJob.State.COMPLETED, job.getState());
+		verify(firebaseService).updateDataWithMap(eq(METADATA_COLLECTION), eq("meta-1"), anyMap());
+		verify(nhostStorageService).deleteFile("file-a");
+		verify(nhostStorageService).deleteFile("pdf-1");
+		verify(batch).delete(recommendationReference);
+		verify(batch, times(3)).delete(documentReference);
+		verify(batch).update(eq(documentReference), eq("recordingIds"), any(FieldValue.class));
+		verify(firebaseService, times(1)).commitBatch(eq(batch), anyString());
+	}
+
+	@Test
+	void requestDeletion_KeepsFileStillReferencedElsewhere() throws Exception {
+		when(firebaseService.getData(METADATA_COLLECTION, "meta-1")).thenReturn(metadataData());
+		when(contentDedupService.release(eq("hash-a"), eq("file-a"), any())).thenReturn(false);
+		when(contentDedupService.release(isNull(), eq("pdf-1"), any())).thenReturn(true);
+
+		DeletionJob job = deletionService.requestDeletion(AudioMetadata.fromMap(metadataData()));
+
+		awaitFinished(job);
+		assertEquals(DeletionJob.State.COMPLETED, job.getState());
+		verify(nhostStorageService, never()).deleteFile("file-a");
+		verify(nhostStorageService).deleteFile("pdf-1");
+	}
+
+	@Test
+	void requestDeletion_RetriesWithoutReleasingFileTwice() throws Exception {
+		Map<String, Object> afterFirstAttempt = metadataData();
+		afterFirstAttempt.put(RecordingDeletionService.FIELD_DELETION_STEPS, List.of("audio:released"));
+		when(firebaseService.getData(METADATA_COLLECTION, "meta-1")).thenReturn(metadataData(), afterFirstAttempt);
+		when(contentDedupService.release(eq("hash-a"), eq("file-a"), any())).thenReturn(true);
+		when(contentDedupService.release(isNull(), eq("pdf-1"), any())).thenReturn(true);
+		doThrow(new FirestoreInteractionException("unavailable")).doNothing().when(firebaseService)
+				.commitBatch(eq(batch), anyString());
+
+		DeletionJob job = deletionService.requestDeletion(AudioMetadata.fromMap(metadataData()));
+
+		awaitFinished(job);
+		assertEquals(DeletionJob.State.COMPLETED, job.getState());
+		assertEquals(2, job.getAttempts());
+		verify(contentDedupService, times(1)).release(eq("hash-a"), eq("file-a"), any());
+		verify(nhostStorageService, times(2)).deleteFile("file-a");
+	}
+
+	@Test
+	void requestDeletion_RetriesWhenReleaseCannotReachFirestore() throws Exception {
+		when(firebaseService.getData(METADATA_COLLECTION, "meta-1")).thenReturn(metadataData());
+		when(contentDedupService.release(eq("hash-a"), eq("file-a"), any()))
+				.thenThrow(new FirestoreInteractionException("unavailable")).thenReturn(true);
+		when(contentDedupService.release(isNull(), eq("pdf-1"), any())).thenReturn(true);
+
+		DeletionJob job = deletionService.requestDeletion(AudioMetadata.fromMap(metadataData()));
+
+		awaitFinished(job);
+		assertEquals(DeletionJob.State.COMPLETED, job.getState());
+		assertEquals(2, job.getAttempts());
+		verify(nhostStorageService).deleteFile("file-a");
+	}
+
+	@Test
+	void requestDeletion_ReturnsActiveJobForRepeatedRequest() throws Exception {
+		when(firebaseService.getData(METADATA_COLLECTION, "meta-1")).thenReturn(metadataData());
+		when(contentDedupService.release(any(), anyString(), any())).thenReturn(true);
+		CountDownLatch firstAttemptRunning = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			firstAttemptRunning.await();
+			throw new FirestoreInteractionException("unavailable");
+		}).when(firebaseService).commitBatch(eq(batch), anyString());
+		AudioMetadata metadata = AudioMetadata.fromMap(metadataData());
+		metadata.setStatus(ProcessingStatus.DELETING);
+
+		DeletionJob job = deletionService.requestDeletion(metadata);
+		DeletionJob again = deletionService.requestDeletion(metadata);
+
+		assertSame(job, again);
+		firstAttemptRunning.countDown();
+		awaitFinished(job);
+		assertEquals(DeletionJob.State.FAILED, job.getState());
+		assertEquals(3, job.getAttempts());
+		verify(firebaseService, never()).updateDataWithMap(anyString(), anyString(), anyMap());
+	}
+
+	private static Map<String, Object> metadataData() {
+		Map<String, Object> data = new HashMap<>();
+		data.put("id", "meta-1");
+		data.put("userId", "user-1");
+		data.put("recordingId", "rec-1");
+		data.put("status", ProcessingStatus.COMPLETED.name());
+		data.put("nhostFileId", "file-a");
+		data.put("audioContentHash", "hash-a");
+		data.put("generatedPdfNhostFileId", "pdf-1");
+		return data;
+	}
+
+	private static void awaitFinished(DeletionJob job) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (job.isActive() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+}
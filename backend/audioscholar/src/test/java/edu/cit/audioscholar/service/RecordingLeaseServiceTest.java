@@ -0,0 +1,191 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Transaction;
+
+import edu.cit.audioscholar.exception.FirestoreInteractionException;
+import edu.cit.audioscholar.service.RecordingLeaseService.Lease;
+import edu.cit.audioscholar.service.RecordingLeaseService.Purpose;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RecordingLeaseServiceTest {
+
+	private static final String METADATA_ID = "rec-1";
+
+	@Mock
+	private FirebaseService firebaseService;
+	@Mock
+	private Transaction transaction;
+	@Mock
+	private DocumentReference documentReference;
+	@Mock
+	private DocumentSnapshot snapshot;
+
+	private SimpleMeterRegistry meterRegistry;
+	private RecordingLeaseService leaseService;
+	private final Map<String, Object> document = new HashMap<>();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		meterRegistry = new SimpleMeterRegistry();
+		leaseService = new RecordingLeaseService(firebaseService, "processing_leases", true, 120, meterRegistry);
+
+		when(firebaseService.getDocumentReference("processing_leases", METADATA_ID + ":TRANSCRIPTION"))
+				.thenReturn(documentReference);
+		when(firebaseService.runTransaction(any())).thenAnswer(invocation -> {
+			Transaction.Function<?> function = invocation.getArgument(0);
+			return function.updateCallback(transaction);
+		});
+		when(transaction.get(documentReference)).thenAnswer(invocation -> ApiFutures.immediateFuture(snapshot));
+		when(snapshot.exists()).thenAnswer(invocation -> !document.isEmpty());
+		when(snapshot.getString(anyString()))
+				.thenAnswer(invocation -> (String) document.get(invocation.getArgument(0)));
+		when(snapshot.getLong(anyString())).thenAnswer(invocation -> (Long) document.get(invocation.getArgument(0)));
+		when(snapshot.getTimestamp(anyString()))
+				.thenAnswer(invocation -> (Timestamp) document.get(invocation.getArgument(0)));
+		when(transaction.set(eq(documentReference), anyMap())).thenAnswer(invocation -> {
+			document.clear();
+			document.putAll(invocation.getArgument(1));
+			return transaction;
+		});
+		when(transaction.update(eq(documentReference), anyMap())).thenAnswer(invocation -> {
+			Map<String, Object> updates = invocation.getArgument(1);
+			updates.forEach((field, value) -> {
+				if (FieldValue.delete().equals(value)) {
+					document.remove(field);
+				} else {
+					document.put(field, value);
+				}
+			});
+			return transaction;
+		});
+	}
+
+	@AfterEach
+	void tearDown() {
+		leaseService.stop();
+	}
+
+	@Test
+	void tryAcquire_SecondAttemptOnSameNodeIsTurnedAwayLocally() {
+		Lease lease = leaseService.tryAcquire(Purpose.TRANSCRIPTION, METADATA_ID);
+
+		assertNotNull(lease);
+		assertEquals(1L, lease.getToken());
+		assertFalse(lease.isTakeover());
+		assertTrue(lease.isHeld());
+		assertNull(leaseService.tryAcquire(Purpose.TRANSCRIPTION, METADATA_ID));
+	}
+
+	@Test
+	void tryAcquire_RefusesLeaseHeldByAnotherInstance() {
+		document.put("holder", "other-instance/1");
+		document.put("token", 4L);
+		document.put("expiresAt", Timestamp.ofTimeMicroseconds((System.currentTimeMillis() + 60_000) * 1_000));
+
+		assertNull(leaseService.tryAcquire(Purpose.TRANSCRIPTION, METADATA_ID));
+		assertEquals("other-instance/1", document.get("holder"));
+	}
+
+	@Test
+	void tryAcquire_TakesOverExpiredLeaseWithHigherToken() {
+		document.put("holder", "other-instance/1");
+		document.put("token", 4L);
+		document.put("expiresAt", Timestamp.ofTimeMicroseconds((System.currentTimeMillis() - 1_000) * 1_000));
+
+		Lease lease = leaseService.tryAcquire(Purpose.TRANSCRIPTION, METADATA_ID);
+
+		assertNotNull(lease);
+		assertEquals(5L, lease.getToken());
+		assertTrue(lease.isTakeover());
+		assertEquals(5L, document.get("token"));
+	}
+
+	@Test
+	void tryAcquire_ReportsLeaseStoreErrorsInsteadOfBusy() throws Exception {
+		doThrow(new FirestoreInteractionException("unavailable")).when(firebaseService).runTransaction(any());
+
+		assertThrows(FirestoreInteractionException.class,
+				() -> leaseService.tryAcquire(Purpose.TRANSCRIPTION, METADATA_ID));
+		assertEquals(1.0, meterRegistry.get("audioscholar.lease.acquisitions").tag("result", "error").counter()
+				.count());
+	}
+
+	@Test
+	void close_ReleasesLeaseButKeepsTokenIncreasing() {
+		Lease first = leaseService.tryAcquire(Purpose.TRANSCRIPTION, METADATA_ID);
+		first.close();
+
+		assertFalse(first.isHeld());
+		assertFalse(document.containsKey("holder"));
+
+		Lease second = leaseService.tryAcquire(Purpose.TRANSCRIPTION, METADATA_ID);
+		assertNotNull(second);
+		assertEquals(2L, second.getToken());
+		assertFalse(second.isTakeover());
+	}
+
+	@Test
+	void isCurrent_FalseOnceAnotherHolderHasTakenOver() throws Exception {
+		Lease lease = leaseService.tryAcquire(Purpose.TRANSCRIPTION, METADATA_ID);
+		assertTrue(lease.isCurrent(transaction));
+
+		document.put("holder", "other-instance/2");
+		document.put("token", 2L);
+
+		assertFalse(lease.isCurrent(transaction));
+	}
+
+	@Test
+	void inProcessMode_NeverTouchesFirestore() {
+		RecordingLeaseService local = new RecordingLeaseService(firebaseService, "processing_leases", false, 120,
+				new SimpleMeterRegistry());
+		try {
+			Lease lease = local.tryAcquire(Purpose.SUMMARIZATION, METADATA_ID);
+			assertNotNull(lease);
+			assertNull(local.tryAcquire(Purpose.SUMMARIZATION, METADATA_ID));
+			assertNotNull(local.tryAcquire(Purpose.PDF_CONVERSION, METADATA_ID));
+
+			lease.close();
+			Lease next = local.tryAcquire(Purpose.SUMMARIZATION, METADATA_ID);
+			assertNotNull(next);
+			assertTrue(next.getToken() > lease.getToken());
+		} finally {
+			local.stop();
+		}
+		verifyNoInteractions(firebaseService);
+	}
+}
@@ -0,0 +1,108 @@
+package edu.cit.audioscholar.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.cit.audioscholar.exception.TempStorageFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TempFileStoreTest {
+
+	@TempDir
+	Path tempDir;
+
+	private SimpleMeterRegistry meterRegistry;
+	private TempFileStore tempFileStore;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		tempFileStore = new TempFileStore(tempDir.toString(), "100B", "0B", 60, 15, 30, meterRegistry);
+	}
+
+	@Test
+	void reserve_RejectsOnceBudgetIsExhausted() {
+		tempFileStore.reserve("audio", "lecture.mp3", 60);
+
+		TempStorageFullException ex = assertThrows(TempStorageFullException.class,
+				() -> tempFileStore.reserve("audio", "lecture.mp3", 50));
+		assertEquals(30, ex.getRetryAfterSeconds());
+		assertEquals(60, tempFileStore.getReservedBytes());
+		assertEquals(1.0, meterRegistry.get("audioscholar.tempstore.rejections").counter().count());
+	}
+
+	@Test
+	void track_NeverRejects() {
+		tempFileStore.reserve("audio", "lecture.mp3", 80);
+
+		Path tracked = tempFileStore.track("transcribe", "lecture.mp3", 80);
+
+		assertEquals(160, tempFileStore.getReservedBytes());
+		assertTrue(tracked.getFileName().toString().endsWith(".mp3"));
+	}
+
+	@Test
+	void release_DeletesFileAndFreesReservation() throws IOException {
+		Path path = tempFileStore.reserve("avatar", "me.png", 40);
+		Files.write(path, new byte[40]);
+
+		tempFileStore.release(path);
+		tempFileStore.release(path);
+
+		assertFalse(Files.exists(path));
+		assertEquals(0, tempFileStore.getReservedBytes());
+		assertEquals(0, tempFileStore.getTrackedFileCount());
+	}
+
+	@Test
+	void settle_ReplacesEstimateWithActualSize() throws IOException {
+		Path path = tempFileStore.track("download", "lecture.m4a", 0);
+		Files.write(path, new byte[25]);
+
+		tempFileStore.settle(path);
+
+		assertEquals(25, tempFileStore.getReservedBytes());
+	}
+
+	@Test
+	void reclaimOrphans_DeletesOnlyOldUntrackedFiles() throws IOException {
+		Path tracked = tempFileStore.reserve("audio", "lecture.mp3", 10);
+		Files.write(tracked, new byte[10]);
+		Path oldOrphan = Files.write(tempDir.resolve("audio-crashed.mp3"), new byte[10]);
+		Path freshOrphan = Files.write(tempDir.resolve("audio-inflight.mp3"), new byte[10]);
+		FileTime longAgo = FileTime.from(Instant.now().minus(Duration.ofHours(2)));
+		Files.setLastModifiedTime(oldOrphan, longAgo);
+		Files.setLastModifiedTime(tracked, longAgo);
+
+		int reclaimed = tempFileStore.reclaimOrphans();
+
+		assertEquals(1, reclaimed);
+		assertFalse(Files.exists(oldOrphan));
+		assertTrue(Files.exists(freshOrphan));
+		assertTrue(Files.exists(tracked));
+	}
+
+	@Test
+	void reclaimOrphans_ForgetsTrackedFilesDeletedElsewhere() throws IOException {
+		Path path = tempFileStore.reserve("pptx", "slides.pptx", 30);
+		Files.write(path, new byte[30]);
+		Files.delete(path);
+
+		tempFileStore.reclaimOrphans();
+
+		assertEquals(0, tempFileStore.getReservedBytes());
+	}
+}
@@ -28,13 +28,14 @@ public class UserServiceTest {
 	@Mock
 	private NhostStorageService nhostStorageService;
 
+	@Mock
+	private TempFileStore tempFileStore;
+
 	private UserService userService;
 
 	@BeforeEach
 	void setUp() {
-		// Manually instantiate to avoid file system operations in constructor during
-		// test
-		userService = new UserService(firebaseService, nhostStorageService, ".");
+		userService = new UserService(firebaseService, nhostStorageService, tempFileStore);
 	}
 
 	@Test
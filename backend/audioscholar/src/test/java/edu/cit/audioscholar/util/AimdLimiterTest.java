@@ -0,0 +1,58 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class AimdLimiterTest {
+
+	@Test
+	void tryAcquire_RefusesOnceLimitReached() {
+		AimdLimiter limiter = new AimdLimiter(2, 1, 8, 0.5, Duration.ofSeconds(10));
+
+		assertTrue(limiter.tryAcquire());
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+		assertEquals(2, limiter.getInFlight());
+	}
+
+	@Test
+	void onSuccess_GrowsLimitWhileSaturated() {
+		AimdLimiter limiter = new AimdLimiter(2, 1, 8, 0.5, Duration.ofSeconds(10));
+
+		for (int round = 0; round < 3; round++) {
+			assertTrue(limiter.tryAcquire());
+			assertTrue(limiter.tryAcquire());
+			limiter.onSuccess(1_000);
+			limiter.onSuccess(1_000);
+		}
+
+		assertEquals(3, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void onDropped_CutsLimitByBackoffRatio() {
+		AimdLimiter limiter = new AimdLimiter(8, 1, 8, 0.5, Duration.ofSeconds(10));
+
+		limiter.tryAcquire();
+		limiter.onDropped();
+
+		assertEquals(4, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void onSuccess_SlowResponseTrimsLimit() {
+		AimdLimiter limiter = new AimdLimiter(8, 1, 8, 0.5, Duration.ofSeconds(10));
+
+		limiter.tryAcquire();
+		limiter.onSuccess(Duration.ofSeconds(11).toNanos());
+
+		assertEquals(7, limiter.getLimit());
+	}
+}
@@ -0,0 +1,180 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import edu.cit.audioscholar.util.AudioHeaderProber.ProbeResult;
+
+class AudioHeaderProberTest {
+
+	@Test
+	void probe_WavUsesDataChunkAndByteRate() throws IOException {
+		ByteBuffer header = le(44).put(ascii("RIFF")).putInt(36 + 96000).put(ascii("WAVE")).put(ascii("fmt "))
+				.putInt(16).putShort((short) 1).putShort((short) 1).putInt(16000).putInt(32000)
+				.putShort((short) 2).putShort((short) 16).put(ascii("data")).putInt(96000);
+		byte[] file = concat(header.array(), new byte[96000]);
+
+		ProbeResult result = probe(file);
+
+		assertEquals("wav", result.container());
+		assertEquals("pcm", result.codec());
+		assertEquals(3.0, result.durationSeconds(), 0.001);
+		assertEquals(16000, result.sampleRate());
+	}
+
+	@Test
+	void probe_Mp4ReadsMvhdAfterSkippingMdat() throws IOException {
+		byte[] ftyp = box("ftyp", ascii("M4A "), new byte[4]);
+		byte[] mdat = box("mdat", new byte[100_000]);
+		byte[] mvhd = box("mvhd", be(20).putInt(0).putInt(0).putInt(0).putInt(1000).putInt(125_000).array(),
+				new byte[80]);
+		byte[] sampleEntry = box("mp4a", be(28).put(new byte[16]).putShort((short) 2).putShort((short) 16)
+				.putInt(0).putInt(44100 << 16).array());
+		byte[] stsd = box("stsd", be(8).putInt(0).putInt(1).array(), sampleEntry);
+		byte[] trak = box("trak", box("mdia", box("minf", box("stbl", stsd))));
+		byte[] moov = box("moov", mvhd, trak);
+
+		ProbeResult result = probe(concat(ftyp, mdat, moov));
+
+		assertEquals("mp4", result.container());
+		assertEquals("aac", result.codec());
+		assertEquals(125.0, result.durationSeconds(), 0.001);
+		assertEquals(44100, result.sampleRate());
+		assertEquals(2, result.channels());
+	}
+
+	@Test
+	void probe_FlacReadsStreamInfo() throws IOException {
+		byte[] streamInfo = new byte[34];
+		long packed = (44100L << 44) | (1L << 41) | (15L << 36) | 441_000L;
+		ByteBuffer.wrap(streamInfo, 10, 8).putLong(packed);
+		byte[] file = concat(ascii("fLaC"), new byte[] {(byte) 0x80, 0, 0, 34}, streamInfo);
+
+		ProbeResult result = probe(file);
+
+		assertEquals("flac", result.codec());
+		assertEquals(10.0, result.durationSeconds(), 0.001);
+		assertEquals(2, result.channels());
+	}
+
+	@Test
+	void probe_Mp3UsesXingFrameCountAfterId3Tag() throws IOException {
+		byte[] id3 = concat(ascii("ID3"), new byte[] {3, 0, 0, 0, 0, 0, 20}, new byte[20]);
+		byte[] first = mp3Frame();
+		System.arraycopy(ascii("Xing"), 0, first, 36, 4);
+		ByteBuffer.wrap(first, 40, 8).putInt(1).putInt(1000);
+
+		ProbeResult result = probe(concat(id3, first, mp3Frame()));
+
+		assertEquals("mp3", result.codec());
+		assertEquals(1000 * 1152 / 44100.0, result.durationSeconds(), 0.001);
+	}
+
+	@Test
+	void probe_Mp3WithoutXingEstimatesFromBitrate() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int i = 0; i < 40; i++) {
+			out.write(mp3Frame());
+		}
+
+		ProbeResult result = probe(out.toByteArray());
+
+		assertEquals(40 * 417 * 8 / 128_000.0, result.durationSeconds(), 0.001);
+	}
+
+	@Test
+	void probe_AdtsCountsFrames() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int i = 0; i < 43; i++) {
+			byte[] frame = new byte[200];
+			byte[] header = {(byte) 0xFF, (byte) 0xF1, 0x50, (byte) 0x80, 25, 0x1F, (byte) 0xFC};
+			System.arraycopy(header, 0, frame, 0, header.length);
+			out.write(frame);
+		}
+
+		ProbeResult result = probe(out.toByteArray());
+
+		assertEquals("adts", result.container());
+		assertEquals("aac", result.codec());
+		assertEquals(43 * 1024 / 44100.0, result.durationSeconds(), 0.001);
+		assertEquals(2, result.channels());
+	}
+
+	@Test
+	void probe_OggOpusUsesLastGranuleMinusPreSkip() throws IOException {
+		byte[] opusHead = le(19).put(ascii("OpusHead")).put((byte) 1).put((byte) 2).putShort((short) 312)
+				.putInt(48000).putShort((short) 0).put((byte) 0).array();
+		byte[] firstPage = concat(oggPageHeader(0, 1), new byte[] {19}, opusHead);
+		byte[] lastPage = oggPageHeader(48000L * 5 + 312, 0);
+
+		ProbeResult result = probe(concat(firstPage, new byte[200_000], lastPage));
+
+		assertEquals("opus", result.codec());
+		assertEquals(5.0, result.durationSeconds(), 0.001);
+	}
+
+	@Test
+	void probe_UnknownDataIsEmpty() throws IOException {
+		byte[] junk = "this is not an audio file at all".getBytes(StandardCharsets.US_ASCII);
+
+		Optional<ProbeResult> result = AudioHeaderProber.probe(new ByteArrayInputStream(junk), junk.length);
+
+		assertFalse(result.isPresent());
+	}
+
+	private ProbeResult probe(byte[] file) throws IOException {
+		Optional<ProbeResult> result = AudioHeaderProber.probe(new ByteArrayInputStream(file), file.length);
+		assertTrue(result.isPresent(), "expected the header to be recognised");
+		return result.get();
+	}
+
+	private byte[] mp3Frame() {
+		byte[] frame = new byte[417];
+		frame[0] = (byte) 0xFF;
+		frame[1] = (byte) 0xFB;
+		frame[2] = (byte) 0x90;
+		frame[3] = 0x00;
+		return frame;
+	}
+
+	private byte[] oggPageHeader(long granule, int segments) {
+		return le(27).put(ascii("OggS")).put((byte) 0).put((byte) 0).putLong(granule).putInt(1234).putInt(0)
+				.putInt(0).put((byte) segments).array();
+	}
+
+	private byte[] box(String type, byte[]... payloads) {
+		byte[] payload = concat(payloads);
+		return be(8 + payload.length).putInt(8 + payload.length).put(ascii(type)).put(payload).array();
+	}
+
+	private static ByteBuffer le(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static ByteBuffer be(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN);
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.writeBytes(part);
+		}
+		return out.toByteArray();
+	}
+}
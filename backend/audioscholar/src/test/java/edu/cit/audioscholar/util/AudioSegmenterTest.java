@@ -0,0 +1,176 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.cit.audioscholar.util.AudioHeaderProber.ProbeResult;
+
+class AudioSegmenterTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void write_WavCopiesSamplesUnderNewHeader() throws IOException {
+		byte[] data = pattern(20000);
+		ByteBuffer header = le(44).put(ascii("RIFF")).putInt(36 + data.length).put(ascii("WAVE"))
+				.put(ascii("fmt ")).putInt(16).putShort((short) 1).putShort((short) 1).putInt(1000).putInt(2000)
+				.putShort((short) 2).putShort((short) 16).put(ascii("data")).putInt(data.length);
+		AudioSegmenter segmenter = open(concat(header.array(), data), "lecture.wav");
+
+		byte[] segment = write(segmenter, 2, 5);
+
+		assertEquals("audio/wav", segmenter.mimeType());
+		assertEquals(10.0, segmenter.durationSeconds(), 0.001);
+		assertEquals(44 + 6000, segment.length);
+		assertEquals(6000, ByteBuffer.wrap(segment, 40, 4).order(ByteOrder.LITTLE_ENDIAN).getInt());
+		assertArrayEquals(Arrays.copyOfRange(data, 4000, 10000), Arrays.copyOfRange(segment, 44, segment.length));
+		assertEquals(3.0, probe(segment).durationSeconds(), 0.001);
+	}
+
+	@Test
+	void write_Mp3CutsAtFrameBoundariesAndDropsXingFrame() throws IOException {
+		byte[] id3 = concat(ascii("ID3"), new byte[] {3, 0, 0, 0, 0, 0, 20}, new byte[20]);
+		byte[] xing = mp3Frame(255);
+		System.arraycopy(ascii("Xing"), 0, xing, 36, 4);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.writeBytes(id3);
+		out.writeBytes(xing);
+		for (int i = 0; i < 40; i++) {
+			out.writeBytes(mp3Frame(i));
+		}
+		AudioSegmenter segmenter = open(out.toByteArray(), "lecture.mp3");
+
+		byte[] segment = write(segmenter, 0.1, 0.5);
+
+		assertEquals("audio/mp3", segmenter.mimeType());
+		assertEquals(40 * 1152 / 44100.0, segmenter.durationSeconds(), 0.001);
+		// Frames 4 to 19 are the first ones starting at or after 0.1s and 0.5s.
+		assertEquals(16 * 417, segment.length);
+		assertEquals(4, segment[100]);
+		assertEquals(19, segment[15 * 417 + 100]);
+	}
+
+	@Test
+	void write_Mp4AacIsRewrittenAsAdts() throws IOException {
+		int frames = 50;
+		byte[] samples = new byte[frames * 100];
+		for (int i = 0; i < frames; i++) {
+			samples[i * 100] = (byte) i;
+		}
+		byte[] ftyp = box("ftyp", ascii("M4A "), new byte[4]);
+		byte[] mdat = box("mdat", samples);
+		int mdatPayload = ftyp.length + 8;
+		// AAC LC, 44.1 kHz, stereo.
+		byte[] esds = box("esds", new byte[4], new byte[] {0x03, 25, 0, 1, 0}, new byte[] {0x04, 17, 0x40, 0x15},
+				new byte[11], new byte[] {0x05, 2, 0x12, 0x10});
+		byte[] mp4a = box("mp4a", be(28).put(new byte[16]).putShort((short) 2).putShort((short) 16).putInt(0)
+				.putInt(44100 << 16).array(), esds);
+		byte[] stsd = box("stsd", be(8).putInt(0).putInt(1).array(), mp4a);
+		byte[] stsz = box("stsz", be(12).putInt(0).putInt(100).putInt(frames).array());
+		byte[] stsc = box("stsc", be(20).putInt(0).putInt(1).putInt(1).putInt(10).putInt(1).array());
+		ByteBuffer stcoBody = be(8 + 5 * 4).putInt(0).putInt(5);
+		for (int chunk = 0; chunk < 5; chunk++) {
+			stcoBody.putInt(mdatPayload + chunk * 1000);
+		}
+		byte[] stco = box("stco", stcoBody.array());
+		byte[] hdlr = box("hdlr", be(12).putInt(0).putInt(0).put(ascii("soun")).array(), new byte[12]);
+		byte[] trak = box("trak", box("mdia", hdlr, box("minf", box("stbl", stsd, stsz, stsc, stco))));
+		AudioSegmenter segmenter = open(concat(ftyp, mdat, box("moov", trak)), "lecture.m4a");
+
+		byte[] segment = write(segmenter, 0, 10);
+
+		assertEquals("audio/aac", segmenter.mimeType());
+		assertEquals(frames * 1024 / 44100.0, segmenter.durationSeconds(), 0.001);
+		assertEquals(frames * 107, segment.length);
+		assertEquals((byte) 0xFF, segment[0]);
+		assertEquals((byte) 0xF1, segment[1]);
+		assertEquals(49, segment[49 * 107 + 7]);
+		ProbeResult result = probe(segment);
+		assertEquals("adts", result.container());
+		assertEquals(2, result.channels());
+		assertEquals(frames * 1024 / 44100.0, result.durationSeconds(), 0.001);
+	}
+
+	@Test
+	void open_OggIsNotSupported() throws IOException {
+		Path file = Files.write(tempDir.resolve("lecture.ogg"), concat(ascii("OggS"), new byte[4000]));
+
+		assertTrue(AudioSegmenter.open(file).isEmpty());
+	}
+
+	private AudioSegmenter open(byte[] content, String name) throws IOException {
+		Optional<AudioSegmenter> segmenter = AudioSegmenter.open(Files.write(tempDir.resolve(name), content));
+		assertTrue(segmenter.isPresent(), "expected the file to be segmentable");
+		return segmenter.get();
+	}
+
+	private byte[] write(AudioSegmenter segmenter, double startSeconds, double endSeconds) throws IOException {
+		Path target = tempDir.resolve("segment." + segmenter.extension());
+		segmenter.write(startSeconds, endSeconds, target);
+		return Files.readAllBytes(target);
+	}
+
+	private static ProbeResult probe(byte[] file) throws IOException {
+		Optional<ProbeResult> result = AudioHeaderProber.probe(new ByteArrayInputStream(file), file.length);
+		assertTrue(result.isPresent(), "expected the segment to be readable");
+		return result.get();
+	}
+
+	private static byte[] mp3Frame(int marker) {
+		byte[] frame = new byte[417];
+		frame[0] = (byte) 0xFF;
+		frame[1] = (byte) 0xFB;
+		frame[2] = (byte) 0x90;
+		frame[100] = (byte) marker;
+		return frame;
+	}
+
+	private static byte[] pattern(int length) {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		return data;
+	}
+
+	private static byte[] box(String type, byte[]... payloads) {
+		byte[] payload = concat(payloads);
+		return be(8 + payload.length).putInt(8 + payload.length).put(ascii(type)).put(payload).array();
+	}
+
+	private static ByteBuffer le(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static ByteBuffer be(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN);
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (byte[] part : parts) {
+			out.writeBytes(part);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,68 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+	private AtomicLong clock;
+	private CircuitBreaker breaker;
+
+	@BeforeEach
+	void setUp() {
+		clock = new AtomicLong();
+		breaker = new CircuitBreaker(3, Duration.ofSeconds(30), clock::get);
+	}
+
+	@Test
+	void onFailure_OpensAfterThresholdConsecutiveFailures() {
+		breaker.onFailure();
+		breaker.onFailure();
+		breaker.onSuccess();
+		breaker.onFailure();
+		breaker.onFailure();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+		breaker.onFailure();
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertFalse(breaker.tryAcquirePermission());
+	}
+
+	@Test
+	void halfOpen_LetsOneProbeThroughAndClosesOnSuccess() {
+		open();
+		clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+		assertTrue(breaker.tryAcquirePermission());
+		assertFalse(breaker.tryAcquirePermission());
+		breaker.onSuccess();
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquirePermission());
+	}
+
+	@Test
+	void halfOpen_ReopensWhenProbeFails() {
+		open();
+		clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+		assertTrue(breaker.tryAcquirePermission());
+		breaker.onFailure();
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(Duration.ofSeconds(30).toNanos(), breaker.nanosUntilProbe());
+	}
+
+	private void open() {
+		for (int i = 0; i < 3; i++) {
+			breaker.onFailure();
+		}
+	}
+}
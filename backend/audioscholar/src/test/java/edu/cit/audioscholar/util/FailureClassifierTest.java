@@ -0,0 +1,43 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import edu.cit.audioscholar.exception.InvalidAudioFileException;
+
+class FailureClassifierTest {
+
+	@Test
+	void isRetryable_LooksThroughListenerWrappers() {
+		assertTrue(FailureClassifier.isRetryable(new RuntimeException("Error during transcription process",
+				new IOException("Connection reset"))));
+		assertFalse(FailureClassifier.isRetryable(
+				new RuntimeException("Error during transcription process", new IllegalArgumentException("bad id"))));
+	}
+
+	@Test
+	void isRetryable_TreatsRejectedInputAsFatal() {
+		assertFalse(FailureClassifier.isRetryable(new InvalidAudioFileException("Not an audio file")));
+		assertFalse(FailureClassifier.isRetryable(new HttpClientErrorException(HttpStatus.BAD_REQUEST)));
+	}
+
+	@Test
+	void isRetryable_RetriesTransientFailures() {
+		assertTrue(FailureClassifier.isRetryable(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+		assertTrue(FailureClassifier.isRetryable(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+		assertTrue(FailureClassifier.isRetryable(new SocketTimeoutException("Read timed out")));
+	}
+
+	@Test
+	void isRetryable_RetriesUnknownFailures() {
+		assertTrue(FailureClassifier.isRetryable(new RuntimeException("Transcript text is missing")));
+	}
+}
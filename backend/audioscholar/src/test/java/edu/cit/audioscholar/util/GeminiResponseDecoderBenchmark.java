@@ -0,0 +1,121 @@
+package edu.cit.audioscholar.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cit.audioscholar.util.GeminiResponseDecoder.SummaryResult;
+
+/**
+ * Compares {@link GeminiResponseDecoder} with reading the same summary response
+ * into two {@link JsonNode} trees, as {@code SummarizationListenerService} did
+ * before. Response sizes cover long lectures with slide context.
+ * <p>
+ * Not run by the build; start it with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=edu.cit.audioscholar.util.GeminiResponseDecoderBenchmark}
+ * or from the IDE. Add {@code -prof gc} to the options to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeminiResponseDecoderBenchmark {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final GeminiResponseDecoder decoder = new GeminiResponseDecoder(objectMapper.getFactory());
+
+	@Param({"1", "3", "5"})
+	public int responseMegabytes;
+
+	private String response;
+
+	@Setup
+	public void setUp() throws IOException {
+		response = summaryResponse(responseMegabytes * 1024 * 1024);
+	}
+
+	@Benchmark
+	public SummaryResult streamingDecoder() throws IOException {
+		return decoder.decodeSummary(response);
+	}
+
+	@Benchmark
+	public SummaryResult treeModel() throws IOException {
+		JsonNode root = objectMapper.readTree(response);
+		String text = root.path("candidates").path(0).path("content").path("parts").path(0).path("text").asText();
+		JsonNode inner = objectMapper.readTree(text);
+		List<String> keyPoints = new ArrayList<>();
+		inner.path("keyPoints").forEach(node -> keyPoints.add(node.asText()));
+		List<String> topics = new ArrayList<>();
+		inner.path("topics").forEach(node -> topics.add(node.asText()));
+		List<GeminiResponseDecoder.GlossaryEntry> glossary = new ArrayList<>();
+		inner.path("glossary").forEach(node -> glossary.add(new GeminiResponseDecoder.GlossaryEntry(
+				node.path("term").asText(), node.path("definition").asText())));
+		return new SummaryResult(inner.path("summaryText").asText(), keyPoints, topics, glossary);
+	}
+
+	/** A summary response of about {@code targetChars}, mostly Markdown summary text. */
+	private String summaryResponse(int targetChars) throws IOException {
+		StringBuilder summaryText = new StringBuilder(targetChars);
+		List<String> keyPoints = new ArrayList<>();
+		List<Map<String, String>> glossary = new ArrayList<>();
+		for (int section = 1; summaryText.length() < targetChars * 0.9; section++) {
+			summaryText.append("## Section ").append(section).append(": Graph traversal\n\n")
+					.append("Breadth-first search visits every vertex at distance *k* before any at distance *k + 1*, ")
+					.append("so the first time it reaches a vertex is along a shortest path. The lecturer said: ")
+					.append("\"use a queue, not a stack\" and showed `visited[v] = true` set on enqueue.\n\n");
+			if (section % 4 == 0) {
+				keyPoints.add("Key point " + section + ": BFS finds shortest paths in unweighted graphs.");
+			}
+			if (section % 10 == 0) {
+				Map<String, String> entry = new HashMap<>();
+				entry.put("term", "Term " + section);
+				entry.put("definition", "Definition of term " + section + " as used in the lecture.");
+				glossary.add(entry);
+			}
+		}
+		Map<String, Object> summary = new HashMap<>();
+		summary.put("summaryText", summaryText.toString());
+		summary.put("keyPoints", keyPoints);
+		summary.put("topics", List.of("breadth first search", "shortest paths", "graph representations"));
+		summary.put("glossary", glossary);
+
+		Map<String, Object> candidate = new HashMap<>();
+		candidate.put("content",
+				Map.of("role", "model", "parts", List.of(Map.of("text", objectMapper.writeValueAsString(summary)))));
+		candidate.put("finishReason", "STOP");
+		candidate.put("index", 0);
+		Map<String, Object> envelope = new HashMap<>();
+		envelope.put("candidates", List.of(candidate));
+		envelope.put("usageMetadata", Map.of("promptTokenCount", 250_000, "candidatesTokenCount", 60_000));
+		envelope.put("modelVersion", "gemini-2.5-flash");
+		return objectMapper.writeValueAsString(envelope);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(GeminiResponseDecoderBenchmark.class.getSimpleName()).build()).run();
+	}
+}
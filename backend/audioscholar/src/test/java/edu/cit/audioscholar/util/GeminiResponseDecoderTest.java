@@ -0,0 +1,132 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.cit.audioscholar.util.GeminiResponseDecoder.CandidateText;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.GeminiResponseException;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.GlossaryEntry;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.Recommendation;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.SummaryResult;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.TranscriptResult;
+
+class GeminiResponseDecoderTest {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final String SUMMARY = "{\"summaryText\": \"# Graphs\", \"keyPoints\": [\"BFS\", \"DFS\"],"
+			+ " \"topics\": [\"graph search\"], \"glossary\": [{\"term\": \"Vertex\", \"definition\": \"A node\"},"
+			+ " {\"term\": \"Edge\"}], \"extra\": {\"nested\": [1, 2]}}";
+
+	private final GeminiResponseDecoder decoder = new GeminiResponseDecoder(MAPPER.getFactory());
+
+	@Test
+	void decodeSummary_ReadsDocumentEscapedInEnvelope() throws Exception {
+		SummaryResult summary = decoder.decodeSummary(envelope("STOP", SUMMARY));
+
+		assertEquals("# Graphs", summary.summaryText());
+		assertEquals(List.of("BFS", "DFS"), summary.keyPoints());
+		assertEquals(List.of("graph search"), summary.topics());
+		// Entries without a definition are dropped.
+		assertEquals(List.of(new GlossaryEntry("Vertex", "A node")), summary.glossary());
+	}
+
+	@Test
+	void decodeSummary_AcceptsBareDocumentAndStreams() throws Exception {
+		assertEquals(decoder.decodeSummary(envelope("STOP", SUMMARY)), decoder.decodeSummary(SUMMARY));
+		assertEquals(decoder.decodeSummary(SUMMARY),
+				decoder.decodeSummary(new ByteArrayInputStream(SUMMARY.getBytes(StandardCharsets.UTF_8))));
+	}
+
+	@Test
+	void decodeSummary_ConcatenatesTextParts() throws Exception {
+		String body = "{\"candidates\": [{\"content\": {\"parts\": [{\"text\": \"{\\\"summaryText\\\": \"},"
+				+ " {\"text\": \"\\\"Split\\\"}\"}]}, \"finishReason\": \"STOP\"}]}";
+
+		assertEquals("Split", decoder.decodeSummary(body).summaryText());
+	}
+
+	@Test
+	void decodeSummary_ThrowsOnErrorResponses() {
+		GeminiResponseException apiError = assertThrows(GeminiResponseException.class,
+				() -> decoder.decodeSummary("{\"error\": {\"code\": 400, \"message\": \"Bad request\"}}"));
+		GeminiResponseException serviceError = assertThrows(GeminiResponseException.class,
+				() -> decoder.decodeSummary("{\"error\": \"API Error\", \"details\": \"quota\"}"));
+
+		assertEquals("Gemini API Error: Bad request", apiError.getMessage());
+		assertEquals("Gemini API Error: API Error - quota", serviceError.getMessage());
+	}
+
+	@Test
+	void decodeText_ThrowsWhenContentIsWithheld() {
+		assertThrows(GeminiResponseException.class, () -> decoder
+				.decodeText("{\"promptFeedback\": {\"blockReason\": \"SAFETY\", \"safetyRatings\": []}}"));
+		GeminiResponseException blocked = assertThrows(GeminiResponseException.class,
+				() -> decoder.decodeText(envelope("RECITATION", "partial")));
+		GeminiResponseException empty = assertThrows(GeminiResponseException.class,
+				() -> decoder.decodeText("{\"candidates\": []}"));
+
+		assertEquals("Gemini API Error: Content Blocked (Finish Reason) - RECITATION", blocked.getMessage());
+		assertEquals("No valid candidates found in Gemini response.", empty.getMessage());
+	}
+
+	@Test
+	void decodeText_RejectsMalformedJson() {
+		assertThrows(JsonProcessingException.class, () -> decoder.decodeText("{\"candidates\": [{"));
+	}
+
+	@Test
+	void decodeTranscript_ReadsTranscriptAndConfidence() throws Exception {
+		TranscriptResult transcript = decoder
+				.decodeTranscript(envelope("STOP", "{\"transcript\": \"Hello\\nworld\", \"confidenceScore\": 0.93}"));
+
+		assertEquals("Hello\nworld", transcript.transcript());
+		assertEquals(0.93, transcript.confidenceScore());
+		assertFalse(transcript.truncated());
+	}
+
+	@Test
+	void findTranscript_SalvagesTranscriptCutOffByTokenLimit() {
+		TranscriptResult transcript = decoder
+				.findTranscript(new CandidateText("{\"transcript\": \"Caf\\u00e9 \\\"menu\\\" and mo", "MAX_TOKENS"));
+
+		assertEquals("Café \"menu\" and mo", transcript.transcript());
+		assertTrue(transcript.truncated());
+	}
+
+	@Test
+	void findTranscript_ReturnsNullForOtherDocuments() {
+		assertNull(decoder.findTranscript(new CandidateText(SUMMARY, "STOP")));
+		assertNull(decoder.findTranscript(new CandidateText("[{\"title\": \"x\"}]", "STOP")));
+		assertNull(decoder.findTranscript(new CandidateText("plain text", "STOP")));
+	}
+
+	@Test
+	void decodeRecommendations_ReadsArray() throws Exception {
+		String recommendations = "[{\"title\": \"Graphs 101\", \"description\": \"Intro\", \"url\": \"https://x\","
+				+ " \"type\": \"video\", \"audience\": \"beginner\", \"score\": 3}, {\"title\": \"BFS\"}]";
+
+		List<Recommendation> result = decoder.decodeRecommendations(envelope("STOP", recommendations))
+				.recommendations();
+
+		assertEquals(List.of(new Recommendation("Graphs 101", "Intro", "https://x", "video", "beginner"),
+				new Recommendation("BFS", null, null, null, null)), result);
+	}
+
+	private static String envelope(String finishReason, String text) throws JsonProcessingException {
+		return "{\"candidates\": [{\"content\": {\"parts\": [{\"text\": " + MAPPER.writeValueAsString(text)
+				+ "}], \"role\": \"model\"}, \"finishReason\": \"" + finishReason + "\", \"index\": 0}],"
+				+ " \"usageMetadata\": {\"promptTokenCount\": 10}, \"modelVersion\": \"gemini-2.5-flash\"}";
+	}
+}
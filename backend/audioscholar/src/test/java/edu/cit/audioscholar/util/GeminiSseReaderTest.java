@@ -0,0 +1,81 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+
+class GeminiSseReaderTest {
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	@Test
+	void read_PassesTextPartsInOrder() throws IOException {
+		List<String> texts = new ArrayList<>();
+
+		GeminiSseReader.StreamSummary summary = GeminiSseReader.read(stream("""
+				data: {"candidates": [{"content": {"parts": [{"text": "Good morning, "}], "role": "model"}}]}
+
+				data: {"candidates": [{"content": {"parts": [{"text": "class."}], "role": "model"}, \
+				"finishReason": "STOP"}], "usageMetadata": {"promptTokenCount": 812, "candidatesTokenCount": 5}}
+
+				"""), jsonFactory, texts::add);
+
+		assertEquals(List.of("Good morning, ", "class."), texts);
+		assertEquals("STOP", summary.finishReason());
+		assertEquals(812, summary.promptTokens());
+		assertEquals(5, summary.outputTokens());
+		assertEquals(2, summary.events());
+		assertFalse(summary.truncated());
+	}
+
+	@Test
+	void read_JoinsMultiLineDataAndIgnoresTextOutsideParts() throws IOException {
+		List<String> texts = new ArrayList<>();
+
+		GeminiSseReader.read(stream("""
+				: keep-alive
+				data: {"candidates": [{"content": {"parts": [{"text": "Hello"}]},
+				data: "citationMetadata": {"citations": [{"text": "not a part"}]}}]}
+				"""), jsonFactory, texts::add);
+
+		assertEquals(List.of("Hello"), texts);
+	}
+
+	@Test
+	void read_ReportsTruncationAtTokenLimit() throws IOException {
+		GeminiSseReader.StreamSummary summary = GeminiSseReader.read(stream("""
+				data: {"candidates": [{"content": {"parts": [{"text": "and then"}]}, "finishReason": "MAX_TOKENS"}]}
+
+				"""), jsonFactory, text -> {
+				});
+
+		assertTrue(summary.truncated());
+	}
+
+	@Test
+	void read_ThrowsOnErrorEvent() {
+		IOException error = assertThrows(IOException.class, () -> GeminiSseReader.read(stream("""
+				data: {"error": {"code": 503, "message": "The model is overloaded.", "status": "UNAVAILABLE"}}
+
+				"""), jsonFactory, text -> {
+				}));
+
+		assertTrue(error.getMessage().contains("The model is overloaded."));
+	}
+
+	private static InputStream stream(String body) {
+		return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+	}
+}
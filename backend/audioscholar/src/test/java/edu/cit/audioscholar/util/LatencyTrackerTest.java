@@ -0,0 +1,45 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyTrackerTest {
+
+	@Test
+	void percentile_ReturnsMinusOneUntilEnoughSamples() {
+		LatencyTracker tracker = new LatencyTracker(10);
+		tracker.record(100);
+		tracker.record(200);
+
+		assertEquals(-1, tracker.percentile(0.95, 3));
+		assertEquals(200, tracker.percentile(0.95, 2));
+	}
+
+	@Test
+	void percentile_PicksNearestRank() {
+		LatencyTracker tracker = new LatencyTracker(100);
+		for (int i = 100; i >= 1; i--) {
+			tracker.record(i);
+		}
+
+		assertEquals(95, tracker.percentile(0.95, 1));
+		assertEquals(50, tracker.percentile(0.5, 1));
+		assertEquals(1, tracker.percentile(0, 1));
+		assertEquals(100, tracker.percentile(1, 1));
+	}
+
+	@Test
+	void record_DropsOldestSamplesOnceWindowIsFull() {
+		LatencyTracker tracker = new LatencyTracker(3);
+		tracker.record(1_000);
+		tracker.record(1_000);
+		tracker.record(1_000);
+		tracker.record(10);
+		tracker.record(10);
+		tracker.record(10);
+
+		assertEquals(3, tracker.size());
+		assertEquals(10, tracker.percentile(1, 1));
+	}
+}
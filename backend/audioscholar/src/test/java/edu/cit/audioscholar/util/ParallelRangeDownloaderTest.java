@@ -0,0 +1,107 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class ParallelRangeDownloaderTest {
+
+	@TempDir
+	Path tempDir;
+
+	private final byte[] content = new byte[100_000];
+	private final AtomicInteger rangeRequests = new AtomicInteger();
+	private HttpServer server;
+	private volatile boolean honourRanges = true;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		new Random(42).nextBytes(content);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/v1/files/", this::serve);
+		server.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	void download_FetchesRangesInParallelAndReassemblesFile() throws IOException {
+		Path target = tempDir.resolve("lecture.mp3");
+
+		boolean ranged = new ParallelRangeDownloader(new RestTemplate(), 4, 1024).download(uri(), target);
+
+		assertTrue(ranged);
+		assertEquals(4, rangeRequests.get());
+		assertArrayEquals(content, Files.readAllBytes(target));
+	}
+
+	@Test
+	void download_FallsBackWhenServerIgnoresRanges() throws IOException {
+		honourRanges = false;
+
+		boolean ranged = new ParallelRangeDownloader(new RestTemplate(), 4, 1024).download(uri(),
+				tempDir.resolve("lecture.mp3"));
+
+		assertFalse(ranged);
+	}
+
+	@Test
+	void download_SkipsFilesBelowThreshold() throws IOException {
+		boolean ranged = new ParallelRangeDownloader(new RestTemplate(), 4, content.length + 1).download(uri(),
+				tempDir.resolve("lecture.mp3"));
+
+		assertFalse(ranged);
+		assertEquals(0, rangeRequests.get());
+	}
+
+	private URI uri() {
+		return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/files/file-1");
+	}
+
+	private void serve(HttpExchange exchange) throws IOException {
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+		if ("HEAD".equals(exchange.getRequestMethod())) {
+			exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+			return;
+		}
+		int start = 0;
+		int end = content.length - 1;
+		int status = 200;
+		if (range != null && honourRanges) {
+			String[] bounds = range.substring("bytes=".length()).split("-");
+			start = Integer.parseInt(bounds[0]);
+			end = Integer.parseInt(bounds[1]);
+			status = 206;
+			rangeRequests.incrementAndGet();
+		}
+		exchange.sendResponseHeaders(status, end - start + 1);
+		try (OutputStream body = exchange.getResponseBody()) {
+			body.write(content, start, end - start + 1);
+		}
+	}
+}
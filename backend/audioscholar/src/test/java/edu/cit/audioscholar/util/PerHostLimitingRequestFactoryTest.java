@@ -0,0 +1,98 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PerHostLimitingRequestFactoryTest {
+
+	private static final URI NHOST = URI.create("https://storage.nhost.run/v1/files");
+	private static final URI GEMINI = URI.create("https://generativelanguage.googleapis.com/v1beta/models");
+
+	private ClientHttpRequestFactory delegate;
+	private SimpleMeterRegistry meterRegistry;
+	private PerHostLimitingRequestFactory factory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		delegate = mock(ClientHttpRequestFactory.class);
+		when(delegate.createRequest(any(), any())).thenAnswer(invocation -> {
+			ClientHttpRequest request = mock(ClientHttpRequest.class);
+			when(request.execute()).thenReturn(mock(ClientHttpResponse.class));
+			return request;
+		});
+		meterRegistry = new SimpleMeterRegistry();
+		factory = new PerHostLimitingRequestFactory(delegate, 2, Duration.ofMillis(50), meterRegistry);
+	}
+
+	@Test
+	void execute_HoldsSlotUntilResponseClosed() throws IOException {
+		ClientHttpResponse first = factory.createRequest(NHOST, HttpMethod.GET).execute();
+		ClientHttpResponse second = factory.createRequest(NHOST, HttpMethod.GET).execute();
+
+		assertEquals(2, factory.inFlight("storage.nhost.run"));
+		assertThrows(ResourceAccessException.class, () -> factory.createRequest(NHOST, HttpMethod.GET).execute());
+		assertEquals(1.0, meterRegistry.get("audioscholar.http.client.acquire.timeouts").tag("host", "storage.nhost.run")
+				.counter().count());
+
+		first.close();
+		first.close();
+		assertEquals(1, factory.inFlight("storage.nhost.run"));
+		factory.createRequest(NHOST, HttpMethod.GET).execute().close();
+		second.close();
+		assertEquals(0, factory.inFlight("storage.nhost.run"));
+	}
+
+	@Test
+	void execute_LimitsEachHostIndependently() throws IOException {
+		factory.createRequest(NHOST, HttpMethod.GET).execute();
+		factory.createRequest(NHOST, HttpMethod.GET).execute();
+
+		factory.createRequest(GEMINI, HttpMethod.POST).execute().close();
+
+		assertEquals(0, factory.inFlight("generativelanguage.googleapis.com"));
+	}
+
+	@Test
+	void execute_UsesHostSpecificLimitWhereConfigured() throws IOException {
+		factory = new PerHostLimitingRequestFactory(delegate, 1, Map.of("generativelanguage.googleapis.com", 3),
+				Duration.ofMillis(50), meterRegistry);
+
+		for (int i = 0; i < 3; i++) {
+			factory.createRequest(GEMINI, HttpMethod.POST).execute();
+		}
+		factory.createRequest(NHOST, HttpMethod.GET).execute();
+
+		assertEquals(3, factory.inFlight("generativelanguage.googleapis.com"));
+		assertThrows(ResourceAccessException.class, () -> factory.createRequest(GEMINI, HttpMethod.POST).execute());
+		assertThrows(ResourceAccessException.class, () -> factory.createRequest(NHOST, HttpMethod.GET).execute());
+	}
+
+	@Test
+	void execute_ReleasesSlotWhenDelegateFails() throws IOException {
+		ClientHttpRequest failing = mock(ClientHttpRequest.class);
+		when(failing.execute()).thenThrow(new IOException("connection reset"));
+		when(delegate.createRequest(NHOST, HttpMethod.DELETE)).thenReturn(failing);
+
+		assertThrows(IOException.class, () -> factory.createRequest(NHOST, HttpMethod.DELETE).execute());
+
+		assertEquals(0, factory.inFlight("storage.nhost.run"));
+	}
+}
@@ -0,0 +1,70 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import edu.cit.audioscholar.util.AudioHeaderProber.ProbeResult;
+
+class StreamingHeaderProbeTest {
+
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void tap_ProbesHeaderWhileConsumerReadsEverything() throws IOException {
+		byte[] file = wav(16000, 2_000_000);
+		StreamingHeaderProbe probe = new StreamingHeaderProbe(file.length, executor);
+
+		byte[] consumed;
+		try (InputStream in = probe.tap(new ByteArrayInputStream(file))) {
+			consumed = in.readAllBytes();
+		}
+		Optional<ProbeResult> result = probe.finish();
+
+		assertArrayEquals(file, consumed);
+		assertTrue(result.isPresent());
+		assertEquals(2_000_000 / 32000.0, result.get().durationSeconds(), 0.001);
+	}
+
+	@Test
+	void finish_ReturnsEmptyWhenConsumerStopsEarly() throws IOException {
+		byte[] file = wav(16000, 96000);
+		StreamingHeaderProbe probe = new StreamingHeaderProbe(file.length, executor);
+
+		try (InputStream in = probe.tap(new ByteArrayInputStream(file))) {
+			in.readNBytes(10);
+		}
+
+		assertTrue(probe.finish().isEmpty());
+	}
+
+	private static byte[] wav(int sampleRate, int dataBytes) {
+		ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN)
+				.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + dataBytes)
+				.put("WAVE".getBytes(StandardCharsets.US_ASCII)).put("fmt ".getBytes(StandardCharsets.US_ASCII))
+				.putInt(16).putShort((short) 1).putShort((short) 1).putInt(sampleRate).putInt(sampleRate * 2)
+				.putShort((short) 2).putShort((short) 16).put("data".getBytes(StandardCharsets.US_ASCII))
+				.putInt(dataBytes);
+		byte[] file = new byte[44 + dataBytes];
+		System.arraycopy(header.array(), 0, file, 0, 44);
+		return file;
+	}
+}
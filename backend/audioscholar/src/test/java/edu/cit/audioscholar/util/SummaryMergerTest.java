@@ -0,0 +1,58 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.cit.audioscholar.util.GeminiResponseDecoder.GlossaryEntry;
+import edu.cit.audioscholar.util.GeminiResponseDecoder.SummaryResult;
+
+class SummaryMergerTest {
+
+	private static final List<SummaryResult> PARTS = List.of(
+			new SummaryResult("## Graphs\nVertices and edges.", List.of("Graphs model relations.", "BFS uses a queue."),
+					List.of("graph basics", "bfs tutorial"), List.of(new GlossaryEntry("Vertex", "A node"))),
+			new SummaryResult("## Search\nBFS and DFS.", List.of("bfs uses  a queue", "DFS uses a stack."),
+					List.of("BFS tutorial", "dfs tutorial", "graph search"),
+					List.of(new GlossaryEntry("vertex", "A point"), new GlossaryEntry("Queue", "FIFO list"))));
+
+	@Test
+	void merge_JoinsPartsWhenThereIsNoReducedSummary() {
+		SummaryResult merged = SummaryMerger.merge(null, PARTS);
+
+		assertEquals("## Graphs\nVertices and edges.\n\n## Search\nBFS and DFS.", merged.summaryText());
+		// Repeats differ only in case, spacing and trailing punctuation; the first wins.
+		assertEquals(List.of("Graphs model relations.", "BFS uses a queue.", "DFS uses a stack."), merged.keyPoints());
+		assertEquals(List.of("graph basics", "bfs tutorial", "dfs tutorial"), merged.topics());
+		assertEquals(List.of(new GlossaryEntry("Vertex", "A node"), new GlossaryEntry("Queue", "FIFO list")),
+				merged.glossary());
+	}
+
+	@Test
+	void merge_TakesReducedSummaryAndAddsItsNewTerms() {
+		SummaryResult reduced = new SummaryResult("# Graph search",
+				List.of("Graphs are searched breadth or depth first."), List.of("graph search algorithms"),
+				List.of(new GlossaryEntry("Stack", "LIFO list")));
+
+		SummaryResult merged = SummaryMerger.merge(reduced, PARTS);
+
+		assertEquals("# Graph search", merged.summaryText());
+		assertEquals(reduced.keyPoints(), merged.keyPoints());
+		assertEquals(reduced.topics(), merged.topics());
+		assertEquals(List.of(new GlossaryEntry("Vertex", "A node"), new GlossaryEntry("Queue", "FIFO list"),
+				new GlossaryEntry("Stack", "LIFO list")), merged.glossary());
+	}
+
+	@Test
+	void merge_FillsFieldsTheReducedSummaryLeftEmpty() {
+		SummaryResult reduced = new SummaryResult(" ", List.of(), List.of("graph search"), List.of());
+
+		SummaryResult merged = SummaryMerger.merge(reduced, PARTS);
+
+		assertEquals("## Graphs\nVertices and edges.\n\n## Search\nBFS and DFS.", merged.summaryText());
+		assertEquals(3, merged.keyPoints().size());
+		assertEquals(List.of("graph search"), merged.topics());
+	}
+}
@@ -0,0 +1,56 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TranscriptChunkerTest {
+
+	@Test
+	void split_ReturnsShortTranscriptWhole() {
+		assertEquals(List.of("Short lecture."), TranscriptChunker.split("  Short lecture.\n", 60));
+	}
+
+	@Test
+	void split_PrefersParagraphBreaks() {
+		String transcript = "Today we look at graphs and their vertices.\n\n"
+				+ "Breadth first search visits neighbours level by level.\n\n"
+				+ "Depth first search follows one path as far as it goes.";
+
+		assertEquals(List.of("Today we look at graphs and their vertices.",
+				"Breadth first search visits neighbours level by level.",
+				"Depth first search follows one path as far as it goes."), TranscriptChunker.split(transcript, 60));
+	}
+
+	@Test
+	void split_EndsPartsAtSentencesWithoutParagraphs() {
+		assertEquals(List.of("One two three. Four five six.", "Seven eight nine."),
+				TranscriptChunker.split("One two three. Four five six. Seven eight nine.", 30));
+	}
+
+	@Test
+	void split_CutsWordsOnlyWhenThereIsNoOtherBoundary() {
+		assertEquals(List.of("abcd", "efgh", "ij"), TranscriptChunker.split("abcdefghij", 4));
+	}
+
+	@Test
+	void split_KeepsEveryWordAndStaysWithinLimit() {
+		String transcript = "word ".repeat(5_000).strip();
+
+		List<String> parts = TranscriptChunker.split(transcript, 1_000);
+
+		assertEquals(transcript, String.join(" ", parts));
+		assertTrue(parts.stream().allMatch(part -> part.length() <= 1_000));
+		// 24999 characters in 25 parts of about the same length.
+		assertEquals(25, parts.size());
+	}
+
+	@Test
+	void split_RejectsNonPositiveLimit() {
+		assertThrows(IllegalArgumentException.class, () -> TranscriptChunker.split("text", 0));
+	}
+}
@@ -0,0 +1,44 @@
+package edu.cit.audioscholar.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TranscriptStitcherTest {
+
+	@Test
+	void stitch_DropsRepeatedOverlap() {
+		String first = "Today we cover sorting. Merge sort splits the array in half and sorts each half.";
+		String second = "splits the array in half, and sorts each half recursively before merging them.";
+
+		String stitched = TranscriptStitcher.stitch(List.of(first, second), 50);
+
+		assertEquals("Today we cover sorting. Merge sort splits the array in half and sorts each half."
+				+ " recursively before merging them.", stitched);
+	}
+
+	@Test
+	void stitch_JoinsWithParagraphBreakWhenNoOverlapFound() {
+		String stitched = TranscriptStitcher.stitch(List.of("First part ends here.", "Second part starts."), 50);
+
+		assertEquals("First part ends here.\n\nSecond part starts.", stitched);
+	}
+
+	@Test
+	void stitch_SkipsSilentWindows() {
+		String stitched = TranscriptStitcher.stitch(
+				List.of(TranscriptStitcher.NO_SPEECH_MARKER, "Welcome back.", TranscriptStitcher.NO_SPEECH_MARKER), 50);
+
+		assertEquals("Welcome back.", stitched);
+	}
+
+	@Test
+	void stitch_ReportsNoSpeechWhenAllWindowsAreSilent() {
+		String stitched = TranscriptStitcher.stitch(
+				List.of(TranscriptStitcher.NO_SPEECH_MARKER, TranscriptStitcher.NO_SPEECH_MARKER), 50);
+
+		assertEquals(TranscriptStitcher.NO_SPEECH_MARKER, stitched);
+	}
+}